@@ -261,6 +261,11 @@ public class IgnitePersistentTeamcity implements IAnalyticsEnabledTeamcity, ITea
         return teamcity.getBuildRefsPage(fullUrl, nextPage);
     }
 
+    /** {@inheritDoc} */
+    @Override public List<BuildRef> getBuildRefsPageSince(int sinceBuildId, AtomicReference<String> nextPage) {
+        return teamcity.getBuildRefsPageSince(sinceBuildId, nextPage);
+    }
+
     /** {@inheritDoc} */
     @Override public SortedSet<MuteInfo> getMutesPage(String buildTypeId, String fullUrl, AtomicReference<String> nextPage) {
         return teamcity.getMutesPage(buildTypeId, fullUrl, nextPage);
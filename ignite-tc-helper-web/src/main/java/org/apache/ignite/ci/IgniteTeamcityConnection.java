@@ -432,6 +432,14 @@ public class IgniteTeamcityConnection implements ITeamcity {
         return builds.getBuildsNonNull();
     }
 
+    /** {@inheritDoc} */
+    @AutoProfiling
+    @Override public List<BuildRef> getBuildRefsPageSince(int sinceBuildId, AtomicReference<String> outNextPage) {
+        String relPath = "app/rest/latest/builds?locator=defaultFilter:false,sinceBuild:(id:" + sinceBuildId + ")";
+
+        return getBuildRefsPage(relPath, outNextPage);
+    }
+
     /** {@inheritDoc} */
     @Override public SortedSet<MuteInfo> getMutesPage(String buildTypeId, String fullUrl, AtomicReference<String> nextPage) {
         String relPath = "app/rest/mutes?locator=project:(id:" + buildTypeId + ')';
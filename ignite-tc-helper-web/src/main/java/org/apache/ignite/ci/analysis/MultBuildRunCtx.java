@@ -21,10 +21,10 @@ import com.google.common.base.Strings;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -59,8 +59,56 @@ public class MultBuildRunCtx implements ISuiteResults {
     /** Builds: Single execution. */
     private List<SingleBuildRunCtx> builds = new CopyOnWriteArrayList<>();
 
+    /** Count of builds having problem: index is a number of problem flag bit, see {@link SingleBuildRunCtx#TIMEOUT}. */
+    private final int[] problemBuildsCnt = new int[Integer.SIZE];
+
+    /** Problem flags of all builds. */
+    private int problemFlags;
+
+    /** First problem of type not known to TC Bot. */
+    @Nullable private ProblemCompacted unknownProblem;
+
+    /** Count of cancelled non composite builds. */
+    private int cancelledCnt;
+
+    /** Count of composite builds. */
+    private int compositeCnt;
+
+    /** Names of failed not muted tests of all builds. */
+    private final Set<String> failedTestNames = new LinkedHashSet<>();
+
+    /**
+     * Adds build and updates problem counters of the suite.
+     *
+     * @param ctx Build context.
+     */
     public void addBuild(SingleBuildRunCtx ctx) {
         builds.add(ctx);
+
+        int flags = ctx.problemFlags();
+
+        for (int rest = flags; rest != 0; rest &= rest - 1)
+            problemBuildsCnt[Integer.numberOfTrailingZeros(rest)]++;
+
+        problemFlags |= flags;
+
+        if (unknownProblem == null)
+            unknownProblem = ctx.unknownProblem();
+
+        if (ctx.isComposite())
+            compositeCnt++;
+        else if (ctx.isCancelled())
+            cancelledCnt++;
+
+        ctx.getFailedNotMutedTestNames().forEach(failedTestNames::add);
+    }
+
+    /**
+     * @param flag Problem flag, see {@link SingleBuildRunCtx#TIMEOUT}.
+     * @return Count of builds having problem.
+     */
+    private int problemBuildsCount(int flag) {
+        return problemBuildsCnt[Integer.numberOfTrailingZeros(flag)];
     }
 
     /** Currently running builds */
@@ -99,17 +147,11 @@ public class MultBuildRunCtx implements ISuiteResults {
     }
 
     public boolean hasAnyBuildProblemExceptTestOrSnapshot() {
-        return allProblemsInAllBuilds()
-            .anyMatch(p -> !p.isFailedTests(compactor) && !p.isSnapshotDepProblem(compactor));
+        return (problemFlags & SingleBuildRunCtx.NOT_TEST_OR_SNAPSHOT) != 0;
     }
 
     public boolean onlyCancelledBuilds() {
-        return buildsStream().allMatch(bCtx -> !bCtx.isComposite() && bCtx.isCancelled());
-    }
-
-    @NotNull
-    private Stream<ProblemCompacted> allProblemsInAllBuilds() {
-        return buildsStream().flatMap(SingleBuildRunCtx::getProblemsStream);
+        return cancelledCnt == builds.size();
     }
 
     public List<SingleBuildRunCtx> getBuilds() {
@@ -123,7 +165,7 @@ public class MultBuildRunCtx implements ISuiteResults {
 
     /** */
     public long getMetricProblemCount() {
-        return buildsStream().filter(ISuiteResults::hasMetricProblem).count();
+        return problemBuildsCount(SingleBuildRunCtx.METRIC);
     }
 
     /** {@inheritDoc} */
@@ -133,7 +175,7 @@ public class MultBuildRunCtx implements ISuiteResults {
 
     /** */
     public long getCompilationProblemCount() {
-        return buildsStream().filter(ISuiteResults::hasCompilationProblem).count();
+        return problemBuildsCount(SingleBuildRunCtx.COMPILATION);
     }
 
     public boolean hasTimeoutProblem() {
@@ -141,7 +183,7 @@ public class MultBuildRunCtx implements ISuiteResults {
     }
 
     private long getExecutionTimeoutCount() {
-        return buildsStream().filter(SingleBuildRunCtx::hasTimeoutProblem).count();
+        return problemBuildsCount(SingleBuildRunCtx.TIMEOUT);
     }
 
     public boolean hasJvmCrashProblem() {
@@ -149,7 +191,7 @@ public class MultBuildRunCtx implements ISuiteResults {
     }
 
     public long getJvmCrashProblemCount() {
-        return buildsStream().filter(ISuiteResults::hasJvmCrashProblem).count();
+        return problemBuildsCount(SingleBuildRunCtx.JVM_CRASH);
     }
 
     public boolean hasOomeProblem() {
@@ -161,19 +203,19 @@ public class MultBuildRunCtx implements ISuiteResults {
     }
 
     private long getExitCodeProblemsCount() {
-        return buildsStream().filter(ISuiteResults::hasExitCodeProblem).count();
+        return problemBuildsCount(SingleBuildRunCtx.EXIT_CODE);
     }
 
     private long getOomeProblemCount() {
-        return buildsStream().filter(ISuiteResults::hasOomeProblem).count();
+        return problemBuildsCount(SingleBuildRunCtx.OOME);
     }
 
     public int failedTests() {
-        return (int)getFailedTestsNames().count();
+        return failedTestNames.size();
     }
 
     @NotNull public Stream<String> getFailedTestsNames() {
-        return buildsStream().flatMap(SingleBuildRunCtx::getFailedNotMutedTestNames).distinct();
+        return failedTestNames.stream();
     }
 
     /**
@@ -184,8 +226,6 @@ public class MultBuildRunCtx implements ISuiteResults {
     public String getResult() {
         StringBuilder res = new StringBuilder();
 
-        long cancelledCnt = buildsStream().filter(bCtx -> !bCtx.isComposite() && bCtx.isCancelled()).count();
-
         if (cancelledCnt > 0) {
             res.append(CANCELLED);
 
@@ -200,25 +240,11 @@ public class MultBuildRunCtx implements ISuiteResults {
         addKnownProblemCnt(res, "Compilation Error", getCompilationProblemCount());
         addKnownProblemCnt(res, "Failure on metric", getMetricProblemCount());
 
-        {
-            Stream<ProblemCompacted> stream =
-                allProblemsInAllBuilds().filter(p ->
-                    !p.isFailedTests(compactor)
-                        && !p.isBuildFailureOnMetric(compactor)
-                        && !p.isCompilationError(compactor)
-                        && !p.isSnapshotDepProblem(compactor)
-                        && !p.isExecutionTimeout(compactor)
-                        && !p.isJvmCrash(compactor)
-                        && !p.isExitCode(compactor)
-                        //&& !p.isJavaLevelDeadlock(compactor)
-                        && !p.isOome(compactor));
-            Optional<ProblemCompacted> bpOpt = stream.findAny();
-            if (bpOpt.isPresent()) {
-                if (res.length() > 0)
-                    res.append(", ");
-
-                res.append(bpOpt.get().type(compactor)).append(" ");
-            }
+        if (unknownProblem != null) {
+            if (res.length() > 0)
+                res.append(", ");
+
+            res.append(unknownProblem.type(compactor)).append(" ");
         }
 
         List<LogCheckResult> collect = getLogChecksIfFinished().collect(Collectors.toList());
@@ -443,8 +469,7 @@ public class MultBuildRunCtx implements ISuiteResults {
      * @return true if all builds are composite
      */
     public boolean isComposite() {
-        return !builds.isEmpty()
-            && buildsStream().allMatch(SingleBuildRunCtx::isComposite);
+        return !builds.isEmpty() && compositeCnt == builds.size();
     }
 
     /**
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import org.apache.ignite.ci.tcmodel.result.tests.TestOccurrenceFull;
@@ -41,6 +42,27 @@ import org.jetbrains.annotations.Nullable;
  * Single build ocurrence,
  */
 public class SingleBuildRunCtx implements ISuiteResults {
+    /** Problem flag: execution timeout. */
+    static final int TIMEOUT = 1;
+
+    /** Problem flag: JVM crash. */
+    static final int JVM_CRASH = 1 << 1;
+
+    /** Problem flag: out of memory error. */
+    static final int OOME = 1 << 2;
+
+    /** Problem flag: non zero exit code. */
+    static final int EXIT_CODE = 1 << 3;
+
+    /** Problem flag: compilation error. */
+    static final int COMPILATION = 1 << 4;
+
+    /** Problem flag: build failure on metric. */
+    static final int METRIC = 1 << 5;
+
+    /** Problem flag: any problem except failed tests or snapshot dependency problem. */
+    static final int NOT_TEST_OR_SNAPSHOT = 1 << 6;
+
     /** Build compacted. */
     private FatBuildCompacted buildCompacted;
 
@@ -53,6 +75,18 @@ public class SingleBuildRunCtx implements ISuiteResults {
     /** Logger check result future. */
     private CompletableFuture<LogCheckResult> logCheckResFut;
 
+    /** Problem flags of the build, see {@link #TIMEOUT} and other flags. */
+    private final int problemFlags;
+
+    /** First problem of type not known to TC Bot, used as printable result. */
+    @Nullable private final ProblemCompacted unknownProblem;
+
+    /** Build was cancelled. */
+    private final boolean cancelled;
+
+    /** Names of failed not muted tests, empty for composite build. */
+    private final List<String> failedNotMutedTestNames;
+
     /**
      * @param buildCompacted Build compacted.
      * @param compactor Compactor.
@@ -61,6 +95,69 @@ public class SingleBuildRunCtx implements ISuiteResults {
         IStringCompactor compactor) {
         this.buildCompacted = buildCompacted;
         this.compactor = compactor;
+
+        int flags = 0;
+        ProblemCompacted unknown = null;
+
+        for (ProblemCompacted p : buildCompacted.problems()) {
+            int flag = problemFlag(p);
+
+            if (flag != 0)
+                flags |= flag | NOT_TEST_OR_SNAPSHOT;
+            else if (!p.isFailedTests(compactor) && !p.isSnapshotDepProblem(compactor)) {
+                flags |= NOT_TEST_OR_SNAPSHOT;
+
+                if (unknown == null)
+                    unknown = p;
+            }
+        }
+
+        problemFlags = flags;
+        unknownProblem = unknown;
+        cancelled = buildCompacted.isCancelled(compactor);
+        failedNotMutedTestNames = buildCompacted.isComposite()
+            ? Collections.emptyList()
+            : buildCompacted.getFailedNotMutedTestNames(compactor).collect(Collectors.toList());
+    }
+
+    /**
+     * @param p Problem.
+     * @return Flag of known critical problem or 0.
+     */
+    private int problemFlag(ProblemCompacted p) {
+        if (p.isExecutionTimeout(compactor))
+            return TIMEOUT;
+
+        if (p.isJvmCrash(compactor))
+            return JVM_CRASH;
+
+        if (p.isOome(compactor))
+            return OOME;
+
+        if (p.isExitCode(compactor))
+            return EXIT_CODE;
+
+        if (p.isCompilationError(compactor))
+            return COMPILATION;
+
+        if (p.isBuildFailureOnMetric(compactor))
+            return METRIC;
+
+        return 0;
+    }
+
+    /**
+     * @return Problem flags, see {@link #TIMEOUT} and other flags.
+     */
+    int problemFlags() {
+        return problemFlags;
+    }
+
+    /**
+     * @return First problem of type not known to TC Bot.
+     */
+    @Nullable ProblemCompacted unknownProblem() {
+        return unknownProblem;
     }
 
     /**
@@ -73,36 +170,28 @@ public class SingleBuildRunCtx implements ISuiteResults {
 
     /** {@inheritDoc} */
     @Override public boolean hasMetricProblem() {
-        return getProblemsStream().anyMatch(p -> p.isBuildFailureOnMetric(compactor));
+        return (problemFlags & METRIC) != 0;
     }
 
     /** {@inheritDoc} */
     @Override public boolean hasCompilationProblem() {
-        return getProblemsStream().anyMatch(p -> p.isCompilationError(compactor));
+        return (problemFlags & COMPILATION) != 0;
     }
 
     public boolean hasTimeoutProblem() {
-        return getExecutionTimeoutCount() > 0;
-    }
-
-    private long getExecutionTimeoutCount() {
-        return getProblemsStream().filter(p -> p.isExecutionTimeout(compactor)).count();
-    }
-
-    Stream<ProblemCompacted> getProblemsStream() {
-        return buildCompacted.problems().stream();
+        return (problemFlags & TIMEOUT) != 0;
     }
 
     @Override public boolean hasJvmCrashProblem() {
-        return getProblemsStream().anyMatch(p -> p.isJvmCrash(compactor));
+        return (problemFlags & JVM_CRASH) != 0;
     }
 
     @Override public boolean hasOomeProblem() {
-        return getProblemsStream().anyMatch(p -> p.isOome(compactor));
+        return (problemFlags & OOME) != 0;
     }
 
     @Override public boolean hasExitCodeProblem() {
-        return getProblemsStream().anyMatch(p -> p.isExitCode(compactor));
+        return (problemFlags & EXIT_CODE) != 0;
     }
 
     @Override public String suiteId() {
@@ -181,7 +270,7 @@ public class SingleBuildRunCtx implements ISuiteResults {
      * @return Names of not muted or ignored test failed for non composite build
      */
     public Stream<String> getFailedNotMutedTestNames() {
-        return isComposite() ? Stream.empty() : buildCompacted.getFailedNotMutedTestNames(compactor);
+        return failedNotMutedTestNames.stream();
     }
 
     public Stream<TestCompacted> getFailedNotMutedTests() {
@@ -230,7 +319,7 @@ public class SingleBuildRunCtx implements ISuiteResults {
     }
 
     public boolean isCancelled() {
-        return buildCompacted.isCancelled(compactor);
+        return cancelled;
     }
 
     /**
@@ -23,24 +23,42 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import javax.cache.Cache;
+import javax.cache.configuration.FactoryBuilder;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.IgniteDataStreamer;
 import org.apache.ignite.binary.BinaryObject;
 import org.apache.ignite.cache.CacheAtomicityMode;
 import org.apache.ignite.cache.CacheMode;
+import org.apache.ignite.cache.CacheEntryEventSerializableFilter;
+import org.apache.ignite.cache.query.ContinuousQuery;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
 import org.apache.ignite.ci.IgnitePersistentTeamcity;
 import org.apache.ignite.ci.issue.Issue;
 import org.apache.ignite.ci.issue.IssueKey;
 import org.apache.ignite.ci.issue.IssuesStorage;
 import org.apache.ignite.ci.observer.CompactBuildsInfo;
 import org.apache.ignite.ci.tcmodel.result.Build;
+import org.apache.ignite.ci.teamcity.ignited.ITeamcityIgnited;
+import org.apache.ignite.ci.teamcity.ignited.buildref.BuildRefDao;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.ChainGraphDao;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildDao;
+import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistCompactedDao;
 import org.apache.ignite.ci.web.model.CompactContributionKey;
 import org.apache.ignite.ci.web.model.CompactVisa;
 import org.apache.ignite.ci.web.model.CompactVisaRequest;
 import org.apache.ignite.ci.web.model.hist.VisasHistoryStorage;
 import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.lang.IgniteBiPredicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -128,6 +146,18 @@ public class DbMigrations {
         String TESTS_RUN_STAT = "testsRunStat";
     }
 
+    /** Batch size for moving entries to per server cache. */
+    private static final int MOVE_BATCH = 1000;
+
+    /** Executor of background migrations, one migration is running at a time. */
+    private static final ExecutorService BG_MIGRATIONS = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "db-migrations-bg");
+
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
     private final Ignite ignite;
     private final String serverId;
     private IgniteCache<String, Object> doneMigrations;
@@ -284,6 +314,229 @@ public class DbMigrations {
         applyDestroyIgnCacheMigration(Old.BUILD_RESULTS);
         applyDestroyIgnCacheMigration(Old.BUILDS_FAILURE_RUN_STAT);
         applyDestroyIgnCacheMigration(Old.TESTS_RUN_STAT);
+
+        applyMigration(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME + "-fillSrvId-" + serverId, this::fillBuildRefsSrvId);
+
+        if (ServerCaches.isPerServerLayout())
+            BG_MIGRATIONS.execute(this::moveToServerCaches);
+    }
+
+    /**
+     * Moves data of current server from shared caches to per server caches, see {@link ServerCaches}. Runs in
+     * background, shared cache is used by DAOs until move of the cache is completed.
+     */
+    void moveToServerCaches() {
+        try {
+            applyMoveToServerCacheMigration(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME, BuildRefDao::cacheConfig);
+            applyMoveToServerCacheMigration(FatBuildDao.TEAMCITY_FAT_BUILD_CACHE_NAME, TcHelperDb::getCacheV2Config);
+            applyMoveToServerCacheMigration(RunHistCompactedDao.BUILD_START_TIME_CACHE_NAME,
+                TcHelperDb::getCacheV2Config);
+            applyMoveToServerCacheMigration(ChainGraphDao.CHAIN_GRAPH_CACHE_NAME, TcHelperDb::getCacheV2Config);
+        }
+        catch (Exception e) {
+            logger.error("Moving data of server " + serverId + " to per server caches failed, shared caches are " +
+                "used until restart", e);
+        }
+    }
+
+    /**
+     * Moves entries of current server from shared cache to per server cache, see {@link ServerCaches}. Unlike other
+     * migrations, it is not synchronized with migrations of other servers, because it is long running.
+     *
+     * @param name Shared cache name.
+     * @param cfgFactory Cache configuration factory.
+     */
+    private <V> void applyMoveToServerCacheMigration(String name,
+        Function<String, CacheConfiguration<Long, V>> cfgFactory) {
+        String code = name + "-toServerCache-" + serverId;
+        int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(serverId);
+
+        if (!doneMigrations.containsKey(code)) {
+            logger.warn("Running migration procedure [" + code + "]");
+
+            moveToServerCache(name, cfgFactory);
+
+            doneMigrations.put(code, true);
+
+            logger.warn("Completed migration procedure [" + code + "]");
+        }
+
+        // Marker is also set for migration completed by previous versions.
+        ServerCaches.markMigrated(ignite, name, srvIdMaskHigh);
+    }
+
+    /**
+     * Copies entries of current server from shared cache to per server cache in binary form. Shared cache is used by
+     * readers and writers of the server until the move is completed, so entries are kept in shared cache while they
+     * are copied, and keys changed concurrently are tracked by continuous query. Then per server cache is marked as
+     * migrated, changed entries are copied once more, and entries of the server are removed from shared cache.
+     *
+     * @param name Shared cache name.
+     * @param cfgFactory Cache configuration factory.
+     */
+    <V> void moveToServerCache(String name, Function<String, CacheConfiguration<Long, V>> cfgFactory) {
+        int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(serverId);
+        String srvCacheName = ServerCaches.cacheName(name, srvIdMaskHigh);
+
+        IgniteCache<Long, Object> binSrv = ignite.getOrCreateCache(cfgFactory.apply(srvCacheName)).withKeepBinary();
+
+        IgniteCache<Long, Object> shared = ignite.cache(name);
+
+        if (shared == null)
+            return;
+
+        IgniteCache<Long, Object> binShared = shared.withKeepBinary();
+
+        if (ServerCaches.isMarkedMigrated(ignite, name, srvIdMaskHigh)) {
+            // Per server cache is already in use, only removal of moved entries may be left.
+            removeEntries(binShared, srvIdMaskHigh);
+
+            return;
+        }
+
+        Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+        ContinuousQuery<Long, Object> changesQry = new ContinuousQuery<>();
+
+        changesQry.setRemoteFilterFactory(FactoryBuilder.factoryOf(
+            (CacheEntryEventSerializableFilter<Long, Object>)evt -> evt.getKey() >> 32 == srvIdMaskHigh));
+        changesQry.setLocalListener(evts -> evts.forEach(evt -> changed.add(evt.getKey())));
+
+        try (QueryCursor<Cache.Entry<Long, Object>> ignored = binShared.query(changesQry)) {
+            copyEntries(binShared, srvIdMaskHigh, srvCacheName);
+
+            ServerCaches.markMigrated(ignite, name, srvIdMaskHigh);
+
+            // Saves started before the mark may still go to shared cache.
+            for (Long key : changed) {
+                Object val = binShared.get(key);
+
+                if (val != null)
+                    binSrv.put(key, val);
+                else
+                    binSrv.remove(key);
+            }
+        }
+
+        removeEntries(binShared, srvIdMaskHigh);
+    }
+
+    /**
+     * @param binShared Shared cache, binary view.
+     * @param srvIdMaskHigh Server id mask high.
+     * @param srvCacheName Per server cache name.
+     */
+    private void copyEntries(IgniteCache<Long, Object> binShared, int srvIdMaskHigh, String srvCacheName) {
+        int size = binShared.size();
+        int copied = 0;
+        ScanQuery<Long, Object> scan = new ScanQuery<>(srvFilter(srvIdMaskHigh));
+
+        try (IgniteDataStreamer<Long, Object> streamer = ignite.dataStreamer(srvCacheName);
+             QueryCursor<Cache.Entry<Long, Object>> cursor = binShared.query(scan)) {
+            streamer.keepBinary(true);
+            streamer.allowOverwrite(true);
+
+            for (Cache.Entry<Long, Object> entry : cursor) {
+                streamer.addData(entry.getKey(), entry.getValue());
+
+                if (++copied % MOVE_BATCH == 0) {
+                    logger.info("Copied " + copied + " entries from " + binShared.getName() + " (" + size + ") to " +
+                        srvCacheName);
+                }
+            }
+        }
+
+        logger.info("Copied " + copied + " entries from " + binShared.getName() + " to " + srvCacheName +
+            " for server " + serverId);
+    }
+
+    /**
+     * Removes entries of current server from shared cache.
+     *
+     * @param binShared Shared cache, binary view.
+     * @param srvIdMaskHigh Server id mask high.
+     */
+    private void removeEntries(IgniteCache<Long, Object> binShared, int srvIdMaskHigh) {
+        Set<Long> batch = new TreeSet<>();
+        int removed = 0;
+        ScanQuery<Long, Object> scan = new ScanQuery<>(srvFilter(srvIdMaskHigh));
+
+        try (QueryCursor<Cache.Entry<Long, Object>> cursor = binShared.query(scan)) {
+            for (Cache.Entry<Long, Object> entry : cursor) {
+                batch.add(entry.getKey());
+
+                if (batch.size() >= MOVE_BATCH) {
+                    binShared.removeAll(batch);
+                    removed += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            binShared.removeAll(batch);
+            removed += batch.size();
+        }
+
+        logger.info("Removed " + removed + " moved entries from " + binShared.getName() + " for server " + serverId);
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @return Filter of entries of the server.
+     */
+    private static IgniteBiPredicate<Long, Object> srvFilter(int srvIdMaskHigh) {
+        return (key, val) -> key >> 32 == srvIdMaskHigh;
+    }
+
+    /**
+     * Fills server ID field of build references saved before the field was introduced. Server ID is taken from high
+     * bits of cache key.
+     */
+    void fillBuildRefsSrvId() {
+        IgniteCache<Long, Object> cache = ignite.cache(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME);
+
+        if (cache == null)
+            return;
+
+        IgniteCache<Long, BinaryObject> binCache = cache.withKeepBinary();
+
+        int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(serverId);
+        int size = binCache.size();
+        int i = 0;
+        int updated = 0;
+
+        Map<Long, BinaryObject> batch = new TreeMap<>();
+
+        for (Cache.Entry<Long, BinaryObject> entry : binCache) {
+            i++;
+
+            if (!BuildRefDao.isKeyForServer(entry.getKey(), srvIdMaskHigh))
+                continue;
+
+            BinaryObject ref = entry.getValue();
+            Object srvIdFld = ref.hasField("srvId") ? ref.field("srvId") : null;
+
+            if (srvIdFld != null && !Objects.equals(srvIdFld, 0))
+                continue;
+
+            batch.put(entry.getKey(), ref.toBuilder().setField("srvId", srvIdMaskHigh).build());
+
+            if (batch.size() >= 1000) {
+                updated += batch.size();
+                binCache.putAll(batch);
+                batch.clear();
+
+                logger.info("Build references server ID filled " + updated + ", checked " + i + " from " + size);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            updated += batch.size();
+            binCache.putAll(batch);
+        }
+
+        logger.info("Build references server ID filled " + updated + " for server " + serverId);
     }
 
     private void applyDestroyIgnCacheMigration(String cacheName) {
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.db;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.ci.tcbot.TcBotSystemProperties;
+import org.apache.ignite.configuration.CacheConfiguration;
+
+/**
+ * Storage for data having server ID in high 32 bits of the key. By default all servers share one cache. In per server
+ * layout (see {@link TcBotSystemProperties#TEAMCITY_BOT_PER_SERVER_CACHES}) each server has its own cache, so scans
+ * and cache sizes are proportional to data of this server only. Keys are the same in both layouts.
+ * <p>
+ * In per server layout data of a server is moved from shared cache in background by {@link DbMigrations}. Until the
+ * move is completed and marked by {@link #markMigrated(Ignite, String, int)}, shared cache is used for the server.
+ */
+public class ServerCaches<V> {
+    /** Cache of markers of per server caches having data moved from shared cache: per server cache name -> true. */
+    public static final String MIGRATED_MARKERS_CACHE_NAME = "serverCachesMigrated";
+
+    /** Names of per server caches known to have data moved from shared cache. */
+    private static final Set<String> MIGRATED = ConcurrentHashMap.newKeySet();
+
+    /** Ignite. */
+    private final Ignite ignite;
+
+    /** Shared cache name, also prefix of per server cache names. */
+    private final String name;
+
+    /** Cache configuration factory: cache name -> configuration. */
+    private final Function<String, CacheConfiguration<Long, V>> cfgFactory;
+
+    /** Per server layout is used. */
+    private final boolean perSrv;
+
+    /** Shared cache, null for per server layout if shared cache does not exist. */
+    @Nullable private final IgniteCache<Long, V> shared;
+
+    /** Per server caches of servers with data moved from shared cache: server id mask high -> cache. */
+    private final ConcurrentMap<Integer, IgniteCache<Long, V>> srvCaches = new ConcurrentHashMap<>();
+
+    /** Servers checked for persisted migration marker. */
+    private final Set<Integer> markerChecked = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param ignite Ignite.
+     * @param name Shared cache name.
+     * @param cfgFactory Cache configuration factory.
+     */
+    public ServerCaches(Ignite ignite, String name, Function<String, CacheConfiguration<Long, V>> cfgFactory) {
+        this.ignite = ignite;
+        this.name = name;
+        this.cfgFactory = cfgFactory;
+
+        perSrv = isPerServerLayout();
+        shared = perSrv ? ignite.cache(name) : ignite.getOrCreateCache(cfgFactory.apply(name));
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @return Cache containing data of the server.
+     */
+    public IgniteCache<Long, V> get(int srvId) {
+        if (!perSrv)
+            return shared;
+
+        IgniteCache<Long, V> cache = srvCaches.get(srvId);
+
+        if (cache != null)
+            return cache;
+
+        if (shared != null && !isMigrated(srvId))
+            return shared;
+
+        return srvCaches.computeIfAbsent(srvId, id -> ignite.getOrCreateCache(cfgFactory.apply(cacheName(name, id))));
+    }
+
+    /**
+     * @return Shared cache, null for per server layout if shared cache does not exist.
+     */
+    @Nullable public IgniteCache<Long, V> shared() {
+        return shared;
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @return {@code True} if data of the server was moved to per server cache.
+     */
+    private boolean isMigrated(int srvId) {
+        String srvCacheName = cacheName(name, srvId);
+
+        if (MIGRATED.contains(srvCacheName))
+            return true;
+
+        if (markerChecked.add(srvId) && markers(ignite).containsKey(srvCacheName)) {
+            MIGRATED.add(srvCacheName);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Marks data of the server as moved to per server cache, after this call per server cache is used for the server.
+     *
+     * @param ignite Ignite.
+     * @param name Shared cache name.
+     * @param srvId Server id mask high.
+     */
+    public static void markMigrated(Ignite ignite, String name, int srvId) {
+        String srvCacheName = cacheName(name, srvId);
+
+        markers(ignite).put(srvCacheName, true);
+
+        MIGRATED.add(srvCacheName);
+    }
+
+    /**
+     * @param ignite Ignite.
+     * @param name Shared cache name.
+     * @param srvId Server id mask high.
+     * @return {@code True} if data of the server is marked as moved to per server cache.
+     */
+    public static boolean isMarkedMigrated(Ignite ignite, String name, int srvId) {
+        return markers(ignite).containsKey(cacheName(name, srvId));
+    }
+
+    /**
+     * @param ignite Ignite.
+     */
+    private static IgniteCache<String, Boolean> markers(Ignite ignite) {
+        return ignite.getOrCreateCache(TcHelperDb.getCache8PartsConfig(MIGRATED_MARKERS_CACHE_NAME));
+    }
+
+    /**
+     * @return {@code True} if each server has its own caches.
+     */
+    public static boolean isPerServerLayout() {
+        return Boolean.getBoolean(TcBotSystemProperties.TEAMCITY_BOT_PER_SERVER_CACHES);
+    }
+
+    /**
+     * @param name Shared cache name.
+     * @param srvId Server id mask high.
+     * @return Name of cache for the server in per server layout.
+     */
+    public static String cacheName(String name, int srvId) {
+        return name + "-srv" + srvId;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.db;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
+import javax.cache.Cache;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.apache.ignite.ci.di.AutoProfilingInterceptor;
+import org.apache.ignite.ci.util.ExceptionUtil;
+import org.apache.ignite.lang.IgniteBiPredicate;
+
+/**
+ * Scans caches having server ID in high 32 bits of the key. One scan query per partition is executed, partitions are
+ * scanned in parallel by a bounded pool of scanner threads. Entries are filtered by key (and optionally by binary value)
+ * on the node before deserialization, so only matching values are deserialized on caller side. Scan time is reported to
+ * profiling as {@code Scan.<call site>}.
+ */
+public class ServerKeyScanner {
+    /** Max count of partitions scanned concurrently. */
+    private static final int THREADS = 4;
+
+    /** Thread factory. */
+    private final ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+    /** Scanner threads, scans block on cache IO, so common fork join pool is not used. */
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread thread = threadFactory.newThread(r);
+
+        thread.setName("server-key-scanner-" + thread.getName());
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    /** Ignite provider. */
+    @Inject private Provider<Ignite> igniteProvider;
+
+    /** Profiling. */
+    @Inject private AutoProfilingInterceptor profiling;
+
+    /**
+     * @param callSite Call site name for profiling.
+     * @param cache Cache.
+     * @param srvId Server id mask high.
+     * @param valFilter Optional filter on binary value, should not capture outer instance. Values which are not binary
+     * objects are filtered out if this filter is specified.
+     * @return Entries of the server.
+     */
+    public <V> Map<Long, V> scan(String callSite,
+        IgniteCache<Long, V> cache,
+        int srvId,
+        @Nullable IgniteBiPredicate<Long, BinaryObject> valFilter) {
+        Stopwatch started = Stopwatch.createStarted();
+
+        Map<Long, V> res = new ConcurrentHashMap<>();
+
+        try {
+            IgniteCache<Long, Object> binCache = cache.withKeepBinary();
+
+            forEachPartition(cache, part -> {
+                ScanQuery<Long, Object> qry = new ScanQuery<>(new ServerKeyFilter(srvId, valFilter));
+
+                try (QueryCursor<Cache.Entry<Long, Object>> cursor = binCache.query(qry.setPartition(part))) {
+                    for (Cache.Entry<Long, Object> entry : cursor)
+                        res.put(entry.getKey(), deserialize(entry.getValue()));
+                }
+
+                return null;
+            });
+
+            return res;
+        }
+        finally {
+            profiling.addTime("Scan." + callSite, started.elapsed(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * @param callSite Call site name for profiling.
+     * @param cache Cache.
+     * @param srvId Server id mask high.
+     * @return Keys of the server, values are not deserialized.
+     */
+    public List<Long> scanKeys(String callSite, IgniteCache<Long, ?> cache, int srvId) {
+        Stopwatch started = Stopwatch.createStarted();
+
+        try {
+            IgniteCache<Long, Object> binCache = cache.withKeepBinary();
+
+            List<Long> res = new ArrayList<>();
+
+            for (List<Long> keys : forEachPartition(cache, part -> {
+                ScanQuery<Long, Object> qry = new ScanQuery<>(new ServerKeyFilter(srvId, null));
+
+                try (QueryCursor<Long> cursor = binCache.query(qry.setPartition(part), Cache.Entry::getKey)) {
+                    return cursor.getAll();
+                }
+            }))
+                res.addAll(keys);
+
+            return res;
+        }
+        finally {
+            profiling.addTime("Scan." + callSite, started.elapsed(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * Returns entries of the server scanning partitions one by one in caller thread, so only a page of one partition
+     * is kept in memory. Stream should be closed, scan time is reported to profiling on close.
+     *
+     * @param callSite Call site name for profiling.
+     * @param cache Cache.
+     * @param srvId Server id mask high.
+     * @param valFilter Optional filter on binary value, see {@link #scan(String, IgniteCache, int, IgniteBiPredicate)}.
+     * @return Lazy stream of entries of the server.
+     */
+    public <V> Stream<Map.Entry<Long, V>> stream(String callSite,
+        IgniteCache<Long, V> cache,
+        int srvId,
+        @Nullable IgniteBiPredicate<Long, BinaryObject> valFilter) {
+        Stopwatch started = Stopwatch.createStarted();
+
+        IgniteCache<Long, Object> binCache = cache.withKeepBinary();
+
+        return partitions(cache).boxed()
+            .flatMap(part -> {
+                ScanQuery<Long, Object> qry = new ScanQuery<>(new ServerKeyFilter(srvId, valFilter));
+                QueryCursor<Cache.Entry<Long, Object>> cursor = binCache.query(qry.setPartition(part));
+
+                return StreamSupport.stream(cursor.spliterator(), false)
+                    .onClose(cursor::close)
+                    .<Map.Entry<Long, V>>map(entry -> new AbstractMap.SimpleImmutableEntry<>(entry.getKey(),
+                        ServerKeyScanner.<V>deserialize(entry.getValue())));
+            })
+            .onClose(() -> profiling.addTime("Scan." + callSite, started.elapsed(TimeUnit.NANOSECONDS)));
+    }
+
+    /**
+     * Runs task for each partition of cache using scanner threads and waits for completion.
+     *
+     * @param cache Cache.
+     * @param task Task for partition.
+     * @return Results of tasks.
+     */
+    private <R> List<R> forEachPartition(IgniteCache<Long, ?> cache, IntFunction<R> task) {
+        List<Future<R>> futs = new ArrayList<>();
+
+        partitions(cache).forEach(part -> futs.add(executor.submit(() -> task.apply(part))));
+
+        List<R> res = new ArrayList<>(futs.size());
+
+        try {
+            for (Future<R> fut : futs)
+                res.add(fut.get());
+        }
+        catch (InterruptedException e) {
+            throw ExceptionUtil.propagateException(e);
+        }
+        catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+
+            throw ExceptionUtil.propagateException(e);
+        }
+        finally {
+            futs.forEach(fut -> fut.cancel(false));
+        }
+
+        return res;
+    }
+
+    /**
+     * @param val Value in binary form, or value itself for primitives and strings.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> V deserialize(Object val) {
+        return val instanceof BinaryObject ? ((BinaryObject)val).deserialize() : (V)val;
+    }
+
+    /**
+     * @param cache Cache.
+     */
+    private IntStream partitions(IgniteCache<Long, ?> cache) {
+        return IntStream.range(0, igniteProvider.get().affinity(cache.getName()).partitions());
+    }
+
+    /**
+     * Filters entries by server ID, then by optional value filter.
+     */
+    private static class ServerKeyFilter implements IgniteBiPredicate<Long, Object> {
+        /** Serial version uid. */
+        private static final long serialVersionUID = 0L;
+
+        /** Server id mask high. */
+        private final int srvId;
+
+        /** Value filter. */
+        @Nullable private final IgniteBiPredicate<Long, BinaryObject> valFilter;
+
+        /**
+         * @param srvId Server id mask high.
+         * @param valFilter Value filter.
+         */
+        ServerKeyFilter(int srvId, @Nullable IgniteBiPredicate<Long, BinaryObject> valFilter) {
+            this.srvId = srvId;
+            this.valFilter = valFilter;
+        }
+
+        /** {@inheritDoc} */
+        @Override public boolean apply(Long key, Object val) {
+            return key != null
+                && key >> 32 == srvId
+                && (valFilter == null || val instanceof BinaryObject && valFilter.apply(key, (BinaryObject)val));
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.db;
+
+import com.google.common.base.Preconditions;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.ci.util.ExceptionUtil;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Compressed bitmaps of build IDs used for sync bookkeeping: (kind, server) -> build IDs. Bitmaps are kept in memory
+ * and persisted by {@link #flush()}. A bitmap may miss some builds (e.g. saved before crash and not flushed), but
+ * never contains builds which were not saved, so consumers should re-check builds not found in bitmap. Missed builds
+ * are restored by periodic {@link #merge(int, Kind, Supplier)} with full list of builds.
+ */
+public class SyncBitmapDao {
+    /** Cache name. */
+    public static final String SYNC_BITMAP_CACHE_NAME = "syncBitmaps";
+
+    /** Kind of bitmap. */
+    public enum Kind {
+        /** Build references known. */
+        BUILD_REFS,
+        /** Fat builds loaded. */
+        FAT_BUILDS,
+        /** Builds processed into run history. */
+        HIST_PROCESSED,
+        /**
+         * Builds found not valid for run history, e.g. cancelled, not finished or fake stub. A build is removed when
+         * its fat build is saved again.
+         */
+        HIST_NOT_VALID
+    }
+
+    /** Ignite provider. */
+    @Inject private Provider<Ignite> igniteProvider;
+
+    /** Serialized bitmaps cache. */
+    private volatile IgniteCache<String, byte[]> bitmapCache;
+
+    /** Bitmaps loaded or rebuilt. Each bitmap is guarded by itself. */
+    private final ConcurrentMap<String, RoaringBitmap> bitmaps = new ConcurrentHashMap<>();
+
+    /** Locks of bitmaps loading: bitmap key -> lock. */
+    private final ConcurrentMap<String, Object> loadLocks = new ConcurrentHashMap<>();
+
+    /** Keys of bitmaps modified since last flush. */
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Initializes DAO, may be called several times.
+     */
+    public SyncBitmapDao init() {
+        if (bitmapCache == null)
+            bitmapCache = igniteProvider.get().getOrCreateCache(TcHelperDb.getCache8PartsConfig(SYNC_BITMAP_CACHE_NAME));
+
+        return this;
+    }
+
+    /**
+     * Returns copy of bitmap, loads it from DB or rebuilds it if bitmap was not saved yet.
+     *
+     * @param srvId Server id mask high.
+     * @param kind Kind.
+     * @param rebuild Full list of build IDs, used if there is no persisted bitmap.
+     */
+    public RoaringBitmap get(int srvId, Kind kind, Supplier<int[]> rebuild) {
+        RoaringBitmap bitmap = bitmap(key(srvId, kind), rebuild);
+
+        synchronized (bitmap) {
+            return bitmap.clone();
+        }
+    }
+
+    /**
+     * Adds builds to bitmap. Nothing is done if bitmap was not built yet, builds will be included by rebuild.
+     *
+     * @param srvId Server id mask high.
+     * @param kind Kind.
+     * @param buildIds Build IDs.
+     */
+    public void add(int srvId, Kind kind, int... buildIds) {
+        if (buildIds.length == 0)
+            return;
+
+        String key = key(srvId, kind);
+        RoaringBitmap bitmap = bitmap(key, null);
+
+        if (bitmap == null)
+            return;
+
+        synchronized (bitmap) {
+            bitmap.add(buildIds);
+        }
+
+        dirty.add(key);
+    }
+
+    /**
+     * Removes builds from bitmap. Nothing is done if bitmap was not built yet.
+     *
+     * @param srvId Server id mask high.
+     * @param kind Kind.
+     * @param buildIds Build IDs.
+     */
+    public void remove(int srvId, Kind kind, int... buildIds) {
+        if (buildIds.length == 0)
+            return;
+
+        String key = key(srvId, kind);
+        RoaringBitmap bitmap = bitmap(key, null);
+
+        if (bitmap == null)
+            return;
+
+        boolean changed = false;
+
+        synchronized (bitmap) {
+            for (int buildId : buildIds)
+                changed |= bitmap.checkedRemove(buildId);
+        }
+
+        if (changed)
+            dirty.add(key);
+    }
+
+    /**
+     * Removes all builds from bitmap.
+     *
+     * @param srvId Server id mask high.
+     * @param kind Kind.
+     */
+    public void clear(int srvId, Kind kind) {
+        String key = key(srvId, kind);
+        RoaringBitmap bitmap = bitmaps.computeIfAbsent(key, k -> new RoaringBitmap());
+
+        synchronized (bitmap) {
+            bitmap.clear();
+        }
+
+        dirty.add(key);
+    }
+
+    /**
+     * Adds all builds from full list to bitmap. Restores builds which were saved, but were not flushed to bitmap,
+     * e.g. because of crash.
+     *
+     * @param srvId Server id mask high.
+     * @param kind Kind.
+     * @param all Full list of build IDs.
+     * @return Count of builds which were missing in bitmap.
+     */
+    public int merge(int srvId, Kind kind, Supplier<int[]> all) {
+        String key = key(srvId, kind);
+        RoaringBitmap bitmap = bitmap(key, null);
+
+        if (bitmap == null) {
+            get(srvId, kind, all);
+
+            return 0;
+        }
+
+        RoaringBitmap full = RoaringBitmap.bitmapOf(all.get());
+        int missing;
+
+        synchronized (bitmap) {
+            missing = RoaringBitmap.andNotCardinality(full, bitmap);
+
+            bitmap.or(full);
+        }
+
+        if (missing > 0)
+            dirty.add(key);
+
+        return missing;
+    }
+
+    /**
+     * Saves modified bitmaps.
+     *
+     * @return Count of bitmaps saved.
+     */
+    public int flush() {
+        Preconditions.checkNotNull(bitmapCache, "init() was not called");
+
+        int cnt = 0;
+
+        for (String key : dirty) {
+            dirty.remove(key);
+
+            RoaringBitmap bitmap = bitmaps.get(key);
+
+            if (bitmap == null)
+                continue;
+
+            byte[] bytes;
+
+            synchronized (bitmap) {
+                bytes = serialize(bitmap);
+            }
+
+            bitmapCache.put(key, bytes);
+
+            cnt++;
+        }
+
+        return cnt;
+    }
+
+    /**
+     * Returns bitmap, loads it from DB or rebuilds it if it is not in memory. Load is done under lock of the key, but
+     * not in map compute, so long rebuild does not block bitmaps of other keys, and bitmap changes wait for the end of
+     * rebuild.
+     *
+     * @param key Key.
+     * @param rebuild Full list of build IDs, used if there is no persisted bitmap.
+     * @return Bitmap or null if bitmap was not saved yet and rebuild is not provided.
+     */
+    @Nullable private RoaringBitmap bitmap(String key, @Nullable Supplier<int[]> rebuild) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+
+        if (bitmap != null)
+            return bitmap;
+
+        synchronized (loadLocks.computeIfAbsent(key, k -> new Object())) {
+            bitmap = bitmaps.get(key);
+
+            if (bitmap != null)
+                return bitmap;
+
+            bitmap = loadPersisted(key);
+
+            boolean rebuilt = false;
+
+            if (bitmap == null) {
+                if (rebuild == null)
+                    return null;
+
+                bitmap = RoaringBitmap.bitmapOf(rebuild.get());
+                rebuilt = true;
+            }
+
+            RoaringBitmap prev = bitmaps.putIfAbsent(key, bitmap);
+
+            if (prev != null)
+                return prev;
+
+            if (rebuilt)
+                dirty.add(key);
+
+            return bitmap;
+        }
+    }
+
+    /**
+     * @param key Key.
+     * @return Bitmap saved in DB or null.
+     */
+    @Nullable private RoaringBitmap loadPersisted(String key) {
+        Preconditions.checkNotNull(bitmapCache, "init() was not called");
+
+        byte[] bytes = bitmapCache.get(key);
+
+        if (bytes == null)
+            return null;
+
+        RoaringBitmap bitmap = new RoaringBitmap();
+
+        try {
+            bitmap.deserialize(new DataInputStream(new ByteArrayInputStream(bytes)));
+        }
+        catch (IOException e) {
+            throw ExceptionUtil.propagateException(e);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * @param bitmap Bitmap, compression is optimized in place.
+     */
+    private static byte[] serialize(RoaringBitmap bitmap) {
+        bitmap.runOptimize();
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(bitmap.serializedSizeInBytes());
+
+        try {
+            bitmap.serialize(new DataOutputStream(bos));
+        }
+        catch (IOException e) {
+            throw ExceptionUtil.propagateException(e);
+        }
+
+        return bos.toByteArray();
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @param kind Kind.
+     */
+    private static String key(int srvId, Kind kind) {
+        return kind.name() + "." + srvId;
+    }
+}
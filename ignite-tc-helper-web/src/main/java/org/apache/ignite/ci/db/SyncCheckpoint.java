@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.db;
+
+import com.google.common.base.MoreObjects;
+import javax.annotation.Nullable;
+
+/**
+ * Progress of long running paged sync (e.g. full reindex). Saved after each processed chunk to allow resume after
+ * restart of the node or failure of the remote service.
+ */
+@Persisted
+public class SyncCheckpoint {
+    /** Href (URL) of next page to be processed, null if sync was completed. */
+    @Nullable private String nextPage;
+
+    /** Pages processed. */
+    private int pages;
+
+    /** Entries checked. */
+    private int checked;
+
+    /** Entries saved (modified). */
+    private int saved;
+
+    /** Sync start timestamp. */
+    private long startTs;
+
+    /** Last checkpoint timestamp. */
+    private long updateTs;
+
+    /** Sync finish timestamp, 0 if sync is in progress. */
+    private long finishTs;
+
+    /**
+     * Default constructor.
+     */
+    public SyncCheckpoint() {
+        startTs = System.currentTimeMillis();
+        updateTs = startTs;
+    }
+
+    /**
+     * @param nextPage Next page href, null means sync is completed.
+     * @param checkedChunk Entries checked in current chunk.
+     * @param savedChunk Entries saved in current chunk.
+     */
+    public SyncCheckpoint chunkProcessed(@Nullable String nextPage, int checkedChunk, int savedChunk) {
+        this.nextPage = nextPage;
+        pages++;
+        checked += checkedChunk;
+        saved += savedChunk;
+        updateTs = System.currentTimeMillis();
+
+        if (nextPage == null)
+            finishTs = updateTs;
+
+        return this;
+    }
+
+    /**
+     * @return {@code True} if sync may be continued from {@link #nextPage()}.
+     */
+    public boolean isResumable() {
+        return finishTs == 0 && nextPage != null;
+    }
+
+    /** */
+    @Nullable public String nextPage() {
+        return nextPage;
+    }
+
+    /** */
+    public int pages() {
+        return pages;
+    }
+
+    /** */
+    public int checked() {
+        return checked;
+    }
+
+    /** */
+    public int saved() {
+        return saved;
+    }
+
+    /** */
+    public long startTs() {
+        return startTs;
+    }
+
+    /** */
+    public long updateTs() {
+        return updateTs;
+    }
+
+    /** */
+    public long finishTs() {
+        return finishTs;
+    }
+
+    /** {@inheritDoc} */
+    @Override public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("nextPage", nextPage)
+            .add("pages", pages)
+            .add("checked", checked)
+            .add("saved", saved)
+            .add("startTs", startTs)
+            .add("updateTs", updateTs)
+            .add("finishTs", finishTs)
+            .toString();
+    }
+}
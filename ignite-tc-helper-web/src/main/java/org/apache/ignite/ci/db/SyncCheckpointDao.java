@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.db;
+
+import com.google.common.base.Preconditions;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import javax.cache.Cache;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+
+/**
+ * Storage of checkpoints for long running syncs: sync name -> progress.
+ */
+public class SyncCheckpointDao {
+    /** Cache name. */
+    public static final String SYNC_CHECKPOINT_CACHE_NAME = "syncCheckpoints";
+
+    /** Ignite provider. */
+    @Inject private Provider<Ignite> igniteProvider;
+
+    /** Checkpoints cache. */
+    private IgniteCache<String, SyncCheckpoint> checkpointCache;
+
+    /**
+     *
+     */
+    public SyncCheckpointDao init() {
+        checkpointCache = igniteProvider.get().getOrCreateCache(TcHelperDb.getCache8PartsConfig(SYNC_CHECKPOINT_CACHE_NAME));
+
+        return this;
+    }
+
+    /**
+     * @param syncName Sync name.
+     * @return Checkpoint saved or null if there is no sync started.
+     */
+    @Nullable public SyncCheckpoint get(String syncName) {
+        Preconditions.checkNotNull(checkpointCache, "init() was not called");
+
+        return checkpointCache.get(syncName);
+    }
+
+    /**
+     * @param syncName Sync name.
+     * @return Checkpoint saved, if it can be resumed, or new checkpoint.
+     */
+    public SyncCheckpoint getResumableOrNew(String syncName) {
+        SyncCheckpoint checkpoint = get(syncName);
+
+        return checkpoint != null && checkpoint.isResumable() ? checkpoint : new SyncCheckpoint();
+    }
+
+    /**
+     * @param syncName Sync name.
+     * @param checkpoint Checkpoint.
+     */
+    public void save(String syncName, SyncCheckpoint checkpoint) {
+        Preconditions.checkNotNull(checkpointCache, "init() was not called");
+
+        checkpointCache.put(syncName, checkpoint);
+    }
+
+    /**
+     * @return All checkpoints, sorted by sync name.
+     */
+    public Map<String, SyncCheckpoint> getAll() {
+        Preconditions.checkNotNull(checkpointCache, "init() was not called");
+
+        Map<String, SyncCheckpoint> res = new TreeMap<>();
+
+        for (Cache.Entry<String, SyncCheckpoint> entry : checkpointCache)
+            res.put(entry.getKey(), entry.getValue());
+
+        return res;
+    }
+}
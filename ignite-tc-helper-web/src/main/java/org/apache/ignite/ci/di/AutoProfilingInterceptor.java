@@ -74,12 +74,20 @@ public class AutoProfilingInterceptor implements MethodInterceptor {
         finally {
             long elapsed = started.elapsed(TimeUnit.NANOSECONDS);
 
-            String fullKey = cls + "." + mtd;
-
-            totalTime.computeIfAbsent(fullKey, Invocation::new).addAndGet(elapsed);
+            addTime(cls + "." + mtd, elapsed);
         }
     }
 
+    /**
+     * Records time of code block, which is not a method call.
+     *
+     * @param name Name to be displayed in profiling.
+     * @param elapsedNanos Elapsed nanoseconds.
+     */
+    public void addTime(String name, long elapsedNanos) {
+        totalTime.computeIfAbsent(name, Invocation::new).addAndGet(elapsedNanos);
+    }
+
     public Collection<Invocation> getInvocations() {
         return Collections.unmodifiableCollection(totalTime.values());
     }
@@ -108,8 +108,12 @@ class NamedTask {
             this.cmd = null;
 
             // because here lock is not upgraded from read lock cmd may come here with null
-            if (cmd != null)
+            if (cmd != null) {
                 status = Status.RUNNING;
+
+                // period is selected again by next schedule request, it may be adapted to recent activity
+                resValidityMs = 0;
+            }
         }
         finally {
             lock.unlock(writeLockStamp);
@@ -24,5 +24,6 @@ public class SchedulerModule extends AbstractModule {
     /** {@inheritDoc} */
     @Override protected void configure() {
         bind(IScheduler.class).to(TcBotScheduler.class).in(new SingletonScope());
+        bind(SyncFrequencyController.class).in(new SingletonScope());
     }
 }
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.di.scheduler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Adapts quiet periods of named synchronization tasks to the rate of data changes and to user demand. Quiet period
+ * is selected between min and max bounds provided by task: tasks which saved changes during recent runs, or tasks
+ * of a server which was explicitly requested by users, are synchronized with min period. Idle tasks are slowed down
+ * up to max period. Bounds of tasks are defined by {@link SyncPeriod}: min bound is less than fixed period used
+ * before, so active tasks are synchronized more often, and max bound is greater, so idle servers are loaded less.
+ */
+public class SyncFrequencyController {
+    /** Weight of the latest run in moving average of changes count. */
+    private static final double CHANGES_WEIGHT = 0.3;
+
+    /** Time after user request to decrease demand by half. */
+    private static final long DEMAND_HALF_LIFE_MS = TimeUnit.MINUTES.toMillis(30);
+
+    /** Moving average of changes saved per run: Map task name -> average. */
+    private final ConcurrentMap<String, Double> changesPerRun = new ConcurrentHashMap<>();
+
+    /** Last user request time: Map server code -> timestamp. */
+    private final ConcurrentMap<String, Long> lastDemandTs = new ConcurrentHashMap<>();
+
+    /**
+     * @param taskName Task name.
+     * @param changes Number of entries actually saved (updated, removed) by task run.
+     */
+    public void changesObserved(String taskName, int changes) {
+        changesPerRun.merge(taskName, (double)changes,
+            (avg, cur) -> avg * (1 - CHANGES_WEIGHT) + cur * CHANGES_WEIGHT);
+    }
+
+    /**
+     * @param srvCode Server code explicitly requested by user. Requests without server (e.g. pages polling for
+     * updates) are ignored, otherwise any open page would keep all tasks of all servers at min period.
+     */
+    public void demandObserved(@Nullable String srvCode) {
+        if (srvCode == null || srvCode.isEmpty())
+            return;
+
+        lastDemandTs.put(srvCode, System.currentTimeMillis());
+    }
+
+    /**
+     * @param taskName Task name.
+     * @param srvCode Server code, used to find user demand.
+     * @param period Bounds of quiet period.
+     * @return Quiet period in milliseconds.
+     */
+    public long quietPeriodMs(String taskName, @Nullable String srvCode, SyncPeriod period) {
+        return quietPeriodMs(taskName, srvCode, period.minMs(), period.maxMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param taskName Task name.
+     * @param srvCode Server code, used to find user demand.
+     * @param minPeriod Min quiet period, used for active tasks.
+     * @param maxPeriod Max quiet period, used for idle tasks.
+     * @param unit Time unit of bounds.
+     * @return Quiet period in milliseconds.
+     */
+    public long quietPeriodMs(String taskName, @Nullable String srvCode, long minPeriod, long maxPeriod,
+        TimeUnit unit) {
+        long minMs = Math.max(1, unit.toMillis(minPeriod));
+        long maxMs = Math.max(minMs, unit.toMillis(maxPeriod));
+
+        double activity = Math.max(changesActivity(taskName), demandActivity(srvCode));
+
+        // geometric interpolation: each activity step changes period by the same factor
+        return Math.round(minMs * Math.pow((double)maxMs / minMs, 1 - activity));
+    }
+
+    /**
+     * @param taskName Task name.
+     * @return Activity from 0 (no changes in recent runs) to 1 (many changes or there were no runs yet).
+     */
+    private double changesActivity(String taskName) {
+        Double avg = changesPerRun.get(taskName);
+
+        if (avg == null)
+            return 1;
+
+        return avg / (avg + 1);
+    }
+
+    /**
+     * @param srvCode Server code.
+     * @return Activity from 0 (no requests) to 1 (server is being requested right now).
+     */
+    private double demandActivity(@Nullable String srvCode) {
+        if (srvCode == null)
+            return 0;
+
+        return demandActivity(lastDemandTs.get(srvCode), System.currentTimeMillis());
+    }
+
+    /**
+     * @param ts Last request timestamp.
+     * @param now Current time.
+     */
+    private static double demandActivity(@Nullable Long ts, long now) {
+        if (ts == null)
+            return 0;
+
+        return Math.pow(0.5, (double)Math.max(0, now - ts) / DEMAND_HALF_LIFE_MS);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.di.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds of quiet periods of synchronization tasks, see {@link SyncFrequencyController}. Min period is used for tasks
+ * with changes or with user demand and is less than fixed period used before, max period is used for idle tasks.
+ */
+public enum SyncPeriod {
+    /** Recent build references, was 2 minutes. */
+    BUILD_REFS(1, 10, TimeUnit.MINUTES),
+
+    /** Pull requests, was 2 minutes. */
+    PULL_REQUESTS(1, 15, TimeUnit.MINUTES),
+
+    /** Branches of GitHub server with preferred branches, was 5 minutes. */
+    BRANCHES_PREFERRED(2, 30, TimeUnit.MINUTES),
+
+    /** Branches of GitHub server, was 2 hours. */
+    BRANCHES(60, 240, TimeUnit.MINUTES),
+
+    /** Mutes, was 15 minutes. */
+    MUTES(5, 60, TimeUnit.MINUTES),
+
+    /** Jira tickets, was 15 minutes. */
+    JIRA_TICKETS(5, 60, TimeUnit.MINUTES),
+
+    /** References of build types, was 4 hours. */
+    BUILD_TYPE_REFS(2, 8, TimeUnit.HOURS),
+
+    /** Build types, was 24 hours. */
+    BUILD_TYPES(12, 48, TimeUnit.HOURS);
+
+    /** Min period. */
+    private final long min;
+
+    /** Max period. */
+    private final long max;
+
+    /** Time unit of bounds. */
+    private final TimeUnit unit;
+
+    /**
+     * @param min Min period.
+     * @param max Max period.
+     * @param unit Time unit of bounds.
+     */
+    SyncPeriod(long min, long max, TimeUnit unit) {
+        this.min = min;
+        this.max = max;
+        this.unit = unit;
+    }
+
+    /**
+     * @return Min period in milliseconds.
+     */
+    public long minMs() {
+        return unit.toMillis(min);
+    }
+
+    /**
+     * @return Max period in milliseconds.
+     */
+    public long maxMs() {
+        return unit.toMillis(max);
+    }
+}
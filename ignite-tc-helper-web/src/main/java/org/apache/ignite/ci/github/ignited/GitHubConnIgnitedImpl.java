@@ -34,6 +34,8 @@ import org.apache.ignite.ci.db.TcHelperDb;
 import org.apache.ignite.ci.di.AutoProfiling;
 import org.apache.ignite.ci.di.MonitoredTask;
 import org.apache.ignite.ci.di.scheduler.IScheduler;
+import org.apache.ignite.ci.di.scheduler.SyncFrequencyController;
+import org.apache.ignite.ci.di.scheduler.SyncPeriod;
 import org.apache.ignite.ci.github.GitHubBranchKey;
 import org.apache.ignite.ci.github.GitHubBranchShort;
 import org.apache.ignite.ci.github.PullRequest;
@@ -63,6 +65,9 @@ class GitHubConnIgnitedImpl implements IGitHubConnIgnited {
     /** Scheduler. */
     @Inject IScheduler scheduler;
 
+    /** Sync frequency controller. */
+    @Inject SyncFrequencyController freqCtrl;
+
     /** Server ID mask for cache Entries. */
     private int srvIdMaskHigh;
 
@@ -115,7 +120,10 @@ class GitHubConnIgnitedImpl implements IGitHubConnIgnited {
     /** {@inheritDoc} */
     @AutoProfiling
     @Override public List<PullRequest> getPullRequests() {
-        scheduler.sheduleNamed(taskName("actualizePrs"), this::actualizePrs, 2, TimeUnit.MINUTES);
+        String actualizeTask = taskName("actualizePrs");
+
+        scheduler.sheduleNamed(actualizeTask, this::actualizePrs,
+            freqCtrl.quietPeriodMs(actualizeTask, srvCode, SyncPeriod.PULL_REQUESTS), TimeUnit.MILLISECONDS);
 
         return StreamSupport.stream(prCache.spliterator(), false)
             .filter(entry -> entry.getKey() >> 32 == srvIdMaskHigh)
@@ -127,11 +135,14 @@ class GitHubConnIgnitedImpl implements IGitHubConnIgnited {
     /** {@inheritDoc} */
     @AutoProfiling
     @Override public List<String> getBranches() {
-        final int rescanIntervalMins = config().isPreferBranches() ? 5 : 120;
+        SyncPeriod period = config().isPreferBranches() ? SyncPeriod.BRANCHES_PREFERRED : SyncPeriod.BRANCHES;
 
-        scheduler.sheduleNamed(taskName("actualizeBranches"),
+        String actualizeTask = taskName("actualizeBranches");
+
+        scheduler.sheduleNamed(actualizeTask,
                 this::actualizeBranches,
-                rescanIntervalMins, TimeUnit.MINUTES);
+                freqCtrl.quietPeriodMs(actualizeTask, srvCode, period),
+                TimeUnit.MILLISECONDS);
 
         return StreamSupport.stream(branchCache.spliterator(), false)
             .filter(entry -> entry.getKey().srvId() == srvIdMaskHigh)
@@ -204,6 +215,8 @@ class GitHubConnIgnitedImpl implements IGitHubConnIgnited {
 
         if (fullReindex)
             refreshOutdatedPrs(srvId, actualPrs);
+        else
+            freqCtrl.changesObserved(taskName("actualizePrs"), cntSaved);
 
         return "Entries saved " + cntSaved + " PRs checked " + totalChecked;
     }
@@ -284,6 +297,8 @@ class GitHubConnIgnitedImpl implements IGitHubConnIgnited {
         if (fullReindex)
             refreshOutdatedPrs(srvId, actualPrs);
 
+        freqCtrl.changesObserved(taskName("actualizeBranches"), cntSaved);
+
         return "Entries saved " + cntSaved + " Branches checked " + totalChecked;
     }
 
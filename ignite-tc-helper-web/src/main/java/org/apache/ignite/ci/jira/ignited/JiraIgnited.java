@@ -19,6 +19,7 @@ package org.apache.ignite.ci.jira.ignited;
 import java.io.IOException;
 import java.util.Set;
 import javax.inject.Inject;
+import org.apache.ignite.ci.db.SyncCheckpointDao;
 import org.apache.ignite.ci.jira.pure.IJiraIntegration;
 import org.apache.ignite.ci.jira.pure.Ticket;
 import org.apache.ignite.ci.tcbot.conf.IJiraServerConfig;
@@ -37,6 +38,9 @@ class JiraIgnited implements IJiraIgnited {
     /** Jira ticket Sync. */
     @Inject private JiraTicketSync jiraTicketSync;
 
+    /** Sync checkpoints DAO. */
+    @Inject private SyncCheckpointDao checkpointDao;
+
     /** Server internal ID to bind services. */
     private String srvCode;
 
@@ -54,6 +58,7 @@ class JiraIgnited implements IJiraIgnited {
         srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(srvCode);
 
         jiraTicketDao.init();
+        checkpointDao.init();
     }
 
     /** {@inheritDoc} */
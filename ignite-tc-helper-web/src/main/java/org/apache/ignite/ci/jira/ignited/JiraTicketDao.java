@@ -23,11 +23,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import javax.cache.Cache;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
+import org.apache.ignite.ci.db.ServerKeyScanner;
 import org.apache.ignite.ci.db.TcHelperDb;
 import org.apache.ignite.ci.di.AutoProfiling;
 import org.apache.ignite.ci.di.cache.GuavaCached;
@@ -52,6 +52,9 @@ public class JiraTicketDao {
     /** Compactor. */
     @Inject private IStringCompactor compactor;
 
+    /** Scanner. */
+    @Inject private ServerKeyScanner scanner;
+
     /**
      *
      */
@@ -67,14 +70,11 @@ public class JiraTicketDao {
     @GuavaCached(expireAfterWriteSecs = 60, softValues = true)
     public Set<Ticket> getTickets(int srvIdMaskHigh, String projectCode) {
         Preconditions.checkNotNull(jiraCache, "init() was not called");
-        long srvId = (long)srvIdMaskHigh << 32;
 
         Set<Ticket> res = new HashSet<>();
 
-        for (Cache.Entry<Long, TicketCompacted> entry : jiraCache) {
-            if ((entry.getKey() & srvId) == srvId)
-                res.add(entry.getValue().toTicket(compactor, projectCode));
-        }
+        for (TicketCompacted ticket : scanner.scan("JiraTicketDao.getTickets", jiraCache, srvIdMaskHigh, null).values())
+            res.add(ticket.toTicket(compactor, projectCode));
 
         return res;
     }
@@ -22,9 +22,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
+import org.apache.ignite.ci.db.SyncCheckpoint;
+import org.apache.ignite.ci.db.SyncCheckpointDao;
 import org.apache.ignite.ci.di.MonitoredTask;
 import org.apache.ignite.ci.di.scheduler.IScheduler;
+import org.apache.ignite.ci.di.scheduler.SyncFrequencyController;
+import org.apache.ignite.ci.di.scheduler.SyncPeriod;
 import org.apache.ignite.ci.jira.Tickets;
 import org.apache.ignite.ci.jira.pure.Fields;
 import org.apache.ignite.ci.jira.pure.IJiraIntegration;
@@ -55,12 +60,20 @@ public class JiraTicketSync {
     /** Jira integration provider. */
     @Inject IJiraIntegrationProvider jiraIntegrationProvider;
 
+    /** Checkpoints of full resync. */
+    @Inject private SyncCheckpointDao checkpointDao;
+
+    /** Sync frequency controller. */
+    @Inject private SyncFrequencyController freqCtrl;
+
     /**
      * @param srvCode Server ID
      */
     public void ensureActualizeJiraTickets(String srvCode) {
-        scheduler.sheduleNamed(taskName("incrementalSync", srvCode),
-            () -> incrementalUpdate(srvCode), 15, TimeUnit.MINUTES);
+        String incrementalTask = taskName("incrementalSync", srvCode);
+
+        scheduler.sheduleNamed(incrementalTask, () -> incrementalUpdate(srvCode),
+            freqCtrl.quietPeriodMs(incrementalTask, srvCode, SyncPeriod.JIRA_TICKETS), TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -108,42 +121,77 @@ public class JiraTicketSync {
             "fields=" + reqFields +
             "&maxResults=100";
 
-        String url = baseUrl;
+        String checkpointName = fullResync ? taskName("fullResync", srvCode) : null;
+        SyncCheckpoint checkpoint = fullResync ? checkpointDao.getResumableOrNew(checkpointName) : null;
+        String resumeFrom = checkpoint != null ? checkpoint.nextPage() : null;
+
+        String url = resumeFrom != null ? resumeFrom : baseUrl;
 
         logger.info("Requesting JIRA tickets using URL " + url + ("\n" + cfg.restApiUrl() + url));
         Tickets tickets = jira.getTicketsPage(url);
         Collection<Ticket> page = tickets.issuesNotNull();
 
-        if (F.isEmpty(page))
+        if (F.isEmpty(page)) {
+            if (checkpoint != null)
+                checkpointDao.save(checkpointName, checkpoint.chunkProcessed(null, 0, 0));
+
             return "Something went wrong - no tickets found. Check jira availability: " +
                 "[project=" + projectCode + ", url=" + url + "]";
+        }
 
         int ticketsSaved = jiraDao.saveChunk(srvIdMaskHigh, page, projectCode);
 
         int ticketsProcessed = page.size();
 
+        if (checkpoint != null)
+            checkpointDao.save(checkpointName, checkpoint.chunkProcessed(nextPageUrl(baseUrl, tickets), page.size(), ticketsSaved));
+
         if (ticketsSaved != 0 || fullResync) {
             while (tickets.nextStart() > 0) {
-                url = baseUrl + "&startAt=" + tickets.nextStart();
+                url = nextPageUrl(baseUrl, tickets);
 
                 logger.info("Requesting JIRA tickets using URL " + url + ("\n" + cfg.restApiUrl() + url));
                 tickets = jira.getTicketsPage(url);
 
                 page = tickets.issuesNotNull();
 
-                if (F.isEmpty(page))
+                if (F.isEmpty(page)) {
+                    if (checkpoint != null)
+                        checkpointDao.save(checkpointName, checkpoint.chunkProcessed(null, 0, 0));
+
                     break;
+                }
 
                 int savedNow = jiraDao.saveChunk(srvIdMaskHigh, page, projectCode);
 
                 ticketsSaved += savedNow;
                 ticketsProcessed += page.size();
 
+                if (checkpoint != null)
+                    checkpointDao.save(checkpointName, checkpoint.chunkProcessed(nextPageUrl(baseUrl, tickets), page.size(), savedNow));
+
                 if (savedNow == 0 && !fullResync)
                     break; // find not updated chunk and exit
             }
         }
 
+        if (checkpoint != null && resumeFrom != null) {
+            return "Jira tickets saved " + checkpoint.saved() + " from " + checkpoint.checked() + " checked for service " +
+                srvCode + " (resumed from checkpoint, " + checkpoint.pages() + " pages)";
+        }
+
+        if (!fullResync)
+            freqCtrl.changesObserved(taskName("incrementalSync", srvCode), ticketsSaved);
+
         return "Jira tickets saved " + ticketsSaved + " from " + ticketsProcessed + " checked for service " + srvCode;
     }
+
+    /**
+     * @param baseUrl Base url.
+     * @param tickets Tickets page received.
+     * @return URL of next page or null if provided page is the last one.
+     */
+    @Nullable private static String nextPageUrl(String baseUrl, Tickets tickets) {
+        return tickets.nextStart() > 0 ? baseUrl + "&startAt=" + tickets.nextStart() : null;
+    }
 }
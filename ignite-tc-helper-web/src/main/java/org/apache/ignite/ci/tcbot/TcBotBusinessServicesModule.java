@@ -19,6 +19,10 @@ package org.apache.ignite.ci.tcbot;
 import com.google.inject.AbstractModule;
 import com.google.inject.internal.SingletonScope;
 import org.apache.ignite.ci.issue.IssuesStorage;
+import org.apache.ignite.ci.tcbot.chain.ChainUpdatesCache;
+import org.apache.ignite.ci.tcbot.chain.ChainUpdatesFeed;
+import org.apache.ignite.ci.tcbot.chain.TrackedBranchSnapshotUpdater;
+import org.apache.ignite.ci.tcbot.chain.TrackedBranchSnapshots;
 import org.apache.ignite.ci.tcbot.conf.ITcBotConfig;
 import org.apache.ignite.ci.tcbot.conf.LocalFilesBasedConfig;
 import org.apache.ignite.ci.tcbot.issue.IIssuesStorage;
@@ -36,6 +40,10 @@ public class TcBotBusinessServicesModule extends AbstractModule {
         bind(IUserStorage.class).to(UserAndSessionsStorage.class).in(new SingletonScope());
         bind(IIssuesStorage.class).to(IssuesStorage.class).in(new SingletonScope());
         bind(MasterTrendsService.class).in(new SingletonScope());
+        bind(ChainUpdatesCache.class).in(new SingletonScope());
+        bind(ChainUpdatesFeed.class).in(new SingletonScope());
+        bind(TrackedBranchSnapshots.class).in(new SingletonScope());
+        bind(TrackedBranchSnapshotUpdater.class).in(new SingletonScope());
         bind(ITcBotBgAuth.class).to(TcBotBgAuthImpl.class).in(new SingletonScope());
     }
 }
@@ -34,4 +34,25 @@ public class TcBotSystemProperties {
 
     /** System property to specify: Teamcity helper home. Ignite home will be set to same dir. */
     public static final String TEAMCITY_HELPER_HOME = "teamcity.helper.home";
+
+    /**
+     * Use separate caches for each TC server for build references, fat builds and build start times. Data of shared
+     * caches is moved to per server caches by DB migration, so switching back requires data reload.
+     */
+    public static final String TEAMCITY_BOT_PER_SERVER_CACHES = "teamcity.bot.perServerCaches";
+
+    /**
+     * Days to keep each test invocation in run history, default is 21. Affects Bot Visa. Older invocations are rolled
+     * into daily aggregates.
+     */
+    public static final String TEAMCITY_BOT_RUN_HIST_DETAIL_DAYS = "teamcity.bot.runHist.detailDays";
+
+    /** Days to keep daily aggregates of test invocations in run history, default is 365. */
+    public static final String TEAMCITY_BOT_RUN_HIST_AGGREGATE_DAYS = "teamcity.bot.runHist.aggregateDays";
+
+    /** Threads loading run history of builds found by backfill, default is 2. */
+    public static final String TEAMCITY_BOT_RUN_HIST_BACKFILL_THREADS = "teamcity.bot.runHist.backfillThreads";
+
+    /** Max builds per second loaded to run history by backfill, default is 10. */
+    public static final String TEAMCITY_BOT_RUN_HIST_BACKFILL_RATE = "teamcity.bot.runHist.backfillRate";
 }
@@ -17,23 +17,23 @@
 
 package org.apache.ignite.ci.tcbot.chain;
 
-import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.Futures;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
@@ -70,6 +70,9 @@ public class BuildChainProcessor {
     /** Logger. */
     private static final Logger logger = LoggerFactory.getLogger(BuildChainProcessor.class);
 
+    /** Max depth of snapshot dependencies loaded from entry point. */
+    private static final int MAX_DEPTH = 5;
+
     /** TC REST updates pool. */
     @Inject private TcUpdatePool tcUpdatePool;
 
@@ -195,59 +198,111 @@ public class BuildChainProcessor {
             contexts.add(ctx);
         });
 
-        Function<MultBuildRunCtx, Float> function = ctx -> {
-            SuiteInBranch key = new SuiteInBranch(ctx.suiteId(), RunHistSync.normalizeBranch(failRateBranch));
+        String failRateBranchNormalized = RunHistSync.normalizeBranch(failRateBranch);
+
+        Map<SuiteInBranch, IRunHistory> suiteHists = tcIgn.getSuiteRunHists(contexts.stream()
+            .map(ctx -> new SuiteInBranch(ctx.suiteId(), failRateBranchNormalized))
+            .collect(Collectors.toSet()));
 
-            //todo cache RunStat instance into suite context to compare
-            IRunHistory runStat = tcIgn.getSuiteRunHist(key);
+        Map<MultBuildRunCtx, Float> rates = new HashMap<>();
 
-            if (runStat == null)
-                return 0f;
+        for (MultBuildRunCtx ctx : contexts) {
+            IRunHistory runStat = suiteHists.get(new SuiteInBranch(ctx.suiteId(), failRateBranchNormalized));
 
             //some hack to bring timed out suites to top
-            return runStat.getCriticalFailRate() * 3.14f + runStat.getFailRate();
-        };
+            rates.put(ctx, runStat == null ? 0f : runStat.getCriticalFailRate() * 3.14f + runStat.getFailRate());
+        }
 
         Integer someEntryPnt = entryPoints.iterator().next();
         Future<FatBuildCompacted> build = getOrLoadBuild(someEntryPnt, mode, builds, tcIgn);
         FullChainRunCtx fullChainRunCtx = new FullChainRunCtx(FutureUtil.getResult(build).toBuild(compactor));
 
-        contexts.sort(Comparator.comparing(function).reversed());
+        contexts.sort(Comparator.comparing(rates::get).reversed());
 
         fullChainRunCtx.addAllSuites(contexts);
 
         return fullChainRunCtx;
     }
 
+    /**
+     * Loads builds of chains with their snapshot dependencies. Dependencies of each build are requested as soon as the
+     * build is loaded, without waiting for other builds of the same level.
+     *
+     * @param entryPoints Entry points.
+     * @param mode Sync mode.
+     * @param tcIgn Teamcity ignited.
+     * @return Build ID to loaded build, all futures are completed.
+     */
     @NotNull
     public Map<Integer, Future<FatBuildCompacted>> loadAllBuildsInChains(Collection<Integer> entryPoints,
         SyncMode mode,
         ITeamcityIgnited tcIgn) {
         Map<Integer, Future<FatBuildCompacted>> builds = new ConcurrentHashMap<>();
+        ChainLoad load = new ChainLoad(mode, tcIgn, builds);
+        List<Integer> walked = new ArrayList<>();
 
-        Stream<Future<FatBuildCompacted>> entryPointsFatBuilds = entryPoints.stream()
+        entryPoints.stream()
             .filter(Objects::nonNull)
-            .map(id -> getOrLoadBuild(id, mode, builds, tcIgn));
+            .forEach(id -> {
+                Map<Integer, FatBuildCompacted> chain = tcIgn.getFinishedChain(id);
+
+                if (chain != null) {
+                    chain.forEach((buildId, build) ->
+                        builds.putIfAbsent(buildId, CompletableFuture.completedFuture(build)));
+                }
+                else {
+                    walked.add(id);
 
-        Set<Integer> remainedUnloadedDeps = entryPointsFatBuilds
-            .flatMap(ref -> dependencies(ref, mode, builds, tcIgn).stream()).collect(Collectors.toSet());
+                    load.expand(id, 0);
+                }
+            });
 
-        for (int level = 1; level < 5; level++) {
-            if (remainedUnloadedDeps.isEmpty())
-                break;
+        load.await();
 
-            Set<Integer> depsNextLevel = remainedUnloadedDeps
-                .stream()
-                .map(builds::get)
-                .peek(val -> Preconditions.checkNotNull(val, "Build future should be in context"))
-                .flatMap(ref -> dependencies(ref, mode, builds, tcIgn).stream()).collect(Collectors.toSet());
+        walked.forEach(id -> saveIfFinished(id, builds, tcIgn));
+
+        return builds;
+    }
+
+    /**
+     * Saves flattened graph of the chain if all its builds are finished, so next time the chain is loaded by one
+     * request.
+     *
+     * @param entryPnt Top level build ID.
+     * @param builds Loaded builds, all futures are completed.
+     * @param tcIgn Teamcity ignited.
+     */
+    private void saveIfFinished(int entryPnt, Map<Integer, Future<FatBuildCompacted>> builds,
+        ITeamcityIgnited tcIgn) {
+        Set<Integer> chainIds = new HashSet<>();
+        List<Integer> level = Collections.singletonList(entryPnt);
+
+        for (int depth = 0; !level.isEmpty(); depth++) {
+            List<Integer> nextLevel = new ArrayList<>();
+
+            for (Integer id : level) {
+                if (!chainIds.add(id))
+                    continue;
+
+                Future<FatBuildCompacted> fut = builds.get(id);
+                FatBuildCompacted build = fut == null ? null : FutureUtil.getResult(fut);
+
+                if (build == null || build.isFakeStub() || !build.isFinished(compactor))
+                    return;
+
+                int[] deps = build.snapshotDependencies();
 
-            logger.info("Level [" + level + "] dependencies:" + depsNextLevel);
+                if (deps.length > 0 && depth >= MAX_DEPTH)
+                    return; // chain was not loaded completely
 
-            remainedUnloadedDeps = depsNextLevel;
+                for (int dep : deps)
+                    nextLevel.add(dep);
+            }
+
+            level = nextLevel;
         }
 
-        return builds;
+        tcIgn.saveFinishedChain(entryPnt, chainIds.stream().mapToInt(Integer::intValue).toArray());
     }
 
     @NotNull
@@ -368,38 +423,132 @@ public class BuildChainProcessor {
     }
 
     /**
-     * @param buildFut Chain build future.
-     * @param mode Mode.
-     * @param builds Build futures map.
+     * @param id Build ID.
+     * @param mode Sync mode, for {@link SyncMode#NONE} build is loaded from DB in caller thread.
      * @param teamcityIgnited Teamcity ignited.
-     * @return Set of new builds found during this dependencies check round.
+     * @return Future of build, requests to TC are limited by {@link TcUpdatePool#supplyLimited}.
      */
-    @NotNull
-    private Set<Integer> dependencies(
-        Future<FatBuildCompacted> buildFut,
-        SyncMode mode,
-        Map<Integer, Future<FatBuildCompacted>> builds,
+    public CompletableFuture<FatBuildCompacted> loadBuildAsync(Integer id, SyncMode mode,
         ITeamcityIgnited teamcityIgnited) {
-        Set<Integer> newBuilds = new HashSet<>();
-
-        IntStream.of(FutureUtil.getResult(buildFut).snapshotDependencies())
-            .forEach(id -> builds.computeIfAbsent(id, id0 -> {
-                newBuilds.add(id0);
-
-                return loadBuildAsync(id0, mode, teamcityIgnited);
-            }));
-
-        return newBuilds;
-    }
-
-    public Future<FatBuildCompacted> loadBuildAsync(Integer id, SyncMode mode, ITeamcityIgnited teamcityIgnited) {
         if (mode == SyncMode.NONE)
-            return Futures.immediateFuture(teamcityIgnited.getFatBuild(id, SyncMode.NONE));
+            return CompletableFuture.completedFuture(teamcityIgnited.getFatBuild(id, SyncMode.NONE));
 
-        return tcUpdatePool.getService().submit(() -> teamcityIgnited.getFatBuild(id, mode));
+        return tcUpdatePool.supplyLimited(() -> teamcityIgnited.getFatBuild(id, mode));
     }
 
     private List<Future<FatBuildCompacted>> completed(List<FatBuildCompacted> builds) {
         return builds.stream().map(Futures::immediateFuture).collect(Collectors.toList());
     }
+
+    /**
+     * Loading of builds graph: each build is requested once, the load is completed when all reached builds are
+     * loaded.
+     */
+    private class ChainLoad {
+        /** Sync mode. */
+        private final SyncMode mode;
+
+        /** Teamcity ignited. */
+        private final ITeamcityIgnited tcIgn;
+
+        /** Builds requested. */
+        private final Map<Integer, Future<FatBuildCompacted>> builds;
+
+        /** Builds requested and not processed yet, plus one until all entry points are requested. */
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        /** Completed when all builds are processed. */
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        /**
+         * @param mode Sync mode.
+         * @param tcIgn Teamcity ignited.
+         * @param builds Builds requested.
+         */
+        ChainLoad(SyncMode mode, ITeamcityIgnited tcIgn, Map<Integer, Future<FatBuildCompacted>> builds) {
+            this.mode = mode;
+            this.tcIgn = tcIgn;
+            this.builds = builds;
+        }
+
+        /**
+         * Requests build if it was not requested yet, and its dependencies after build is loaded.
+         *
+         * @param id Build ID.
+         * @param depth Depth of build from entry point.
+         */
+        void expand(int id, int depth) {
+            CompletableFuture<FatBuildCompacted> fut = new CompletableFuture<>();
+
+            if (builds.putIfAbsent(id, fut) != null)
+                return;
+
+            pending.incrementAndGet();
+
+            CompletableFuture<FatBuildCompacted> loadFut;
+
+            try {
+                // Mode NONE loads build in current thread.
+                loadFut = loadBuildAsync(id, mode, tcIgn);
+            }
+            catch (Throwable e) {
+                fail(fut, e);
+
+                return;
+            }
+
+            loadFut.whenComplete((build, err) -> {
+                try {
+                    if (err != null)
+                        fut.completeExceptionally(err);
+                    else {
+                        fut.complete(build);
+
+                        if (build != null && depth < MAX_DEPTH) {
+                            for (int dep : build.snapshotDependencies())
+                                expand(dep, depth + 1);
+                        }
+                    }
+                }
+                catch (Throwable e) {
+                    done.completeExceptionally(e);
+                }
+                finally {
+                    release();
+                }
+            });
+        }
+
+        /**
+         * Completes load of build and whole chain with error, and marks build processed.
+         *
+         * @param fut Build future.
+         * @param e Error.
+         */
+        private void fail(CompletableFuture<FatBuildCompacted> fut, Throwable e) {
+            fut.completeExceptionally(e);
+            done.completeExceptionally(e);
+
+            release();
+        }
+
+        /**
+         * Waits until all builds reached from entry points are loaded.
+         */
+        void await() {
+            release();
+
+            FutureUtil.getResult(done);
+
+            logger.info("Chain builds loaded: " + builds.size());
+        }
+
+        /**
+         * Marks one pending build processed.
+         */
+        private void release() {
+            if (pending.decrementAndGet() == 0)
+                done.complete(null);
+        }
+    }
 }
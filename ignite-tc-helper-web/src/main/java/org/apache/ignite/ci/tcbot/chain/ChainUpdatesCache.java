@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.tcbot.chain;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.ignite.ci.web.model.current.UpdateInfo;
+
+/**
+ * Last update info returned for chain results, e.g. for tracked branch or PR. Info is reused while the change token
+ * of the results is the same, so polling for updates does not require building the whole failures summary. Entries
+ * expire to pick up changes not covered by the token (mutes, tickets, etc).
+ */
+public class ChainUpdatesCache {
+    /** Update infos: request key -> last update info and token. */
+    private final Cache<String, TokenAndInfo> infos = CacheBuilder.newBuilder()
+        .maximumSize(1000)
+        .expireAfterWrite(5, TimeUnit.MINUTES)
+        .build();
+
+    /**
+     * @param qry Query.
+     * @return Update info.
+     */
+    public UpdateInfo get(ChainUpdatesQuery qry) {
+        return get(qry.key(), qry.token(), qry::summary);
+    }
+
+    /**
+     * @param key Request key, should include all parameters and visible servers.
+     * @param tok Change token of results.
+     * @param summary Results supplier, called only if token was changed or last results were not complete.
+     * @return Update info.
+     */
+    public UpdateInfo get(String key, String tok, Supplier<? extends UpdateInfo> summary) {
+        TokenAndInfo last = infos.getIfPresent(key);
+
+        if (last != null && last.tok.equals(tok) && last.info.runningUpdates == 0)
+            return new UpdateInfo().copyFrom(last.info);
+
+        UpdateInfo info = new UpdateInfo().copyFrom(summary.get());
+
+        infos.put(key, new TokenAndInfo(tok, info));
+
+        return new UpdateInfo().copyFrom(info);
+    }
+
+    /**
+     * Token and update info computed for this token.
+     */
+    private static class TokenAndInfo {
+        /** Token. */
+        private final String tok;
+
+        /** Info. */
+        private final UpdateInfo info;
+
+        /**
+         * @param tok Token.
+         * @param info Info.
+         */
+        TokenAndInfo(String tok, UpdateInfo info) {
+            this.tok = tok;
+            this.info = info;
+        }
+    }
+}
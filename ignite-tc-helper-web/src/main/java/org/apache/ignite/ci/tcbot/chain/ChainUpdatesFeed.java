@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.tcbot.chain;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import org.apache.ignite.ci.teamcity.ignited.buildref.BranchModifications;
+import org.apache.ignite.ci.web.model.current.UpdateInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Notifies waiting pages (e.g. tracked branch or PR results opened in several browser tabs) about results updates.
+ * Build modifications are received from one change feed ({@link BranchModifications#addListener}), change tokens
+ * of waiting queries are checked after a short delay, and results are built once per query key for all waiters.
+ */
+public class ChainUpdatesFeed {
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(ChainUpdatesFeed.class);
+
+    /** Delay of subscriptions check after modification, collects several saved builds into one check. */
+    private static final long CHECK_DELAY_MS = 1000;
+
+    /** Branch modification counters. */
+    @Inject private BranchModifications branchModifications;
+
+    /** Update infos cache. */
+    @Inject private ChainUpdatesCache updatesCache;
+
+    /** Subscriptions: query key -> waiters for the query. */
+    private final ConcurrentMap<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    /** Listener of build modifications was registered. */
+    private final AtomicBoolean lsnrRegistered = new AtomicBoolean();
+
+    /** Check of subscriptions is scheduled. */
+    private final AtomicBoolean checkScheduled = new AtomicBoolean();
+
+    /** Executor of subscriptions checks. */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "chain-updates-feed");
+
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    /**
+     * Provides update info to waiter immediately if results differ from known version, otherwise after results were
+     * modified.
+     *
+     * @param qry Query.
+     * @param knownHash Hash code of results shown to user, null if results were not shown yet.
+     * @param waiter Waiter, called once.
+     * @return Action removing the waiter, e.g. on timeout.
+     */
+    public Runnable await(ChainUpdatesQuery qry, @Nullable String knownHash, Consumer<UpdateInfo> waiter) {
+        if (lsnrRegistered.compareAndSet(false, true))
+            branchModifications.addListener(this::scheduleCheck);
+
+        String tok = qry.token();
+        UpdateInfo info = updatesCache.get(qry.key(), tok, qry::summary);
+
+        if (knownHash == null || !knownHash.equals(info.hashCodeHex) || info.runningUpdates > 0) {
+            waiter.accept(info);
+
+            return () -> {
+            };
+        }
+
+        Subscription sub0 = subscriptions.compute(qry.key(), (key, sub) -> {
+            Subscription res = sub == null ? new Subscription(qry, tok) : sub;
+
+            res.waiters.add(waiter);
+
+            return res;
+        });
+
+        // Modification between token read and subscription does not schedule check if there were no subscriptions.
+        String curTok = qry.token();
+
+        if (!curTok.equals(tok) && sub0.waiters.remove(waiter)) {
+            waiter.accept(updatesCache.get(qry.key(), curTok, qry::summary));
+
+            return () -> {
+            };
+        }
+
+        return () -> {
+            Subscription sub = subscriptions.get(qry.key());
+
+            if (sub != null)
+                sub.waiters.remove(waiter);
+        };
+    }
+
+    /**
+     * Schedules check of subscriptions if it is not scheduled yet.
+     */
+    private void scheduleCheck() {
+        if (!subscriptions.isEmpty() && checkScheduled.compareAndSet(false, true))
+            executor.schedule(this::checkSubscriptions, CHECK_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Notifies waiters of queries with changed token.
+     */
+    private void checkSubscriptions() {
+        checkScheduled.set(false);
+
+        for (String key : subscriptions.keySet()) {
+            Subscription sub = subscriptions.computeIfPresent(key, (k, s) -> s.waiters.isEmpty() ? null : s);
+
+            if (sub == null)
+                continue;
+
+            try {
+                String tok = sub.qry.token();
+
+                if (tok.equals(sub.lastTok))
+                    continue;
+
+                sub.lastTok = tok;
+
+                UpdateInfo info = updatesCache.get(key, tok, sub.qry::summary);
+
+                Consumer<UpdateInfo> waiter;
+
+                while ((waiter = sub.waiters.poll()) != null)
+                    waiter.accept(info);
+            }
+            catch (Exception e) {
+                logger.error("Failed to check updates for " + key, e);
+            }
+        }
+    }
+
+    /**
+     * Stops notifications.
+     */
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Waiters for one query.
+     */
+    private static class Subscription {
+        /** Query. */
+        private final ChainUpdatesQuery qry;
+
+        /** Token waiters were notified about. */
+        private volatile String lastTok;
+
+        /** Waiters. */
+        private final Queue<Consumer<UpdateInfo>> waiters = new ConcurrentLinkedQueue<>();
+
+        /**
+         * @param qry Query.
+         * @param tok Current token.
+         */
+        Subscription(ChainUpdatesQuery qry, String tok) {
+            this.qry = qry;
+            this.lastTok = tok;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.tcbot.chain;
+
+import java.util.function.Supplier;
+import org.apache.ignite.ci.teamcity.ignited.ITeamcityIgnited;
+import org.apache.ignite.ci.web.model.current.UpdateInfo;
+
+/**
+ * Request for updates of chain results: key of results, cheap change token and results supplier.
+ */
+public class ChainUpdatesQuery {
+    /** Request key, includes all parameters and visible servers. */
+    private final String key;
+
+    /** Change token supplier, see {@link ITeamcityIgnited#getBranchModificationCount(String)}. */
+    private final Supplier<String> tok;
+
+    /** Results supplier. */
+    private final Supplier<? extends UpdateInfo> summary;
+
+    /**
+     * @param key Request key.
+     * @param tok Change token supplier.
+     * @param summary Results supplier.
+     */
+    public ChainUpdatesQuery(String key, Supplier<String> tok, Supplier<? extends UpdateInfo> summary) {
+        this.key = key;
+        this.tok = tok;
+        this.summary = summary;
+    }
+
+    /**
+     * @return Request key.
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * @return Current change token.
+     */
+    public String token() {
+        return tok.get();
+    }
+
+    /**
+     * @return Results, built each time the method is called.
+     */
+    public UpdateInfo summary() {
+        return summary.get();
+    }
+}
@@ -22,6 +22,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import javax.inject.Inject;
 import org.apache.ignite.ci.IAnalyticsEnabledTeamcity;
 import org.apache.ignite.ci.ITeamcity;
@@ -47,6 +48,7 @@ import org.apache.ignite.ci.web.model.current.ChainAtServerCurrentStatus;
 import org.apache.ignite.ci.web.model.current.SuiteCurrentStatus;
 import org.apache.ignite.ci.web.model.current.TestFailure;
 import org.apache.ignite.ci.web.model.current.TestFailuresSummary;
+import org.apache.ignite.ci.web.model.current.UpdateInfo;
 import org.apache.ignite.ci.web.rest.parms.FullQueryParams;
 import org.jetbrains.annotations.Nullable;
 
@@ -74,6 +76,105 @@ public class PrChainsProcessor {
 
     @Inject private BranchTicketMatcher ticketMatcher;
 
+    /** Update infos returned for PRs. */
+    @Inject private ChainUpdatesCache updatesCache;
+
+    /** Updates feed. */
+    @Inject private ChainUpdatesFeed updatesFeed;
+
+    /**
+     * Returns update info of PR results, results are built only if builds of the PR or base branch were modified since
+     * last call.
+     *
+     * @param creds Credentials.
+     * @param srvCode Server id.
+     * @param suiteId Suite id.
+     * @param branchForTc Branch name in TC identification.
+     * @param act Action.
+     * @param cnt Count.
+     * @param baseBranchForTc Base branch name in TC identification.
+     * @param checkAllLogs Check all logs.
+     */
+    @AutoProfiling
+    public UpdateInfo getTestFailuresUpdates(
+        ICredentialsProv creds,
+        String srvCode,
+        String suiteId,
+        String branchForTc,
+        String act,
+        Integer cnt,
+        @Nullable String baseBranchForTc,
+        @Nullable Boolean checkAllLogs) {
+        return updatesCache.get(
+            updatesQuery(creds, srvCode, suiteId, branchForTc, act, cnt, baseBranchForTc, checkAllLogs));
+    }
+
+    /**
+     * Waits for update of PR results, see {@link ChainUpdatesFeed#await}.
+     *
+     * @param creds Credentials.
+     * @param srvCode Server id.
+     * @param suiteId Suite id.
+     * @param branchForTc Branch name in TC identification.
+     * @param act Action.
+     * @param cnt Count.
+     * @param baseBranchForTc Base branch name in TC identification.
+     * @param checkAllLogs Check all logs.
+     * @param knownHash Hash code of results shown to user.
+     * @param waiter Waiter.
+     * @return Action removing the waiter.
+     */
+    public Runnable awaitTestFailuresUpdates(
+        ICredentialsProv creds,
+        String srvCode,
+        String suiteId,
+        String branchForTc,
+        String act,
+        Integer cnt,
+        @Nullable String baseBranchForTc,
+        @Nullable Boolean checkAllLogs,
+        @Nullable String knownHash,
+        Consumer<UpdateInfo> waiter) {
+        ChainUpdatesQuery qry = updatesQuery(creds, srvCode, suiteId, branchForTc, act, cnt, baseBranchForTc,
+            checkAllLogs);
+
+        return updatesFeed.await(qry, knownHash, waiter);
+    }
+
+    /**
+     * @param creds Credentials.
+     * @param srvCode Server id.
+     * @param suiteId Suite id.
+     * @param branchForTc Branch name in TC identification.
+     * @param act Action.
+     * @param cnt Count.
+     * @param baseBranchForTc Base branch name in TC identification.
+     * @param checkAllLogs Check all logs.
+     * @return Updates query for the PR.
+     */
+    private ChainUpdatesQuery updatesQuery(
+        ICredentialsProv creds,
+        String srvCode,
+        String suiteId,
+        String branchForTc,
+        String act,
+        Integer cnt,
+        @Nullable String baseBranchForTc,
+        @Nullable Boolean checkAllLogs) {
+        ITeamcityIgnited tcIgnited = tcIgnitedProvider.server(srvCode, creds);
+
+        String baseBranch = Strings.isNullOrEmpty(baseBranchForTc) ? ITeamcity.DEFAULT : baseBranchForTc;
+
+        String key = tcIgnited.serverId() + "/" + suiteId + "/" + branchForTc + "/" + act + "/" + cnt + "/"
+            + baseBranch + "/" + checkAllLogs;
+
+        return new ChainUpdatesQuery(key,
+            () -> tcIgnited.getBranchModificationCount(branchForTc) + "/"
+                + tcIgnited.getBranchModificationCount(baseBranch),
+            () -> getTestFailuresSummary(creds, srvCode, suiteId, branchForTc, act, cnt,
+                baseBranchForTc, checkAllLogs, SyncMode.NONE));
+    }
+
     /**
      * @param creds Credentials.
      * @param srvCode Server id.
@@ -16,9 +16,13 @@
  */
 package org.apache.ignite.ci.tcbot.chain;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import org.apache.ignite.ci.IAnalyticsEnabledTeamcity;
 import org.apache.ignite.ci.analysis.FullChainRunCtx;
@@ -35,6 +39,7 @@ import org.apache.ignite.ci.teamcity.restcached.ITcServerProvider;
 import org.apache.ignite.ci.user.ICredentialsProv;
 import org.apache.ignite.ci.web.model.current.ChainAtServerCurrentStatus;
 import org.apache.ignite.ci.web.model.current.TestFailuresSummary;
+import org.apache.ignite.ci.web.model.current.UpdateInfo;
 import org.apache.ignite.ci.web.model.long_running.FullLRTestsSummary;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -57,9 +62,63 @@ public class TrackedBranchChainsProcessor {
     /** Chains processor. */
     @Inject private BuildChainProcessor chainProc;
 
+    /** Update infos returned for tracked branches. */
+    @Inject private ChainUpdatesCache updatesCache;
+
+    /** Updates feed. */
+    @Inject private ChainUpdatesFeed updatesFeed;
+
+    /** Precomputed summaries of tracked branches. */
+    @Inject private TrackedBranchSnapshots snapshots;
+
+    /**
+     * Returns summary of latest results of tracked branch. Summary is served from snapshot precomputed by {@link
+     * TrackedBranchSnapshotUpdater} if snapshot was built for the same servers and chains were not modified since.
+     *
+     * @param branch Tracked branch.
+     * @param checkAllLogs Check all logs.
+     * @param buildResMergeCnt Count of builds to merge.
+     * @param creds Credentials.
+     * @param syncMode Sync mode, used only if summary is computed.
+     */
     @AutoProfiling
     @NotNull
     public TestFailuresSummary getTrackedBranchTestFailures(
+        @Nullable String branch,
+        @Nullable Boolean checkAllLogs,
+        int buildResMergeCnt,
+        ICredentialsProv creds,
+        SyncMode syncMode) {
+        if (buildResMergeCnt == 1 && !Boolean.TRUE.equals(checkAllLogs)) {
+            final String branchNn = isNullOrEmpty(branch) ? TcServerConfig.DEFAULT_TRACKED_BRANCH_NAME : branch;
+            TrackedBranchSnapshots.Snapshot snapshot = snapshots.get(branchNn);
+
+            if (snapshot != null) {
+                ChainUpdatesQuery qry = updatesQuery(branchNn, null, 1, creds);
+                long ageMs = System.currentTimeMillis() - snapshot.ts;
+
+                if (snapshot.key.equals(qry.key())
+                    && snapshot.tok.equals(qry.token())
+                    && ageMs < 2 * TrackedBranchSnapshotUpdater.MAX_AGE_MS)
+                    return snapshot.summary.copyWithAge(ageMs);
+            }
+        }
+
+        return computeTrackedBranchTestFailures(branch, checkAllLogs, buildResMergeCnt, creds, syncMode);
+    }
+
+    /**
+     * Computes summary of latest results of tracked branch.
+     *
+     * @param branch Tracked branch.
+     * @param checkAllLogs Check all logs.
+     * @param buildResMergeCnt Count of builds to merge.
+     * @param creds Credentials.
+     * @param syncMode Sync mode.
+     */
+    @AutoProfiling
+    @NotNull
+    public TestFailuresSummary computeTrackedBranchTestFailures(
         @Nullable String branch,
         @Nullable Boolean checkAllLogs,
         int buildResMergeCnt,
@@ -132,6 +191,82 @@ public class TrackedBranchChainsProcessor {
         return res;
     }
 
+    /**
+     * Returns update info of tracked branch results, results are built only if builds of chains visible for user were
+     * modified since last call.
+     *
+     * @param branch Tracked branch.
+     * @param checkAllLogs Check all logs.
+     * @param buildResMergeCnt Count of builds to merge.
+     * @param creds Credentials.
+     */
+    @AutoProfiling
+    public UpdateInfo getTrackedBranchUpdates(
+        @Nullable String branch,
+        @Nullable Boolean checkAllLogs,
+        int buildResMergeCnt,
+        ICredentialsProv creds) {
+        return updatesCache.get(updatesQuery(branch, checkAllLogs, buildResMergeCnt, creds));
+    }
+
+    /**
+     * Waits for update of tracked branch results, see {@link ChainUpdatesFeed#await}.
+     *
+     * @param branch Tracked branch.
+     * @param checkAllLogs Check all logs.
+     * @param buildResMergeCnt Count of builds to merge.
+     * @param creds Credentials.
+     * @param knownHash Hash code of results shown to user.
+     * @param waiter Waiter.
+     * @return Action removing the waiter.
+     */
+    public Runnable awaitTrackedBranchUpdates(
+        @Nullable String branch,
+        @Nullable Boolean checkAllLogs,
+        int buildResMergeCnt,
+        ICredentialsProv creds,
+        @Nullable String knownHash,
+        Consumer<UpdateInfo> waiter) {
+        return updatesFeed.await(updatesQuery(branch, checkAllLogs, buildResMergeCnt, creds), knownHash, waiter);
+    }
+
+    /**
+     * @param branch Tracked branch.
+     * @param checkAllLogs Check all logs.
+     * @param buildResMergeCnt Count of builds to merge.
+     * @param creds Credentials.
+     * @return Updates query for chains visible for user.
+     */
+    ChainUpdatesQuery updatesQuery(
+        @Nullable String branch,
+        @Nullable Boolean checkAllLogs,
+        int buildResMergeCnt,
+        ICredentialsProv creds) {
+        final String branchNn = isNullOrEmpty(branch) ? TcServerConfig.DEFAULT_TRACKED_BRANCH_NAME : branch;
+        final BranchTracked tracked = tcBotConfig.getTrackedBranches().getBranchMandatory(branchNn);
+
+        StringBuilder key = new StringBuilder()
+            .append(branchNn).append('/').append(checkAllLogs).append('/').append(buildResMergeCnt);
+        List<Supplier<String>> toks = new ArrayList<>();
+
+        tracked.chains.stream()
+            .filter(chainTracked -> tcIgnitedProv.hasAccess(chainTracked.serverId, creds))
+            .forEach(chainTracked -> {
+                ITeamcityIgnited tcIgnited = tcIgnitedProv.server(chainTracked.serverId, creds);
+                String branchForTc = chainTracked.getBranchForRestMandatory();
+                String baseBranchTc = chainTracked.getBaseBranchForTc().orElse(branchForTc);
+
+                key.append('/').append(chainTracked.serverId);
+
+                toks.add(() -> tcIgnited.getBranchModificationCount(branchForTc) + "/"
+                    + tcIgnited.getBranchModificationCount(baseBranchTc));
+            });
+
+        return new ChainUpdatesQuery(key.toString(),
+            () -> toks.stream().map(Supplier::get).collect(Collectors.joining("/")),
+            () -> getTrackedBranchTestFailures(branch, checkAllLogs, buildResMergeCnt, creds, SyncMode.NONE));
+    }
+
     /**
      * Collects data about all long-running tests (run time more than one minute) within one transfer object.
      *
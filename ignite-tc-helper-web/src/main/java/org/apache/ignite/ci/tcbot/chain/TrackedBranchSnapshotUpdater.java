@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.tcbot.chain;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.inject.Inject;
+import org.apache.ignite.ci.di.MonitoredTask;
+import org.apache.ignite.ci.di.scheduler.IScheduler;
+import org.apache.ignite.ci.tcbot.ITcBotBgAuth;
+import org.apache.ignite.ci.tcbot.conf.ITcBotConfig;
+import org.apache.ignite.ci.teamcity.ignited.SyncMode;
+import org.apache.ignite.ci.teamcity.ignited.buildref.BranchModifications;
+import org.apache.ignite.ci.user.ICredentialsProv;
+import org.apache.ignite.ci.web.model.current.TestFailuresSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes summaries of all tracked branches in background using server authorizer credentials. Summary of branch is
+ * recomputed only if builds of its chains were modified, or if summary is older than {@link #MAX_AGE_MS} (mutes, fail
+ * rates and other data not covered by change token). Requests are served from {@link TrackedBranchSnapshots}.
+ */
+public class TrackedBranchSnapshotUpdater {
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(TrackedBranchSnapshotUpdater.class);
+
+    /** Max age of snapshot, snapshot is recomputed even if chains were not modified. */
+    public static final long MAX_AGE_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /** Delay of refresh after modification, collects several saved builds into one refresh. */
+    private static final long REFRESH_DELAY_SECS = 5;
+
+    /** Tracked branch processor. */
+    @Inject private TrackedBranchChainsProcessor proc;
+
+    /** Snapshots. */
+    @Inject private TrackedBranchSnapshots snapshots;
+
+    /** Config. */
+    @Inject private ITcBotConfig cfg;
+
+    /** Background operations credentials holder. */
+    @Inject private ITcBotBgAuth bgAuth;
+
+    /** Scheduler. */
+    @Inject private IScheduler scheduler;
+
+    /** Branch modification counters. */
+    @Inject private BranchModifications branchModifications;
+
+    /** Updater was started. */
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /** Refresh after modification is scheduled. */
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    /**
+     * Starts refreshing of snapshots, should be called after server authorizer credentials are set.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true))
+            return;
+
+        branchModifications.addListener(this::scheduleRefresh);
+
+        scheduler.sheduleNamed("TrackedBranchSnapshotUpdater.refresh", this::refresh, MAX_AGE_MS,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules refresh if it is not scheduled yet.
+     */
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            scheduler.invokeLater(() -> {
+                refreshScheduled.set(false);
+
+                refresh();
+            }, REFRESH_DELAY_SECS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Recomputes summaries of tracked branches having outdated snapshot.
+     */
+    @MonitoredTask(name = "Refresh Tracked Branch Summaries")
+    @SuppressWarnings("WeakerAccess")
+    protected synchronized String refresh() {
+        ICredentialsProv creds = bgAuth.getServerAuthorizerCreds();
+
+        if (creds == null)
+            return "Skipped: server authorizer credentials are not set";
+
+        int refreshed = 0;
+
+        for (String branch : cfg.getTrackedBranchesIds()) {
+            try {
+                // Token is taken before computation, so modifications during computation will cause next refresh.
+                ChainUpdatesQuery qry = proc.updatesQuery(branch, null, 1, creds);
+                String tok = qry.token();
+                long ts = System.currentTimeMillis();
+
+                TrackedBranchSnapshots.Snapshot last = snapshots.get(branch);
+
+                if (last != null
+                    && last.key.equals(qry.key())
+                    && last.tok.equals(tok)
+                    && ts - last.ts < MAX_AGE_MS)
+                    continue;
+
+                // Builds are not reloaded here: reload saves builds and modifies chains, which schedules refresh
+                // again. Queued and running builds are actualized by build sync, modifications trigger refresh.
+                TestFailuresSummary summary = proc.computeTrackedBranchTestFailures(branch, null, 1, creds,
+                    SyncMode.NONE);
+
+                snapshots.put(branch, qry.key(), tok, summary, ts);
+
+                refreshed++;
+            }
+            catch (Exception e) {
+                logger.error("Failed to compute summary of tracked branch " + branch, e);
+            }
+        }
+
+        return "Refreshed " + refreshed + " tracked branch summaries";
+    }
+}
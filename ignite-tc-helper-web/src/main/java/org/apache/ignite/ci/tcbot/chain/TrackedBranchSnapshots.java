@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.tcbot.chain;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+import org.apache.ignite.ci.web.model.current.TestFailuresSummary;
+
+/**
+ * Latest precomputed summaries of tracked branches, see {@link TrackedBranchSnapshotUpdater}. Each new summary of
+ * the branch gets next version, summaries are never modified after saving.
+ */
+public class TrackedBranchSnapshots {
+    /** Snapshots: tracked branch ID -> latest snapshot. */
+    private final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * @param branch Tracked branch ID.
+     * @return Latest snapshot or null if summary was not computed yet.
+     */
+    @Nullable public Snapshot get(String branch) {
+        return snapshots.get(branch);
+    }
+
+    /**
+     * @param branch Tracked branch ID.
+     * @param key Updates query key, identifies parameters and servers included into the summary.
+     * @param tok Change token of branch chains when computation was started.
+     * @param summary Summary.
+     * @param ts Timestamp when computation was started.
+     * @return Saved snapshot.
+     */
+    public Snapshot put(String branch, String key, String tok, TestFailuresSummary summary, long ts) {
+        return snapshots.compute(branch,
+            (k, prev) -> new Snapshot(prev == null ? 1 : prev.version + 1, key, tok, summary, ts));
+    }
+
+    /**
+     * Summary of tracked branch for latest (as of {@link #ts}) data.
+     */
+    public static class Snapshot {
+        /** Version. */
+        public final long version;
+
+        /** Updates query key. */
+        public final String key;
+
+        /** Change token of branch chains. */
+        public final String tok;
+
+        /** Summary, should not be modified. */
+        public final TestFailuresSummary summary;
+
+        /** Timestamp of data. */
+        public final long ts;
+
+        /**
+         * @param version Version.
+         * @param key Updates query key.
+         * @param tok Change token.
+         * @param summary Summary.
+         * @param ts Timestamp of data.
+         */
+        Snapshot(long version, String key, String tok, TestFailuresSummary summary, long ts) {
+            this.version = version;
+            this.key = key;
+            this.tok = tok;
+            this.summary = summary;
+            this.ts = ts;
+        }
+    }
+}
@@ -43,4 +43,10 @@ public interface ITcServerConfig {
      */
     @NotNull public String defaultTrackedBranch();
 
+    /**
+     * @return Shared secret required to push build events of this server, see {@code BuildEventsService}. Events are
+     * not accepted if secret is not configured.
+     */
+    @Nullable public String buildEventsSecret();
+
 }
@@ -48,6 +48,9 @@ public class TcServerConfig implements ITcServerConfig {
     /** Default tracked branch name in internal identification of TC bot. */
     @Nullable private String defaultTrackedBranch;
 
+    /** Shared secret required to push build events. */
+    @Nullable private String buildEventsSecret;
+
     public TcServerConfig() {
 
     }
@@ -103,6 +106,11 @@ public class TcServerConfig implements ITcServerConfig {
         return DEFAULT_TRACKED_BRANCH_NAME;
     }
 
+    /** {@inheritDoc} */
+    @Nullable @Override public String buildEventsSecret() {
+        return Strings.emptyToNull(buildEventsSecret);
+    }
+
     /**
      * @param props Properties.
      */
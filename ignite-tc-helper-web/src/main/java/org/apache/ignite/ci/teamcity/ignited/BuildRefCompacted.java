@@ -28,22 +28,40 @@ import static org.apache.ignite.ci.tcmodel.hist.BuildRef.*;
 
 @Persisted
 public class BuildRefCompacted {
+    /** Index for history of builds: server, build type, branch, most recent builds first. */
+    public static final String SRV_BT_BRANCH_IDX = "srvBtBranchIdx";
+
+    /** Index for builds of server having particular state, e.g. queued or running. */
+    public static final String SRV_STATE_IDX = "srvStateIdx";
+
     /** Build Id without modifications, -1 if it is null. */
+    @QuerySqlField(orderedGroups = {@QuerySqlField.Group(name = SRV_BT_BRANCH_IDX, order = 3, descending = true)})
     private int id = -1;
 
     /** Compacter identifier for string 'Build type id'. */
+    @QuerySqlField(orderedGroups = {@QuerySqlField.Group(name = SRV_BT_BRANCH_IDX, order = 1)})
     private int buildTypeId = -1;
 
     /** Compacter identifier for string 'Branch name'. */
-    @QuerySqlField(index = true)
+    @QuerySqlField(index = true, orderedGroups = {@QuerySqlField.Group(name = SRV_BT_BRANCH_IDX, order = 2)})
     private int branchName = -1;
 
     /** Compacter identifier for string 'Status'. */
     private int status = -1;
 
     /** Compacter identifier for string 'State'. */
+    @QuerySqlField(orderedGroups = {@QuerySqlField.Group(name = SRV_STATE_IDX, order = 1)})
     private int state = -1;
 
+    /**
+     * Server ID mask high, see {@link ITeamcityIgnited#serverIdToInt(String)}. Duplicates high bits of cache key to
+     * be used in SQL indexes, filled by build references DAO. 0 if not set.
+     */
+    @QuerySqlField(orderedGroups = {
+        @QuerySqlField.Group(name = SRV_BT_BRANCH_IDX, order = 0),
+        @QuerySqlField.Group(name = SRV_STATE_IDX, order = 0)})
+    private int srvId;
+
     /**
      * Default constructor.
      */
@@ -79,6 +97,7 @@ public class BuildRefCompacted {
         branchName = refCompacted.branchName();
         status = refCompacted.status();
         state = refCompacted.state();
+        srvId = refCompacted.srvId();
     }
 
 
@@ -129,12 +148,13 @@ public class BuildRefCompacted {
             buildTypeId == compacted.buildTypeId &&
             branchName == compacted.branchName &&
             status == compacted.status &&
-            state == compacted.state;
+            state == compacted.state &&
+            srvId == compacted.srvId;
     }
 
     /** {@inheritDoc} */
     @Override public int hashCode() {
-        return Objects.hashCode(id, buildTypeId, branchName, status, state);
+        return Objects.hashCode(id, buildTypeId, branchName, status, state, srvId);
     }
 
     /** */
@@ -172,6 +192,18 @@ public class BuildRefCompacted {
         this.state = state;
     }
 
+    /** */
+    public int srvId() {
+        return srvId;
+    }
+
+    /**
+     * @param srvId Server ID mask high.
+     */
+    public void srvId(int srvId) {
+        this.srvId = srvId;
+    }
+
     /** */
     public boolean isFakeStub() {
         return id() < 0;
@@ -212,6 +244,7 @@ public class BuildRefCompacted {
             .add("branchName", branchName)
             .add("status", status)
             .add("state", state)
+            .add("srvId", srvId)
             .toString();
     }
 
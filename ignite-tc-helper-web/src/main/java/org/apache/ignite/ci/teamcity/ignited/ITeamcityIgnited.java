@@ -20,6 +20,7 @@ import com.google.common.base.Strings;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -146,6 +147,39 @@ public interface ITeamcityIgnited {
      */
     public FatBuildCompacted getFatBuild(int id, SyncMode mode);
 
+    /**
+     * Loads all builds of finished chain using persisted chain graph, see {@link #saveFinishedChain(int, int[])}.
+     *
+     * @param id Top level build ID.
+     * @return Builds of the chain: build ID -> build, or null if graph was not saved or became outdated.
+     */
+    @Nullable public Map<Integer, FatBuildCompacted> getFinishedChain(int id);
+
+    /**
+     * Saves graph of chain, all builds in the chain should be finished.
+     *
+     * @param id Top level build ID.
+     * @param chainIds IDs of all builds in the chain including top level build.
+     */
+    public void saveFinishedChain(int id, int[] chainIds);
+
+    /**
+     * Cheap change token for results of the branch: value is changed each time a build or a build reference of the
+     * branch is saved. Counters are not persisted, so value is comparable only within one run of TC Bot.
+     *
+     * @param branchName Branch name.
+     * @return Count of modifications of builds in the branch.
+     */
+    public long getBranchModificationCount(String branchName);
+
+    /**
+     * Requests immediate reload of build reported by TC build event (queued, started, finished).
+     *
+     * @param buildId Build id.
+     * @return {@code false} if too many builds are pending and event was dropped.
+     */
+    public boolean buildEventReceived(int buildId);
+
     public Collection<ChangeCompacted> getAllChanges(int[] changeIds);
 
     /**
@@ -190,6 +224,18 @@ public interface ITeamcityIgnited {
 
     @Nullable public IRunHistory getSuiteRunHist(SuiteInBranch branch);
 
+    /**
+     * @param tests Tests in branches.
+     * @return Histories loaded using one request, tests without history are not included.
+     */
+    @NotNull public Map<TestInBranch, IRunHistory> getTestRunHists(Collection<TestInBranch> tests);
+
+    /**
+     * @param suites Suites in branches.
+     * @return Histories loaded using one request, suites without history are not included.
+     */
+    @NotNull public Map<SuiteInBranch, IRunHistory> getSuiteRunHists(Collection<SuiteInBranch> suites);
+
     /**
      * @param suiteBuildTypeId Suite id.
      * @return run statistics of recent runls on all branches.
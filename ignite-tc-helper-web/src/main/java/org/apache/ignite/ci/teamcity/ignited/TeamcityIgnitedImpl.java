@@ -18,9 +18,9 @@ package org.apache.ignite.ci.teamcity.ignited;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,17 +30,20 @@ import java.util.OptionalInt;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import org.apache.ignite.ci.ITeamcity;
 import org.apache.ignite.ci.analysis.SuiteInBranch;
 import org.apache.ignite.ci.analysis.TestInBranch;
+import org.apache.ignite.ci.db.SyncCheckpointDao;
 import org.apache.ignite.ci.di.AutoProfiling;
 import org.apache.ignite.ci.di.MonitoredTask;
 import org.apache.ignite.ci.di.cache.GuavaCached;
 import org.apache.ignite.ci.di.scheduler.IScheduler;
+import org.apache.ignite.ci.di.scheduler.SyncFrequencyController;
+import org.apache.ignite.ci.di.scheduler.SyncPeriod;
 import org.apache.ignite.ci.tcbot.trends.MasterTrendsService;
 import org.apache.ignite.ci.tcmodel.agent.Agent;
 import org.apache.ignite.ci.tcmodel.conf.Project;
@@ -49,6 +52,7 @@ import org.apache.ignite.ci.tcmodel.mute.MuteInfo;
 import org.apache.ignite.ci.tcmodel.result.Build;
 import org.apache.ignite.ci.teamcity.ignited.buildcondition.BuildCondition;
 import org.apache.ignite.ci.teamcity.ignited.buildcondition.BuildConditionDao;
+import org.apache.ignite.ci.teamcity.ignited.buildref.BranchModifications;
 import org.apache.ignite.ci.teamcity.ignited.buildref.BuildRefDao;
 import org.apache.ignite.ci.teamcity.ignited.buildref.BuildRefSync;
 import org.apache.ignite.ci.teamcity.ignited.buildtype.BuildTypeCompacted;
@@ -59,6 +63,7 @@ import org.apache.ignite.ci.teamcity.ignited.buildtype.BuildTypeSync;
 import org.apache.ignite.ci.teamcity.ignited.change.ChangeCompacted;
 import org.apache.ignite.ci.teamcity.ignited.change.ChangeDao;
 import org.apache.ignite.ci.teamcity.ignited.change.ChangeSync;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.ChainGraphDao;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildDao;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.ProactiveFatBuildSync;
@@ -104,6 +109,9 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
     /** Build reference DAO. */
     @Inject private BuildRefDao buildRefDao;
 
+    /** Branch modification counters. */
+    @Inject private BranchModifications branchModifications;
+
     /** Build reference (short version of build data) sync. */
     @Inject private BuildRefSync buildRefSync;
 
@@ -116,6 +124,9 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
     /** Build Sync. */
     @Inject private ProactiveFatBuildSync fatBuildSync;
 
+    /** Chain graph DAO. */
+    @Inject private ChainGraphDao chainGraphDao;
+
     /** Mute DAO. */
     @Inject private MuteDao muteDao;
 
@@ -146,6 +157,12 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
     /** Strings compactor. */
     @Inject private IStringCompactor compactor;
 
+    /** Sync checkpoints DAO. */
+    @Inject private SyncCheckpointDao checkpointDao;
+
+    /** Sync frequency controller. */
+    @Inject private SyncFrequencyController freqCtrl;
+
     /** Server ID mask for cache Entries. */
     private int srvIdMaskHigh;
 
@@ -159,9 +176,11 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
         buildRefDao.init(); //todo init somehow in auto
         buildConditionDao.init();
         fatBuildDao.init();
+        chainGraphDao.init();
         changesDao.init();
         runHistCompactedDao.init();
         muteDao.init();
+        checkpointDao.init();
     }
 
     /**
@@ -184,154 +203,45 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
     }
 
     /** {@inheritDoc} */
+    @AutoProfiling
     @Override public List<BuildRefCompacted> getFinishedBuildsCompacted(
         @Nullable String buildTypeId,
         @Nullable String branchName,
         @Nullable Date sinceDate,
         @Nullable Date untilDate) {
-        final int allDatesOutOfBounds = -1;
-        final int someDatesOutOfBounds = -2;
-        final int invalidVal = -3;
-        final int unknownStatus = compactor.getStringId(STATUS_UNKNOWN);
-
-        List<BuildRefCompacted> buildRefs = getAllBuildsCompacted(buildTypeId, branchName)
-            .stream()
-            .filter(b -> b.isFinished(compactor))
-            .filter(b -> b.status() != unknownStatus)
-            .collect(Collectors.toList());
-
-        if (buildRefs.isEmpty())
-            return Collections.emptyList();
-
-        int idSince = 0;
-        int idUntil = buildRefs.size() - 1;
-
-        if (sinceDate != null) {
-            idSince = binarySearchDate(buildRefs, 0, buildRefs.size(), sinceDate, true);
-            idSince = (idSince == someDatesOutOfBounds) ? 0 : idSince;
-        }
+        ensureActualizeRequested();
 
-        if (untilDate != null) {
-            idUntil = (idSince < 0) ? allDatesOutOfBounds :
-                binarySearchDate(buildRefs, idSince, buildRefs.size(), untilDate, false);
-            idUntil = (idUntil == someDatesOutOfBounds) ? buildRefs.size() - 1 : idUntil;
-        }
+        final int unknownStatus = compactor.getStringId(STATUS_UNKNOWN);
 
-        if (idSince == invalidVal || idUntil == invalidVal) {
-            AtomicBoolean stopFilter = new AtomicBoolean();
-            AtomicBoolean addBuild = new AtomicBoolean();
-
-            return buildRefs.stream()
-                .filter(b -> {
-                    if (stopFilter.get())
-                        return addBuild.get();
-
-                    Date date = getBuildStartDate(b.id());
-
-                    if (date == null)
-                        return false;
-
-                    if (sinceDate != null && untilDate != null)
-                        if ((date.after(sinceDate) || date.equals(sinceDate)) &&
-                            (date.before(untilDate) || date.equals(untilDate)))
-                            return true;
-                        else {
-                            if (date.after(untilDate)) {
-                                stopFilter.set(true);
-                                addBuild.set(false);
-                            }
-
-                            return false;
-                        }
-                    else if (sinceDate != null) {
-                        if (date.after(sinceDate) || date.equals(sinceDate)) {
-                            stopFilter.set(true);
-                            addBuild.set(true);
-
-                            return true;
-                        }
-
-                        return false;
-                    }
-                    else {
-                        if (date.after(untilDate)) {
-                            stopFilter.set(true);
-                            addBuild.set(false);
-
-                            return false;
-                        }
-
-                        return true;
-                    }
-                })
-                .collect(Collectors.toList());
-        } else if (idSince == allDatesOutOfBounds || idUntil == allDatesOutOfBounds)
-            return Collections.emptyList();
-        else
-            return buildRefs.subList(idSince, idUntil + 1);
+        return buildRefDao.getBuildsStartedBetween(srvIdMaskHigh, buildTypeId, branchForQuery(branchName),
+            sinceDate == null ? null : sinceDate.getTime(),
+            untilDate == null ? null : untilDate.getTime(),
+            b -> b.isFinished(compactor) && b.status() != unknownStatus,
+            this::getBuildStartTsFromDb);
     }
 
     /**
-     * @param buildRefs Build refs list.
-     * @param fromIdx From index.
-     * @param toIdx To index.
-     * @param key Key.
-     * @param since {@code true} If key is sinceDate, {@code false} is untilDate.
+     * Resolves start times of builds using data saved in DB only, TC server is not queried.
      *
-     * @return {@value >= 0} Build id from list with min interval between key. If since {@code true}, min interval
-     * between key and same day or later. If since {@code false}, min interval between key and same day or earlier;
-     * {@value -1} All dates out of bounds. If sinceDate after last list element date or untilDate before first list
-     * element;
-     * {@value -2} Some dates out of bounds. If sinceDate before first list element or untilDate after last list
-     * element;
-     * {@value -3} Invalid value. If method get null or fake stub build.
+     * @param buildIds Build IDs.
+     * @return Build ID -> start timestamp for builds with start time known.
      */
-    private int binarySearchDate(List<BuildRefCompacted> buildRefs, int fromIdx, int toIdx, Date key, boolean since) {
-        final int allDatesOutOfBounds = -1;
-        final int someDatesOutOfBounds = -2;
-        final int invalidVal = -3;
-
-        int low = fromIdx;
-        int high = toIdx - 1;
-        long minDiff = key.getTime();
-        int minDiffId = since ? low : high;
-        long temp;
-
-        Date highBuildStartDate = getBuildStartDate(buildRefs.get(high).id());
-        Date lowBuildStartDate = getBuildStartDate(buildRefs.get(low).id());
-
-        if (highBuildStartDate != null) {
-            if (highBuildStartDate.before(key))
-                return since ? allDatesOutOfBounds : someDatesOutOfBounds;
-        }
-
-        if (lowBuildStartDate != null) {
-            if (lowBuildStartDate.after(key))
-                return since ? someDatesOutOfBounds : allDatesOutOfBounds;
-        }
+    private Map<Integer, Long> getBuildStartTsFromDb(Collection<Integer> buildIds) {
+        Map<Integer, Long> res = runHistCompactedDao.getBuildStartTimes(srvIdMaskHigh, buildIds);
 
-        while (low <= high) {
-            int mid = (low + high) >>> 1;
-            Date midValStartDate = getBuildStartDate(buildRefs.get(mid).id());
+        List<Integer> notProcessed = buildIds.stream()
+            .filter(id -> !res.containsKey(id))
+            .collect(Collectors.toList());
 
-            if (midValStartDate != null) {
-                if (midValStartDate.after(key))
-                    high = mid - 1;
-                else if (midValStartDate.before(key))
-                    low = mid + 1;
-                else
-                    return mid;
+        if (notProcessed.isEmpty())
+            return res;
 
-                temp = midValStartDate.getTime() - key.getTime();
+        fatBuildDao.getAllFatBuilds(srvIdMaskHigh, notProcessed).forEach((key, build) -> {
+            if (build != null && !build.isFakeStub() && build.getStartDateTs() > 0)
+                res.put(BuildRefDao.cacheKeyToBuildId(key), build.getStartDateTs());
+        });
 
-                if ((temp > 0 == since) && (Math.abs(temp) < minDiff)) {
-                    minDiff = Math.abs(temp);
-                    minDiffId = mid;
-                }
-            } else
-                return invalidVal;
-        }
-        return minDiffId;
+        return res;
     }
 
     /** {@inheritDoc} */
@@ -375,29 +285,20 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
     /** {@inheritDoc} */
     @AutoProfiling
     @Override @NotNull public List<Integer> getLastNBuildsFromHistory(String btId, String branchForTc, int cnt) {
-        List<BuildRefCompacted> hist = getAllBuildsCompacted(btId, branchForTc);
-
-        List<Integer> chains = hist.stream()
-            .filter(ref -> !ref.isFakeStub())
-            .filter(t -> !t.isCancelled(compactor))
-            .filter(t -> t.isFinished(compactor))
-            .sorted(Comparator.comparing(BuildRefCompacted::id).reversed())
-            .limit(cnt)
-            .map(BuildRefCompacted::id)
-            .collect(Collectors.toList());
+        ensureActualizeRequested();
+
+        List<String> branches = branchForQuery(branchForTc);
+
+        List<BuildRefCompacted> chains = buildRefDao.getLastNBuilds(srvIdMaskHigh, btId, branches, cnt,
+            t -> !t.isFakeStub() && !t.isCancelled(compactor) && t.isFinished(compactor));
 
         if (chains.isEmpty()) {
             // probably there are no not-cacelled builds at all
-            chains = hist.stream()
-                .filter(ref -> !ref.isFakeStub())
-                .filter(t -> t.isFinished(compactor))
-                .sorted(Comparator.comparing(BuildRefCompacted::id).reversed())
-                .map(BuildRefCompacted::id)
-                .limit(cnt)
-                .collect(Collectors.toList());
+            chains = buildRefDao.getLastNBuilds(srvIdMaskHigh, btId, branches, cnt,
+                t -> !t.isFakeStub() && t.isFinished(compactor));
         }
 
-        return chains;
+        return chains.stream().map(BuildRefCompacted::id).collect(Collectors.toList());
     }
 
     /** {@inheritDoc} */
@@ -414,6 +315,18 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
         return runHistCompactedDao.getSuiteRunHist(srvIdMaskHigh, suiteInBranch.getSuiteId(), suiteInBranch.branch);
     }
 
+    /** {@inheritDoc} */
+    @AutoProfiling
+    @Override public Map<TestInBranch, IRunHistory> getTestRunHists(Collection<TestInBranch> tests) {
+        return runHistCompactedDao.getTestRunHists(srvIdMaskHigh, tests);
+    }
+
+    /** {@inheritDoc} */
+    @AutoProfiling
+    @Override public Map<SuiteInBranch, IRunHistory> getSuiteRunHists(Collection<SuiteInBranch> suites) {
+        return runHistCompactedDao.getSuiteRunHists(srvIdMaskHigh, suites);
+    }
+
     /** {@inheritDoc} */
     @Nullable @Override public IRunStat getSuiteRunStatAllBranches(String suiteBuildTypeId) {
         return runHistCompactedDao.getSuiteRunStatAllBranches(srvIdMaskHigh, suiteBuildTypeId);
@@ -461,7 +374,10 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
      * Enables scheduleing for build refs/builds/history sync
      */
     public void ensureActualizeRequested() {
-        scheduler.sheduleNamed(taskName("actualizeRecentBuildRefs"), () -> actualizeRecentBuildRefs(srvCode), 2, TimeUnit.MINUTES);
+        String actualizeTask = taskName("actualizeRecentBuildRefs");
+
+        scheduler.sheduleNamed(actualizeTask, () -> actualizeRecentBuildRefs(srvCode),
+            freqCtrl.quietPeriodMs(actualizeTask, srvCode, SyncPeriod.BUILD_REFS), TimeUnit.MILLISECONDS);
 
         buildRefSync.ensureActualizeRequested();
 
@@ -493,6 +409,11 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
         return buildConditionDao.setBuildCondition(srvIdMaskHigh, cond);
     }
 
+    /** {@inheritDoc} */
+    @Override public boolean buildEventReceived(int buildId) {
+        return fatBuildSync.loadBuildPushed(conn, buildId);
+    }
+
     /**
      * @param buildId Build id.
      * @return build start date or null if build is fake stub or start date is not specified.
@@ -546,6 +467,58 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
         return savedVer;
     }
 
+    /** {@inheritDoc} */
+    @AutoProfiling
+    @Nullable @Override public Map<Integer, FatBuildCompacted> getFinishedChain(int buildId) {
+        int[] chainIds = chainGraphDao.getChain(srvIdMaskHigh, buildId);
+
+        if (chainIds == null)
+            return null;
+
+        ensureActualizeRequested();
+
+        Set<Integer> ids = Arrays.stream(chainIds).boxed().collect(Collectors.toSet());
+        Map<Integer, FatBuildCompacted> chain = new HashMap<>();
+
+        fatBuildDao.getAllFatBuilds(srvIdMaskHigh, ids).forEach((key, build) -> {
+            if (build != null)
+                chain.put(BuildRefDao.cacheKeyToBuildId(key), build);
+        });
+
+        // Graph is outdated if some build was removed or re-run, or new dependency appeared.
+        boolean actual = chain.size() == ids.size() && chain.values().stream().allMatch(
+            build -> !build.isFakeStub()
+                && build.isFinished(compactor)
+                && Arrays.stream(build.snapshotDependencies()).allMatch(ids::contains));
+
+        if (!actual) {
+            chainGraphDao.invalidate(srvIdMaskHigh, buildId);
+
+            return null;
+        }
+
+        return chain;
+    }
+
+    /** {@inheritDoc} */
+    @Override public void saveFinishedChain(int buildId, int[] chainIds) {
+        chainGraphDao.saveChain(srvIdMaskHigh, buildId, chainIds);
+    }
+
+    /** {@inheritDoc} */
+    @Override public long getBranchModificationCount(String branchName) {
+        long cnt = 0;
+
+        for (String branch : branchForQuery(branchName)) {
+            Integer branchNameId = compactor.getStringIdIfPresent(branch);
+
+            if (branchNameId != null)
+                cnt += branchModifications.count(srvIdMaskHigh, branchNameId);
+        }
+
+        return cnt;
+    }
+
     protected FatBuildCompacted getFatBuildFromIgnite(int buildId) {
         ensureActualizeRequested();
 
@@ -608,7 +581,12 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
         //schedule direct reload for Fat Builds for all queued too-old builds
         fatBuildSync.scheduleBuildsLoad(conn, directUpload);
 
-        buildRefSync.runActualizeBuildRefs(srvCode, false, paginateUntil, conn);
+        AtomicInteger saved = new AtomicInteger(-1);
+
+        buildRefSync.runActualizeBuildRefsSince(srvCode, paginateUntil, conn, saved);
+
+        if (saved.get() >= 0)
+            freqCtrl.changesObserved(taskName("actualizeRecentBuildRefs"), saved.get());
 
         int freshButNotFoundByBuildsRefsScan = paginateUntil.size();
         if (!paginateUntil.isEmpty()) {
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.buildref;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modification counters of branches: count of build references and builds saved in the branch since start. Used as
+ * cheap change token for branch results and as change feed for waiting pages. Counters are not persisted.
+ */
+public class BranchModifications {
+    /** Counters: server ID mask high and branch name ID -> count of modifications. */
+    private final ConcurrentMap<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    /** Listeners notified after each branch modification. */
+    private final List<Runnable> lsnrs = new CopyOnWriteArrayList<>();
+
+    /**
+     * Marks branch modified, should be called on each save of build data related to the branch.
+     *
+     * @param srvId Server id mask high.
+     * @param branchNameId Branch name ID.
+     */
+    public void modified(int srvId, int branchNameId) {
+        counters.computeIfAbsent(key(srvId, branchNameId), k -> new AtomicLong()).incrementAndGet();
+
+        lsnrs.forEach(Runnable::run);
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @param branchNameId Branch name ID.
+     * @return Count of modifications of builds in the branch since start.
+     */
+    public long count(int srvId, int branchNameId) {
+        AtomicLong cnt = counters.get(key(srvId, branchNameId));
+
+        return cnt == null ? 0 : cnt.get();
+    }
+
+    /**
+     * @param lsnr Listener notified after each modification of any branch, should not block.
+     */
+    public void addListener(Runnable lsnr) {
+        lsnrs.add(lsnr);
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @param branchNameId Branch name ID.
+     */
+    private static long key(int srvId, int branchNameId) {
+        return (long)branchNameId & 0xFFFFFFFFL | (long)srvId << 32;
+    }
+}
@@ -17,7 +17,13 @@
 
 package org.apache.ignite.ci.teamcity.ignited.buildref;
 
+import com.google.common.base.Preconditions;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -29,7 +35,11 @@ import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.cache.QueryEntity;
 import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.SqlFieldsQuery;
 import org.apache.ignite.cache.query.SqlQuery;
+import org.apache.ignite.ci.db.ServerCaches;
+import org.apache.ignite.ci.db.ServerKeyScanner;
+import org.apache.ignite.ci.db.SyncBitmapDao;
 import org.apache.ignite.ci.db.TcHelperDb;
 import org.apache.ignite.ci.di.AutoProfiling;
 import org.apache.ignite.ci.di.cache.GuavaCached;
@@ -37,44 +47,127 @@ import org.apache.ignite.ci.tcmodel.hist.BuildRef;
 import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
 import org.apache.ignite.ci.teamcity.ignited.IStringCompactor;
 import org.apache.ignite.configuration.CacheConfiguration;
-import org.apache.ignite.internal.util.GridIntList;
 import org.jetbrains.annotations.NotNull;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  *
  */
 public class BuildRefDao {
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(BuildRefDao.class);
+
     /** Cache name */
     public static final String TEAMCITY_BUILD_CACHE_NAME = "teamcityBuildRef";
 
     /** Ignite provider. */
     @Inject private Provider<Ignite> igniteProvider;
 
-    /** Builds cache. */
-    private IgniteCache<Long, BuildRefCompacted> buildRefsCache;
+    /** Builds caches. */
+    private ServerCaches<BuildRefCompacted> buildRefsCaches;
 
     /** Compactor. */
     @Inject private IStringCompactor compactor;
 
+    /** Sync bitmaps DAO. */
+    @Inject private SyncBitmapDao bitmapDao;
+
+    /** Branch modification counters. */
+    @Inject private BranchModifications branchModifications;
+
+    /** Scanner. */
+    @Inject private ServerKeyScanner scanner;
+
+    /** Registries of queued and running builds: Server ID mask high -> registry. */
+    private final ConcurrentMap<Integer, UnfinishedBuilds> unfinishedBuilds = new ConcurrentHashMap<>();
+
+    /** Index of loaded build histories by build ID and start time. */
+    private final BuildTimeIndex timeIndex = new BuildTimeIndex();
+
     /** */
     public BuildRefDao init() {
-        CacheConfiguration<Long, BuildRefCompacted> cfg = TcHelperDb.getCacheV2Config(TEAMCITY_BUILD_CACHE_NAME);
+        buildRefsCaches = new ServerCaches<>(igniteProvider.get(), TEAMCITY_BUILD_CACHE_NAME, BuildRefDao::cacheConfig);
 
-        cfg.setQueryEntities(Collections.singletonList(new QueryEntity(Long.class, BuildRefCompacted.class)));
+        IgniteCache<Long, BuildRefCompacted> shared = buildRefsCaches.shared();
+
+        if (shared != null)
+            ensureSqlSchema(shared);
 
-        buildRefsCache = igniteProvider.get().getOrCreateCache(cfg);
+        bitmapDao.init();
 
         return this;
     }
 
+    /**
+     * @param name Cache name.
+     * @return Configuration of build references cache.
+     */
+    public static CacheConfiguration<Long, BuildRefCompacted> cacheConfig(String name) {
+        CacheConfiguration<Long, BuildRefCompacted> cfg = TcHelperDb.getCacheV2Config(name);
+
+        cfg.setQueryEntities(Collections.singletonList(new QueryEntity(Long.class, BuildRefCompacted.class)));
+
+        return cfg;
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @return Cache containing build references of the server.
+     */
+    private IgniteCache<Long, BuildRefCompacted> cache(int srvId) {
+        Preconditions.checkNotNull(buildRefsCaches, "init() was not called");
+
+        return buildRefsCaches.get(srvId);
+    }
+
+    /**
+     * Caches created by previous versions have SQL schema without server ID and related indexes. Query entity of
+     * already existing cache is not changed by {@link Ignite#getOrCreateCache}, so absent fields are added using DDL.
+     *
+     * @param buildRefsCache Shared build references cache.
+     */
+    private void ensureSqlSchema(IgniteCache<Long, BuildRefCompacted> buildRefsCache) {
+        CacheConfiguration<?, ?> cfg = buildRefsCache.getConfiguration(CacheConfiguration.class);
+
+        boolean hasSrvIdField = cfg.getQueryEntities().stream()
+            .flatMap(entity -> entity.getFields().keySet().stream())
+            .anyMatch("srvId"::equalsIgnoreCase);
+
+        if (hasSrvIdField)
+            return;
+
+        String tbl = "\"" + TEAMCITY_BUILD_CACHE_NAME + "\"." + BuildRefCompacted.class.getSimpleName();
+
+        List<String> ddl = new ArrayList<>();
+
+        for (String fld : new String[] {"id", "buildTypeId", "state", "srvId"})
+            ddl.add("ALTER TABLE " + tbl + " ADD COLUMN IF NOT EXISTS " + fld + " INT");
+
+        ddl.add("CREATE INDEX IF NOT EXISTS " + BuildRefCompacted.SRV_BT_BRANCH_IDX + " ON " + tbl +
+            " (srvId, buildTypeId, branchName, id DESC)");
+        ddl.add("CREATE INDEX IF NOT EXISTS " + BuildRefCompacted.SRV_STATE_IDX + " ON " + tbl + " (srvId, state)");
+
+        for (String sql : ddl) {
+            logger.info("Updating build references SQL schema: " + sql);
+
+            buildRefsCache.query(new SqlFieldsQuery(sql)).getAll();
+        }
+    }
+
     /**
      * @param srvId Server id.
-     * @return all builds for a server, full scan.
+     * @return all builds for a server, uses server ID index. Stream should be consumed or closed.
      */
     @NotNull public Stream<BuildRefCompacted> compactedBuildsForServer(int srvId) {
-        return StreamSupport.stream(buildRefsCache.spliterator(), false)
-            .filter(entry -> isKeyForServer(entry.getKey(), srvId))
-            .map(javax.cache.Cache.Entry::getValue);
+        QueryCursor<Cache.Entry<Long, BuildRefCompacted>> cursor = cache(srvId).query(
+            new SqlQuery<Long, BuildRefCompacted>(BuildRefCompacted.class, "srvId = ?")
+                .setArgs(srvId));
+
+        return StreamSupport.stream(cursor.spliterator(), false)
+            .onClose(cursor::close)
+            .map(Cache.Entry::getValue);
     }
 
     /**
@@ -96,11 +189,14 @@ public class BuildRefDao {
             .map(buildId -> buildIdToCacheKey(srvId, buildId))
             .collect(Collectors.toSet());
 
+        IgniteCache<Long, BuildRefCompacted> buildRefsCache = cache(srvId);
+
         Map<Long, BuildRefCompacted> existingEntries = buildRefsCache.getAll(ids);
         Map<Long, BuildRefCompacted> entriesToPut = new TreeMap<>();
 
         List<BuildRefCompacted> collect = ghData.stream()
             .map(ref -> new BuildRefCompacted(compactor, ref))
+            .peek(ref -> ref.srvId(srvId))
             .collect(Collectors.toList());
 
         for (BuildRefCompacted next : collect) {
@@ -112,12 +208,80 @@ public class BuildRefDao {
         }
 
         int size = entriesToPut.size();
-        if (size != 0)
+        if (size != 0) {
             buildRefsCache.putAll(entriesToPut);
 
+            UnfinishedBuilds unfinished = unfinishedBuilds(srvId);
+
+            entriesToPut.values().forEach(unfinished::saved);
+
+            entriesToPut.values().forEach(ref -> referenceSaved(srvId, ref));
+
+            bitmapDao.add(srvId, SyncBitmapDao.Kind.BUILD_REFS,
+                entriesToPut.keySet().stream().mapToInt(BuildRefDao::cacheKeyToBuildId).toArray());
+        }
+
         return entriesToPut.keySet();
     }
 
+    /**
+     * @param srvId Server id mask high.
+     * @return Registry of queued and running builds of the server.
+     */
+    private UnfinishedBuilds unfinishedBuilds(int srvId) {
+        return unfinishedBuilds.computeIfAbsent(srvId, UnfinishedBuilds::new);
+    }
+
+    /**
+     * Loads IDs of queued and running builds from index.
+     *
+     * @param srvId Server id mask high.
+     */
+    private Set<Integer> loadUnfinishedBuildIds(int srvId) {
+        List<BuildRefCompacted> list = new ArrayList<>();
+
+        for (String state : new String[] {BuildRef.STATE_QUEUED, BuildRef.STATE_RUNNING}) {
+            Integer stateId = compactor.getStringIdIfPresent(state);
+
+            if (stateId != null) {
+                query(srvId, new SqlQuery<Long, BuildRefCompacted>(BuildRefCompacted.class, "srvId = ? and state = ?")
+                    .setArgs(srvId, stateId), list);
+            }
+        }
+
+        return list.stream().map(BuildRefCompacted::id).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /**
+     * Updates time index and branch modifications after build reference was saved.
+     *
+     * @param srvId Server id mask high.
+     * @param ref Saved reference.
+     */
+    private void referenceSaved(int srvId, BuildRefCompacted ref) {
+        timeIndex.referenceSaved(srvId, new BuildRefCompacted(ref), ref.isFinished(compactor));
+
+        branchModifications.modified(srvId, ref.branchName());
+    }
+
+    /**
+     * Updates time index after start time of a build became known, e.g. build was saved to run history.
+     *
+     * @param srvId Server id mask high.
+     * @param buildId Build id.
+     * @param startTs Start timestamp.
+     */
+    public void startTimeSaved(int srvId, int buildId, long startTs) {
+        timeIndex.startTimeSaved(srvId, buildId, startTs);
+    }
+
+    /**
+     * @param ref Reference.
+     */
+    private boolean isUnfinished(BuildRefCompacted ref) {
+        return ref.isQueued(compactor) || ref.isRunning(compactor);
+    }
+
     /**
      * @param srvId Server id mask high.
      * @param buildId Build id.
@@ -148,32 +312,168 @@ public class BuildRefDao {
         if (buildTypeIdId == null)
             return Collections.emptyList();
 
-        if (bracnhNameQry.stream().map(str -> compactor.getStringIdIfPresent(str)).allMatch(Objects::isNull))
+        Set<Integer> branchIds = bracnhNameQry.stream().map(str -> compactor.getStringIdIfPresent(str))
+            .filter(Objects::nonNull).collect(Collectors.toSet());
+
+        List<BuildRefCompacted> list = new ArrayList<>();
+
+        for (Integer branchId : branchIds)
+            list.addAll(getBuildsForBuildTypeAndBranch(srvId, buildTypeIdId, branchId));
+
+        return list;
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @param buildTypeId Build type id.
+     * @param branchId Branch name id.
+     * @return Builds ordered by ID.
+     */
+    private List<BuildRefCompacted> getBuildsForBuildTypeAndBranch(int srvId, int buildTypeId, int branchId) {
+        List<BuildRefCompacted> list = new ArrayList<>();
+
+        query(srvId, new SqlQuery<Long, BuildRefCompacted>(BuildRefCompacted.class,
+            "srvId = ? and buildTypeId = ? and branchName = ? order by id")
+            .setArgs(srvId, buildTypeId, branchId), list);
+
+        return list;
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @param buildTypeId Build type id.
+     * @param bracnhNameQry Bracnh name query.
+     * @return Build histories from time index, loaded from DB for the first access.
+     */
+    private List<BuildTimeIndex.History> histories(int srvId, @Nullable String buildTypeId,
+        List<String> bracnhNameQry) {
+        Integer buildTypeIdId = compactor.getStringIdIfPresent(buildTypeId);
+        if (buildTypeIdId == null)
             return Collections.emptyList();
 
-        return getBuildsForBranch(srvId, bracnhNameQry).stream()
-            .filter(e -> e.buildTypeId() == buildTypeIdId)
+        return bracnhNameQry.stream()
+            .map(str -> compactor.getStringIdIfPresent(str))
+            .filter(Objects::nonNull)
+            .distinct()
+            .map(branchId -> timeIndex.history(srvId, buildTypeIdId, branchId,
+                () -> getBuildsForBuildTypeAndBranch(srvId, buildTypeIdId, branchId),
+                ref -> ref.isFinished(compactor)))
             .collect(Collectors.toList());
     }
 
+    /**
+     * Returns builds matching filter and started in the interval, uses time index. Start time of a build is resolved
+     * at most once for build, then it is maintained by index. Builds with start time still unknown are placed by build
+     * ID between builds with known start time, see {@link BuildTimeIndex.History#startedBetween(long, long)}.
+     *
+     * @param srvId Server id mask high.
+     * @param buildTypeId Build type id.
+     * @param bracnhNameQry Bracnh name query.
+     * @param sinceTs Since timestamp, inclusive, or null for unbounded interval.
+     * @param untilTs Until timestamp, inclusive, or null for unbounded interval.
+     * @param filter Filter for builds.
+     * @param startTimeRslvr Resolver of start times of builds, if it is not known yet: build IDs -> start times of
+     * builds resolved. Should use only data saved in DB.
+     * @return Builds ordered by ID.
+     */
+    @AutoProfiling
+    @NotNull public List<BuildRefCompacted> getBuildsStartedBetween(int srvId,
+        @Nullable String buildTypeId,
+        List<String> bracnhNameQry,
+        @Nullable Long sinceTs,
+        @Nullable Long untilTs,
+        Predicate<BuildRefCompacted> filter,
+        Function<Collection<Integer>, Map<Integer, Long>> startTimeRslvr) {
+        boolean unbounded = sinceTs == null && untilTs == null;
+
+        List<BuildRefCompacted> res = new ArrayList<>();
+
+        for (BuildTimeIndex.History hist : histories(srvId, buildTypeId, bracnhNameQry)) {
+            Collection<BuildTimeIndex.Entry> entries;
+
+            if (unbounded)
+                entries = hist.all();
+            else {
+                hist.resolveStartTimes(startTimeRslvr);
+
+                entries = hist.startedBetween(sinceTs == null ? Long.MIN_VALUE : sinceTs,
+                    untilTs == null ? Long.MAX_VALUE : untilTs);
+            }
+
+            entries.stream()
+                .map(e -> e.ref)
+                .filter(filter)
+                .map(BuildRefCompacted::new)
+                .forEach(res::add);
+        }
+
+        res.sort(Comparator.comparing(BuildRefCompacted::id));
+
+        return res;
+    }
+
+    /**
+     * Returns most recent builds matching filter, uses time index.
+     *
+     * @param srvId Server id mask high.
+     * @param buildTypeId Build type id.
+     * @param bracnhNameQry Bracnh name query.
+     * @param cnt Max count of builds to return.
+     * @param filter Filter for builds.
+     * @return Builds ordered by ID descending.
+     */
+    @AutoProfiling
+    @NotNull public List<BuildRefCompacted> getLastNBuilds(int srvId,
+        @Nullable String buildTypeId,
+        List<String> bracnhNameQry,
+        int cnt,
+        Predicate<BuildRefCompacted> filter) {
+        List<BuildRefCompacted> res = new ArrayList<>();
+
+        for (BuildTimeIndex.History hist : histories(srvId, buildTypeId, bracnhNameQry)) {
+            hist.newestFirst().stream()
+                .map(e -> e.ref)
+                .filter(filter)
+                .limit(cnt)
+                .map(BuildRefCompacted::new)
+                .forEach(res::add);
+        }
+
+        res.sort(Comparator.comparing(BuildRefCompacted::id).reversed());
+
+        return res.size() > cnt ? new ArrayList<>(res.subList(0, cnt)) : res;
+    }
+
     /**
      * @param srvId Server id.
      */
     @AutoProfiling
     public List<BuildRefCompacted> getQueuedAndRunning(int srvId) {
-        GridIntList list = new GridIntList(2);
-        Integer stateQueuedId = compactor.getStringIdIfPresent(BuildRef.STATE_QUEUED);
-        if (stateQueuedId != null)
-            list.add(stateQueuedId);
+        UnfinishedBuilds unfinished = unfinishedBuilds(srvId);
 
-        Integer stateRunningId = compactor.getStringIdIfPresent(BuildRef.STATE_RUNNING);
-        if (stateRunningId != null)
-            list.add(stateRunningId);
+        Map<Integer, Long> ids = unfinished.snapshot();
 
+        Set<Long> keys = ids.keySet().stream()
+            .map(id -> buildIdToCacheKey(srvId, id))
+            .collect(Collectors.toSet());
 
-        return compactedBuildsForServer(srvId)
-            .filter(e ->  list.contains(e.state()) )
-            .collect(Collectors.toList());
+        Map<Long, BuildRefCompacted> refs = cache(srvId).getAll(keys);
+
+        List<BuildRefCompacted> list = new ArrayList<>();
+
+        for (Long key : keys) {
+            BuildRefCompacted ref = refs.get(key);
+
+            if (ref != null && isUnfinished(ref))
+                list.add(ref);
+            else {
+                int buildId = cacheKeyToBuildId(key);
+
+                unfinished.finished(buildId, ids.get(buildId));
+            }
+        }
+
+        return list;
     }
 
     /**
@@ -195,33 +495,43 @@ public class BuildRefDao {
     }
 
     private void fillBuilds(int srvId, Integer branchNameId, List<BuildRefCompacted> list) {
-        try (QueryCursor<Cache.Entry<Long, BuildRefCompacted>> qryCursor  = buildRefsCache.query(
-            new SqlQuery<Long, BuildRefCompacted>(BuildRefCompacted.class, "branchName = ?")
-                .setArgs(branchNameId))) {
-
-            for (Cache.Entry<Long, BuildRefCompacted> next : qryCursor) {
-                Long key = next.getKey();
-
-                if (!isKeyForServer(key, srvId))
-                    continue;
+        query(srvId, new SqlQuery<Long, BuildRefCompacted>(BuildRefCompacted.class, "srvId = ? and branchName = ?")
+            .setArgs(srvId, branchNameId), list);
+    }
 
+    /**
+     * @param srvId Server id mask high.
+     * @param qry Query.
+     * @param list List to add found builds to.
+     */
+    private void query(int srvId, SqlQuery<Long, BuildRefCompacted> qry, List<BuildRefCompacted> list) {
+        try (QueryCursor<Cache.Entry<Long, BuildRefCompacted>> qryCursor = cache(srvId).query(qry)) {
+            for (Cache.Entry<Long, BuildRefCompacted> next : qryCursor)
                 list.add(next.getValue());
-            }
         }
     }
 
     /**
      * @param srvId Server id.
-     * @param refCompacted Reference compacted.
+     * @param refCompacted Reference compacted, server ID field is set by this method.
      */
     @AutoProfiling
     public boolean save(int srvId, BuildRefCompacted refCompacted) {
+        refCompacted.srvId(srvId);
+
         long cacheKey = buildIdToCacheKey(srvId, refCompacted.id());
+        IgniteCache<Long, BuildRefCompacted> buildRefsCache = cache(srvId);
         BuildRefCompacted buildPersisted = buildRefsCache.get(cacheKey);
 
         if (buildPersisted == null || !buildPersisted.equals(refCompacted)) {
             buildRefsCache.put(cacheKey, refCompacted);
 
+            unfinishedBuilds(srvId).saved(refCompacted);
+
+            referenceSaved(srvId, refCompacted);
+
+            bitmapDao.add(srvId, SyncBitmapDao.Kind.BUILD_REFS, refCompacted.id());
+
             return true;
         }
 
@@ -230,18 +540,98 @@ public class BuildRefDao {
 
     @AutoProfiling
     public int[] getAllIds(int srvId) {
-        GridIntList res = new GridIntList(buildRefsCache.size());
+        return scanner.scanKeys("BuildRefDao.getAllIds", cache(srvId), srvId).stream()
+            .mapToInt(BuildRefDao::cacheKeyToBuildId)
+            .toArray();
+    }
 
-        getAllBuildRefs(srvId)
-                .map(Cache.Entry::getKey)
-                .map(BuildRefDao::cacheKeyToBuildId)
-                .forEach(res::add);
+    /**
+     * @param srvId Server id mask high.
+     * @return Bitmap of IDs of all build references known for server, may miss some recently saved builds.
+     */
+    public RoaringBitmap getAllIdsBitmap(int srvId) {
+        return bitmapDao.get(srvId, SyncBitmapDao.Kind.BUILD_REFS, () -> getAllIds(srvId));
+    }
 
-        return res.array();
+    /**
+     * Adds build references missing in bitmap, e.g. not flushed before crash. Uses key scan.
+     *
+     * @param srvId Server id mask high.
+     * @return Count of builds which were missing in bitmap.
+     */
+    public int mergeAllIdsBitmap(int srvId) {
+        return bitmapDao.merge(srvId, SyncBitmapDao.Kind.BUILD_REFS, () -> getAllIds(srvId));
     }
 
     @NotNull public Stream<Cache.Entry<Long, BuildRefCompacted>> getAllBuildRefs(int srvId) {
-        return StreamSupport.stream(buildRefsCache.spliterator(), false)
+        return StreamSupport.stream(cache(srvId).spliterator(), false)
                 .filter(entry -> isKeyForServer(entry.getKey(), srvId));
     }
+
+    /**
+     * Registry of queued and running builds of a server. Loaded from index on first access, then maintained on each
+     * save. Registry is a superset of unfinished builds: it is not locked during cache writes, so it is updated only
+     * after a reference is put into cache, and finished builds are removed by readers after reading actual cache
+     * values. Each entry holds sequence number of the last save of the build as unfinished: a reader removes a build
+     * only if it was not saved as unfinished again since the reader took its snapshot, so the reader can't remove a
+     * build written concurrently to cache. Builds started during the initial load are added by saves.
+     */
+    private class UnfinishedBuilds {
+        /** Server id mask high. */
+        private final int srvId;
+
+        /** IDs of builds saved as unfinished -> sequence number of the save, or 0 for builds loaded from index. */
+        private final ConcurrentMap<Integer, Long> ids = new ConcurrentHashMap<>();
+
+        /** Sequence of saves. */
+        private final AtomicLong saveSeq = new AtomicLong();
+
+        /** Registry was loaded from index. */
+        private volatile boolean loaded;
+
+        /**
+         * @param srvId Server id mask high.
+         */
+        UnfinishedBuilds(int srvId) {
+            this.srvId = srvId;
+        }
+
+        /**
+         * @return Copy of registry: build ID -> sequence number of save. May contain finished builds.
+         */
+        Map<Integer, Long> snapshot() {
+            if (!loaded) {
+                synchronized (this) {
+                    if (!loaded) {
+                        for (Integer id : loadUnfinishedBuildIds(srvId))
+                            ids.putIfAbsent(id, 0L);
+
+                        loaded = true;
+                    }
+                }
+            }
+
+            return new HashMap<>(ids);
+        }
+
+        /**
+         * Should be called after reference was put into cache.
+         *
+         * @param ref Reference saved to cache.
+         */
+        void saved(BuildRefCompacted ref) {
+            if (isUnfinished(ref))
+                ids.put(ref.id(), saveSeq.incrementAndGet());
+        }
+
+        /**
+         * Removes build found finished or removed in cache, unless it was saved as unfinished again.
+         *
+         * @param buildId Build ID.
+         * @param seq Sequence number from snapshot taken before reading cache.
+         */
+        void finished(int buildId, Long seq) {
+            ids.remove(buildId, seq);
+        }
+    }
 }
@@ -16,19 +16,32 @@
  */
 package org.apache.ignite.ci.teamcity.ignited.buildref;
 
+import com.google.common.base.Throwables;
+import org.apache.ignite.ci.db.SyncCheckpoint;
+import org.apache.ignite.ci.db.SyncCheckpointDao;
 import org.apache.ignite.ci.di.AutoProfiling;
 import org.apache.ignite.ci.di.MonitoredTask;
 import org.apache.ignite.ci.tcmodel.hist.BuildRef;
 import org.apache.ignite.ci.teamcity.ignited.ITeamcityIgnited;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.ProactiveFatBuildSync;
 import org.apache.ignite.ci.teamcity.pure.ITeamcityConn;
+import org.apache.ignite.ci.util.ExceptionUtil;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import java.io.FileNotFoundException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
@@ -44,14 +57,36 @@ public class BuildRefSync {
      */
     public static final int MAX_INCREMENTAL_BUILDS_TO_CHECK = 5000;
 
+    /**
+     * Period of pages scan for incremental sync. Builds having ID less than high-water mark (e.g. finished or modified
+     * builds) are not returned by incremental request, so newest pages are checked from time to time.
+     */
+    public static final long PAGES_SCAN_PERIOD_MS = TimeUnit.MINUTES.toMillis(15);
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(BuildRefSync.class);
+
     /** Build reference DAO. */
     @Inject private BuildRefDao buildRefDao;
 
     /** Build Sync. */
     @Inject private ProactiveFatBuildSync fatBuildSync;
 
+    /** Checkpoints of full reindex. */
+    @Inject private SyncCheckpointDao checkpointDao;
+
+    /** High-water mark: Server ID mask high -> max build ID observed in builds list of TC server. */
+    private final ConcurrentMap<Integer, AtomicInteger> maxBuildIdObserved = new ConcurrentHashMap<>();
+
+    /** Period of pages scan for incremental sync, may be changed in tests. */
+    long pagesScanPeriodMs = PAGES_SCAN_PERIOD_MS;
+
+    /** Server ID mask high -> timestamp of last completed pages scan. */
+    private final ConcurrentMap<Integer, Long> lastPagesScanTs = new ConcurrentHashMap<>();
+
     /**
-     * List all builds (first pages or all available).
+     * List all builds (first pages or all available). Full reindex saves checkpoint after each page and continues
+     * from saved checkpoint if previous full reindex was not completed.
      *
      * @param srvId Server id.
      * @param fullReindex Reindex all builds from TC history.
@@ -63,14 +98,22 @@ public class BuildRefSync {
     @AutoProfiling
     public String runActualizeBuildRefs(String srvId, boolean fullReindex,
                                         @Nullable Set<Integer> mandatoryToReload, ITeamcityConn conn) {
+        String checkpointName = fullReindex ? taskName("fullReindex", srvId) : null;
+        SyncCheckpoint checkpoint = fullReindex ? checkpointDao.getResumableOrNew(checkpointName) : null;
+        String resumeFrom = checkpoint != null ? checkpoint.nextPage() : null;
+
         AtomicReference<String> outLinkNext = new AtomicReference<>();
-        List<BuildRef> tcDataFirstPage = conn.getBuildRefsPage(null, outLinkNext);
+        List<BuildRef> tcDataFirstPage = conn.getBuildRefsPage(resumeFrom, outLinkNext);
 
         final int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(srvId);
         Set<Long> buildsUpdated = buildRefDao.saveChunk(srvIdMaskHigh, tcDataFirstPage);
+        updateHighWaterMark(srvIdMaskHigh, tcDataFirstPage);
         int totalUpdated = buildsUpdated.size();
         fatBuildSync.scheduleBuildsLoad(conn, cacheKeysToBuildIds(buildsUpdated));
 
+        if (checkpoint != null)
+            checkpointDao.save(checkpointName, checkpoint.chunkProcessed(outLinkNext.get(), tcDataFirstPage.size(), totalUpdated));
+
         int totalChecked = tcDataFirstPage.size();
         int neededToFind = 0;
         if (mandatoryToReload != null) {
@@ -84,6 +127,7 @@ public class BuildRefSync {
             outLinkNext.set(null);
             List<BuildRef> tcDataNextPage = conn.getBuildRefsPage(nextPageUrl, outLinkNext);
             Set<Long> curChunkBuildsSaved = buildRefDao.saveChunk(srvIdMaskHigh, tcDataNextPage);
+            updateHighWaterMark(srvIdMaskHigh, tcDataNextPage);
             totalUpdated += curChunkBuildsSaved.size();
             fatBuildSync.scheduleBuildsLoad(conn, cacheKeysToBuildIds(curChunkBuildsSaved));
 
@@ -91,6 +135,9 @@ public class BuildRefSync {
 
             totalChecked += tcDataNextPage.size();
 
+            if (checkpoint != null)
+                checkpointDao.save(checkpointName, checkpoint.chunkProcessed(outLinkNext.get(), tcDataNextPage.size(), savedCurChunk));
+
             if (!fullReindex) {
                 if (mandatoryToReload != null && !mandatoryToReload.isEmpty())
                     tcDataNextPage.stream().map(BuildRef::getId).forEach(mandatoryToReload::remove);
@@ -106,10 +153,141 @@ public class BuildRefSync {
             }
         }
 
+        if (!fullReindex)
+            lastPagesScanTs.put(srvIdMaskHigh, System.currentTimeMillis());
+
+        if (checkpoint != null && resumeFrom != null) {
+            return "Entries saved " + checkpoint.saved() + " Builds checked " + checkpoint.checked() +
+                " (resumed from checkpoint, " + checkpoint.pages() + " pages)";
+        }
+
         int leftToFind = mandatoryToReload == null ? 0 : mandatoryToReload.size();
         return "Entries saved " + totalUpdated + " Builds checked " + totalChecked + " Needed to find " + neededToFind + " remained to find " + leftToFind;
     }
 
+    /**
+     * @param taskName Task name.
+     * @param srvId Server id.
+     * @return Task name concatenated with server name.
+     */
+    @NotNull
+    private String taskName(String taskName, String srvId) {
+        return BuildRefSync.class.getSimpleName() + "." + taskName + "." + srvId;
+    }
+
+    /**
+     * Incremental sync based on high-water mark: requests builds started after the build with max build ID observed
+     * before. Build IDs are assigned on queueing, so the request may return builds with smaller ID, which were
+     * started later. Such builds are saved as any other modified build, and high-water mark is never decreased. Builds
+     * with greater ID which were started before the mark build, and unfinished builds having smaller IDs are not
+     * returned by the request: remained IDs should be reloaded by caller directly, other builds are found by pages
+     * scan. Pages scan is used instead if high-water mark is not yet known for server, if last pages scan is older than
+     * {@link #PAGES_SCAN_PERIOD_MS}, or if TC rejected the mark build (e.g. build was deleted from TC). Other errors,
+     * e.g. network ones, are thrown and the mark is kept.
+     *
+     * @param srvId Server id.
+     * @param mandatoryToReload [in/out] Build ID should be found before end of sync. Found builds are removed.
+     * @param conn Teamcity to check builds
+     * @param outSaved [out] Number of entries saved, not changed if pages scan was used.
+     */
+    @SuppressWarnings({"WeakerAccess", "UnusedReturnValue"})
+    @MonitoredTask(name = "Actualize BuildRefs Since(srv)", nameExtArgsIndexes = {0})
+    @AutoProfiling
+    public String runActualizeBuildRefsSince(String srvId, Set<Integer> mandatoryToReload, ITeamcityConn conn,
+        AtomicInteger outSaved) {
+        final int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(srvId);
+        final int sinceBuildId = highWaterMark(srvIdMaskHigh);
+
+        Long lastScan = lastPagesScanTs.get(srvIdMaskHigh);
+
+        if (sinceBuildId <= 0 || lastScan == null || System.currentTimeMillis() - lastScan >= pagesScanPeriodMs)
+            return runActualizeBuildRefs(srvId, false, mandatoryToReload, conn);
+
+        int neededToFind = mandatoryToReload.size();
+        int totalUpdated = 0;
+        int totalChecked = 0;
+
+        AtomicReference<String> outLinkNext = new AtomicReference<>();
+        List<BuildRef> tcDataPage;
+
+        try {
+            tcDataPage = conn.getBuildRefsPageSince(sinceBuildId, outLinkNext);
+        }
+        catch (Exception e) {
+            // Temporary errors are reported, the mark is kept and will be used by next run.
+            if (!isMarkRejected(e))
+                throw ExceptionUtil.propagateException(e);
+
+            logger.warn("Builds since " + sinceBuildId + " were not loaded from server " + srvId +
+                ", builds pages will be checked instead: " + e.getMessage());
+
+            maxBuildIdObserved.remove(srvIdMaskHigh);
+
+            return runActualizeBuildRefs(srvId, false, mandatoryToReload, conn);
+        }
+
+        while (true) {
+            Set<Long> curChunkBuildsSaved = buildRefDao.saveChunk(srvIdMaskHigh, tcDataPage);
+            updateHighWaterMark(srvIdMaskHigh, tcDataPage);
+            totalUpdated += curChunkBuildsSaved.size();
+            fatBuildSync.scheduleBuildsLoad(conn, cacheKeysToBuildIds(curChunkBuildsSaved));
+
+            totalChecked += tcDataPage.size();
+
+            tcDataPage.stream().map(BuildRef::getId).forEach(mandatoryToReload::remove);
+
+            String nextPageUrl = outLinkNext.get();
+            if (nextPageUrl == null)
+                break;
+
+            outLinkNext.set(null);
+            tcDataPage = conn.getBuildRefsPage(nextPageUrl, outLinkNext);
+        }
+
+        outSaved.set(totalUpdated);
+
+        return "Entries saved " + totalUpdated + " Builds checked " + totalChecked + " since " + sinceBuildId +
+            " Needed to find " + neededToFind + " remained to find " + mandatoryToReload.size();
+    }
+
+    /**
+     * @param e Error of incremental request.
+     * @return {@code True} if TC rejected build used as high-water mark: build was not found or locator is not valid.
+     */
+    private static boolean isMarkRejected(Exception e) {
+        Throwable cause = Throwables.getRootCause(e);
+
+        return cause instanceof FileNotFoundException || cause instanceof BadRequestException;
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @return Max build ID observed in TC builds list or 0 if there was no sync since startup.
+     */
+    public int highWaterMark(int srvIdMaskHigh) {
+        AtomicInteger mark = maxBuildIdObserved.get(srvIdMaskHigh);
+
+        return mark == null ? 0 : mark.get();
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param page Builds page received from TC.
+     */
+    private void updateHighWaterMark(int srvIdMaskHigh, List<BuildRef> page) {
+        int maxId = page.stream()
+            .map(BuildRef::getId)
+            .filter(Objects::nonNull)
+            .mapToInt(Integer::intValue)
+            .max()
+            .orElse(0);
+
+        if (maxId <= 0)
+            return;
+
+        maxBuildIdObserved.computeIfAbsent(srvIdMaskHigh, k -> new AtomicInteger())
+            .accumulateAndGet(maxId, Math::max);
+    }
 
     @NotNull
     private List<Integer> cacheKeysToBuildIds(Collection<Long> cacheKeysUpdated) {
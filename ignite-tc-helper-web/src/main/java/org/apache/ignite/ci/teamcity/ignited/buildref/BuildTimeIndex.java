@@ -0,0 +1,477 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.teamcity.ignited.buildref;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
+
+/**
+ * In-memory index of build references per (server, build type, branch), ordered by build ID and by build start time.
+ * History is loaded on first access and then updated on each save of build reference or build start time. If count of
+ * indexed builds exceeds limit, least recently used histories are evicted and loaded again on next access.
+ */
+class BuildTimeIndex {
+    /** Default max count of builds in loaded histories. */
+    static final int DEFAULT_MAX_BUILDS = 500_000;
+
+    /** Max count of start times resolved by one call of resolver. */
+    private static final int RESOLVE_BATCH = 1000;
+
+    /** Start time is not known. */
+    private static final long UNKNOWN = 0;
+
+    /** Max count of builds in loaded histories, histories are evicted if exceeded. */
+    private final int maxBuilds;
+
+    /** Histories loaded. */
+    private final ConcurrentMap<HistKey, History> histories = new ConcurrentHashMap<>();
+
+    /** Builds of loaded histories: cache key -> history key. */
+    private final ConcurrentMap<Long, HistKey> buildKeys = new ConcurrentHashMap<>();
+
+    /** Access counter, used to find least recently used history. */
+    private final AtomicLong accessCntr = new AtomicLong();
+
+    /**
+     * Creates index limited by {@link #DEFAULT_MAX_BUILDS}.
+     */
+    BuildTimeIndex() {
+        this(DEFAULT_MAX_BUILDS);
+    }
+
+    /**
+     * @param maxBuilds Max count of builds in loaded histories.
+     */
+    BuildTimeIndex(int maxBuilds) {
+        this.maxBuilds = maxBuilds;
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @param buildTypeId Build type id.
+     * @param branchId Branch name id.
+     * @param ldr Loader of all references of history from DB, used for the first access.
+     * @param finished Finished build check.
+     */
+    History history(int srvId, int buildTypeId, int branchId, Supplier<List<BuildRefCompacted>> ldr,
+        Predicate<BuildRefCompacted> finished) {
+        HistKey histKey = new HistKey(srvId, buildTypeId, branchId);
+        boolean[] loaded = {false};
+
+        History res = histories.computeIfAbsent(histKey, key -> {
+            History hist = new History();
+
+            for (BuildRefCompacted ref : ldr.get()) {
+                hist.put(ref, finished.test(ref));
+
+                buildKeys.put(BuildRefDao.buildIdToCacheKey(srvId, ref.id()), key);
+            }
+
+            loaded[0] = true;
+
+            return hist;
+        });
+
+        res.lastAccess = accessCntr.incrementAndGet();
+
+        if (loaded[0])
+            evictIfNeeded(histKey);
+
+        return res;
+    }
+
+    /**
+     * Evicts least recently used histories while count of indexed builds exceeds limit.
+     *
+     * @param keep Key of history to keep, history which was just loaded or updated.
+     */
+    private void evictIfNeeded(HistKey keep) {
+        while (buildKeys.size() > maxBuilds) {
+            HistKey lru = histories.entrySet().stream()
+                .filter(e -> !e.getKey().equals(keep))
+                .min(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                .map(Map.Entry::getKey)
+                .orElse(null);
+
+            if (lru == null)
+                return;
+
+            History evicted = histories.remove(lru);
+
+            if (evicted != null) {
+                for (Entry e : evicted.all())
+                    buildKeys.remove(BuildRefDao.buildIdToCacheKey(lru.srvId, e.ref.id()), lru);
+            }
+        }
+    }
+
+    /**
+     * @return Count of builds in loaded histories.
+     */
+    int size() {
+        return buildKeys.size();
+    }
+
+    /**
+     * Updates loaded history after reference was saved.
+     *
+     * @param srvId Server id mask high.
+     * @param ref Reference.
+     * @param finished Reference is for finished build.
+     */
+    void referenceSaved(int srvId, BuildRefCompacted ref, boolean finished) {
+        if (ref.getId() == null)
+            return;
+
+        long cacheKey = BuildRefDao.buildIdToCacheKey(srvId, ref.id());
+        HistKey key = new HistKey(srvId, ref.buildTypeId(), ref.branchName());
+        HistKey prevKey = buildKeys.get(cacheKey);
+
+        if (prevKey != null && !prevKey.equals(key)) {
+            histories.computeIfPresent(prevKey, (k, hist) -> hist.remove(ref.id()));
+
+            buildKeys.remove(cacheKey, prevKey);
+        }
+
+        History hist = histories.computeIfPresent(key, (k, h) -> {
+            buildKeys.put(cacheKey, key);
+
+            return h.put(ref, finished);
+        });
+
+        if (hist != null)
+            evictIfNeeded(key);
+    }
+
+    /**
+     * Updates loaded history after start time of the build became known.
+     *
+     * @param srvId Server id mask high.
+     * @param buildId Build id.
+     * @param startTs Start timestamp.
+     */
+    void startTimeSaved(int srvId, int buildId, long startTs) {
+        if (startTs <= 0)
+            return;
+
+        HistKey key = buildKeys.get(BuildRefDao.buildIdToCacheKey(srvId, buildId));
+
+        if (key != null)
+            histories.computeIfPresent(key, (k, hist) -> hist.startTime(buildId, startTs));
+    }
+
+    /**
+     * Build history for one build type and branch.
+     */
+    static class History {
+        /** Builds by ID. */
+        private final ConcurrentSkipListMap<Integer, Entry> byId = new ConcurrentSkipListMap<>();
+
+        /** Builds having start time known, ordered by start time. */
+        private final ConcurrentSkipListSet<Entry> byStart = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong((Entry e) -> e.startTs).thenComparingInt(e -> e.ref.id()));
+
+        /** Start times of builds having start time known, by build ID. */
+        private final ConcurrentSkipListMap<Integer, Long> knownById = new ConcurrentSkipListMap<>();
+
+        /** IDs of builds having start time unknown. */
+        private final ConcurrentSkipListSet<Integer> unknown = new ConcurrentSkipListSet<>();
+
+        /** IDs of finished builds with start time unknown and not resolved yet. */
+        private final Set<Integer> unresolved = ConcurrentHashMap.newKeySet();
+
+        /** Value of access counter for last access of history. */
+        private volatile long lastAccess;
+
+        /**
+         * @param ref Reference.
+         * @param finished Finished.
+         */
+        private synchronized History put(BuildRefCompacted ref, boolean finished) {
+            Entry prev = byId.get(ref.id());
+            long startTs = prev != null ? prev.startTs : UNKNOWN;
+
+            replace(prev, new Entry(ref, startTs));
+
+            if (finished && startTs == UNKNOWN)
+                unresolved.add(ref.id());
+
+            return this;
+        }
+
+        /**
+         * @param buildId Build id.
+         * @param startTs Start timestamp.
+         */
+        private synchronized History startTime(int buildId, long startTs) {
+            Entry prev = byId.get(buildId);
+
+            if (prev != null && prev.startTs != startTs) {
+                replace(prev, new Entry(prev.ref, startTs));
+
+                unresolved.remove(buildId);
+            }
+
+            return this;
+        }
+
+        /**
+         * @param buildId Build id.
+         */
+        private synchronized History remove(int buildId) {
+            Entry prev = byId.remove(buildId);
+
+            if (prev != null && prev.startTs != UNKNOWN)
+                byStart.remove(prev);
+
+            knownById.remove(buildId);
+
+            unknown.remove(buildId);
+            unresolved.remove(buildId);
+
+            return this;
+        }
+
+        /**
+         * @param prev Previous entry.
+         * @param entry New entry.
+         */
+        private void replace(@Nullable Entry prev, Entry entry) {
+            if (prev != null && prev.startTs != UNKNOWN)
+                byStart.remove(prev);
+
+            byId.put(entry.ref.id(), entry);
+
+            if (entry.startTs != UNKNOWN) {
+                byStart.add(entry);
+                knownById.put(entry.ref.id(), entry.startTs);
+
+                unknown.remove(entry.ref.id());
+            }
+            else {
+                knownById.remove(entry.ref.id());
+
+                unknown.add(entry.ref.id());
+            }
+        }
+
+        /**
+         * Resolves start times of finished builds, which were not resolved yet. Each build is resolved at most once,
+         * builds not resolved remain with unknown start time until it is saved.
+         *
+         * @param rslvr Start time resolver for batch of builds: build IDs -> start times of builds resolved.
+         */
+        void resolveStartTimes(Function<Collection<Integer>, Map<Integer, Long>> rslvr) {
+            List<Integer> batch = new ArrayList<>();
+
+            for (Integer buildId : unresolved) {
+                if (!unresolved.remove(buildId))
+                    continue;
+
+                batch.add(buildId);
+
+                if (batch.size() >= RESOLVE_BATCH) {
+                    resolveBatch(batch, rslvr);
+
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty())
+                resolveBatch(batch, rslvr);
+        }
+
+        /**
+         * @param batch Build IDs.
+         * @param rslvr Resolver.
+         */
+        private void resolveBatch(Collection<Integer> batch, Function<Collection<Integer>, Map<Integer, Long>> rslvr) {
+            rslvr.apply(batch).forEach((buildId, startTs) -> {
+                if (startTs != null && startTs > 0)
+                    startTime(buildId, startTs);
+            });
+        }
+
+        /**
+         * Returns builds started in the interval. A build with unknown start time is included if nearest builds by ID
+         * with known start time are both within the interval, because build IDs grow with time. Such a build is
+         * included for unbounded side of the interval only if there is no neighbour on this side. So only builds with
+         * unknown start time with IDs between builds found by start time are checked, and cost of the search is
+         * proportional to log of history size plus count of builds in the interval.
+         *
+         * @param sinceTs Since timestamp, inclusive.
+         * @param untilTs Until timestamp, inclusive.
+         * @return References of builds started in the interval, not ordered.
+         */
+        Collection<Entry> startedBetween(long sinceTs, long untilTs) {
+            if (sinceTs > untilTs)
+                return Collections.emptyList();
+
+            List<Entry> res = new ArrayList<>(byStart.subSet(Entry.probe(sinceTs, Integer.MIN_VALUE), true,
+                Entry.probe(untilTs, Integer.MAX_VALUE), true));
+
+            if (unknown.isEmpty())
+                return res;
+
+            int minId = Integer.MAX_VALUE;
+            int maxId = Integer.MIN_VALUE;
+
+            for (Entry entry : res) {
+                minId = Math.min(minId, entry.ref.id());
+                maxId = Math.max(maxId, entry.ref.id());
+            }
+
+            int fromId = sinceTs == Long.MIN_VALUE ? Integer.MIN_VALUE : minId;
+            int toId = untilTs == Long.MAX_VALUE ? Integer.MAX_VALUE : maxId;
+
+            if (fromId > toId)
+                return res;
+
+            for (Integer buildId : unknown.subSet(fromId, true, toId, true)) {
+                Entry entry = byId.get(buildId);
+
+                if (entry == null || entry.startTs != UNKNOWN)
+                    continue;
+
+                if (neighbourStartTs(buildId, true) >= sinceTs && neighbourStartTs(buildId, false) <= untilTs)
+                    res.add(entry);
+            }
+
+            return res;
+        }
+
+        /**
+         * @param buildId Build id.
+         * @param lower Search lower IDs, otherwise higher.
+         * @return Start time of nearest build with known start time, or {@link Long#MIN_VALUE} for lower and
+         * {@link Long#MAX_VALUE} for higher builds if there is no such build.
+         */
+        private long neighbourStartTs(int buildId, boolean lower) {
+            Map.Entry<Integer, Long> neighbour = lower ? knownById.lowerEntry(buildId) : knownById.higherEntry(buildId);
+
+            if (neighbour != null)
+                return neighbour.getValue();
+
+            return lower ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+
+        /**
+         * @return All builds, newest (highest ID) first.
+         */
+        Collection<Entry> newestFirst() {
+            return byId.descendingMap().values();
+        }
+
+        /**
+         * @return All builds ordered by ID.
+         */
+        Collection<Entry> all() {
+            return byId.values();
+        }
+    }
+
+    /**
+     * Build reference with start time.
+     */
+    static class Entry {
+        /** Reference. */
+        final BuildRefCompacted ref;
+
+        /** Start timestamp or {@link #UNKNOWN}. */
+        final long startTs;
+
+        /**
+         * @param ref Reference.
+         * @param startTs Start timestamp.
+         */
+        Entry(BuildRefCompacted ref, long startTs) {
+            this.ref = ref;
+            this.startTs = startTs;
+        }
+
+        /**
+         * @param startTs Start timestamp.
+         * @param buildId Build id.
+         * @return Entry to be used as bound for search.
+         */
+        static Entry probe(long startTs, int buildId) {
+            BuildRefCompacted ref = new BuildRefCompacted();
+
+            ref.setId(buildId);
+
+            return new Entry(ref, startTs);
+        }
+    }
+
+    /**
+     * Key of history: server, build type and branch.
+     */
+    private static class HistKey {
+        /** Server id mask high. */
+        private final int srvId;
+
+        /** Build type id. */
+        private final int buildTypeId;
+
+        /** Branch name id. */
+        private final int branchId;
+
+        /**
+         * @param srvId Server id.
+         * @param buildTypeId Build type id.
+         * @param branchId Branch id.
+         */
+        HistKey(int srvId, int buildTypeId, int branchId) {
+            this.srvId = srvId;
+            this.buildTypeId = buildTypeId;
+            this.branchId = branchId;
+        }
+
+        /** {@inheritDoc} */
+        @Override public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            HistKey key = (HistKey)o;
+            return srvId == key.srvId &&
+                buildTypeId == key.buildTypeId &&
+                branchId == key.branchId;
+        }
+
+        /** {@inheritDoc} */
+        @Override public int hashCode() {
+            return Objects.hash(srvId, buildTypeId, branchId);
+        }
+    }
+}
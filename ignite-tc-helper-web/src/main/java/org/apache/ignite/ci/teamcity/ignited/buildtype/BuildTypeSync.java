@@ -29,6 +29,8 @@ import javax.inject.Inject;
 import org.apache.ignite.ci.di.AutoProfiling;
 import org.apache.ignite.ci.di.MonitoredTask;
 import org.apache.ignite.ci.di.scheduler.IScheduler;
+import org.apache.ignite.ci.di.scheduler.SyncFrequencyController;
+import org.apache.ignite.ci.di.scheduler.SyncPeriod;
 import org.apache.ignite.ci.tcmodel.conf.BuildType;
 import org.apache.ignite.ci.tcmodel.conf.bt.BuildTypeFull;
 import org.apache.ignite.ci.teamcity.pure.ITeamcityConn;
@@ -52,6 +54,9 @@ public class BuildTypeSync {
     /** BuildType DAO. */
     @Inject private BuildTypeDao buildTypeDao;
 
+    /** Sync frequency controller. */
+    @Inject private SyncFrequencyController freqCtrl;
+
     /** Saved list of composite suites for "IgniteTests24Java8" project. */
     private List<String> compositeBuildTypesIdsForDfltProject = Collections.emptyList();
 
@@ -107,8 +112,10 @@ public class BuildTypeSync {
      * @param conn Pure HTTP Connection API.
      */
     private void ensureActualizeBuildTypeRefsRequested(int srvIdMaskHigh, String projectId, ITeamcityConn conn) {
-        scheduler.sheduleNamed(taskName("actualizeAllBuildTypeRefs", conn.serverId(), projectId),
-            () -> reindexBuildTypeRefs(srvIdMaskHigh, projectId, conn), 4, TimeUnit.HOURS);
+        String taskName = refsTaskName(projectId, conn);
+
+        scheduler.sheduleNamed(taskName, () -> reindexBuildTypeRefs(srvIdMaskHigh, projectId, conn),
+            freqCtrl.quietPeriodMs(taskName, conn.serverId(), SyncPeriod.BUILD_TYPE_REFS), TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -119,8 +126,10 @@ public class BuildTypeSync {
      * @param conn Pure HTTP Connection API.
      */
     private void ensureActualizeBuildTypesRequested(int srvIdMaskHigh, String projectId, ITeamcityConn conn) {
-        scheduler.sheduleNamed(taskName("actualizeAllBuildTypeRefs", "actualizeAllBuildTypes", conn.serverId()),
-            () -> reindexBuildTypes(srvIdMaskHigh, projectId, conn), 24, TimeUnit.HOURS);
+        String taskName = buildTypesTaskName(conn);
+
+        scheduler.sheduleNamed(taskName, () -> reindexBuildTypes(srvIdMaskHigh, projectId, conn),
+            freqCtrl.quietPeriodMs(taskName, conn.serverId(), SyncPeriod.BUILD_TYPES), TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -183,6 +192,8 @@ public class BuildTypeSync {
         if (updated != 0 || removed != 0)
             actualizeSavedCompositeBuildTypesIds(srvIdMaskHigh, projectId);
 
+        freqCtrl.changesObserved(buildTypesTaskName(conn), updated + removed);
+
         return "BuildTypes updated " + updated +
             (removed == 0 ? "" : " and mark as removed " + removed) +
             " from " + buildTypeIds.size() + " requested";
@@ -233,11 +244,32 @@ public class BuildTypeSync {
             runActualizeBuildTypes(srvIdMaskHigh, projectId, conn);
         }
 
+        freqCtrl.changesObserved(refsTaskName(projectId, conn), buildsUpdated.size() + rmvBuildTypes.size());
+
         return "BuildTypeRefs updated " + buildsUpdated.size() +
             (rmvBuildTypes.isEmpty() ? "" : " and mark as removed " + rmvBuildTypes.size()) +
             " from " + (tcData.size() + rmvBuildTypes.size()) + " requested";
     }
 
+    /**
+     * @param projectId Project id.
+     * @param conn Pure HTTP Connection API.
+     * @return Name of task to actualize BuildTypeRefs.
+     */
+    @NotNull
+    private String refsTaskName(String projectId, ITeamcityConn conn) {
+        return taskName("actualizeAllBuildTypeRefs", conn.serverId(), projectId);
+    }
+
+    /**
+     * @param conn Pure HTTP Connection API.
+     * @return Name of task to actualize BuildTypes.
+     */
+    @NotNull
+    private String buildTypesTaskName(ITeamcityConn conn) {
+        return taskName("actualizeAllBuildTypeRefs", "actualizeAllBuildTypes", conn.serverId());
+    }
+
     /**
      * @param taskName Task name.
      * @param srvName Server name.
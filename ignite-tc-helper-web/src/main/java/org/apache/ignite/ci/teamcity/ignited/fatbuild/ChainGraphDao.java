@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.fatbuild;
+
+import com.google.common.base.Preconditions;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.ci.db.ServerCaches;
+import org.apache.ignite.ci.db.TcHelperDb;
+import org.apache.ignite.ci.di.AutoProfiling;
+
+/**
+ * Flattened snapshot dependency graph of finished chains: top level build ID -> IDs of all builds of the chain,
+ * including top level build. Saved once when whole chain is finished, so the chain can be loaded by one getAll request
+ * instead of walking snapshot dependencies build by build.
+ */
+public class ChainGraphDao {
+    /** Cache name. */
+    public static final String CHAIN_GRAPH_CACHE_NAME = "teamcityChainGraph";
+
+    /** Ignite provider. */
+    @Inject private Provider<Ignite> igniteProvider;
+
+    /** Chain graph caches. */
+    private ServerCaches<int[]> caches;
+
+    /**
+     *
+     */
+    public ChainGraphDao init() {
+        caches = new ServerCaches<>(igniteProvider.get(), CHAIN_GRAPH_CACHE_NAME, TcHelperDb::getCacheV2Config);
+
+        return this;
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @return Cache containing chain graphs of the server.
+     */
+    private IgniteCache<Long, int[]> cache(int srvIdMaskHigh) {
+        Preconditions.checkNotNull(caches, "init() was not called");
+
+        return caches.get(srvIdMaskHigh);
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param buildId Top level build ID.
+     * @return IDs of builds in the chain or null if chain graph was not saved.
+     */
+    @AutoProfiling
+    @Nullable public int[] getChain(int srvIdMaskHigh, int buildId) {
+        return cache(srvIdMaskHigh).get(FatBuildDao.buildIdToCacheKey(srvIdMaskHigh, buildId));
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param buildId Top level build ID.
+     * @param chainIds IDs of builds in the chain, deduplicated.
+     */
+    @AutoProfiling
+    public void saveChain(int srvIdMaskHigh, int buildId, int[] chainIds) {
+        cache(srvIdMaskHigh).put(FatBuildDao.buildIdToCacheKey(srvIdMaskHigh, buildId), chainIds);
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param buildId Top level build ID.
+     */
+    public void invalidate(int srvIdMaskHigh, int buildId) {
+        cache(srvIdMaskHigh).remove(FatBuildDao.buildIdToCacheKey(srvIdMaskHigh, buildId));
+    }
+}
@@ -25,14 +25,16 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
-import javax.cache.Cache;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.validation.constraints.NotNull;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.ci.db.ServerCaches;
+import org.apache.ignite.ci.db.ServerKeyScanner;
+import org.apache.ignite.ci.db.SyncBitmapDao;
 import org.apache.ignite.ci.db.TcHelperDb;
 import org.apache.ignite.ci.di.AutoProfiling;
 import org.apache.ignite.ci.tcmodel.changes.ChangesList;
@@ -41,6 +43,10 @@ import org.apache.ignite.ci.tcmodel.result.problems.ProblemOccurrence;
 import org.apache.ignite.ci.tcmodel.result.stat.Statistics;
 import org.apache.ignite.ci.tcmodel.result.tests.TestOccurrencesFull;
 import org.apache.ignite.ci.teamcity.ignited.IStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.buildref.BranchModifications;
+import org.apache.ignite.ci.teamcity.ignited.buildref.BuildRefDao;
+import org.apache.ignite.lang.IgniteBiPredicate;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,21 +63,45 @@ public class FatBuildDao {
     /** Ignite provider. */
     @Inject private Provider<Ignite> igniteProvider;
 
-    /** Builds cache. */
-    private IgniteCache<Long, FatBuildCompacted> buildsCache;
+    /** Builds caches. */
+    private ServerCaches<FatBuildCompacted> buildsCaches;
 
     /** Compactor. */
     @Inject private IStringCompactor compactor;
 
+    /** Sync bitmaps DAO. */
+    @Inject private SyncBitmapDao bitmapDao;
+
+    /** Build reference DAO. */
+    @Inject private BuildRefDao buildRefDao;
+
+    /** Branch modification counters. */
+    @Inject private BranchModifications branchModifications;
+
+    /** Scanner. */
+    @Inject private ServerKeyScanner scanner;
+
     /**
      *
      */
     public FatBuildDao init() {
-        buildsCache = igniteProvider.get().getOrCreateCache(TcHelperDb.getCacheV2Config(TEAMCITY_FAT_BUILD_CACHE_NAME));
+        buildsCaches = new ServerCaches<>(igniteProvider.get(), TEAMCITY_FAT_BUILD_CACHE_NAME, TcHelperDb::getCacheV2Config);
+
+        bitmapDao.init();
 
         return this;
     }
 
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @return Cache containing fat builds of the server.
+     */
+    private IgniteCache<Long, FatBuildCompacted> cache(int srvIdMaskHigh) {
+        Preconditions.checkNotNull(buildsCaches, "init() was not called");
+
+        return buildsCaches.get(srvIdMaskHigh);
+    }
+
     /**
      * @param srvIdMaskHigh Server id mask high.
      * @param buildId
@@ -91,7 +121,6 @@ public class FatBuildDao {
                                        @Nullable Statistics statistics,
                                        @Nullable ChangesList changesList,
                                        @Nullable FatBuildCompacted existingBuild) {
-        Preconditions.checkNotNull(buildsCache, "init() was not called");
         Preconditions.checkNotNull(build, "build can't be null");
 
         FatBuildCompacted newBuild = new FatBuildCompacted(compactor, build);
@@ -119,7 +148,12 @@ public class FatBuildDao {
 
     @AutoProfiling
     public void putFatBuild(int srvIdMaskHigh, int buildId, FatBuildCompacted newBuild) {
-        buildsCache.put(buildIdToCacheKey(srvIdMaskHigh, buildId), newBuild);
+        cache(srvIdMaskHigh).put(buildIdToCacheKey(srvIdMaskHigh, buildId), newBuild);
+
+        bitmapDao.add(srvIdMaskHigh, SyncBitmapDao.Kind.FAT_BUILDS, buildId);
+        bitmapDao.remove(srvIdMaskHigh, SyncBitmapDao.Kind.HIST_NOT_VALID, buildId);
+        buildRefDao.startTimeSaved(srvIdMaskHigh, buildId, newBuild.getStartDateTs());
+        branchModifications.modified(srvIdMaskHigh, newBuild.branchName());
     }
 
     public static int[] extractChangeIds(@NotNull ChangesList changesList) {
@@ -149,9 +183,7 @@ public class FatBuildDao {
      */
     @AutoProfiling
     public FatBuildCompacted getFatBuild(int srvIdMaskHigh, int buildId) {
-        Preconditions.checkNotNull(buildsCache, "init() was not called");
-
-        return buildsCache.get(buildIdToCacheKey(srvIdMaskHigh, buildId));
+        return cache(srvIdMaskHigh).get(buildIdToCacheKey(srvIdMaskHigh, buildId));
     }
 
     /**
@@ -159,14 +191,12 @@ public class FatBuildDao {
      * @param buildsIds Builds ids.
      */
     public Map<Long, FatBuildCompacted> getAllFatBuilds(int srvIdMaskHigh, Collection<Integer> buildsIds) {
-        Preconditions.checkNotNull(buildsCache, "init() was not called");
-
         Set<Long> ids = buildsIds.stream()
             .filter(Objects::nonNull)
             .map(buildId -> buildIdToCacheKey(srvIdMaskHigh, buildId))
             .collect(Collectors.toSet());
 
-        return buildsCache.getAll(ids);
+        return cache(srvIdMaskHigh).getAll(ids);
     }
 
     /**
@@ -178,12 +208,49 @@ public class FatBuildDao {
     }
 
     public boolean containsKey(int srvIdMaskHigh, int buildId) {
-        return buildsCache.containsKey(buildIdToCacheKey(srvIdMaskHigh, buildId));
+        return cache(srvIdMaskHigh).containsKey(buildIdToCacheKey(srvIdMaskHigh, buildId));
     }
 
-    public Stream<Cache.Entry<Long, FatBuildCompacted>> outdatedVersionEntries(int srvId) {
-        return StreamSupport.stream(buildsCache.spliterator(), false)
-            .filter(entry -> entry.getValue().isOutdatedEntityVersion())
-            .filter(entry -> isKeyForServer(entry.getKey(), srvId));
+    /**
+     * @param srvId Server id mask high.
+     * @return Bitmap of IDs of fat builds saved for server, may miss some recently saved builds.
+     */
+    public RoaringBitmap getAllIdsBitmap(int srvId) {
+        return bitmapDao.get(srvId, SyncBitmapDao.Kind.FAT_BUILDS, () -> getAllIds(srvId));
+    }
+
+    /**
+     * Adds fat builds missing in bitmap, e.g. not flushed before crash. Uses key scan.
+     *
+     * @param srvId Server id mask high.
+     * @return Count of builds which were missing in bitmap.
+     */
+    public int mergeAllIdsBitmap(int srvId) {
+        return bitmapDao.merge(srvId, SyncBitmapDao.Kind.FAT_BUILDS, () -> getAllIds(srvId));
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @return IDs of all fat builds saved for server, values are not deserialized.
+     */
+    public int[] getAllIds(int srvId) {
+        return scanner.scanKeys("FatBuildDao.getAllIds", cache(srvId), srvId).stream()
+            .mapToInt(BuildRefDao::cacheKeyToBuildId)
+            .toArray();
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @return Lazy stream of fat builds having outdated entity version, partitions are scanned one by one. Stream
+     * should be closed.
+     */
+    public Stream<Map.Entry<Long, FatBuildCompacted>> outdatedVersionEntries(int srvId) {
+        IgniteBiPredicate<Long, BinaryObject> outdated = (key, val) -> {
+            Short ver = val.field("_ver");
+
+            return ver == null || ver < FatBuildCompacted.LATEST_VERSION;
+        };
+
+        return scanner.stream("FatBuildDao.outdatedVersionEntries", cache(srvId), srvId, outdated);
     }
 }
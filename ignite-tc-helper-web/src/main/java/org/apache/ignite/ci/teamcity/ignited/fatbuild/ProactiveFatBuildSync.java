@@ -18,7 +18,7 @@ package org.apache.ignite.ci.teamcity.ignited.fatbuild;
 
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
-import java.util.stream.Stream;
+import org.apache.ignite.ci.db.SyncBitmapDao;
 import org.apache.ignite.ci.di.AutoProfiling;
 import org.apache.ignite.ci.di.MonitoredTask;
 import org.apache.ignite.ci.di.scheduler.IScheduler;
@@ -37,7 +37,9 @@ import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistSync;
 import org.apache.ignite.ci.teamcity.pure.ITeamcityConn;
 import org.apache.ignite.ci.util.ExceptionUtil;
 import org.apache.ignite.internal.util.GridConcurrentHashSet;
+import org.apache.ignite.internal.util.GridIntList;
 import org.jetbrains.annotations.NotNull;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,10 +51,18 @@ import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ProactiveFatBuildSync {
     public static final int FAT_BUILD_PROACTIVE_TASKS = 5;
 
+    /** Max builds reported by TC build events and waiting for load, per server. Exceeding events go to regular sync. */
+    public static final int MAX_PUSHED_BUILDS_PENDING = 1000;
+
+    /** Delay of pushed builds load postponed by run history backpressure, seconds. */
+    public static final int PUSHED_BACKPRESSURE_DELAY_SEC = 30;
+
     /** Logger. */
     private static final Logger logger = LoggerFactory.getLogger(ProactiveFatBuildSync.class);
 
@@ -74,6 +84,9 @@ public class ProactiveFatBuildSync {
     /** Run history sync. */
     @Inject private RunHistSync runHistSync;
 
+    /** Sync bitmaps DAO. */
+    @Inject private SyncBitmapDao bitmapDao;
+
     @GuardedBy("this")
     private Map<String, SyncTask> buildToLoad = new HashMap<>();
 
@@ -89,6 +102,141 @@ public class ProactiveFatBuildSync {
         Set<Integer> ids = new HashSet<>();
 
         GridConcurrentHashSet<Integer> loadingBuilds = new GridConcurrentHashSet<>();
+
+        /** Builds reported by TC build events, waiting for immediate load. */
+        Set<Integer> pushedIds = new LinkedHashSet<>();
+
+        /** Pushed builds loader is running for this server. */
+        boolean pushedLdrActive;
+    }
+
+    /**
+     * Loads build reported by TC build event (queued, started, finished) as soon as possible. Events for a build
+     * already waiting for load are merged. If too many builds are pending, event is dropped: build will be loaded by
+     * regular (polling-based) synchronization, and sender should retry later.
+     *
+     * @param conn Connection.
+     * @param buildId Build id.
+     * @return {@code true} if build was accepted for immediate load, {@code false} if event was dropped.
+     */
+    public boolean loadBuildPushed(ITeamcityConn conn, int buildId) {
+        boolean accepted;
+        boolean startLdr = false;
+
+        synchronized (this) {
+            SyncTask syncTask = buildToLoad.computeIfAbsent(conn.serverId(), s -> new SyncTask());
+
+            if (syncTask.pushedIds.contains(buildId))
+                return true;
+
+            accepted = syncTask.pushedIds.size() < MAX_PUSHED_BUILDS_PENDING;
+
+            if (accepted) {
+                syncTask.pushedIds.add(buildId);
+
+                startLdr = !syncTask.pushedLdrActive;
+                syncTask.pushedLdrActive = true;
+            }
+        }
+
+        if (startLdr)
+            scheduler.invokeLater(() -> loadPushedBuilds(conn.serverId(), conn), 0, TimeUnit.SECONDS);
+
+        return accepted;
+    }
+
+    /**
+     * Loads builds reported by TC build events until there are no pending builds for the server. If run history write
+     * buffer is almost full, builds left are kept pending and loader is restarted after
+     * {@link #PUSHED_BACKPRESSURE_DELAY_SEC}.
+     *
+     * @param srvId Server id.
+     * @param conn Connection.
+     */
+    @SuppressWarnings({"WeakerAccess", "UnusedReturnValue"})
+    @MonitoredTask(name = "Pushed Builds Loading", nameExtArgsIndexes = {0})
+    @AutoProfiling
+    public String loadPushedBuilds(String srvId, ITeamcityConn conn) {
+        final int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(srvId);
+
+        int ld = 0;
+        int err = 0;
+        int total = 0;
+        boolean drained = false;
+        List<Integer> postponed = new ArrayList<>();
+
+        try {
+            while (!drained) {
+                Set<Integer> load;
+
+                synchronized (this) {
+                    SyncTask syncTask = buildToLoad.get(srvId);
+
+                    if (syncTask.pushedIds.isEmpty()) {
+                        syncTask.pushedLdrActive = false;
+                        drained = true;
+
+                        continue;
+                    }
+
+                    load = syncTask.pushedIds;
+                    syncTask.pushedIds = new LinkedHashSet<>();
+                }
+
+                total += load.size();
+
+                Map<Long, FatBuildCompacted> builds = fatBuildDao.getAllFatBuilds(srvIdMaskHigh, load);
+
+                for (Integer buildId : load) {
+                    if (!postponed.isEmpty() || runHistSync.isBackpressured(srvId)) {
+                        postponed.add(buildId);
+
+                        continue;
+                    }
+
+                    try {
+                        FatBuildCompacted existingBuild = builds.get(FatBuildDao.buildIdToCacheKey(srvIdMaskHigh, buildId));
+
+                        if (loadBuild(conn, buildId, existingBuild, SyncMode.RELOAD_QUEUED) != null)
+                            ld++;
+                    }
+                    catch (Exception e) {
+                        logger.error("Loading pushed build [" + buildId + "] for server [" + srvId + "] failed", e);
+
+                        err++;
+                    }
+                }
+
+                if (!postponed.isEmpty()) {
+                    synchronized (this) {
+                        SyncTask syncTask = buildToLoad.get(srvId);
+
+                        // Loader stays active, so new events do not start another one while history is backpressured.
+                        Set<Integer> pending = new LinkedHashSet<>(postponed);
+                        pending.addAll(syncTask.pushedIds);
+                        syncTask.pushedIds = pending;
+                    }
+
+                    drained = true;
+                }
+            }
+        }
+        finally {
+            if (!drained) {
+                synchronized (this) {
+                    buildToLoad.get(srvId).pushedLdrActive = false; // next event will restart loader
+                }
+            }
+        }
+
+        if (!postponed.isEmpty()) {
+            scheduler.invokeLater(() -> loadPushedBuilds(srvId, conn), PUSHED_BACKPRESSURE_DELAY_SEC, TimeUnit.SECONDS);
+
+            total -= postponed.size();
+        }
+
+        return "Pushed builds updated " + ld + " from " + total + " requested, errors: " + err
+            + (postponed.isEmpty() ? "" : ", postponed by history backpressure: " + postponed.size());
     }
 
     /**
@@ -130,34 +278,59 @@ public class ProactiveFatBuildSync {
     protected String findMissingBuildsFromBuildRef(String srvId, ITeamcityConn conn) {
         int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(srvId);
 
-        Stream<BuildRefCompacted> buildRefs = buildRefDao.compactedBuildsForServer(srvIdMaskHigh);
+        RoaringBitmap staleUnfinished = new RoaringBitmap();
+
+        List<BuildRefCompacted> queuedAndRunning = buildRefDao.getQueuedAndRunning(srvIdMaskHigh);
+
+        Map<Long, FatBuildCompacted> unfinishedFatBuilds = fatBuildDao.getAllFatBuilds(srvIdMaskHigh,
+            queuedAndRunning.stream().map(BuildRefCompacted::id).collect(Collectors.toList()));
+
+        // Fat build of unfinished build is reloaded when its reference is changed, so only missing or stale fat builds
+        // are loaded here.
+        for (BuildRefCompacted ref : queuedAndRunning) {
+            long key = FatBuildDao.buildIdToCacheKey(srvIdMaskHigh, ref.id());
+            FatBuildCompacted fatBuild = unfinishedFatBuilds.get(key);
+
+            if (fatBuild == null || fatBuild.state() != ref.state() || fatBuild.isOutdatedEntityVersion())
+                staleUnfinished.add(ref.id());
+        }
+
+        RoaringBitmap candidates = RoaringBitmap.andNot(buildRefDao.getAllIdsBitmap(srvIdMaskHigh),
+            fatBuildDao.getAllIdsBitmap(srvIdMaskHigh));
+
+        candidates.or(staleUnfinished);
 
         List<Integer> buildsIdsToLoad = new ArrayList<>();
-        AtomicInteger totalAskedToLoad = new AtomicInteger();
+        GridIntList savedNotInBitmap = new GridIntList(16);
+        int totalAskedToLoad = 0;
 
-        buildRefs.forEach(buildRef -> {
-            Integer buildId = buildRef.getId();
-            if (buildId == null)
-                return;
+        for (int buildId : candidates) {
+            if (!staleUnfinished.contains(buildId) && fatBuildDao.containsKey(srvIdMaskHigh, buildId)) {
+                savedNotInBitmap.add(buildId);
+
+                continue;
+            }
 
-            if (buildRef.isRunning(compactor)
-                || buildRef.isQueued(compactor)
-                || !fatBuildDao.containsKey(srvIdMaskHigh, buildId))
-                buildsIdsToLoad.add(buildId);
+            buildsIdsToLoad.add(buildId);
 
             if (buildsIdsToLoad.size() >= 100) {
-                totalAskedToLoad.addAndGet(buildsIdsToLoad.size());
+                totalAskedToLoad += buildsIdsToLoad.size();
                 scheduleBuildsLoad(conn, buildsIdsToLoad);
                 buildsIdsToLoad.clear();
             }
-        });
+        }
 
         if (!buildsIdsToLoad.isEmpty()) {
-            totalAskedToLoad.addAndGet(buildsIdsToLoad.size());
+            totalAskedToLoad += buildsIdsToLoad.size();
             scheduleBuildsLoad(conn, buildsIdsToLoad);
         }
 
-        return "Invoked later load for " + totalAskedToLoad.get() + " builds from " + srvId;
+        bitmapDao.add(srvIdMaskHigh, SyncBitmapDao.Kind.FAT_BUILDS, savedNotInBitmap.array());
+        bitmapDao.flush();
+
+        return "Invoked later load for " + totalAskedToLoad + " builds from " + srvId
+            + " (" + staleUnfinished.getCardinality() + " queued/running not actual), "
+            + savedNotInBitmap.size() + " saved builds were added to bitmap";
     }
 
     /** */
@@ -209,8 +382,18 @@ public class ProactiveFatBuildSync {
 
         Map<Long, FatBuildCompacted> builds = fatBuildDao.getAllFatBuilds(srvIdMaskHigh, load);
 
+        List<Integer> postponed = new ArrayList<>();
+
         load.forEach(
                 buildId -> {
+                    if (!postponed.isEmpty() || runHistSync.isBackpressured(srvId)) {
+                        // History write buffer is almost full, build will be loaded by next run.
+                        postponed.add(buildId);
+                        loadingBuilds.remove(buildId);
+
+                        return;
+                    }
+
                     try {
                         FatBuildCompacted existingBuild = builds.get(FatBuildDao.buildIdToCacheKey(srvIdMaskHigh, buildId));
 
@@ -228,7 +411,10 @@ public class ProactiveFatBuildSync {
                 }
         );
 
-        return "Builds updated " + ld.get() + " from " + load.size() + " requested, errors: " + err;
+        scheduleBuildsLoad(conn, postponed);
+
+        return "Builds updated " + ld.get() + " from " + load.size() + " requested, errors: " + err
+            + (postponed.isEmpty() ? "" : ", postponed by history backpressure: " + postponed.size());
     }
 
     @NotNull
@@ -243,7 +429,10 @@ public class ProactiveFatBuildSync {
      */
     public void ensureActualizationRequested(String srvName, ITeamcityConn conn) {
         scheduler.sheduleNamed(taskName("findMissingBuildsFromBuildRef", srvName),
-            () -> findMissingBuildsFromBuildRef(srvName, conn), 360, TimeUnit.MINUTES);
+            () -> findMissingBuildsFromBuildRef(srvName, conn), 5, TimeUnit.MINUTES);
+
+        scheduler.sheduleNamed(taskName("mergeSyncBitmaps", srvName),
+            () -> mergeSyncBitmaps(srvName), 6, TimeUnit.HOURS);
 
         /*
         scheduler.sheduleNamed(taskName("migrateBuildsToV6", srvName),
@@ -251,6 +440,26 @@ public class ProactiveFatBuildSync {
              */
     }
 
+    /**
+     * Restores build references and fat builds lost from bitmaps, e.g. not flushed before crash. Search of missing
+     * builds uses only bitmaps, so builds lost from bitmaps are found by this task.
+     *
+     * @param srvName Server name.
+     */
+    @SuppressWarnings({"WeakerAccess", "UnusedReturnValue"})
+    @MonitoredTask(name = "Merge Sync Bitmaps", nameExtArgsIndexes = {0})
+    @AutoProfiling
+    protected String mergeSyncBitmaps(String srvName) {
+        int srvId = ITeamcityIgnited.serverIdToInt(srvName);
+
+        int refs = buildRefDao.mergeAllIdsBitmap(srvId);
+        int fatBuilds = fatBuildDao.mergeAllIdsBitmap(srvId);
+
+        bitmapDao.flush();
+
+        return "Restored in bitmaps: " + refs + " build references, " + fatBuilds + " fat builds";
+    }
+
     /**
      * @param srvName Server name.
      * @param conn Connection.
@@ -261,17 +470,19 @@ public class ProactiveFatBuildSync {
 
         AtomicInteger cnt = new AtomicInteger();
         AtomicInteger divergedIds = new AtomicInteger();
-        fatBuildDao.outdatedVersionEntries(srvId).forEach(entry -> {
-            cnt.incrementAndGet();
-            int buildId = BuildRefDao.cacheKeyToBuildId(entry.getKey());
-            FatBuildCompacted transformed = transformV5Build(
-                srvId,
-                buildId,
-                entry.getValue());
-
-            if (transformed != null)
-                divergedIds.incrementAndGet();
-        });
+        try (Stream<Map.Entry<Long, FatBuildCompacted>> outdated = fatBuildDao.outdatedVersionEntries(srvId)) {
+            outdated.forEach(entry -> {
+                cnt.incrementAndGet();
+                int buildId = BuildRefDao.cacheKeyToBuildId(entry.getKey());
+                FatBuildCompacted transformed = transformV5Build(
+                    srvId,
+                    buildId,
+                    entry.getValue());
+
+                if (transformed != null)
+                    divergedIds.incrementAndGet();
+            });
+        }
 
         return "Found: " + cnt.get() + " builds found having version < 6 and "
             + divergedIds.get() + " with ID divergence.";
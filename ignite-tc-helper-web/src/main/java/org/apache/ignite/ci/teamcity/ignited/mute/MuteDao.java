@@ -27,6 +27,7 @@ import javax.inject.Inject;
 import javax.inject.Provider;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
+import org.apache.ignite.ci.db.ServerKeyScanner;
 import org.apache.ignite.ci.db.TcHelperDb;
 import org.apache.ignite.ci.di.AutoProfiling;
 import org.apache.ignite.ci.tcmodel.mute.MuteInfo;
@@ -50,6 +51,9 @@ public class MuteDao {
     /** Compactor. */
     @Inject private IStringCompactor compactor;
 
+    /** Scanner. */
+    @Inject private ServerKeyScanner scanner;
+
     /**
      *
      */
@@ -64,14 +68,11 @@ public class MuteDao {
     @AutoProfiling
     public SortedSet<MuteInfo> getMutes(int srvIdMaskHigh) {
         Preconditions.checkNotNull(muteCache, "init() was not called");
-        long srvId = (long) srvIdMaskHigh << 32;
 
         TreeSet<MuteInfo> res = new TreeSet<>();
 
-        for (Cache.Entry<Long, MuteInfoCompacted> entry : muteCache) {
-            if ((entry.getKey() & srvId) == srvId)
-                res.add(entry.getValue().toMuteInfo(compactor));
-        }
+        for (MuteInfoCompacted mute : scanner.scan("MuteDao.getMutes", muteCache, srvIdMaskHigh, null).values())
+            res.add(mute.toMuteInfo(compactor));
 
         return res;
     }
@@ -92,13 +93,14 @@ public class MuteDao {
      *
      * @param srvIdMaskHigh Server id mask high.
      * @param chunk Chunk.
+     * @return Number of new mutes saved.
      */
     @AutoProfiling
-    public void saveChunk(int srvIdMaskHigh, Set<MuteInfo> chunk) {
+    public int saveChunk(int srvIdMaskHigh, Set<MuteInfo> chunk) {
         Preconditions.checkNotNull(muteCache, "init() was not called");
 
         if (F.isEmpty(chunk))
-            return;
+            return 0;
 
         HashMap<Long, MuteInfoCompacted> compactedMutes = new HashMap<>(U.capacity(chunk.size()));
 
@@ -109,7 +111,11 @@ public class MuteDao {
             compactedMutes.put(key, val);
         }
 
+        int newMutes = compactedMutes.size() - muteCache.getAll(compactedMutes.keySet()).size();
+
         muteCache.putAll(compactedMutes);
+
+        return newMutes;
     }
 
     /**
@@ -23,6 +23,8 @@ import java.util.concurrent.atomic.AtomicReference;
 import javax.inject.Inject;
 import org.apache.ignite.ci.di.MonitoredTask;
 import org.apache.ignite.ci.di.scheduler.IScheduler;
+import org.apache.ignite.ci.di.scheduler.SyncFrequencyController;
+import org.apache.ignite.ci.di.scheduler.SyncPeriod;
 import org.apache.ignite.ci.tcmodel.mute.MuteInfo;
 import org.apache.ignite.ci.teamcity.pure.ITeamcityConn;
 import org.apache.ignite.internal.util.typedef.F;
@@ -37,30 +39,35 @@ public class MuteSync {
     /** Mute DAO. */
     @Inject private MuteDao muteDao;
 
+    /** Sync frequency controller. */
+    @Inject private SyncFrequencyController freqCtrl;
+
     /**
      * Start named task to refresh mutes for given project.
      */
     public void ensureActualizeMutes(String taskName, String projectId, int srvIdMaskHigh, ITeamcityConn conn) {
-        scheduler.sheduleNamed(taskName, () -> actualizeMuteRefs(projectId, srvIdMaskHigh, conn), 15, TimeUnit.MINUTES);
+        scheduler.sheduleNamed(taskName, () -> actualizeMuteRefs(taskName, projectId, srvIdMaskHigh, conn),
+            freqCtrl.quietPeriodMs(taskName, conn.serverId(), SyncPeriod.MUTES), TimeUnit.MILLISECONDS);
     }
 
     /**
      * Refresh mutes for given project.
      *
+     * @param taskName Task name.
      * @param projectId Project id.
      * @param srvIdMaskHigh Server id mask high.
      * @param conn TeamCity connection.
      * @return Message with loading result.
      */
-    @MonitoredTask(name = "Actualize Mute", nameExtArgsIndexes = {0})
-    protected String actualizeMuteRefs(String projectId, int srvIdMaskHigh, ITeamcityConn conn) {
+    @MonitoredTask(name = "Actualize Mute", nameExtArgsIndexes = {1})
+    protected String actualizeMuteRefs(String taskName, String projectId, int srvIdMaskHigh, ITeamcityConn conn) {
         AtomicReference<String> outLinkNext = new AtomicReference<>();
         SortedSet<MuteInfo> tcDataPage = conn.getMutesPage(projectId, null, outLinkNext);
 
         if (F.isEmpty(tcDataPage))
             return "No mutes found. Nothing to save.";
 
-        muteDao.saveChunk(srvIdMaskHigh, tcDataPage);
+        int mutesAdded = muteDao.saveChunk(srvIdMaskHigh, tcDataPage);
 
         int mutesSaved = tcDataPage.size();
         int mutesDeleted = removeMutes(srvIdMaskHigh, tcDataPage);
@@ -75,7 +82,7 @@ public class MuteSync {
             if (F.isEmpty(tcDataPage))
                 break;
 
-            muteDao.saveChunk(srvIdMaskHigh, tcDataPage);
+            mutesAdded += muteDao.saveChunk(srvIdMaskHigh, tcDataPage);
 
             mutesSaved += tcDataPage.size();
             mutesDeleted += removeMutes(srvIdMaskHigh, tcDataPage);
@@ -85,7 +92,10 @@ public class MuteSync {
 
         mutesDeleted += muteDao.removeAllAfter(srvIdMaskHigh, lastId);
 
-        return "Mutes saved " + mutesSaved + ", removed " + mutesDeleted + " for " + projectId;
+        freqCtrl.changesObserved(taskName, mutesAdded + mutesDeleted);
+
+        return "Mutes saved " + mutesSaved + " (new " + mutesAdded + "), removed " + mutesDeleted +
+            " for " + projectId;
     }
 
     /**
@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.runhist;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+
+/**
+ * Per day counters of invocations rolled out of detailed run history. Only days having runs are stored, arrays are
+ * sorted by day. Counters are persisted packed into one byte array of varints, see {@link #pack()}: a usual day with
+ * less than 32 runs and without muted failures and changes takes 3 bytes.
+ */
+class DailyAggregates {
+    /** Day length in milliseconds. */
+    static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    /** Flag of packed day header: day has muted failures. */
+    private static final int HAS_MUTED = 1;
+
+    /** Flag of packed day header: day has runs with VCS changes. */
+    private static final int HAS_CHANGES = 2;
+
+    /** Bits used by flags in packed day header. */
+    private static final int FLAGS_BITS = 2;
+
+    /** Days since epoch (UTC). */
+    private int[] days = new int[0];
+
+    /** Runs, including muted. */
+    private int[] runs = new int[0];
+
+    /** Failures and critical failures. */
+    private int[] failures = new int[0];
+
+    /** Muted failures. */
+    private int[] muted = new int[0];
+
+    /** Runs having VCS changes. */
+    private int[] changes = new int[0];
+
+    /**
+     * @param startDate Invocation start date.
+     * @param status Invocation status.
+     * @param changePresent Change present code.
+     */
+    void add(long startDate, byte status, byte changePresent) {
+        int day = (int)(startDate / DAY_MS);
+        int idx = Arrays.binarySearch(days, day);
+
+        if (idx < 0) {
+            idx = -(idx + 1);
+
+            days = insert(days, idx, day);
+            runs = insert(runs, idx, 0);
+            failures = insert(failures, idx, 0);
+            muted = insert(muted, idx, 0);
+            changes = insert(changes, idx, 0);
+        }
+
+        runs[idx]++;
+
+        if (status == InvocationData.FAILURE || status == InvocationData.CRITICAL_FAILURE)
+            failures[idx]++;
+
+        if (status == InvocationData.MUTED)
+            muted[idx]++;
+
+        if (changePresent == Invocation.CHANGE_PRESENT)
+            changes[idx]++;
+    }
+
+    /**
+     * @param arr Array.
+     * @param idx Index.
+     * @param val Value.
+     */
+    private static int[] insert(int[] arr, int idx, int val) {
+        int[] res = new int[arr.length + 1];
+
+        System.arraycopy(arr, 0, res, 0, idx);
+        res[idx] = val;
+        System.arraycopy(arr, idx, res, idx + 1, arr.length - idx);
+
+        return res;
+    }
+
+    /**
+     * Removes days started before timestamp.
+     *
+     * @param ts Timestamp.
+     * @return {@code true} if some days were removed.
+     */
+    boolean removeBefore(long ts) {
+        int minDay = (int)(ts / DAY_MS);
+        int from = 0;
+
+        while (from < days.length && days[from] < minDay)
+            from++;
+
+        if (from == 0)
+            return false;
+
+        days = Arrays.copyOfRange(days, from, days.length);
+        runs = Arrays.copyOfRange(runs, from, runs.length);
+        failures = Arrays.copyOfRange(failures, from, failures.length);
+        muted = Arrays.copyOfRange(muted, from, muted.length);
+        changes = Arrays.copyOfRange(changes, from, changes.length);
+
+        return true;
+    }
+
+    /**
+     * Adds counters of days started in window to statistics.
+     *
+     * @param since Window start timestamp, inclusive.
+     * @param until Window end timestamp, exclusive.
+     * @param stat Statistics to add counters to.
+     */
+    void collect(long since, long until, RunHistWindowStat stat) {
+        for (int i = 0; i < days.length; i++) {
+            long dayStart = days[i] * DAY_MS;
+
+            if (dayStart >= since && dayStart < until)
+                stat.add(runs[i], failures[i], muted[i], changes[i]);
+        }
+    }
+
+    /**
+     * @return Start timestamp of the latest day stored, 0 if there are no days.
+     */
+    long newestDayStart() {
+        return days.length == 0 ? 0 : days[days.length - 1] * DAY_MS;
+    }
+
+    /**
+     * Reads start of the latest day from binary form of invocation data, used without deserialization of the entry.
+     *
+     * @param data Invocation data in binary form.
+     * @return Start timestamp of the latest day stored, 0 if there are no days.
+     */
+    static long newestDayStart(BinaryObject data) {
+        byte[] packed = data.field("aggPacked");
+
+        if (packed != null) {
+            DailyAggregates aggregates = new DailyAggregates();
+
+            aggregates.unpack(packed);
+
+            return aggregates.newestDayStart();
+        }
+
+        int[] d = data.field("aggDays");
+
+        return d == null || d.length == 0 ? 0 : d[d.length - 1] * DAY_MS;
+    }
+
+    /**
+     * @return Days stored.
+     */
+    int size() {
+        return days.length;
+    }
+
+    /**
+     * @param writer Writer.
+     */
+    void writeBinary(BinaryWriter writer) {
+        writer.writeByteArray("aggPacked", pack());
+    }
+
+    /**
+     * @param reader Reader.
+     */
+    void readBinary(BinaryReader reader) {
+        byte[] packed = reader.readByteArray("aggPacked");
+
+        if (packed != null) {
+            unpack(packed);
+
+            return;
+        }
+
+        // Aggregates saved as separate int arrays.
+        int[] d = reader.readIntArray("aggDays");
+
+        if (d == null)
+            return;
+
+        days = d;
+        runs = reader.readIntArray("aggRuns");
+        failures = reader.readIntArray("aggFailures");
+        muted = reader.readIntArray("aggMuted");
+        changes = reader.readIntArray("aggChanges");
+    }
+
+    /**
+     * Packs days as sequence of varints: delta of day from previous day (first day as is), header of runs count
+     * shifted by {@link #FLAGS_BITS} with {@link #HAS_MUTED} and {@link #HAS_CHANGES} flags, failures, then muted and
+     * changes counters present only if flagged.
+     *
+     * @return Packed days, {@code null} if there are no days.
+     */
+    byte[] pack() {
+        if (days.length == 0)
+            return null;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(days.length * 3);
+        int prevDay = 0;
+
+        for (int i = 0; i < days.length; i++) {
+            int hdr = runs[i] << FLAGS_BITS;
+
+            if (muted[i] > 0)
+                hdr |= HAS_MUTED;
+
+            if (changes[i] > 0)
+                hdr |= HAS_CHANGES;
+
+            writeVarInt(out, days[i] - prevDay);
+            writeVarInt(out, hdr);
+            writeVarInt(out, failures[i]);
+
+            if (muted[i] > 0)
+                writeVarInt(out, muted[i]);
+
+            if (changes[i] > 0)
+                writeVarInt(out, changes[i]);
+
+            prevDay = days[i];
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * @param packed Days packed by {@link #pack()}.
+     */
+    void unpack(byte[] packed) {
+        int cap = packed.length / 3;
+        int[] d = new int[cap];
+        int[] r = new int[cap];
+        int[] f = new int[cap];
+        int[] m = new int[cap];
+        int[] c = new int[cap];
+
+        int[] pos = new int[1];
+        int cnt = 0;
+        int day = 0;
+
+        while (pos[0] < packed.length) {
+            day += readVarInt(packed, pos);
+
+            int hdr = readVarInt(packed, pos);
+
+            d[cnt] = day;
+            r[cnt] = hdr >>> FLAGS_BITS;
+            f[cnt] = readVarInt(packed, pos);
+            m[cnt] = (hdr & HAS_MUTED) != 0 ? readVarInt(packed, pos) : 0;
+            c[cnt] = (hdr & HAS_CHANGES) != 0 ? readVarInt(packed, pos) : 0;
+            cnt++;
+        }
+
+        days = Arrays.copyOf(d, cnt);
+        runs = Arrays.copyOf(r, cnt);
+        failures = Arrays.copyOf(f, cnt);
+        muted = Arrays.copyOf(m, cnt);
+        changes = Arrays.copyOf(c, cnt);
+    }
+
+    /**
+     * @param out Output.
+     * @param val Non negative value.
+     */
+    private static void writeVarInt(ByteArrayOutputStream out, int val) {
+        while ((val & ~0x7F) != 0) {
+            out.write((val & 0x7F) | 0x80);
+
+            val >>>= 7;
+        }
+
+        out.write(val);
+    }
+
+    /**
+     * @param buf Buffer.
+     * @param pos Position holder, advanced by bytes read.
+     * @return Value.
+     */
+    private static int readVarInt(byte[] buf, int[] pos) {
+        int res = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            byte b = buf[pos[0]++];
+
+            res |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0)
+                return res;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        DailyAggregates that = (DailyAggregates)o;
+        return Arrays.equals(days, that.days) &&
+            Arrays.equals(runs, that.runs) &&
+            Arrays.equals(failures, that.failures) &&
+            Arrays.equals(muted, that.muted) &&
+            Arrays.equals(changes, that.changes);
+    }
+
+    /** {@inheritDoc} */
+    @Override public int hashCode() {
+        int res = Arrays.hashCode(days);
+
+        res = 31 * res + Arrays.hashCode(runs);
+        res = 31 * res + Arrays.hashCode(failures);
+
+        return res;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.runhist;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded write-behind buffer of run history invocations for one server. Buffer is split into shards by build ID, each
+ * shard is drained by its own loader. All invocations of a build are in one shard, because a loader saves invocations
+ * only of builds it marks as processed. A build is added to and drained from its shard under the shard lock, so a
+ * loader takes either all invocations of a build or none of them. Invocations for the same key are coalesced into one
+ * list within a shard, so one entry update is required for a key per drain of the shard. Producers are not blocked
+ * on capacity: if buffer has no capacity for a build, {@link #offer} returns {@code false} and caller should apply
+ * backpressure.
+ */
+public class HistWriteBuffer {
+    /** Shards. */
+    private final Shard[] shards;
+
+    /** Capacity in invocations. */
+    private final int capacity;
+
+    /** Invocations buffered in all shards. */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * @param shardsCnt Shards count.
+     * @param capacity Capacity in invocations.
+     */
+    HistWriteBuffer(int shardsCnt, int capacity) {
+        this.capacity = capacity;
+
+        shards = new Shard[shardsCnt];
+
+        for (int i = 0; i < shardsCnt; i++)
+            shards[i] = new Shard();
+    }
+
+    /**
+     * Adds invocations of a build to buffer if capacity allows.
+     *
+     * @param tests Test invocations.
+     * @param testsCnt Count of test invocations.
+     * @param suiteKey Suite history key.
+     * @param suiteInv Suite invocation.
+     * @return {@code false} if buffer has no capacity for the build, nothing was added in this case.
+     */
+    boolean offer(Map<RunHistKey, List<Invocation>> tests, int testsCnt, RunHistKey suiteKey, Invocation suiteInv) {
+        int cnt = testsCnt + 1;
+
+        while (true) {
+            int cur = pending.get();
+
+            if (cur + cnt > capacity)
+                return false;
+
+            if (pending.compareAndSet(cur, cur + cnt))
+                break;
+        }
+
+        shard(suiteInv.buildId()).add(tests, cnt, suiteKey, suiteInv);
+
+        return true;
+    }
+
+    /**
+     * @param buildId Build ID.
+     */
+    private Shard shard(int buildId) {
+        return shards[(buildId & Integer.MAX_VALUE) % shards.length];
+    }
+
+    /**
+     * Takes all invocations buffered in shard. A build added concurrently is either taken as a whole or left for the
+     * next drain.
+     *
+     * @param shardIdx Shard index.
+     * @param tests Map to put test invocations to.
+     * @param suites Map to put suite invocations to.
+     */
+    void drain(int shardIdx, Map<RunHistKey, List<Invocation>> tests, Map<RunHistKey, List<Invocation>> suites) {
+        int cnt = shards[shardIdx].drain(tests, suites);
+
+        pending.addAndGet(-cnt);
+    }
+
+    /**
+     * @return Shards count.
+     */
+    public int shards() {
+        return shards.length;
+    }
+
+    /**
+     * @return Capacity in invocations.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Invocations buffered.
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    /**
+     * @return Fill ratio of buffer, from 0 to 1.
+     */
+    public double fill() {
+        return (double)pending.get() / capacity;
+    }
+
+    /**
+     * @return Invocations buffered in each shard.
+     */
+    public int[] shardsPending() {
+        int[] res = new int[shards.length];
+
+        for (int i = 0; i < shards.length; i++)
+            res[i] = shards[i].pending();
+
+        return res;
+    }
+
+    /**
+     * @return History keys buffered in each shard, tests and suites.
+     */
+    public int[] shardsKeys() {
+        int[] res = new int[shards.length];
+
+        for (int i = 0; i < shards.length; i++)
+            res[i] = shards[i].keys();
+
+        return res;
+    }
+
+    /**
+     * Shard of buffer: invocations coalesced by history key. All methods are synchronized, so builds are added and
+     * drained as a whole.
+     */
+    private static class Shard {
+        /** Test invocations. */
+        private Map<RunHistKey, List<Invocation>> tests = new HashMap<>();
+
+        /** Suite invocations. */
+        private Map<RunHistKey, List<Invocation>> suites = new HashMap<>();
+
+        /** Invocations buffered. */
+        private int pending;
+
+        /**
+         * @param buildTests Test invocations of build.
+         * @param cnt Count of invocations of build including suite invocation.
+         * @param suiteKey Suite history key.
+         * @param suiteInv Suite invocation.
+         */
+        private synchronized void add(Map<RunHistKey, List<Invocation>> buildTests, int cnt, RunHistKey suiteKey,
+            Invocation suiteInv) {
+            buildTests.forEach((key, list) -> tests.computeIfAbsent(key, k -> new ArrayList<>()).addAll(list));
+
+            suites.computeIfAbsent(suiteKey, k -> new ArrayList<>()).add(suiteInv);
+
+            pending += cnt;
+        }
+
+        /**
+         * @param targetTests Map to put test invocations to.
+         * @param targetSuites Map to put suite invocations to.
+         * @return Count of invocations removed.
+         */
+        private int drain(Map<RunHistKey, List<Invocation>> targetTests,
+            Map<RunHistKey, List<Invocation>> targetSuites) {
+            Map<RunHistKey, List<Invocation>> drainedTests;
+            Map<RunHistKey, List<Invocation>> drainedSuites;
+            int cnt;
+
+            synchronized (this) {
+                drainedTests = tests;
+                drainedSuites = suites;
+                cnt = pending;
+
+                tests = new HashMap<>();
+                suites = new HashMap<>();
+                pending = 0;
+            }
+
+            addAll(drainedTests, targetTests);
+            addAll(drainedSuites, targetSuites);
+
+            return cnt;
+        }
+
+        /**
+         * @param src Invocations drained.
+         * @param target Map to put invocations to.
+         */
+        private static void addAll(Map<RunHistKey, List<Invocation>> src, Map<RunHistKey, List<Invocation>> target) {
+            src.forEach((key, list) -> target.computeIfAbsent(key, k -> new ArrayList<>()).addAll(list));
+        }
+
+        /**
+         * @return Invocations buffered.
+         */
+        private synchronized int pending() {
+            return pending;
+        }
+
+        /**
+         * @return History keys buffered, tests and suites.
+         */
+        private synchronized int keys() {
+            return tests.size() + suites.size();
+        }
+    }
+}
@@ -93,6 +93,23 @@ public class Invocation {
         return this;
     }
 
+    /**
+     * @param changePresent Raw change present code: {@link #NO_CHANGES}, {@link #CHANGE_PRESENT} or {@link
+     * #CHANGE_NOT_FILLED}.
+     */
+    Invocation withChangePresent(byte changePresent) {
+        this.changePresent = changePresent;
+
+        return this;
+    }
+
+    /**
+     * @return Raw change present code.
+     */
+    byte changePresent() {
+        return changePresent;
+    }
+
     public ChangesState changesState() {
         if (changePresent == NO_CHANGES)
             return ChangesState.NONE;
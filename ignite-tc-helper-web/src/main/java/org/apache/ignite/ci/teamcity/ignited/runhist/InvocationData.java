@@ -19,22 +19,35 @@ package org.apache.ignite.ci.teamcity.ignited.runhist;
 
 import com.google.common.base.MoreObjects;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
 import org.apache.ignite.ci.analysis.RunStat;
+import org.apache.ignite.ci.tcbot.TcBotSystemProperties;
 import org.apache.ignite.internal.util.typedef.internal.U;
 import org.jetbrains.annotations.NotNull;
 
 /**
- *
+ * Invocations of test or suite in recent {@link #MAX_DAYS} days. Invocations are packed into parallel primitive arrays
+ * sorted by build ID, counters of actual invocations are updated on add and eviction, so statistics queries don't
+ * iterate over invocations unless some invocation has expired since last modification. Expired invocations are rolled
+ * into daily aggregates, which are kept for {@link #AGGREGATE_DAYS} days.
  */
-public class InvocationData {
+public class InvocationData implements Binarylizable {
     /** Max days to keep test invocatoin data in run statistics: affects Bot Visa. */
-    public static final int MAX_DAYS = 21;
+    public static final int MAX_DAYS = Integer.getInteger(TcBotSystemProperties.TEAMCITY_BOT_RUN_HIST_DETAIL_DAYS, 21);
+
+    /** Max days to keep daily aggregates of expired invocations. */
+    public static final int AGGREGATE_DAYS =
+        Integer.getInteger(TcBotSystemProperties.TEAMCITY_BOT_RUN_HIST_AGGREGATE_DAYS, 365);
+
     /** Muted. */
     public static final int MUTED = RunStat.RunStatus.RES_MUTED_FAILURE.getCode();
     /** Failure. */
@@ -44,6 +57,18 @@ public class InvocationData {
     /** Ok. */
     public static final int CRITICAL_FAILURE = RunStat.RunStatus.RES_CRITICAL_FAILURE.getCode();
 
+    /** Initial capacity of arrays. */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /** Empty int array. */
+    private static final int[] EMPTY_INTS = new int[0];
+
+    /** Empty byte array. */
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    /** Empty long array. */
+    private static final long[] EMPTY_LONGS = new long[0];
+
     /**
      * Runs registered all the times.
      */
@@ -54,8 +79,38 @@ public class InvocationData {
      */
     private int allHistFailures;
 
-    /** Invocations map from build ID to invocation data. */
-    private Map<Integer, Invocation> invocationMap = new TreeMap<>();
+    /** Build IDs of invocations, sorted. */
+    private int[] buildIds = EMPTY_INTS;
+
+    /** Statuses of invocations, see {@link Invocation#status()}. */
+    private byte[] statuses = EMPTY_BYTES;
+
+    /** Change present codes of invocations, see {@link Invocation#changePresent()}. */
+    private byte[] changes = EMPTY_BYTES;
+
+    /** Start dates of invocations. */
+    private long[] startDates = EMPTY_LONGS;
+
+    /** Count of invocations stored. */
+    private int size;
+
+    /** Minimal start date of stored invocations, {@link Long#MAX_VALUE} if there are no invocations. */
+    private long minStartDate = Long.MAX_VALUE;
+
+    /** Not muted invocations stored. */
+    private int notMutedRuns;
+
+    /** Failed or critically failed invocations stored. */
+    private int failures;
+
+    /** Critically failed invocations stored. */
+    private int criticalFailures;
+
+    /** Daily aggregates of expired invocations. */
+    private DailyAggregates aggregates = new DailyAggregates();
+
+    /** Modification counter, not persisted: invalidates analysis results cached in memory. */
+    private transient int modCnt;
 
     public int allHistRuns() {
         return allHistRuns;
@@ -75,27 +130,117 @@ public class InvocationData {
         if (build < 0)
             return false;
 
-        if (invocationMap.containsKey(build))
+        if (isExpired(inv.startDate())) {
+            // Late invocation is not checked for duplicates here: RunHistSync saves invocations of a build only if
+            // the build was newly marked as processed, and the marks are kept for AGGREGATE_DAYS. All history
+            // counters include invocations registered in detail only, as before aggregation.
+            if (!isAggregateExpired(inv.startDate()))
+                aggregates.add(inv.startDate(), inv.status(), inv.changePresent());
+
             return false;
+        }
+
+        int idx = size == 0 || buildIds[size - 1] < build ? -(size + 1) : Arrays.binarySearch(buildIds, 0, size, build);
 
-        if (isExpired(inv.startDate()))
+        if (idx >= 0)
             return false;
 
-        Invocation prevVal = invocationMap.putIfAbsent(build, inv);
+        insert(-(idx + 1), inv);
+
+        allHistRuns++;
+        if (inv.isFailure())
+            allHistFailures++;
+
+        return true;
+    }
+
+    /**
+     * @param pos Position to insert invocation at.
+     * @param inv Invocation.
+     */
+    private void insert(int pos, Invocation inv) {
+        if (size == buildIds.length) {
+            int cap = Math.max(INITIAL_CAPACITY, size + (size >> 1));
+
+            buildIds = Arrays.copyOf(buildIds, cap);
+            statuses = Arrays.copyOf(statuses, cap);
+            changes = Arrays.copyOf(changes, cap);
+            startDates = Arrays.copyOf(startDates, cap);
+        }
 
-        final boolean newVal = prevVal == null;
+        int tail = size - pos;
 
-        if (newVal) {
-            allHistRuns++;
-            if (inv.isFailure())
-                allHistFailures++;
+        if (tail > 0) {
+            System.arraycopy(buildIds, pos, buildIds, pos + 1, tail);
+            System.arraycopy(statuses, pos, statuses, pos + 1, tail);
+            System.arraycopy(changes, pos, changes, pos + 1, tail);
+            System.arraycopy(startDates, pos, startDates, pos + 1, tail);
         }
 
-        return newVal;
+        buildIds[pos] = inv.buildId();
+        statuses[pos] = inv.status();
+        changes[pos] = inv.changePresent();
+        startDates[pos] = inv.startDate();
+        size++;
+
+        minStartDate = Math.min(minStartDate, inv.startDate());
+        count(inv.status(), 1);
+        modCnt++;
     }
 
+    /**
+     * @param status Status.
+     * @param delta Delta to be applied to counters.
+     */
+    private void count(byte status, int delta) {
+        if (status != MUTED)
+            notMutedRuns += delta;
+
+        if (status == FAILURE || status == CRITICAL_FAILURE)
+            failures += delta;
+
+        if (status == CRITICAL_FAILURE)
+            criticalFailures += delta;
+    }
+
+    /**
+     * Removes expired invocations, does nothing if the eldest invocation is still actual.
+     */
     void removeEldiest() {
-        invocationMap.entrySet().removeIf(entries -> isExpired(entries.getValue().startDate()));
+        aggregates.removeBefore(U.currentTimeMillis() - Duration.ofDays(AGGREGATE_DAYS).toMillis());
+
+        long expireBefore = expireBefore();
+
+        if (minStartDate >= expireBefore)
+            return;
+
+        int cnt = 0;
+        long min = Long.MAX_VALUE;
+
+        for (int i = 0; i < size; i++) {
+            if (startDates[i] < expireBefore) {
+                count(statuses[i], -1);
+
+                if (!isAggregateExpired(startDates[i]))
+                    aggregates.add(startDates[i], statuses[i], changes[i]);
+
+                continue;
+            }
+
+            if (cnt != i) {
+                buildIds[cnt] = buildIds[i];
+                statuses[cnt] = statuses[i];
+                changes[cnt] = changes[i];
+                startDates[cnt] = startDates[i];
+            }
+
+            min = Math.min(min, startDates[i]);
+            cnt++;
+        }
+
+        size = cnt;
+        minStartDate = min;
+        modCnt++;
     }
 
     /**
@@ -105,6 +250,21 @@ public class InvocationData {
         return (U.currentTimeMillis() - startDate) > Duration.ofDays(MAX_DAYS).toMillis();
     }
 
+    /**
+     * @param startDate Start date.
+     * @return {@code true} if invocation is too old even for daily aggregates.
+     */
+    public static boolean isAggregateExpired(long startDate) {
+        return (U.currentTimeMillis() - startDate) > Duration.ofDays(AGGREGATE_DAYS).toMillis();
+    }
+
+    /**
+     * @return Start dates before this timestamp are expired.
+     */
+    static long expireBefore() {
+        return U.currentTimeMillis() - Duration.ofDays(MAX_DAYS).toMillis();
+    }
+
     /**
      *
      */
@@ -116,33 +276,230 @@ public class InvocationData {
      *
      */
     public int notMutedRunsCount() {
-        return (int)
-            invocations()
-                .filter(invocation -> invocation.status() != MUTED)
-                .count();
+        if (minStartDate >= expireBefore())
+            return notMutedRuns;
+
+        return countActual(st -> st != MUTED);
     }
 
     /**
      *
      */
     @NotNull public Stream<Invocation> invocations() {
-        return invocationMap.values()
-            .stream()
-            .filter(this::isActual);
+        long expireBefore = expireBefore();
+
+        return IntStream.range(0, size)
+            .filter(i -> startDates[i] >= expireBefore)
+            .mapToObj(this::invocation);
     }
 
     /**
-     * @param invocation Invocation.
+     * @param idx Index.
+     * @return Invocation stored at index.
+     */
+    private Invocation invocation(int idx) {
+        return new Invocation(buildIds[idx])
+            .withStatus(statuses[idx])
+            .withChangePresent(changes[idx])
+            .withStartDate(startDates[idx]);
+    }
+
+    /**
+     * Counts actual invocations having status matching predicate, used if counters may include expired invocations.
+     *
+     * @param statusPred Status predicate.
      */
-    private boolean isActual(Invocation invocation) {
-        return !isExpired(invocation.startDate());
+    private int countActual(StatusPredicate statusPred) {
+        long expireBefore = expireBefore();
+        int cnt = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (startDates[i] >= expireBefore && statusPred.test(statuses[i]))
+                cnt++;
+        }
+
+        return cnt;
     }
 
     /**
      *
      */
     public int failuresCount() {
-        return (int)invocations().filter(inv -> inv.status() == FAILURE || inv.status() == CRITICAL_FAILURE).count();
+        if (minStartDate >= expireBefore())
+            return failures;
+
+        return countActual(st -> st == FAILURE || st == CRITICAL_FAILURE);
+    }
+
+    /**
+     * @return Modification counter of this instance.
+     */
+    int modificationCount() {
+        return modCnt;
+    }
+
+    /**
+     * @return Count of invocations stored, including expired but not evicted.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Copies actual invocations to arrays, each array should have capacity of at least {@link #size()}.
+     *
+     * @param expireBefore Start dates before this timestamp are expired.
+     * @param ids Build IDs.
+     * @param sts Statuses.
+     * @param chs Change present codes.
+     * @return Count of invocations copied.
+     */
+    int copyActual(long expireBefore, int[] ids, byte[] sts, byte[] chs) {
+        if (minStartDate >= expireBefore) {
+            System.arraycopy(buildIds, 0, ids, 0, size);
+            System.arraycopy(statuses, 0, sts, 0, size);
+            System.arraycopy(changes, 0, chs, 0, size);
+
+            return size;
+        }
+
+        int cnt = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (startDates[i] < expireBefore)
+                continue;
+
+            ids[cnt] = buildIds[i];
+            sts[cnt] = statuses[i];
+            chs[cnt] = changes[i];
+            cnt++;
+        }
+
+        return cnt;
+    }
+
+    /**
+     * @param expireBefore Start dates before this timestamp are expired.
+     * @return Timestamp when the eldest actual invocation expires, {@link Long#MAX_VALUE} if there are no actual
+     * invocations.
+     */
+    long actualUntil(long expireBefore) {
+        long min = Long.MAX_VALUE;
+
+        for (int i = 0; i < size; i++) {
+            if (startDates[i] >= expireBefore)
+                min = Math.min(min, startDates[i]);
+        }
+
+        return min == Long.MAX_VALUE ? min : min + Duration.ofDays(MAX_DAYS).toMillis();
+    }
+
+    /**
+     * Adds invocations started in window to statistics: detailed invocations are selected by start timestamp, daily
+     * aggregates are selected by start of the day.
+     *
+     * @param since Window start timestamp, inclusive.
+     * @param until Window end timestamp, exclusive.
+     * @param stat Statistics to add counters to.
+     */
+    public void collectStats(long since, long until, RunHistWindowStat stat) {
+        for (int i = 0; i < size; i++) {
+            if (startDates[i] < since || startDates[i] >= until)
+                continue;
+
+            byte st = statuses[i];
+
+            stat.add(1,
+                st == FAILURE || st == CRITICAL_FAILURE ? 1 : 0,
+                st == MUTED ? 1 : 0,
+                changes[i] == Invocation.CHANGE_PRESENT ? 1 : 0);
+        }
+
+        aggregates.collect(since, until, stat);
+    }
+
+    /**
+     * @return Start date of the latest invocation including aggregated ones, 0 if there are no invocations.
+     */
+    public long newestStartDate() {
+        long res = aggregates.newestDayStart();
+
+        for (int i = 0; i < size; i++)
+            res = Math.max(res, startDates[i]);
+
+        return res;
+    }
+
+    /** {@inheritDoc} */
+    @Override public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.writeInt("allHistRuns", allHistRuns);
+        writer.writeInt("allHistFailures", allHistFailures);
+        writer.writeIntArray("buildIds", Arrays.copyOf(buildIds, size));
+        writer.writeByteArray("statuses", Arrays.copyOf(statuses, size));
+        writer.writeByteArray("changes", Arrays.copyOf(changes, size));
+        writer.writeLongArray("startDates", Arrays.copyOf(startDates, size));
+
+        aggregates.writeBinary(writer);
+    }
+
+    /** {@inheritDoc} */
+    @Override public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        allHistRuns = reader.readInt("allHistRuns");
+        allHistFailures = reader.readInt("allHistFailures");
+
+        int[] ids = reader.readIntArray("buildIds");
+
+        if (ids != null) {
+            buildIds = ids;
+            statuses = reader.readByteArray("statuses");
+            changes = reader.readByteArray("changes");
+            startDates = reader.readLongArray("startDates");
+            size = ids.length;
+        }
+        else {
+            // Entry saved before packed format was introduced.
+            Map<Integer, Invocation> invocationMap = reader.readObject("invocationMap");
+
+            List<Invocation> invocations = invocationMap == null
+                ? new ArrayList<>()
+                : new ArrayList<>(invocationMap.values());
+
+            buildIds = EMPTY_INTS;
+            statuses = EMPTY_BYTES;
+            changes = EMPTY_BYTES;
+            startDates = EMPTY_LONGS;
+            size = 0;
+
+            for (Invocation inv : invocations) {
+                int idx = Arrays.binarySearch(buildIds, 0, size, inv.buildId());
+
+                if (idx < 0)
+                    insert(-(idx + 1), inv);
+            }
+        }
+
+        aggregates = new DailyAggregates();
+        aggregates.readBinary(reader);
+
+        modCnt++;
+
+        recount();
+    }
+
+    /**
+     * Recalculates counters and minimal start date using stored invocations.
+     */
+    private void recount() {
+        notMutedRuns = 0;
+        failures = 0;
+        criticalFailures = 0;
+        minStartDate = Long.MAX_VALUE;
+
+        for (int i = 0; i < size; i++) {
+            count(statuses[i], 1);
+
+            minStartDate = Math.min(minStartDate, startDates[i]);
+        }
     }
 
     /** {@inheritDoc} */
@@ -150,7 +507,8 @@ public class InvocationData {
         return MoreObjects.toStringHelper(this)
             .add("allHistRuns", allHistRuns)
             .add("allHistFailures", allHistFailures)
-            .add("invocationMap", invocationMap)
+            .add("invocations", IntStream.range(0, size).mapToObj(this::invocation).toArray())
+            .add("aggregatedDays", aggregates.size())
             .toString();
     }
 
@@ -163,27 +521,57 @@ public class InvocationData {
         InvocationData data = (InvocationData)o;
         return allHistRuns == data.allHistRuns &&
             allHistFailures == data.allHistFailures &&
-            Objects.equals(invocationMap, data.invocationMap);
+            size == data.size &&
+            Arrays.equals(Arrays.copyOf(buildIds, size), Arrays.copyOf(data.buildIds, size)) &&
+            Arrays.equals(Arrays.copyOf(statuses, size), Arrays.copyOf(data.statuses, size)) &&
+            Arrays.equals(Arrays.copyOf(changes, size), Arrays.copyOf(data.changes, size)) &&
+            Arrays.equals(Arrays.copyOf(startDates, size), Arrays.copyOf(data.startDates, size)) &&
+            aggregates.equals(data.aggregates);
     }
 
     /** {@inheritDoc} */
     @Override public int hashCode() {
-        return Objects.hash(allHistRuns, allHistFailures, invocationMap);
+        int res = 31 * allHistRuns + allHistFailures;
+
+        for (int i = 0; i < size; i++)
+            res = 31 * res + buildIds[i];
+
+        return 31 * res + aggregates.hashCode();
     }
 
     /**
      *
      */
     public List<Integer> getLatestRuns() {
-        return invocations()
-            .map(i -> (int)i.status())
-            .collect(Collectors.toList());
+        List<Integer> res = new ArrayList<>(size);
+        long expireBefore = expireBefore();
+
+        for (int i = 0; i < size; i++) {
+            if (startDates[i] >= expireBefore)
+                res.add((int)statuses[i]);
+        }
+
+        return res;
     }
 
     /**
      *
      */
     public int criticalFailuresCount() {
-        return (int)invocations().filter(inv -> inv.status() == CRITICAL_FAILURE).count();
+        if (minStartDate >= expireBefore())
+            return criticalFailures;
+
+        return countActual(st -> st == CRITICAL_FAILURE);
+    }
+
+    /**
+     * Predicate for primitive status, avoids boxing.
+     */
+    @FunctionalInterface
+    private interface StatusPredicate {
+        /**
+         * @param status Status.
+         */
+        boolean test(byte status);
     }
 }
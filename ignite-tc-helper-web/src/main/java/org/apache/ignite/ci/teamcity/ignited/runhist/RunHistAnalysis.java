@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.runhist;
+
+/**
+ * Results of {@link RunHistAnalyzer} for a version of run history.
+ */
+class RunHistAnalysis {
+    /** Modification counter of invocations analyzed. */
+    private final int modCnt;
+
+    /** Results are actual until this timestamp, when the eldest analyzed invocation expires. */
+    private final long validUntil;
+
+    /** Actual invocations analyzed. */
+    private final int runs;
+
+    /** Status changes without code modifications. */
+    private final int statusChanges;
+
+    /** Build ID of central event for each bulk template, {@link RunHistAnalyzer#NOT_DETECTED} if not detected. */
+    private final int[] detected;
+
+    /**
+     * @param modCnt Modification counter.
+     * @param validUntil Valid until.
+     * @param runs Runs.
+     * @param statusChanges Status changes.
+     * @param detected Detected templates.
+     */
+    RunHistAnalysis(int modCnt, long validUntil, int runs, int statusChanges, int[] detected) {
+        this.modCnt = modCnt;
+        this.validUntil = validUntil;
+        this.runs = runs;
+        this.statusChanges = statusChanges;
+        this.detected = detected;
+    }
+
+    /**
+     * @param curModCnt Current modification counter of invocations.
+     * @param now Current timestamp.
+     */
+    boolean isActual(int curModCnt, long now) {
+        return modCnt == curModCnt && now < validUntil;
+    }
+
+    /**
+     * @return Actual invocations analyzed.
+     */
+    int runs() {
+        return runs;
+    }
+
+    /**
+     * @return Status changes without code modifications.
+     */
+    int statusChanges() {
+        return statusChanges;
+    }
+
+    /**
+     * @param templateIdx Template index in bulk templates.
+     * @return Build ID or {@link RunHistAnalyzer#NOT_DETECTED}.
+     */
+    int detected(int templateIdx) {
+        return detected[templateIdx];
+    }
+}
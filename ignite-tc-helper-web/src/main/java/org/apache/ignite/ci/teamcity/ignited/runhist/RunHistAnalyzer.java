@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.runhist;
+
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.ignite.ci.analysis.RunStat;
+import org.apache.ignite.ci.issue.EventTemplate;
+import org.apache.ignite.ci.issue.EventTemplates;
+import org.apache.ignite.ci.teamcity.ignited.IRunHistory;
+
+/**
+ * Bulk analyzer of run histories: counts status changes without code modifications (flakiness) and detects failure
+ * templates from {@link EventTemplates#templates} using one copy of actual invocations to primitive scratch arrays.
+ * Scratch arrays are reused between histories, so analyzer is not thread safe, use {@link #local()}. Results are
+ * cached in {@link RunHistCompacted} until history is modified or an invocation expires.
+ */
+public class RunHistAnalyzer {
+    /** Analyzer for current thread. */
+    private static final ThreadLocal<RunHistAnalyzer> LOCAL = ThreadLocal.withInitial(RunHistAnalyzer::new);
+
+    /** Marker of template which was not detected. */
+    static final int NOT_DETECTED = -1;
+
+    /** Templates analyzed in bulk. */
+    private final List<EventTemplate> templates = EventTemplates.templates;
+
+    /** Template status codes: before event and event and after. */
+    private final int[][] templateCodes;
+
+    /** Build IDs of actual invocations of current history. */
+    private int[] ids = new int[128];
+
+    /** Statuses of actual invocations of current history. */
+    private byte[] statuses = new byte[128];
+
+    /** Change present codes of actual invocations of current history. */
+    private byte[] changes = new byte[128];
+
+    /**
+     *
+     */
+    public RunHistAnalyzer() {
+        templateCodes = new int[templates.size()][];
+
+        for (int i = 0; i < templates.size(); i++)
+            templateCodes[i] = codes(templates.get(i));
+    }
+
+    /**
+     * @return Analyzer for current thread.
+     */
+    public static RunHistAnalyzer local() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Analyzes histories which have no actual analysis results cached. Should be called after loading a batch of
+     * histories, then {@link IRunHistory#getFlakyComments()} and {@link IRunHistory#detectTemplate(EventTemplate)}
+     * for templates from {@link EventTemplates#templates} use cached results.
+     *
+     * @param hists Histories, nulls and other implementations are skipped.
+     */
+    public void analyzeAll(Collection<? extends IRunHistory> hists) {
+        for (IRunHistory hist : hists) {
+            if (hist instanceof RunHistCompacted)
+                ((RunHistCompacted)hist).analysis(this);
+        }
+    }
+
+    /**
+     * @param data Invocations.
+     * @param allHistRuns Runs registered all the times.
+     * @return Analysis results.
+     */
+    RunHistAnalysis analyze(InvocationData data, int allHistRuns) {
+        long expireBefore = InvocationData.expireBefore();
+        int cnt = load(data, expireBefore);
+
+        int statusChanges = 0;
+
+        for (int i = 1; i < cnt; i++) {
+            if (statuses[i - 1] != statuses[i]
+                && changes[i] == Invocation.NO_CHANGES
+                && changes[i - 1] != Invocation.CHANGE_NOT_FILLED)
+                statusChanges++;
+        }
+
+        int[] detected = new int[templates.size()];
+
+        for (int t = 0; t < detected.length; t++)
+            detected[t] = detect(cnt, allHistRuns, templates.get(t), templateCodes[t]);
+
+        return new RunHistAnalysis(data.modificationCount(), data.actualUntil(expireBefore), cnt, statusChanges,
+            detected);
+    }
+
+    /**
+     * Detects template which is not analyzed in bulk.
+     *
+     * @param data Invocations.
+     * @param allHistRuns Runs registered all the times.
+     * @param t Template.
+     * @return Build ID of central event or null if template was not detected.
+     */
+    @Nullable Integer detectTemplate(InvocationData data, int allHistRuns, EventTemplate t) {
+        int cnt = load(data, InvocationData.expireBefore());
+        int buildId = detect(cnt, allHistRuns, t, codes(t));
+
+        return buildId == NOT_DETECTED ? null : buildId;
+    }
+
+    /**
+     * @param t Template.
+     * @return Template status codes.
+     */
+    private static int[] codes(EventTemplate t) {
+        int[] before = t.beforeEvent();
+        int[] after = t.eventAndAfter();
+        int[] res = new int[before.length + after.length];
+
+        System.arraycopy(before, 0, res, 0, before.length);
+        System.arraycopy(after, 0, res, before.length, after.length);
+
+        return res;
+    }
+
+    /**
+     * Copies actual invocations to scratch arrays.
+     *
+     * @param data Data.
+     * @param expireBefore Start dates before this timestamp are expired.
+     * @return Count of actual invocations.
+     */
+    private int load(InvocationData data, long expireBefore) {
+        int size = data.size();
+
+        if (ids.length < size) {
+            int cap = Math.max(size, ids.length * 2);
+
+            ids = new int[cap];
+            statuses = new byte[cap];
+            changes = new byte[cap];
+        }
+
+        return data.copyActual(expireBefore, ids, statuses, changes);
+    }
+
+    /**
+     * @param cnt Count of actual invocations in scratch arrays.
+     * @param allHistRuns Runs registered all the times.
+     * @param t Template.
+     * @param codes Template codes.
+     * @return Build ID of central event or {@link #NOT_DETECTED}.
+     */
+    private int detect(int cnt, int allHistRuns, EventTemplate t, int[] codes) {
+        if (cnt < codes.length)
+            return NOT_DETECTED;
+
+        int centralEvt = t.beforeEvent().length;
+
+        if (t.shouldBeFirst()) {
+            // Skip if total runs can't fit to latest runs.
+            if (cnt >= allHistRuns && matches(codes, 0))
+                return ids[centralEvt];
+
+            return NOT_DETECTED;
+        }
+
+        // Search from the end to find most recent.
+        for (int pos = cnt - codes.length; pos >= 0; pos--) {
+            if (matches(codes, pos))
+                return ids[pos + centralEvt];
+        }
+
+        return NOT_DETECTED;
+    }
+
+    /**
+     * @param codes Template codes.
+     * @param pos Position of template start in scratch arrays.
+     */
+    private boolean matches(int[] codes, int pos) {
+        for (int i = 0; i < codes.length; i++) {
+            int st = statuses[pos + i];
+            int code = codes[i];
+
+            if (st == code)
+                continue;
+
+            if (code == RunStat.RunStatus.RES_OK_OR_FAILURE.getCode()
+                && (st == InvocationData.OK || st == InvocationData.FAILURE))
+                continue;
+
+            return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.runhist;
+
+import com.google.common.util.concurrent.RateLimiter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import org.apache.ignite.ci.db.SyncBitmapDao;
+import org.apache.ignite.ci.db.SyncCheckpoint;
+import org.apache.ignite.ci.db.SyncCheckpointDao;
+import org.apache.ignite.ci.tcbot.TcBotSystemProperties;
+import org.apache.ignite.ci.util.ExceptionUtil;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads run history of builds which were saved without history (e.g. after DB restore or change of history depth).
+ * Builds are processed in ID order by chunks using own bounded pool and rate limit, backfill yields while write buffer
+ * of live builds is filled. Checkpoint is saved after each chunk, so interrupted backfill is resumed after restart.
+ */
+public class RunHistBackfill {
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(RunHistBackfill.class);
+
+    /** Builds per chunk, checkpoint is saved after each chunk. */
+    public static final int CHUNK_SIZE = 200;
+
+    /** Builds per task executed by worker thread. */
+    private static final int TASK_SIZE = 25;
+
+    /** Threads loading history. */
+    public static final int THREADS =
+        Integer.getInteger(TcBotSystemProperties.TEAMCITY_BOT_RUN_HIST_BACKFILL_THREADS, 2);
+
+    /** Max builds per second. */
+    public static final int RATE = Integer.getInteger(TcBotSystemProperties.TEAMCITY_BOT_RUN_HIST_BACKFILL_RATE, 10);
+
+    /** Fill of live builds write buffer, starting from which backfill is paused. */
+    public static final double YIELD_FILL = 0.25;
+
+    /** Pause of backfill while live builds are saved. */
+    private static final long YIELD_PAUSE_MS = 1000;
+
+    /** Run history sync, provider breaks injection cycle. */
+    @Inject private Provider<RunHistSync> histSync;
+
+    /** Checkpoints DAO. */
+    @Inject private SyncCheckpointDao checkpointDao;
+
+    /** Sync bitmaps DAO. */
+    @Inject private SyncBitmapDao bitmapDao;
+
+    /** Thread factory. */
+    private final ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+    /** Workers loading history, bounded. */
+    private final ExecutorService workers = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread thread = threadFactory.newThread(r);
+
+        thread.setName("runhist-backfill-" + thread.getName());
+
+        return thread;
+    });
+
+    /** Coordinators, one thread for each server with backfill running. */
+    private final ExecutorService coordinators = Executors.newCachedThreadPool(r -> {
+        Thread thread = threadFactory.newThread(r);
+
+        thread.setName("runhist-backfill-coord-" + thread.getName());
+
+        return thread;
+    });
+
+    /** Rate limiter shared by all servers. */
+    private final RateLimiter rateLimiter = RateLimiter.create(RATE);
+
+    /** Server name to progress of running or last completed backfill. */
+    private final ConcurrentMap<String, Progress> progress = new ConcurrentHashMap<>();
+
+    /** Server name to running backfill. */
+    private final ConcurrentMap<String, Future<?>> running = new ConcurrentHashMap<>();
+
+    /**
+     * Starts backfill if there is no backfill running for server.
+     *
+     * @param srvName Server name.
+     * @param buildIds Builds without history.
+     * @return {@code false} if backfill is already running.
+     */
+    public boolean start(String srvName, RoaringBitmap buildIds) {
+        synchronized (running) {
+            Future<?> fut = running.get(srvName);
+
+            if (fut != null && !fut.isDone())
+                return false;
+
+            running.put(srvName, coordinators.submit(() -> {
+                try {
+                    backfill(srvName, buildIds);
+                }
+                catch (Exception e) {
+                    logger.error("Run history backfill failed for " + srvName, e);
+
+                    Progress p = progress.get(srvName);
+
+                    if (p != null)
+                        p.err = e.getClass().getSimpleName() + ": " + e.getMessage();
+                }
+            }));
+
+            return true;
+        }
+    }
+
+    /**
+     * @param srvName Server name.
+     * @param buildIds Builds without history.
+     */
+    private void backfill(String srvName, RoaringBitmap buildIds) throws Exception {
+        String checkpointName = checkpointName(srvName);
+        SyncCheckpoint checkpoint = checkpointDao.init().getResumableOrNew(checkpointName);
+
+        if (checkpoint.nextPage() != null) {
+            // Builds before checkpoint were processed by interrupted backfill.
+            buildIds.remove(0L, Integer.toUnsignedLong(Integer.parseInt(checkpoint.nextPage())));
+        }
+
+        Progress p = new Progress(buildIds.getCardinality());
+
+        progress.put(srvName, p);
+
+        IntIterator it = buildIds.getIntIterator();
+
+        while (it.hasNext()) {
+            List<Integer> chunk = new ArrayList<>(CHUNK_SIZE);
+
+            while (it.hasNext() && chunk.size() < CHUNK_SIZE)
+                chunk.add(it.next());
+
+            yieldToLiveBuilds(srvName, p);
+
+            int saved = processChunk(srvName, chunk, p);
+
+            bitmapDao.flush();
+
+            String nextPage = it.hasNext() ? String.valueOf(chunk.get(chunk.size() - 1) + 1) : null;
+
+            checkpointDao.save(checkpointName, checkpoint.chunkProcessed(nextPage, chunk.size(), saved));
+        }
+
+        p.finishTs = System.currentTimeMillis();
+    }
+
+    /**
+     * Waits while write buffer of live builds is filled.
+     *
+     * @param srvName Server name.
+     * @param p Progress.
+     */
+    private void yieldToLiveBuilds(String srvName, Progress p) throws InterruptedException {
+        while (histSync.get().writeBufferFill(srvName) >= YIELD_FILL) {
+            p.yields.incrementAndGet();
+
+            Thread.sleep(YIELD_PAUSE_MS);
+        }
+    }
+
+    /**
+     * Splits chunk into tasks for workers and waits for completion.
+     *
+     * @param srvName Server name.
+     * @param chunk Build IDs, sorted.
+     * @param p Progress.
+     * @return Count of builds saved to history.
+     */
+    private int processChunk(String srvName, List<Integer> chunk, Progress p)
+        throws InterruptedException, ExecutionException {
+        List<Future<Integer>> futs = new ArrayList<>();
+
+        for (int from = 0; from < chunk.size(); from += TASK_SIZE) {
+            List<Integer> task = chunk.subList(from, Math.min(from + TASK_SIZE, chunk.size()));
+
+            futs.add(workers.submit(() -> {
+                rateLimiter.acquire(task.size());
+
+                int saved = histSync.get().saveBackfillChunk(srvName, task);
+
+                p.processed.addAndGet(task.size());
+                p.saved.addAndGet(saved);
+
+                return saved;
+            }));
+        }
+
+        int saved = 0;
+
+        for (Future<Integer> fut : futs)
+            saved += fut.get();
+
+        return saved;
+    }
+
+    /**
+     * @param srvName Server name.
+     */
+    private static String checkpointName(String srvName) {
+        return RunHistBackfill.class.getSimpleName() + "." + srvName;
+    }
+
+    /**
+     * Waits for completion of running backfill.
+     *
+     * @param srvName Server name.
+     * @param timeout Timeout.
+     * @param unit Timeout unit.
+     * @return {@code true} if there is no backfill running.
+     */
+    public boolean awaitCompletion(String srvName, long timeout, TimeUnit unit) {
+        Future<?> fut = running.get(srvName);
+
+        if (fut == null)
+            return true;
+
+        try {
+            fut.get(timeout, unit);
+
+            return true;
+        }
+        catch (TimeoutException e) {
+            return false;
+        }
+        catch (InterruptedException | ExecutionException e) {
+            throw ExceptionUtil.propagateException(e);
+        }
+    }
+
+    /**
+     * @return Server name to progress of running or last completed backfill.
+     */
+    public Map<String, Progress> progress() {
+        return new TreeMap<>(progress);
+    }
+
+    /**
+     * Stops backfill, interrupted backfill will be resumed from checkpoint.
+     */
+    public void stop() {
+        coordinators.shutdownNow();
+        workers.shutdownNow();
+
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Progress of backfill for a server.
+     */
+    public static class Progress {
+        /** Builds to process. */
+        private final int total;
+
+        /** Builds processed. */
+        private final AtomicInteger processed = new AtomicInteger();
+
+        /** Builds saved to history. */
+        private final AtomicInteger saved = new AtomicInteger();
+
+        /** Pauses made to let live builds be saved. */
+        private final AtomicInteger yields = new AtomicInteger();
+
+        /** Start timestamp. */
+        private final long startTs = System.currentTimeMillis();
+
+        /** Finish timestamp, 0 if backfill is in progress. */
+        private volatile long finishTs;
+
+        /** Error, if backfill failed. */
+        private volatile String err;
+
+        /**
+         * @param total Builds to process.
+         */
+        Progress(int total) {
+            this.total = total;
+        }
+
+        /** */
+        public int total() {
+            return total;
+        }
+
+        /** */
+        public int processed() {
+            return processed.get();
+        }
+
+        /** */
+        public int saved() {
+            return saved.get();
+        }
+
+        /** */
+        public int yields() {
+            return yields.get();
+        }
+
+        /** */
+        public long startTs() {
+            return startTs;
+        }
+
+        /** */
+        public long finishTs() {
+            return finishTs;
+        }
+
+        /** */
+        public String error() {
+            return err;
+        }
+
+        /**
+         * @return Builds processed per second.
+         */
+        public double rate() {
+            long end = finishTs == 0 ? System.currentTimeMillis() : finishTs;
+
+            return processed() * 1000.0 / Math.max(1, end - startTs);
+        }
+
+        /**
+         * @return Estimated milliseconds left, 0 if backfill is finished, -1 if it is unknown.
+         */
+        public long etaMs() {
+            if (finishTs != 0)
+                return 0;
+
+            double rate = rate();
+
+            if (rate <= 0)
+                return -1;
+
+            return (long)((total - processed()) * 1000 / rate);
+        }
+    }
+}
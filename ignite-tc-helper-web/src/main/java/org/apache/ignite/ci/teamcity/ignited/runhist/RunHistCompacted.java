@@ -20,13 +20,13 @@ package org.apache.ignite.ci.teamcity.ignited.runhist;
 import com.google.common.base.MoreObjects;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.apache.ignite.ci.analysis.IVersionedEntity;
-import org.apache.ignite.ci.analysis.RunStat;
 import org.apache.ignite.ci.db.Persisted;
 import org.apache.ignite.ci.issue.EventTemplate;
+import org.apache.ignite.ci.issue.EventTemplates;
 import org.apache.ignite.ci.teamcity.ignited.IRunHistory;
+import org.apache.ignite.internal.util.typedef.internal.U;
 
 /**
  *
@@ -43,6 +43,9 @@ public class RunHistCompacted implements IVersionedEntity, IRunHistory {
     /** Data. */
     private InvocationData data = new InvocationData();
 
+    /** Cached analysis of invocations, not persisted. */
+    @Nullable private transient volatile RunHistAnalysis analysis;
+
     public RunHistCompacted() {
     }
 
@@ -88,27 +91,36 @@ public class RunHistCompacted implements IVersionedEntity, IRunHistory {
 
     /** {@inheritDoc} */
     @Override public String getFlakyComments() {
-        int statusChange = 0;
+        RunHistAnalysis analysis = analysis(RunHistAnalyzer.local());
 
-        Invocation prev = null;
+        if (analysis.statusChanges() < 1)
+            return null;
 
-        List<Invocation> latestRuns = data.invocations().collect(Collectors.toList());
+        return "Test seems to be flaky: " +
+            "changed its status [" + analysis.statusChanges() + "/" + analysis.runs() + "] without code modifications";
+    }
 
-        for (Invocation cur : latestRuns) {
-            if (prev != null && cur != null) {
-                if (prev.status() != cur.status()
-                    && cur.changesState() == ChangesState.NONE
-                    && prev.changesState() != ChangesState.UNKNOWN)
-                    statusChange++;
-            }
-            prev = cur;
-        }
+    /**
+     * @return Invocations data.
+     */
+    InvocationData data() {
+        return data;
+    }
 
-        if (statusChange < 1)
-            return null;
+    /**
+     * @param analyzer Analyzer to be used if there is no actual cached analysis.
+     * @return Analysis of actual invocations.
+     */
+    RunHistAnalysis analysis(RunHistAnalyzer analyzer) {
+        RunHistAnalysis res = analysis;
 
-        return "Test seems to be flaky: " +
-            "changed its status [" + statusChange + "/" + latestRuns.size() + "] without code modifications";
+        if (res == null || !res.isActual(data.modificationCount(), U.currentTimeMillis())) {
+            res = analyzer.analyze(data, getRunsAllHist());
+
+            analysis = res;
+        }
+
+        return res;
     }
 
     /** {@inheritDoc} */
@@ -116,6 +128,27 @@ public class RunHistCompacted implements IVersionedEntity, IRunHistory {
         return data.criticalFailuresCount();
     }
 
+    /**
+     * @param since Window start timestamp, inclusive.
+     * @param until Window end timestamp, exclusive.
+     * @return Run statistics for window: exact for recent {@link InvocationData#MAX_DAYS} days and with day
+     * granularity for older runs kept as daily aggregates.
+     */
+    public RunHistWindowStat getStatBetween(long since, long until) {
+        RunHistWindowStat stat = new RunHistWindowStat();
+
+        data.collectStats(since, until, stat);
+
+        return stat;
+    }
+
+    /**
+     * @return Start timestamp of the latest run, for aggregated runs start of the day is used; 0 if there are no runs.
+     */
+    public long newestRunTs() {
+        return data.newestStartDate();
+    }
+
     /**
      * @param inv Invocation.
      * @return if test run is new and is not expired.
@@ -124,70 +157,23 @@ public class RunHistCompacted implements IVersionedEntity, IRunHistory {
         return data.addInvocation(inv);
     }
 
-    private static int[] concatArr(int[] arr1, int[] arr2) {
-        int[] arr1and2 = new int[arr1.length + arr2.length];
-        System.arraycopy(arr1, 0, arr1and2, 0, arr1.length);
-        System.arraycopy(arr2, 0, arr1and2, arr1.length, arr2.length);
-
-        return arr1and2;
-    }
-
+    /**
+     * @param t Template.
+     * @return Build ID of central event of the most recent template occurrence, or null if not detected.
+     */
     @Nullable
     public Integer detectTemplate(EventTemplate t) {
         if (data == null)
             return null;
 
-        int centralEvtBuild = t.beforeEvent().length;
-
-        int[] template = concatArr(t.beforeEvent(), t.eventAndAfter());
-
-        assert centralEvtBuild < template.length;
-        assert centralEvtBuild >= 0;
-
-        List<Invocation> histAsArr = data.invocations().collect(Collectors.toList());
-
-        if (histAsArr.size() < template.length)
-            return null;
-
-        Integer detectedAt = null;
-        if (t.shouldBeFirst()) {
-            if (histAsArr.size() >= getRunsAllHist()) // skip if total runs can't fit to latest runs
-                detectedAt = checkTemplateAtPos(template, centralEvtBuild, histAsArr, 0);
-        }
-        else {
-            //startIgnite from the end to find most recent
-            for (int idx = histAsArr.size() - template.length; idx >= 0; idx--) {
-                detectedAt = checkTemplateAtPos(template, centralEvtBuild, histAsArr, idx);
-
-                if (detectedAt != null)
-                    break;
-            }
-        }
+        int idx = EventTemplates.templates.indexOf(t);
 
-        return detectedAt;
-    }
+        if (idx < 0)
+            return RunHistAnalyzer.local().detectTemplate(data, getRunsAllHist(), t);
 
-    @Nullable
-    private static Integer checkTemplateAtPos(int[] template, int centralEvtBuild, List<Invocation> histAsArr,
-        int idx) {
-        for (int tIdx = 0; tIdx < template.length; tIdx++) {
-            Invocation curStatus = histAsArr.get(idx + tIdx);
-
-            if (curStatus == null)
-                break;
-
-            RunStat.RunStatus tmpl = RunStat.RunStatus.byCode(template[tIdx]);
-
-            if ((tmpl == RunStat.RunStatus.RES_OK_OR_FAILURE && (curStatus.status() == InvocationData.OK || curStatus.status() == InvocationData.FAILURE))
-                || curStatus.status() == tmpl.getCode()) {
-                if (tIdx == template.length - 1)
-                    return histAsArr.get(idx + centralEvtBuild).buildId();
-            }
-            else
-                break;
-        }
+        int buildId = analysis(RunHistAnalyzer.local()).detected(idx);
 
-        return null;
+        return buildId == RunHistAnalyzer.NOT_DETECTED ? null : buildId;
     }
 
     /** {@inheritDoc} */
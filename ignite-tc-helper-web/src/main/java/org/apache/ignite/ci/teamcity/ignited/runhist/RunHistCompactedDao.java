@@ -17,9 +17,19 @@
 
 package org.apache.ignite.ci.teamcity.ignited.runhist;
 
+import java.io.Serializable;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 import javax.cache.Cache;
 import javax.cache.processor.MutableEntry;
 import javax.inject.Inject;
@@ -27,18 +37,34 @@ import javax.inject.Provider;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.IgniteCluster;
+import org.apache.ignite.IgniteInterruptedException;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.cache.CacheEntryProcessor;
 import org.apache.ignite.cache.QueryEntity;
+import org.apache.ignite.cache.query.FieldsQueryCursor;
 import org.apache.ignite.cache.query.QueryCursor;
-import org.apache.ignite.cache.query.SqlQuery;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.apache.ignite.cache.query.SqlFieldsQuery;
+import org.apache.ignite.ci.analysis.SuiteInBranch;
+import org.apache.ignite.ci.analysis.TestInBranch;
+import org.apache.ignite.ci.db.ServerCaches;
+import org.apache.ignite.ci.db.ServerKeyScanner;
+import org.apache.ignite.ci.db.SyncBitmapDao;
 import org.apache.ignite.ci.db.TcHelperDb;
 import org.apache.ignite.ci.di.AutoProfiling;
 import org.apache.ignite.ci.di.cache.GuavaCached;
 import org.apache.ignite.ci.teamcity.ignited.IRunHistory;
 import org.apache.ignite.ci.teamcity.ignited.IRunStat;
 import org.apache.ignite.ci.teamcity.ignited.IStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.buildref.BuildRefDao;
 import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.internal.binary.BinaryObjectImpl;
+import org.apache.ignite.lang.IgniteBiPredicate;
+import org.apache.ignite.lang.IgniteCallable;
+import org.apache.ignite.resources.IgniteInstanceResource;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.roaringbitmap.RoaringBitmap;
 
 import static org.apache.ignite.ci.teamcity.ignited.runhist.RunHistSync.normalizeBranch;
 
@@ -55,6 +81,15 @@ public class RunHistCompactedDao {
     /** Suites history Cache name. */
     public static final String SUITE_HIST_CACHE_NAME = "teamcitySuiteRunHist";
 
+    /** Max entries to be updated by one invokeAll. */
+    private static final int INVOKE_BATCH = 2000;
+
+    /** Pause between partitions processed by vacuum, leaves cache throughput to sync loaders. */
+    private static final long VACUUM_PARTITION_PAUSE_MS = 100;
+
+    /** Approximate size of build start time entry payload: key and value. */
+    private static final int START_TIME_ENTRY_BYTES = 16;
+
     /** Ignite provider. */
     @Inject
     private Provider<Ignite> igniteProvider;
@@ -65,12 +100,21 @@ public class RunHistCompactedDao {
     /** Suite history cache. */
     private IgniteCache<RunHistKey, RunHistCompacted> suiteHistCache;
 
-    /** Build start time. */
-    private IgniteCache<Long, Long> buildStartTime;
+    /** Build start time caches. */
+    private ServerCaches<Long> buildStartTimeCaches;
 
     /** Compactor. */
     @Inject private IStringCompactor compactor;
 
+    /** Sync bitmaps DAO. */
+    @Inject private SyncBitmapDao bitmapDao;
+
+    /** Build reference DAO. */
+    @Inject private BuildRefDao buildRefDao;
+
+    /** Scanner. */
+    @Inject private ServerKeyScanner scanner;
+
     /**
      * Initialize
      */
@@ -89,7 +133,9 @@ public class RunHistCompactedDao {
 
         suiteHistCache = ignite.getOrCreateCache(cfg2);
 
-        buildStartTime = ignite.getOrCreateCache(TcHelperDb.getCacheV2Config(BUILD_START_TIME_CACHE_NAME));
+        buildStartTimeCaches = new ServerCaches<>(ignite, BUILD_START_TIME_CACHE_NAME, TcHelperDb::getCacheV2Config);
+
+        bitmapDao.init();
     }
 
     @GuavaCached(maximumSize = 200, expireAfterAccessSecs = 30, softValues = true)
@@ -101,6 +147,75 @@ public class RunHistCompactedDao {
         return testHistCache.get(key);
     }
 
+    /**
+     * Loads histories of several tests using one cache request, loaded histories are analyzed in bulk.
+     *
+     * @param srvIdMaskHigh Server id mask high.
+     * @param tests Tests in branches.
+     * @return Histories found, tests without history are not included.
+     */
+    @AutoProfiling
+    @NotNull public Map<TestInBranch, IRunHistory> getTestRunHists(int srvIdMaskHigh,
+        Collection<TestInBranch> tests) {
+        Map<TestInBranch, RunHistKey> keys = new HashMap<>();
+
+        for (TestInBranch test : tests) {
+            RunHistKey key = getKey(srvIdMaskHigh, test.name, test.branch);
+
+            if (key != null)
+                keys.put(test, key);
+        }
+
+        return getAll(testHistCache, keys);
+    }
+
+    /**
+     * Loads histories of several suites using one cache request, loaded histories are analyzed in bulk.
+     *
+     * @param srvId Server id mask high.
+     * @param suites Suites in branches.
+     * @return Histories found, suites without history are not included.
+     */
+    @AutoProfiling
+    @NotNull public Map<SuiteInBranch, IRunHistory> getSuiteRunHists(int srvId, Collection<SuiteInBranch> suites) {
+        Map<SuiteInBranch, RunHistKey> keys = new HashMap<>();
+
+        for (SuiteInBranch suite : suites) {
+            RunHistKey key = getKey(srvId, suite.getSuiteId(), suite.branch);
+
+            if (key != null)
+                keys.put(suite, key);
+        }
+
+        return getAll(suiteHistCache, keys);
+    }
+
+    /**
+     * @param cache Cache.
+     * @param keys Cache keys by requested key.
+     * @return Histories by requested key.
+     */
+    private static <K> Map<K, IRunHistory> getAll(IgniteCache<RunHistKey, RunHistCompacted> cache,
+        Map<K, RunHistKey> keys) {
+        if (keys.isEmpty())
+            return Collections.emptyMap();
+
+        Map<RunHistKey, RunHistCompacted> loaded = cache.getAll(new HashSet<>(keys.values()));
+
+        RunHistAnalyzer.local().analyzeAll(loaded.values());
+
+        Map<K, IRunHistory> res = new HashMap<>();
+
+        keys.forEach((k, key) -> {
+            RunHistCompacted hist = loaded.get(key);
+
+            if (hist != null)
+                res.put(k, hist);
+        });
+
+        return res;
+    }
+
     @Nullable public RunHistKey getKey(int srvIdMaskHigh, String testOrSuiteName, @Nullable String branch) {
         final Integer testName = compactor.getStringIdIfPresent(testOrSuiteName);
         if (testName == null)
@@ -121,37 +236,194 @@ public class RunHistCompactedDao {
         return (long)buildId | srvId << 32;
     }
 
+    /**
+     * @param srvId Server id mask high.
+     * @return Cache containing build start times of the server.
+     */
+    private IgniteCache<Long, Long> buildStartTime(int srvId) {
+        return buildStartTimeCaches.get(srvId);
+    }
+
     @AutoProfiling
     public boolean buildWasProcessed(int srvId, int buildId) {
-        return buildStartTime.containsKey(buildIdToCacheKey(srvId, buildId));
+        return buildStartTime(srvId).containsKey(buildIdToCacheKey(srvId, buildId));
     }
 
     @Nullable public Long getBuildStartTime(int srvId, int buildId) {
-        return buildStartTime.get(buildIdToCacheKey(srvId, buildId));
+        return buildStartTime(srvId).get(buildIdToCacheKey(srvId, buildId));
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @param buildIds Build IDs.
+     * @return Build ID -> start time, for builds processed into history.
+     */
+    public Map<Integer, Long> getBuildStartTimes(int srvId, Collection<Integer> buildIds) {
+        Set<Long> keys = buildIds.stream()
+            .map(buildId -> buildIdToCacheKey(srvId, buildId))
+            .collect(Collectors.toCollection(TreeSet::new));
+
+        Map<Integer, Long> res = new HashMap<>();
+
+        buildStartTime(srvId).getAll(keys).forEach((key, ts) -> res.put(BuildRefDao.cacheKeyToBuildId(key), ts));
+
+        return res;
     }
 
     @AutoProfiling
     public boolean setBuildProcessed(int srvId, int buildId, long ts) {
-        return buildStartTime.putIfAbsent(buildIdToCacheKey(srvId, buildId), ts);
+        boolean processedNow = buildStartTime(srvId).putIfAbsent(buildIdToCacheKey(srvId, buildId), ts);
+
+        if (processedNow) {
+            bitmapDao.add(srvId, SyncBitmapDao.Kind.HIST_PROCESSED, buildId);
+
+            buildRefDao.startTimeSaved(srvId, buildId, ts);
+        }
+
+        return processedNow;
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @return Bitmap of IDs of builds processed into history or too old for it, may miss some recently processed
+     * builds.
+     */
+    public RoaringBitmap getProcessedBuildsBitmap(int srvId) {
+        return bitmapDao.get(srvId, SyncBitmapDao.Kind.HIST_PROCESSED, () -> getProcessedBuilds(srvId));
+    }
+
+    /**
+     * Adds processed builds missing in bitmap, e.g. not flushed before crash. Uses key scan.
+     *
+     * @param srvId Server id mask high.
+     * @return Count of builds which were missing in bitmap.
+     */
+    public int mergeProcessedBuildsBitmap(int srvId) {
+        return bitmapDao.merge(srvId, SyncBitmapDao.Kind.HIST_PROCESSED, () -> getProcessedBuilds(srvId));
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @return IDs of all builds processed into history for server.
+     */
+    private int[] getProcessedBuilds(int srvId) {
+        return scanner.scanKeys("RunHistCompactedDao.getProcessedBuilds", buildStartTime(srvId), srvId).stream()
+            .mapToInt(Long::intValue)
+            .toArray();
     }
 
+    /**
+     * Marks builds as processed using one {@code invokeAll} per batch of builds, keys are sorted.
+     *
+     * @param srvId Server id mask high.
+     * @param startTimes Build ID to build start timestamp.
+     * @return IDs of builds marked as processed by this call, builds processed before are skipped.
+     */
     @AutoProfiling
-    public Integer addTestInvocations(RunHistKey histKey, List<Invocation> list) {
-        if (list.isEmpty())
-            return 0;
+    public Set<Integer> setBuildsProcessed(int srvId, Map<Integer, Long> startTimes) {
+        SortedMap<Long, PutIfAbsentProcessor> processors = new TreeMap<>();
+
+        startTimes.forEach((buildId, ts) -> processors.put(buildIdToCacheKey(srvId, buildId),
+            new PutIfAbsentProcessor(ts)));
+
+        Set<Integer> processedNow = new HashSet<>();
+
+        invokeAll(buildStartTime(srvId), processors).forEach((key, processed) -> {
+            if (Boolean.TRUE.equals(processed))
+                processedNow.add(BuildRefDao.cacheKeyToBuildId(key));
+        });
+
+        for (Integer buildId : processedNow) {
+            bitmapDao.add(srvId, SyncBitmapDao.Kind.HIST_PROCESSED, buildId);
+
+            buildRefDao.startTimeSaved(srvId, buildId, startTimes.get(buildId));
+        }
 
-        return testHistCache.invoke(histKey, RunHistCompactedDao::processEntry, list);
+        return processedNow;
     }
 
+    /**
+     * @param invocations Invocations of tests to be added to history.
+     * @return Count of invocations added, duplicates and expired invocations are skipped.
+     */
     @AutoProfiling
-    public Integer addSuiteInvocations(RunHistKey histKey, List<Invocation> list) {
-        if (list.isEmpty())
-            return 0;
+    public int addTestInvocations(Map<RunHistKey, List<Invocation>> invocations) {
+        return addInvocations(testHistCache, invocations);
+    }
 
-        return suiteHistCache.invoke(histKey, RunHistCompactedDao::processEntry, list);
+    /**
+     * @param invocations Invocations of suites to be added to history.
+     * @return Count of invocations added, duplicates and expired invocations are skipped.
+     */
+    @AutoProfiling
+    public int addSuiteInvocations(Map<RunHistKey, List<Invocation>> invocations) {
+        return addInvocations(suiteHistCache, invocations);
     }
 
-    @NotNull public static Integer processEntry(MutableEntry<RunHistKey, RunHistCompacted> entry, Object[] parms) {
+    /**
+     * @param cache Cache.
+     * @param invocations Invocations to be added.
+     */
+    private static int addInvocations(IgniteCache<RunHistKey, RunHistCompacted> cache,
+        Map<RunHistKey, List<Invocation>> invocations) {
+        SortedMap<RunHistKey, AddInvocationsProcessor> processors = new TreeMap<>();
+
+        invocations.forEach((key, list) -> {
+            if (!list.isEmpty())
+                processors.put(key, new AddInvocationsProcessor(list));
+        });
+
+        return invokeAll(cache, processors).values().stream()
+            .mapToInt(cnt -> cnt == null ? 0 : cnt)
+            .sum();
+    }
+
+    /**
+     * Invokes processors in batches of {@link #INVOKE_BATCH} keys, keys are sent in ascending order to keep lock
+     * acquisition order the same for concurrent updates.
+     *
+     * @param cache Cache.
+     * @param processors Processors for keys, sorted.
+     * @return Key to processor result.
+     */
+    private static <K, V, T> Map<K, T> invokeAll(IgniteCache<K, V> cache,
+        SortedMap<K, ? extends CacheEntryProcessor<K, V, T>> processors) {
+        Map<K, T> res = new HashMap<>();
+        Map<K, CacheEntryProcessor<K, V, T>> batch = new LinkedHashMap<>();
+
+        for (Map.Entry<K, ? extends CacheEntryProcessor<K, V, T>> e : processors.entrySet()) {
+            batch.put(e.getKey(), e.getValue());
+
+            if (batch.size() >= INVOKE_BATCH) {
+                invokeBatch(cache, batch, res);
+
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty())
+            invokeBatch(cache, batch, res);
+
+        return res;
+    }
+
+    /**
+     * @param cache Cache.
+     * @param batch Processors for keys.
+     * @param res Results to be filled.
+     */
+    private static <K, V, T> void invokeBatch(IgniteCache<K, V> cache, Map<K, CacheEntryProcessor<K, V, T>> batch,
+        Map<K, T> res) {
+        cache.invokeAll(batch).forEach((key, procRes) -> res.put(key, procRes.get()));
+    }
+
+    /**
+     * @param entry Entry.
+     * @param invocationList Invocations to add.
+     * @return Count of invocations added.
+     */
+    @NotNull public static Integer processEntry(MutableEntry<RunHistKey, RunHistCompacted> entry,
+        List<Invocation> invocationList) {
         int cnt = 0;
 
         RunHistCompacted hist = entry.getValue();
@@ -161,8 +433,6 @@ public class RunHistCompactedDao {
 
         int initHashCode = hist.hashCode();
 
-        List<Invocation> invocationList = (List<Invocation>)parms[0];
-
         for (Invocation invocation : invocationList) {
             if (hist.addInvocation(invocation))
                 cnt++;
@@ -174,6 +444,57 @@ public class RunHistCompactedDao {
         return cnt;
     }
 
+    /**
+     * Applies all invocations of one test or suite to run history entry.
+     */
+    private static class AddInvocationsProcessor implements CacheEntryProcessor<RunHistKey, RunHistCompacted, Integer> {
+        /** Serial version uid. */
+        private static final long serialVersionUID = 0L;
+
+        /** Invocations. */
+        private final List<Invocation> invocations;
+
+        /**
+         * @param invocations Invocations.
+         */
+        AddInvocationsProcessor(List<Invocation> invocations) {
+            this.invocations = invocations;
+        }
+
+        /** {@inheritDoc} */
+        @Override public Integer process(MutableEntry<RunHistKey, RunHistCompacted> entry, Object... args) {
+            return processEntry(entry, invocations);
+        }
+    }
+
+    /**
+     * Saves build start time if build was not processed yet.
+     */
+    private static class PutIfAbsentProcessor implements CacheEntryProcessor<Long, Long, Boolean> {
+        /** Serial version uid. */
+        private static final long serialVersionUID = 0L;
+
+        /** Build start timestamp. */
+        private final long ts;
+
+        /**
+         * @param ts Build start timestamp.
+         */
+        PutIfAbsentProcessor(long ts) {
+            this.ts = ts;
+        }
+
+        /** {@inheritDoc} */
+        @Override public Boolean process(MutableEntry<Long, Long> entry, Object... args) {
+            if (entry.exists())
+                return false;
+
+            entry.setValue(ts);
+
+            return true;
+        }
+    }
+
     /**
      * @param srvId Server id.
      * @param suiteId Suite id.
@@ -188,34 +509,393 @@ public class RunHistCompactedDao {
         return suiteHistCache.get(key);
     }
 
+    /**
+     * Aggregates suite runs in all branches. Each data node selects histories of the suite in its primary partitions
+     * using {@code tstAndSrv} index and reduces them, only run counts are returned to caller.
+     *
+     * @param srvIdMaskHigh Server id mask high.
+     * @param btId Suite build type id.
+     */
+    @AutoProfiling
     public IRunStat getSuiteRunStatAllBranches(int srvIdMaskHigh, String btId) {
         final Integer testName = compactor.getStringIdIfPresent(btId);
         if (testName == null)
             return null;
 
-        AtomicInteger runs = new AtomicInteger();
-        AtomicInteger failures = new AtomicInteger();
-        try (QueryCursor<Cache.Entry<RunHistKey, RunHistCompacted>> qryCursor = suiteHistCache.query(
-            new SqlQuery<RunHistKey, RunHistCompacted>(RunHistCompacted.class, "testOrSuiteName = ? and srvId = ?")
-                .setArgs(testName, srvIdMaskHigh))) {
+        Ignite ignite = igniteProvider.get();
+        String cacheName = suiteHistCache.getName();
+
+        Collection<RunStatSummary> nodeStats = ignite.compute(ignite.cluster().forDataNodes(cacheName))
+            .broadcast(new RunStatSummaryJob(cacheName, srvIdMaskHigh, testName, InvocationData.expireBefore()));
+
+        RunStatSummary res = new RunStatSummary();
+
+        for (RunStatSummary stat : nodeStats)
+            res.add(stat);
+
+        return res;
+    }
+
+    /**
+     * Removes test and suite history entries of the server having no runs since timestamp.
+     *
+     * @param srvId Server id mask high.
+     * @param runBefore Entries with latest run started before this timestamp are removed.
+     * @return Entries and bytes reclaimed.
+     */
+    @AutoProfiling
+    public Reclaimed vacuumHistory(int srvId, long runBefore) {
+        Reclaimed res = new Reclaimed();
+
+        vacuumHistory(testHistCache, srvId, runBefore, res);
+        vacuumHistory(suiteHistCache, srvId, runBefore, res);
 
-            for (Cache.Entry<RunHistKey, RunHistCompacted> next : qryCursor) {
-                RunHistCompacted val = next.getValue();
+        return res;
+    }
 
-                runs.addAndGet(val.getRunsCount());
-                failures.addAndGet(val.getFailuresCount());
+    /**
+     * Scans cache partition by partition, each scan is executed on node owning the partition and returns only keys of
+     * stale entries. Entries are removed by entry processor which checks staleness again, so entry updated after scan
+     * is kept.
+     *
+     * @param cache Cache.
+     * @param srvId Server id mask high.
+     * @param runBefore Entries with latest run started before this timestamp are removed.
+     * @param res Reclaimed entries and bytes.
+     */
+    private void vacuumHistory(IgniteCache<RunHistKey, RunHistCompacted> cache, int srvId, long runBefore,
+        Reclaimed res) {
+        IgniteCache<BinaryObject, BinaryObject> binCache = cache.withKeepBinary();
+        int parts = igniteProvider.get().affinity(cache.getName()).partitions();
+
+        for (int part = 0; part < parts; part++) {
+            ScanQuery<BinaryObject, BinaryObject> qry = new ScanQuery<>(new StaleHistFilter(srvId, runBefore));
+
+            qry.setPartition(part);
+
+            Set<BinaryObject> keys = new HashSet<>();
+
+            try (QueryCursor<BinaryObject> cursor = binCache.query(qry, Cache.Entry::getKey)) {
+                for (BinaryObject key : cursor)
+                    keys.add(key);
             }
+
+            if (!keys.isEmpty()) {
+                binCache.invokeAll(keys, new RemoveStaleHistProcessor(runBefore)).values().forEach(procRes -> {
+                    Integer bytes = procRes.get();
+
+                    if (bytes != null)
+                        res.add(1, bytes);
+                });
+            }
+
+            pauseVacuum();
         }
+    }
 
-        return new IRunStat() {
-            @Override public int getRunsCount() {
-                return runs.get();
+    /**
+     * Removes start times of server builds started before timestamp. Such builds can't be added to run history.
+     * Timestamp should not be later than run history aggregates retention: start time entry also marks the build as
+     * processed into run history. Start times of removed entries are still available from fat builds.
+     *
+     * @param srvId Server id mask high.
+     * @param startedBefore Start times before this timestamp are removed.
+     * @return Entries and bytes reclaimed.
+     */
+    @AutoProfiling
+    public Reclaimed vacuumBuildStartTimes(int srvId, long startedBefore) {
+        Reclaimed res = new Reclaimed();
+        IgniteCache<Long, Long> cache = buildStartTime(srvId);
+        int parts = igniteProvider.get().affinity(cache.getName()).partitions();
+
+        for (int part = 0; part < parts; part++) {
+            IgniteBiPredicate<Long, Long> filter = (key, ts) -> key >> 32 == srvId && ts != null && ts < startedBefore;
+            ScanQuery<Long, Long> qry = new ScanQuery<>(filter);
+
+            qry.setPartition(part);
+
+            Set<Long> keys = new TreeSet<>();
+
+            try (QueryCursor<Long> cursor = cache.query(qry, Cache.Entry::getKey)) {
+                for (Long key : cursor)
+                    keys.add(key);
             }
 
-            @Override public int getFailuresCount() {
-                return failures.get();
+            if (!keys.isEmpty()) {
+                cache.removeAll(keys);
+
+                res.add(keys.size(), (long)keys.size() * START_TIME_ENTRY_BYTES);
             }
-        };
+
+            pauseVacuum();
+        }
+
+        return res;
+    }
+
+    /**
+     * Throttles vacuum.
+     */
+    private static void pauseVacuum() {
+        try {
+            Thread.sleep(VACUUM_PARTITION_PAUSE_MS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IgniteInterruptedException(e);
+        }
+    }
+
+    /**
+     * @param val Binary run history.
+     * @param runBefore Timestamp.
+     * @return {@code true} if history has no runs started since timestamp.
+     */
+    private static boolean isStale(BinaryObject val, long runBefore) {
+        BinaryObject data = val.field("data");
+
+        long[] startDates = data == null ? null : data.field("startDates");
+
+        if (startDates == null) // Saved before packed format, deserialization converts it.
+            return val.<RunHistCompacted>deserialize().newestRunTs() < runBefore;
+
+        for (long startDate : startDates) {
+            if (startDate >= runBefore)
+                return false;
+        }
+
+        return DailyAggregates.newestDayStart(data) < runBefore;
+    }
+
+    /**
+     * Reclaimed entries and bytes.
+     */
+    public static class Reclaimed {
+        /** Entries. */
+        private int entries;
+
+        /** Bytes. */
+        private long bytes;
+
+        /**
+         * @param entries Entries.
+         * @param bytes Bytes.
+         */
+        void add(int entries, long bytes) {
+            this.entries += entries;
+            this.bytes += bytes;
+        }
+
+        /**
+         * @return Entries reclaimed.
+         */
+        public int entries() {
+            return entries;
+        }
+
+        /**
+         * @return Bytes reclaimed: size of binary values, estimated for build start times.
+         */
+        public long bytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Run counts summary, result of partition reduce.
+     */
+    private static class RunStatSummary implements IRunStat, Serializable {
+        /** Serial version uid. */
+        private static final long serialVersionUID = 0L;
+
+        /** Runs. */
+        private int runs;
+
+        /** Failures. */
+        private int failures;
+
+        /**
+         * @param stat Statistics to add.
+         */
+        void add(IRunStat stat) {
+            add(stat.getRunsCount(), stat.getFailuresCount());
+        }
+
+        /**
+         * @param runs Runs to add.
+         * @param failures Failures to add.
+         */
+        void add(int runs, int failures) {
+            this.runs += runs;
+            this.failures += failures;
+        }
+
+        /** {@inheritDoc} */
+        @Override public int getRunsCount() {
+            return runs;
+        }
+
+        /** {@inheritDoc} */
+        @Override public int getFailuresCount() {
+            return failures;
+        }
+    }
+
+    /**
+     * Reduces histories of test or suite in all branches stored in primary partitions of local node. Runs and failures
+     * are counted using binary form of history entries.
+     */
+    private static class RunStatSummaryJob implements IgniteCallable<RunStatSummary> {
+        /** Serial version uid. */
+        private static final long serialVersionUID = 0L;
+
+        /** Ignite. */
+        @IgniteInstanceResource
+        private transient Ignite ignite;
+
+        /** Cache name. */
+        private final String cacheName;
+
+        /** Server id mask high. */
+        private final int srvId;
+
+        /** Test or suite name id. */
+        private final int testOrSuiteName;
+
+        /** Invocations started before this timestamp are expired. */
+        private final long expireBefore;
+
+        /**
+         * @param cacheName Cache name.
+         * @param srvId Server id mask high.
+         * @param testOrSuiteName Test or suite name id.
+         * @param expireBefore Invocations started before this timestamp are expired.
+         */
+        RunStatSummaryJob(String cacheName, int srvId, int testOrSuiteName, long expireBefore) {
+            this.cacheName = cacheName;
+            this.srvId = srvId;
+            this.testOrSuiteName = testOrSuiteName;
+            this.expireBefore = expireBefore;
+        }
+
+        /** {@inheritDoc} */
+        @Override public RunStatSummary call() {
+            RunStatSummary res = new RunStatSummary();
+            int[] parts = ignite.affinity(cacheName).primaryPartitions(ignite.cluster().localNode());
+
+            if (parts.length == 0)
+                return res;
+
+            IgniteCache<BinaryObject, BinaryObject> cache = ignite.cache(cacheName).withKeepBinary();
+
+            SqlFieldsQuery qry = new SqlFieldsQuery("select _val from RunHistCompacted " +
+                "where testOrSuiteName = ? and srvId = ?")
+                .setArgs(testOrSuiteName, srvId)
+                .setLocal(true)
+                .setPartitions(parts);
+
+            try (FieldsQueryCursor<List<?>> cursor = cache.query(qry)) {
+                for (List<?> row : cursor)
+                    add(res, (BinaryObject)row.get(0));
+            }
+
+            return res;
+        }
+
+        /**
+         * @param res Summary to add runs to.
+         * @param val Binary run history.
+         */
+        private void add(RunStatSummary res, BinaryObject val) {
+            BinaryObject data = val.field("data");
+            byte[] statuses = data == null ? null : data.field("statuses");
+            long[] startDates = data == null ? null : data.field("startDates");
+
+            if (statuses == null || startDates == null) { // Saved before packed format.
+                res.add(val.<RunHistCompacted>deserialize());
+
+                return;
+            }
+
+            int runs = 0;
+            int failures = 0;
+
+            for (int i = 0; i < statuses.length; i++) {
+                if (startDates[i] < expireBefore)
+                    continue;
+
+                if (statuses[i] != InvocationData.MUTED)
+                    runs++;
+
+                if (statuses[i] == InvocationData.FAILURE || statuses[i] == InvocationData.CRITICAL_FAILURE)
+                    failures++;
+            }
+
+            res.add(runs, failures);
+        }
+    }
+
+    /**
+     * Selects history entries of server having no runs since timestamp.
+     */
+    private static class StaleHistFilter implements IgniteBiPredicate<BinaryObject, BinaryObject> {
+        /** Serial version uid. */
+        private static final long serialVersionUID = 0L;
+
+        /** Server id mask high. */
+        private final int srvId;
+
+        /** Timestamp. */
+        private final long runBefore;
+
+        /**
+         * @param srvId Server id mask high.
+         * @param runBefore Timestamp.
+         */
+        StaleHistFilter(int srvId, long runBefore) {
+            this.srvId = srvId;
+            this.runBefore = runBefore;
+        }
+
+        /** {@inheritDoc} */
+        @Override public boolean apply(BinaryObject key, BinaryObject val) {
+            Integer keySrvId = key.field("srvId");
+
+            return keySrvId != null && keySrvId == srvId && val != null && isStale(val, runBefore);
+        }
+    }
+
+    /**
+     * Removes history entry if it is still stale, returns size of removed binary value.
+     */
+    private static class RemoveStaleHistProcessor implements CacheEntryProcessor<BinaryObject, BinaryObject, Integer> {
+        /** Serial version uid. */
+        private static final long serialVersionUID = 0L;
+
+        /** Timestamp. */
+        private final long runBefore;
+
+        /**
+         * @param runBefore Timestamp.
+         */
+        RemoveStaleHistProcessor(long runBefore) {
+            this.runBefore = runBefore;
+        }
+
+        /** {@inheritDoc} */
+        @Override public Integer process(MutableEntry<BinaryObject, BinaryObject> entry, Object... args) {
+            BinaryObject val = entry.getValue();
+
+            if (val == null || !isStale(val, runBefore))
+                return null;
+
+            int bytes = val instanceof BinaryObjectImpl ? ((BinaryObjectImpl)val).length() : 0;
+
+            entry.remove();
+
+            return bytes;
+        }
     }
 
     public void disableWal() {
@@ -23,7 +23,7 @@ import org.apache.ignite.cache.query.annotations.QuerySqlField;
 /**
  *
  */
-public class RunHistKey {
+public class RunHistKey implements Comparable<RunHistKey> {
     /** Server ID. */
     @QuerySqlField(orderedGroups = {@QuerySqlField.Group(name = "tstAndSrv", order = 1)})
     private int srvId;
@@ -63,6 +63,19 @@ public class RunHistKey {
         return Objects.hashCode(srvId, testOrSuiteName, branch);
     }
 
+    /** {@inheritDoc} */
+    @Override public int compareTo(RunHistKey o) {
+        int res = Integer.compare(srvId, o.srvId);
+
+        if (res == 0)
+            res = Integer.compare(testOrSuiteName, o.testOrSuiteName);
+
+        if (res == 0)
+            res = Integer.compare(branch, o.branch);
+
+        return res;
+    }
+
     /**
      *
      */
@@ -18,30 +18,35 @@
 package org.apache.ignite.ci.teamcity.ignited.runhist;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
-import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
 import org.apache.ignite.ci.ITeamcity;
+import org.apache.ignite.ci.db.SyncBitmapDao;
 import org.apache.ignite.ci.di.AutoProfiling;
 import org.apache.ignite.ci.di.MonitoredTask;
 import org.apache.ignite.ci.di.scheduler.IScheduler;
 import org.apache.ignite.ci.tcbot.TcBotSystemProperties;
 import org.apache.ignite.ci.teamcity.ignited.IStringCompactor;
 import org.apache.ignite.ci.teamcity.ignited.ITeamcityIgnited;
-import org.apache.ignite.ci.teamcity.ignited.buildref.BuildRefDao;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildDao;
+import org.apache.ignite.internal.util.GridIntList;
+import org.apache.ignite.internal.util.typedef.internal.U;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +59,9 @@ public class RunHistSync {
     public static final int MAX_TESTS_QUEUE = 100000;
     public static final int HIST_LDR_TASKS = 4;
 
+    /** Buffer fill ratio, starting from which proactive build loading should be postponed. */
+    public static final double BACKPRESSURE_FILL = 0.8;
+
     /** Compactor. */
     @Inject private IStringCompactor compactor;
 
@@ -63,15 +71,17 @@ public class RunHistSync {
     /** Run History DAO. */
     @Inject private RunHistCompactedDao histDao;
 
-    /** Build reference DAO. */
-    @Inject private BuildRefDao buildRefDao;
-
     /** Build DAO. */
     @Inject private FatBuildDao fatBuildDao;
 
+    /** Sync bitmaps DAO. */
+    @Inject private SyncBitmapDao bitmapDao;
+
+    /** Backfill of missing history. */
+    @Inject private RunHistBackfill backfill;
+
     /** Build to save to history. */
-    @GuardedBy("this")
-    private final Map<String, SyncTask> buildToSave = new HashMap<>();
+    private final ConcurrentMap<String, SyncTask> buildToSave = new ConcurrentHashMap<>();
 
     /**
      * @param branchName Branch name.
@@ -96,67 +106,111 @@ public class RunHistSync {
         if (!validForStatistics(build))
             return;
 
+        if (InvocationData.isAggregateExpired(build.getStartDateTs()))
+            return;
+
         int srvId = ITeamcityIgnited.serverIdToInt(srvVame);
         if (histDao.buildWasProcessed(srvId, build.id()))
             return;
 
-        boolean saveNow = false;
-
         int branchNameNormalized = compactor.getStringId(normalizeBranch(build.branchName(compactor)));
 
-        AtomicInteger cntTests = new AtomicInteger();
         Map<RunHistKey, List<Invocation>> testInvMap = new HashMap<>();
-        build.getAllTests().forEach(t -> {
-            RunHistKey histKey = new RunHistKey(srvId, t.testName(), branchNameNormalized);
-            List<Invocation> list = testInvMap.computeIfAbsent(histKey, k -> new ArrayList<>());
-            list.add(t.toInvocation(compactor, build));
-
-            cntTests.incrementAndGet();
-        });
+        int cnt = collectTestInvocations(srvId, branchNameNormalized, build, testInvMap);
 
         RunHistKey buildInvKey = new RunHistKey(srvId, build.buildTypeId(), branchNameNormalized);
         Invocation buildInv = build.toInvocation(compactor);
 
-        int cnt = cntTests.get();
+        SyncTask syncTask = syncTask(srvVame);
 
-        synchronized (this) {
-            final SyncTask syncTask = buildToSave.computeIfAbsent(srvVame, s -> new SyncTask());
+        if (syncTask.buf.offer(testInvMap, cnt, buildInvKey, buildInv)) {
+            for (int ldr = 0; ldr < HIST_LDR_TASKS; ldr++) {
+                int ldrToActivate = ldr;
 
-            if (syncTask.sheduledTestsCnt() + cnt <= MAX_TESTS_QUEUE)
-                syncTask.addLater(testInvMap, cnt, buildInvKey, buildInv);
-            else
-                saveNow = true;
+                scheduler.sheduleNamed(taskName("saveBuildToHistory." + ldrToActivate, srvVame),
+                    () -> saveBuildToHistory(srvVame, ldrToActivate), 1, TimeUnit.MINUTES);
+            }
         }
-
-        if (saveNow) {
+        else {
+            // Buffer is full: caller runs the save, proactive loading is postponed by isBackpressured().
             saveInvocationsMap(
                 Collections.singletonMap(buildInvKey,
                     Collections.singletonList(buildInv)
                 ),
                 testInvMap);
         }
-        else {
-            int ldrToActivate = ThreadLocalRandom.current().nextInt(HIST_LDR_TASKS) + 1;
+    }
 
-            scheduler.sheduleNamed(taskName("saveBuildToHistory." + ldrToActivate, srvVame),
-                () -> saveBuildToHistory(srvVame, ldrToActivate), 1, TimeUnit.MINUTES);
-        }
+    /**
+     * @param srvId Server id mask high.
+     * @param branchId Normalized branch name id.
+     * @param build Build.
+     * @param testInvMap Test invocations by history key, to be filled.
+     * @return Count of test invocations added.
+     */
+    private int collectTestInvocations(int srvId, int branchId, FatBuildCompacted build,
+        Map<RunHistKey, List<Invocation>> testInvMap) {
+        AtomicInteger cntTests = new AtomicInteger();
+
+        build.getAllTests().forEach(t -> {
+            RunHistKey histKey = new RunHistKey(srvId, t.testName(), branchId);
+            List<Invocation> list = testInvMap.computeIfAbsent(histKey, k -> new ArrayList<>());
+            list.add(t.toInvocation(compactor, build));
+
+            cntTests.incrementAndGet();
+        });
+
+        return cntTests.get();
+    }
+
+    /**
+     * @param srvName Server name.
+     */
+    private SyncTask syncTask(String srvName) {
+        return buildToSave.computeIfAbsent(srvName, s -> new SyncTask());
+    }
+
+    /**
+     * @param srvName Server name.
+     * @return {@code true} if history write buffer of the server is almost full, so producers of builds for history
+     * should postpone work which can be done later.
+     */
+    public boolean isBackpressured(String srvName) {
+        return writeBufferFill(srvName) >= BACKPRESSURE_FILL;
+    }
+
+    /**
+     * @param srvName Server name.
+     * @return Fill ratio of history write buffer of the server, 0 if no builds were offered yet.
+     */
+    double writeBufferFill(String srvName) {
+        SyncTask syncTask = buildToSave.get(srvName);
+
+        return syncTask == null ? 0 : syncTask.buf.fill();
+    }
+
+    /**
+     * @return Server name to history write buffer.
+     */
+    public Map<String, HistWriteBuffer> writeBuffers() {
+        Map<String, HistWriteBuffer> res = new TreeMap<>();
+
+        buildToSave.forEach((srv, task) -> res.put(srv, task.buf));
+
+        return res;
     }
 
     @MonitoredTask(name = "Save Builds To History(srv, runner)", nameExtArgsIndexes = {0, 1})
     @SuppressWarnings("WeakerAccess")
     protected String saveBuildToHistory(String srvName, int ldrToActivate) {
-        Map<RunHistKey, List<Invocation>> testsSaveThisRun;
-        Map<RunHistKey, List<Invocation>> buildsSaveThisRun;
+        Map<RunHistKey, List<Invocation>> testsSaveThisRun = new HashMap<>();
+        Map<RunHistKey, List<Invocation>> buildsSaveThisRun = new HashMap<>();
 
-        synchronized (this) {
-            final SyncTask syncTask = buildToSave.get(srvName);
-            if (syncTask == null)
-                return "Nothing to sync";
+        SyncTask syncTask = buildToSave.get(srvName);
+        if (syncTask == null)
+            return "Nothing to sync";
 
-            buildsSaveThisRun = syncTask.takeSuites();
-            testsSaveThisRun = syncTask.takeTests();
-        }
+        syncTask.buf.drain(ldrToActivate, testsSaveThisRun, buildsSaveThisRun);
 
         if (buildsSaveThisRun.isEmpty() && testsSaveThisRun.isEmpty())
             return "Nothing to sync";
@@ -173,94 +227,131 @@ public class RunHistSync {
             if (testsSaveThisRun.size() > 100)
                 histDao.disableWal();
 
-        Set<Integer> confirmedNewBuild = new HashSet<>();
-        Set<Integer> confirmedDuplicate = new HashSet<>();
+        long start = System.nanoTime();
 
-        AtomicInteger cntTestInvocations = new AtomicInteger();
-        AtomicInteger duplicateOrExpired = new AtomicInteger();
-        AtomicInteger cntSuiteInvocations = new AtomicInteger();
+        Map<Integer, Map<Integer, Long>> startTimesBySrv = new HashMap<>();
 
-        testsSaveThisRun.forEach(
-            (histKey, invocationList) -> {
-                saveInvocationList(confirmedNewBuild,
-                    confirmedDuplicate,
-                    cntTestInvocations,
-                    duplicateOrExpired,
-                    histKey, invocationList);
-            }
-        );
+        collectStartTimes(testsSaveThisRun, startTimesBySrv);
+        collectStartTimes(buildsSaveThisRun, startTimesBySrv);
 
-        buildsSaveThisRun.forEach(
-            (histKey, suiteList) -> {
-                List<Invocation> invocationsToSave = suiteList.stream()
-                    .filter(inv -> {
-                        int buildId = inv.buildId();
+        Map<Integer, Set<Integer>> newBuildsBySrv = new HashMap<>();
 
-                        if (confirmedNewBuild.contains(buildId))
-                            return true;
+        startTimesBySrv.forEach((srvId, startTimes) ->
+            newBuildsBySrv.put(srvId, histDao.setBuildsProcessed(srvId, startTimes)));
 
-                        if (!histDao.setBuildProcessed(histKey.srvId(), buildId, inv.startDate()))
-                            return false;
+        int cntTestInvocations = histDao.addTestInvocations(newActualInvocations(testsSaveThisRun, newBuildsBySrv));
+        int cntSuiteInvocations = histDao.addSuiteInvocations(newActualInvocations(buildsSaveThisRun, newBuildsBySrv));
 
-                        return confirmedNewBuild.add(buildId);
-                    })
-                    .filter(inv -> !InvocationData.isExpired(inv.startDate()))
-                    .collect(Collectors.toList());
+        int totalTestInvocations = testsSaveThisRun.values().stream().mapToInt(List::size).sum();
+        int duplicateOrExpired = totalTestInvocations - cntTestInvocations;
 
-                Integer cntAdded = histDao.addSuiteInvocations(histKey, invocationsToSave);
-                cntSuiteInvocations.addAndGet(cntAdded);
-            }
-        );
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        long invPerSec = (totalTestInvocations + cntSuiteInvocations) * 1000L / elapsedMs;
 
-        String res = "History test entries: " + testsSaveThisRun.size() + " processed " + cntTestInvocations.get()
-            + " invocations saved to DB " + duplicateOrExpired.get() + " duplicates/expired";
+        String res = "History test entries: " + testsSaveThisRun.size() + " processed " + cntTestInvocations
+            + " invocations saved to DB " + duplicateOrExpired + " duplicates/expired, "
+            + cntSuiteInvocations + " suite invocations saved, " + invPerSec + " invocations/s";
 
         System.out.println(Thread.currentThread().getName() + ":" + res);
 
         return res;
     }
 
-    private void saveInvocationList(Set<Integer> confirmedNewBuild,
-        Set<Integer> confirmedDuplicate,
-        AtomicInteger invocations,
-        AtomicInteger duplicateOrExpired,
-        RunHistKey histKey,
-        List<Invocation> invocationList) {
-        List<Invocation> invocationsToSave = new ArrayList<>();
-        invocationList.forEach(
-            inv -> {
-                int buildId = inv.buildId();
-
-                if (confirmedNewBuild.contains(buildId)) {
-                    if (!InvocationData.isExpired(inv.startDate()))
-                        invocationsToSave.add(inv);
-
-                    return;
-                }
-
-                if (confirmedDuplicate.contains(buildId))
-                    return;
-
-                if (histDao.setBuildProcessed(histKey.srvId(), buildId, inv.startDate())) {
-                    confirmedNewBuild.add(buildId);
-
-                    if (!InvocationData.isExpired(inv.startDate()))
-                        invocationsToSave.add(inv);
-                }
-                else
-                    confirmedDuplicate.add(buildId);
-            }
-        );
+    /**
+     * @param invocations Invocations by history key.
+     * @param startTimesBySrv Server ID to build ID to build start time, to be filled.
+     */
+    private static void collectStartTimes(Map<RunHistKey, List<Invocation>> invocations,
+        Map<Integer, Map<Integer, Long>> startTimesBySrv) {
+        invocations.forEach((histKey, list) -> {
+            Map<Integer, Long> startTimes = startTimesBySrv.computeIfAbsent(histKey.srvId(), k -> new HashMap<>());
+
+            for (Invocation inv : list)
+                startTimes.putIfAbsent(inv.buildId(), inv.startDate());
+        });
+    }
 
-        Integer cntAdded = histDao.addTestInvocations(histKey, invocationsToSave);
+    /**
+     * @param invocations Invocations by history key.
+     * @param newBuildsBySrv Server ID to IDs of builds which were marked as processed by current save.
+     * @return Invocations from new builds which are recent enough for details or daily aggregates, builds already saved
+     * to history are skipped.
+     */
+    private static Map<RunHistKey, List<Invocation>> newActualInvocations(
+        Map<RunHistKey, List<Invocation>> invocations,
+        Map<Integer, Set<Integer>> newBuildsBySrv) {
+        Map<RunHistKey, List<Invocation>> res = new HashMap<>();
+
+        invocations.forEach((histKey, list) -> {
+            Set<Integer> newBuilds = newBuildsBySrv.getOrDefault(histKey.srvId(), Collections.emptySet());
+            Set<Integer> listed = new HashSet<>();
+
+            // Build may be buffered twice before it is saved, only one invocation of the build is kept.
+            List<Invocation> toSave = list.stream()
+                .filter(inv -> newBuilds.contains(inv.buildId()))
+                .filter(inv -> !InvocationData.isAggregateExpired(inv.startDate()))
+                .filter(inv -> listed.add(inv.buildId()))
+                .collect(Collectors.toList());
+
+            if (!toSave.isEmpty())
+                res.put(histKey, toSave);
+        });
 
-        invocations.addAndGet(cntAdded);
-        duplicateOrExpired.addAndGet(invocationList.size() - cntAdded);
+        return res;
     }
 
     public void invokeLaterFindMissingHistory(String srvName) {
         scheduler.sheduleNamed(taskName("findMissingHistFromBuildRef", srvName),
-            () -> findMissingHistFromBuildRef(srvName), 12, TimeUnit.HOURS);
+            () -> findMissingHistFromBuildRef(srvName), 5, TimeUnit.MINUTES);
+
+        scheduler.sheduleNamed(taskName("vacuum", srvName), () -> vacuum(srvName), 12, TimeUnit.HOURS);
+
+        scheduler.sheduleNamed(taskName("resetSyncBitmaps", srvName), () -> resetSyncBitmaps(srvName),
+            12, TimeUnit.HOURS);
+    }
+
+    /**
+     * Restores processed builds lost from bitmap, e.g. not flushed before crash, and forgets builds found not valid
+     * for history, so these builds are checked again by next search of missing history.
+     *
+     * @param srvName Server name.
+     */
+    @SuppressWarnings({"WeakerAccess", "UnusedReturnValue"})
+    @MonitoredTask(name = "Reset History Sync Bitmaps", nameExtArgsIndexes = {0})
+    @AutoProfiling
+    protected String resetSyncBitmaps(String srvName) {
+        int srvId = ITeamcityIgnited.serverIdToInt(srvName);
+
+        int missing = histDao.mergeProcessedBuildsBitmap(srvId);
+
+        bitmapDao.clear(srvId, SyncBitmapDao.Kind.HIST_NOT_VALID);
+        bitmapDao.flush();
+
+        return "Processed builds restored in bitmap: " + missing;
+    }
+
+    /**
+     * Removes run history entries without runs in {@link InvocationData#AGGREGATE_DAYS} days (tests and suites which
+     * were removed, renamed or ran only in dead branches) and start times of builds too old for run history.
+     * Build references are not expired, so start times can't follow build references retention; they are also marks of
+     * builds processed into run history, and should be kept while invocations of the build can be aggregated.
+     *
+     * @param srvName Server name.
+     */
+    @SuppressWarnings({"WeakerAccess", "UnusedReturnValue"})
+    @MonitoredTask(name = "Run History Vacuum", nameExtArgsIndexes = {0})
+    @AutoProfiling
+    protected String vacuum(String srvName) {
+        int srvId = ITeamcityIgnited.serverIdToInt(srvName);
+        long retentionStart = U.currentTimeMillis() - TimeUnit.DAYS.toMillis(InvocationData.AGGREGATE_DAYS);
+
+        RunHistCompactedDao.Reclaimed hist = histDao.vacuumHistory(srvId, retentionStart);
+
+        // Processed marks removed earlier would let a build be counted in aggregates twice.
+        RunHistCompactedDao.Reclaimed startTimes = histDao.vacuumBuildStartTimes(srvId, retentionStart);
+
+        return "Removed " + hist.entries() + " history entries (" + hist.bytes() / 1024 + " KB), "
+            + startTimes.entries() + " build start times (~" + startTimes.bytes() / 1024 + " KB)";
     }
 
     @NotNull
@@ -274,45 +365,88 @@ public class RunHistSync {
     protected String findMissingHistFromBuildRef(String srvId) {
         int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(srvId);
 
-        final int[] buildRefKeys = buildRefDao.getAllIds(srvIdMaskHigh);
+        RoaringBitmap candidates = RoaringBitmap.andNot(fatBuildDao.getAllIdsBitmap(srvIdMaskHigh),
+            histDao.getProcessedBuildsBitmap(srvIdMaskHigh));
 
-        List<Integer> buildsIdsToLoad = new ArrayList<>();
-        int totalAskedToLoad = 0;
+        candidates.andNot(bitmapDao.get(srvIdMaskHigh, SyncBitmapDao.Kind.HIST_NOT_VALID, () -> new int[0]));
 
-        for (int buildId : buildRefKeys) {
-            if (histDao.buildWasProcessed(srvIdMaskHigh, buildId))
-                continue;
+        RoaringBitmap buildsToLoad = new RoaringBitmap();
+        GridIntList processedNotInBitmap = new GridIntList(16);
 
-            if (buildsIdsToLoad.size() >= 50) {
-                totalAskedToLoad += buildsIdsToLoad.size();
-                scheduleHistLoad(srvId, buildsIdsToLoad);
-                buildsIdsToLoad.clear();
+        for (int buildId : candidates) {
+            if (histDao.buildWasProcessed(srvIdMaskHigh, buildId)) {
+                processedNotInBitmap.add(buildId);
+
+                continue;
             }
-            buildsIdsToLoad.add(buildId);
-        }
 
-        if (!buildsIdsToLoad.isEmpty()) {
-            totalAskedToLoad += buildsIdsToLoad.size();
-            scheduleHistLoad(srvId, buildsIdsToLoad);
+            buildsToLoad.add(buildId);
         }
 
-        return "Invoked later load for history for " + totalAskedToLoad + " builds from " + srvId;
+        bitmapDao.add(srvIdMaskHigh, SyncBitmapDao.Kind.HIST_PROCESSED, processedNotInBitmap.array());
+        bitmapDao.flush();
+
+        String backfillRes = buildsToLoad.isEmpty() || backfill.start(srvId, buildsToLoad)
+            ? "backfill of " + buildsToLoad.getCardinality() + " builds started"
+            : "backfill is already running";
+
+        return "Found " + buildsToLoad.getCardinality() + " builds without history from " + srvId + ", "
+            + backfillRes + ", " + processedNotInBitmap.size() + " processed builds were added to bitmap";
     }
 
     /**
-     * @param srvNme Server  name;
-     * @param load Build IDs to be loaded into history cache later.
+     * Saves history of builds found by backfill, bypassing write buffer of live builds.
+     *
+     * @param srvName Server name.
+     * @param buildIds Build IDs.
+     * @return Count of builds saved to history.
      */
-    private void scheduleHistLoad(String srvNme, List<Integer> load) {
-        load.forEach(id -> {
-            FatBuildCompacted fatBuild = fatBuildDao.getFatBuild(ITeamcityIgnited.serverIdToInt(srvNme), id);
+    int saveBackfillChunk(String srvName, Collection<Integer> buildIds) {
+        int srvId = ITeamcityIgnited.serverIdToInt(srvName);
+        Map<Long, FatBuildCompacted> builds = fatBuildDao.getAllFatBuilds(srvId, buildIds);
 
-            if (validForStatistics(fatBuild))
-                saveToHistoryLater(srvNme, fatBuild);
-            else
+        Map<RunHistKey, List<Invocation>> testInvMap = new HashMap<>();
+        Map<RunHistKey, List<Invocation>> buildInvMap = new HashMap<>();
+        GridIntList tooOld = new GridIntList(16);
+        GridIntList notValid = new GridIntList(16);
+        int cnt = 0;
+
+        for (Integer id : buildIds) {
+            FatBuildCompacted fatBuild = builds.get(FatBuildDao.buildIdToCacheKey(srvId, id));
+
+            if (fatBuild != null && InvocationData.isAggregateExpired(fatBuild.getStartDateTs())) {
+                // Too old for history, start time may be already removed by vacuum.
+                tooOld.add(id);
+
+                continue;
+            }
+
+            if (validForStatistics(fatBuild)) {
+                int branchId = compactor.getStringId(normalizeBranch(fatBuild.branchName(compactor)));
+
+                collectTestInvocations(srvId, branchId, fatBuild, testInvMap);
+
+                buildInvMap.computeIfAbsent(new RunHistKey(srvId, fatBuild.buildTypeId(), branchId),
+                    k -> new ArrayList<>()).add(fatBuild.toInvocation(compactor));
+
+                cnt++;
+            }
+            else {
                 logger.info("Build is not valid for stat: " +
                     (fatBuild != null ? fatBuild.getId() : null));
-        });
+
+                if (fatBuild != null)
+                    notValid.add(id);
+            }
+        }
+
+        bitmapDao.add(srvId, SyncBitmapDao.Kind.HIST_PROCESSED, tooOld.array());
+        bitmapDao.add(srvId, SyncBitmapDao.Kind.HIST_NOT_VALID, notValid.array());
+
+        if (!buildInvMap.isEmpty())
+            saveInvocationsMap(buildInvMap, testInvMap);
+
+        return cnt;
     }
 
     private boolean validForStatistics(FatBuildCompacted fatBuild) {
@@ -325,42 +459,10 @@ public class RunHistSync {
     }
 
     /**
-     * Scope of work: builds to be loaded from a connection.
+     * Scope of work: builds to be saved to history for a server.
      */
     private static class SyncTask {
-        private Map<RunHistKey, List<Invocation>> suites = new HashMap<>();
-        private AtomicInteger testCnt = new AtomicInteger();
-        private Map<RunHistKey, List<Invocation>> tests = new HashMap<>();
-
-        public int sheduledTestsCnt() {
-            return testCnt.get();
-        }
-
-        public void addLater(Map<RunHistKey, List<Invocation>> testInvMap,
-            int testCnt, RunHistKey buildInvKey,
-            Invocation buildInv) {
-            suites
-                .computeIfAbsent(buildInvKey, k -> new ArrayList<>())
-                .add(buildInv);
-            tests.putAll(testInvMap);
-            this.testCnt.addAndGet(testCnt);
-        }
-
-        private Map<RunHistKey, List<Invocation>> takeTests() {
-            Map<RunHistKey, List<Invocation>> saveThisRun = tests;
-
-            tests = new HashMap<>();
-            testCnt.set(0);
-
-            return saveThisRun;
-        }
-
-        private Map<RunHistKey, List<Invocation>> takeSuites() {
-            Map<RunHistKey, List<Invocation>> buildsSaveThisRun = suites;
-
-            suites = new HashMap<>();
-
-            return buildsSaveThisRun;
-        }
+        /** Invocations waiting to be saved, each shard is drained by its own loader. */
+        private final HistWriteBuffer buf = new HistWriteBuffer(HIST_LDR_TASKS, MAX_TESTS_QUEUE);
     }
 }
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.runhist;
+
+import com.google.common.base.MoreObjects;
+import org.apache.ignite.ci.teamcity.ignited.IRunStat;
+
+/**
+ * Run statistics for a time window. Detailed invocations are counted by start timestamp, aggregated history is
+ * counted with day granularity.
+ */
+public class RunHistWindowStat implements IRunStat {
+    /** Runs, including muted. */
+    private int runs;
+
+    /** Failures and critical failures. */
+    private int failures;
+
+    /** Muted failures. */
+    private int muted;
+
+    /** Runs having VCS changes. */
+    private int changes;
+
+    /**
+     * @param runs Runs.
+     * @param failures Failures.
+     * @param muted Muted.
+     * @param changes Runs with changes.
+     */
+    void add(int runs, int failures, int muted, int changes) {
+        this.runs += runs;
+        this.failures += failures;
+        this.muted += muted;
+        this.changes += changes;
+    }
+
+    /** {@inheritDoc} */
+    @Override public int getRunsCount() {
+        return runs - muted;
+    }
+
+    /** {@inheritDoc} */
+    @Override public int getFailuresCount() {
+        return failures;
+    }
+
+    /**
+     * @return Muted failures count.
+     */
+    public int getMutedCount() {
+        return muted;
+    }
+
+    /**
+     * @return Count of runs having VCS changes.
+     */
+    public int getRunsWithChangesCount() {
+        return changes;
+    }
+
+    /** {@inheritDoc} */
+    @Override public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("runs", runs)
+            .add("failures", failures)
+            .add("muted", muted)
+            .add("changes", changes)
+            .toString();
+    }
+}
@@ -63,6 +63,15 @@ public interface ITeamcityConn {
      */
     public List<BuildRef> getBuildRefsPage(String fullUrl, AtomicReference<String> nextPage);
 
+    /**
+     * Requests first page of builds having ID greater than provided, following pages can be requested using
+     * {@link #getBuildRefsPage(String, AtomicReference)}.
+     *
+     * @param sinceBuildId Build id, only builds after this one are returned.
+     * @param nextPage Next page.
+     */
+    public List<BuildRef> getBuildRefsPageSince(int sinceBuildId, AtomicReference<String> nextPage);
+
     /**
      * @param buildTypeId Build type id.
      * @param fullUrl Full url.
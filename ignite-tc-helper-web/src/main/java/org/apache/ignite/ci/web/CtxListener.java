@@ -29,7 +29,9 @@ import org.apache.ignite.ci.db.TcHelperDb;
 import org.apache.ignite.ci.di.IgniteTcBotModule;
 import org.apache.ignite.ci.di.scheduler.IScheduler;
 import org.apache.ignite.ci.observer.BuildObserver;
+import org.apache.ignite.ci.tcbot.chain.ChainUpdatesFeed;
 import org.apache.ignite.ci.tcbot.issue.IssueDetector;
+import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistBackfill;
 import org.apache.ignite.ci.teamcity.pure.TeamcityRecorder;
 import org.apache.ignite.ci.teamcity.restcached.ITcServerProvider;
 
@@ -82,6 +84,8 @@ public class CtxListener implements ServletContextListener {
 
             injector.getInstance(IssueDetector.class).stop();
             injector.getInstance(TcUpdatePool.class).stop();
+            injector.getInstance(RunHistBackfill.class).stop();
+            injector.getInstance(ChainUpdatesFeed.class).stop();
             injector.getInstance(BuildObserver.class).stop();
 
             injector.getInstance(IScheduler.class).stop();
@@ -17,10 +17,15 @@
 
 package org.apache.ignite.ci.web;
 
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Component for storing catchable results into ignite and get updates
@@ -36,6 +41,24 @@ public class TcUpdatePool {
         return thread;
     });
 
+    /** Max TC communication requests executed in parallel by {@link #supplyLimited(Supplier)}. */
+    public static final int MAX_LIMITED_REQUESTS = 64;
+
+    /** Executor for limited requests, thread count is bounded by {@link #limitedPermits}. */
+    private ExecutorService limitedService = Executors.newCachedThreadPool(r -> {
+        Thread thread = threadFactory.newThread(r);
+
+        thread.setName("tc-load-" + thread.getName());
+
+        return thread;
+    });
+
+    /** Permits of limited requests. */
+    private final Semaphore limitedPermits = new Semaphore(MAX_LIMITED_REQUESTS);
+
+    /** Limited requests waiting for permit. */
+    private final Queue<Runnable> limitedWaiting = new ConcurrentLinkedQueue<>();
+
 
     /**
      * @return Executor service to process TC communication requests there.
@@ -45,7 +68,58 @@ public class TcUpdatePool {
     }
 
 
+    /**
+     * Executes request when one of {@link #MAX_LIMITED_REQUESTS} permits is available. Caller thread is never blocked,
+     * waiting requests are queued.
+     *
+     * @param req Request.
+     * @return Future of request result.
+     */
+    public <T> CompletableFuture<T> supplyLimited(Supplier<T> req) {
+        CompletableFuture<T> fut = new CompletableFuture<>();
+
+        limitedWaiting.add(() -> {
+            try {
+                fut.complete(req.get());
+            }
+            catch (Throwable e) {
+                fut.completeExceptionally(e);
+            }
+        });
+
+        startLimited();
+
+        return fut;
+    }
+
+    /**
+     * Starts waiting requests while permits are available.
+     */
+    private void startLimited() {
+        while (!limitedWaiting.isEmpty() && limitedPermits.tryAcquire()) {
+            Runnable req = limitedWaiting.poll();
+
+            if (req == null) {
+                limitedPermits.release();
+
+                continue;
+            }
+
+            limitedService.execute(() -> {
+                try {
+                    req.run();
+                }
+                finally {
+                    limitedPermits.release();
+
+                    startLimited();
+                }
+            });
+        }
+    }
+
     public void stop() {
+        limitedService.shutdownNow();
         service.shutdown();
         try {
             service.awaitTermination(10, TimeUnit.SECONDS);
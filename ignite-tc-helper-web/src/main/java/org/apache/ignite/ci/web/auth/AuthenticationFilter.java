@@ -38,6 +38,7 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.Provider;
 import org.apache.ignite.Ignite;
+import org.apache.ignite.ci.di.scheduler.SyncFrequencyController;
 import org.apache.ignite.ci.tcbot.user.IUserStorage;
 import org.apache.ignite.ci.user.ICredentialsProv;
 import org.apache.ignite.ci.user.TcHelperUser;
@@ -48,6 +49,7 @@ import org.apache.ignite.ci.util.ExceptionUtil;
 import org.apache.ignite.ci.web.CtxListener;
 import org.apache.ignite.ci.web.rest.exception.ServiceUnauthorizedException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -139,6 +141,11 @@ public class AuthenticationFilter implements ContainerRequestFilter {
             return;
         }
 
+        String requestedSrv = requestedServer(reqCtx);
+
+        if (requestedSrv != null)
+            injector.getInstance(SyncFrequencyController.class).demandObserved(requestedSrv);
+
         //Verify user access
         if (mtd.isAnnotationPresent(RolesAllowed.class)) {
             RolesAllowed rolesAnnotation = mtd.getAnnotation(RolesAllowed.class);
@@ -153,6 +160,24 @@ public class AuthenticationFilter implements ContainerRequestFilter {
         }
     }
 
+    /**
+     * @param reqCtx Request context.
+     * @return Server ID requested by user or null if server is not specified.
+     */
+    @Nullable private static String requestedServer(ContainerRequestContext reqCtx) {
+        if (reqCtx.getUriInfo() == null)
+            return null;
+
+        MultivaluedMap<String, String> params = reqCtx.getUriInfo().getQueryParameters();
+
+        String srvId = params.getFirst("serverId");
+
+        if (srvId == null)
+            srvId = params.getFirst("server");
+
+        return srvId;
+    }
+
     public boolean authenticate(ContainerRequestContext reqCtx,
         String tokFull,
         IUserStorage users) {
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.web.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import javax.annotation.Nullable;
+
+/**
+ * Build event pushed to the bot: either simple <code>{serverId, buildId}</code> object or TeamCity webhook payload
+ * containing <code>build.buildId</code>.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BuildEvent {
+    /** Server id. */
+    public String serverId;
+
+    /** Build id. */
+    public Integer buildId;
+
+    /** Build details, provided by TeamCity webhooks. */
+    public Details build;
+
+    /**
+     * @return Build ID from any of supported payload formats.
+     */
+    @Nullable public Integer buildId() {
+        if (buildId != null)
+            return buildId;
+
+        return build != null ? build.buildId : null;
+    }
+
+    /**
+     * Build section of TeamCity webhook payload.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Details {
+        /** Build id. */
+        public Integer buildId;
+
+        /** Event type, e.g. buildStarted, buildFinished. */
+        public String notifyType;
+    }
+}
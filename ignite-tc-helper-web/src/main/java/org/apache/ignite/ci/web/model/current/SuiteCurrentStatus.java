@@ -19,13 +19,17 @@ package org.apache.ignite.ci.web.model.current;
 
 import com.google.common.base.Strings;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.apache.ignite.ci.ITeamcity;
@@ -160,26 +164,37 @@ import static org.apache.ignite.ci.util.UrlUtil.escape;
         webToBuild = buildWebLinkToBuild(tcIgnited, suite);
 
         List<IMultTestOccurrence> tests = suite.getFailedTests();
-        Function<IMultTestOccurrence, Float> function = foccur -> {
-            TestInBranch testInBranch = new TestInBranch(foccur.getName(), failRateNormalizedBranch);
+        List<IMultTestOccurrence> longRunning = suite.getTopLongRunning().collect(Collectors.toList());
 
-            IRunHistory apply = tcIgnited.getTestRunHist(testInBranch);
+        Set<TestInBranch> histKeys = new HashSet<>();
 
-            return apply == null ? 0f : apply.getFailRate();
-        };
+        Stream.concat(tests.stream(), longRunning.stream()).forEach(occurrence -> {
+            histKeys.add(new TestInBranch(occurrence.getName(), failRateNormalizedBranch));
+            histKeys.add(new TestInBranch(occurrence.getName(), curBranchNormalized));
+        });
+
+        Map<TestInBranch, IRunHistory> testHists = tcIgnited.getTestRunHists(histKeys);
+
+        Map<IMultTestOccurrence, Float> failRates = new IdentityHashMap<>();
+
+        for (IMultTestOccurrence occurrence : tests) {
+            IRunHistory apply = testHists.get(new TestInBranch(occurrence.getName(), failRateNormalizedBranch));
 
-        tests.sort(Comparator.comparing(function).reversed());
+            failRates.put(occurrence, apply == null ? 0f : apply.getFailRate());
+        }
+
+        tests.sort(Comparator.comparing(failRates::get).reversed());
 
         tests.forEach(occurrence -> {
             final TestFailure failure = new TestFailure();
             failure.initFromOccurrence(occurrence, tcIgnited, suite.projectId(), suite.branchName(), baseBranch);
-            failure.initStat(tcIgnited, failRateNormalizedBranch, curBranchNormalized);
+            failure.initStat(testHists::get, failRateNormalizedBranch, curBranchNormalized);
 
             testFailures.add(failure);
         });
 
-        suite.getTopLongRunning().forEach(occurrence -> {
-            final TestFailure failure = createOrrucForLongRun(tcIgnited, suite,
+        longRunning.forEach(occurrence -> {
+            final TestFailure failure = createOrrucForLongRun(tcIgnited, testHists::get, suite,
                 occurrence, baseBranch);
 
             topLongRunning.add(failure);
@@ -231,8 +246,11 @@ import static org.apache.ignite.ci.util.UrlUtil.escape;
             return;
 
         SuiteInBranch key = new SuiteInBranch(suiteId, failRateNormalizedBranch);
+        SuiteInBranch keyForStripe = new SuiteInBranch(suiteId, curBranchNormalized);
 
-        final IRunHistory stat = tcIgnited.getSuiteRunHist(key);
+        Map<SuiteInBranch, IRunHistory> suiteHists = tcIgnited.getSuiteRunHists(Arrays.asList(key, keyForStripe));
+
+        final IRunHistory stat = suiteHists.get(key);
 
         if (stat != null) {
             failures = stat.getFailuresCount();
@@ -252,9 +270,7 @@ import static org.apache.ignite.ci.util.UrlUtil.escape;
 
         IRunHistory latestRunsSrc = null;
         if (!failRateNormalizedBranch.equals(curBranchNormalized)) {
-            SuiteInBranch keyForStripe = new SuiteInBranch(suiteId, curBranchNormalized);
-
-            final IRunHistory statForStripe = tcIgnited.getSuiteRunHist(keyForStripe);
+            final IRunHistory statForStripe = suiteHists.get(keyForStripe);
 
             latestRunsSrc = statForStripe;
             latestRuns = statForStripe != null ? statForStripe.getLatestRunResults() : null;
@@ -280,6 +296,21 @@ import static org.apache.ignite.ci.util.UrlUtil.escape;
     }
 
     @NotNull public static TestFailure createOrrucForLongRun(ITeamcityIgnited tcIgnited,
+        @Nonnull MultBuildRunCtx suite,
+        final IMultTestOccurrence occurrence,
+        @Nullable final String failRateBranch) {
+        return createOrrucForLongRun(tcIgnited, tcIgnited::getTestRunHist, suite, occurrence, failRateBranch);
+    }
+
+    /**
+     * @param tcIgnited TC service.
+     * @param runHists Run history supplier.
+     * @param suite Suite.
+     * @param occurrence Long running test occurrence.
+     * @param failRateBranch Fail rate branch.
+     */
+    @NotNull private static TestFailure createOrrucForLongRun(ITeamcityIgnited tcIgnited,
+        Function<TestInBranch, IRunHistory> runHists,
         @Nonnull MultBuildRunCtx suite,
         final IMultTestOccurrence occurrence,
         @Nullable final String failRateBranch) {
@@ -287,7 +318,7 @@ import static org.apache.ignite.ci.util.UrlUtil.escape;
 
         failure.initFromOccurrence(occurrence, tcIgnited, suite.projectId(), suite.branchName(), failRateBranch);
 
-        failure.initStat(tcIgnited,
+        failure.initStat(runHists,
             normalizeBranch(failRateBranch),
             normalizeBranch(suite.branchName()));
 
@@ -19,8 +19,10 @@ package org.apache.ignite.ci.web.model.current;
 
 import com.google.common.base.Strings;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
@@ -193,10 +195,22 @@ import static org.apache.ignite.ci.web.model.current.SuiteCurrentStatus.branchFo
     public void initStat(ITeamcityIgnited tcIgnited,
         String failRateNormalizedBranch,
         String curBranchNormalized) {
+        initStat(tcIgnited::getTestRunHist, failRateNormalizedBranch, curBranchNormalized);
+    }
+
+    /**
+     * @param runHists Run history supplier, e.g. lookup in histories prefetched by {@link
+     * ITeamcityIgnited#getTestRunHists(Collection)}.
+     * @param failRateNormalizedBranch Base branch: Fail rate and flakyness detection normalized branch.
+     * @param curBranchNormalized Cur branch normalized.
+     */
+    public void initStat(Function<TestInBranch, IRunHistory> runHists,
+        String failRateNormalizedBranch,
+        String curBranchNormalized) {
 
         TestInBranch testInBranch = new TestInBranch(name, failRateNormalizedBranch);
 
-        final IRunHistory stat = tcIgnited.getTestRunHist(testInBranch);
+        final IRunHistory stat = runHists.apply(testInBranch);
 
         histBaseBranch.init(stat);
 
@@ -205,7 +219,7 @@ import static org.apache.ignite.ci.web.model.current.SuiteCurrentStatus.branchFo
         if (!curBranchNormalized.equals(failRateNormalizedBranch)) {
             TestInBranch testInBranchS = new TestInBranch(name, curBranchNormalized);
 
-            statForProblemsDetection = tcIgnited.getTestRunHist(testInBranchS);
+            statForProblemsDetection = runHists.apply(testInBranchS);
 
             if (statForProblemsDetection != null) {
                 histCurBranch = new TestHistory();
@@ -38,6 +38,9 @@ import org.jetbrains.annotations.Nullable;
     /** Tracked branch ID. */
     @Nullable private String trackedBranch;
 
+    /** Age of precomputed summary in milliseconds, null if summary was computed for this request. */
+    @Nullable public Long ageMs;
+
     public void addChainOnServer(ChainAtServerCurrentStatus chainStatus) {
         servers.add(chainStatus);
 
@@ -62,6 +65,24 @@ import org.jetbrains.annotations.Nullable;
         hashCodeHex = Integer.toHexString(U.safeAbs(hashCode()));
     }
 
+    /**
+     * @param ageMs Age of precomputed summary.
+     * @return Shallow copy of this summary having age set.
+     */
+    public TestFailuresSummary copyWithAge(long ageMs) {
+        TestFailuresSummary res = new TestFailuresSummary();
+
+        res.copyFrom(this);
+        res.javaFlags = javaFlags;
+        res.servers = servers;
+        res.failedTests = failedTests;
+        res.failedToFinish = failedToFinish;
+        res.trackedBranch = trackedBranch;
+        res.ageMs = ageMs;
+
+        return res;
+    }
+
     /** {@inheritDoc} */
     @Override public boolean equals(Object o) {
         if (this == o)
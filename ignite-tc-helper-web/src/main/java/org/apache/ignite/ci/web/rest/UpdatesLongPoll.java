@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.web.rest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import javax.ws.rs.container.AsyncResponse;
+import org.apache.ignite.ci.web.model.current.UpdateInfo;
+
+/**
+ * Long polling of results updates: response is suspended until results differ from version shown to user, or until
+ * timeout. Replaces periodical requests of 'updates' endpoints from result pages.
+ */
+public class UpdatesLongPoll {
+    /** Timeout of waiting for updates, after timeout unchanged info is returned and page repeats the request. */
+    public static final long TIMEOUT_SECS = 60;
+
+    /**
+     * @param resp Suspended response.
+     * @param knownHash Hash code of results shown to user.
+     * @param await Function registering waiter and returning action removing it.
+     */
+    public static void suspend(AsyncResponse resp,
+        @Nullable String knownHash,
+        Function<Consumer<UpdateInfo>, Runnable> await) {
+        AtomicReference<Runnable> cancel = new AtomicReference<>();
+
+        resp.setTimeoutHandler(r -> {
+            Runnable c = cancel.get();
+
+            if (c != null)
+                c.run();
+
+            UpdateInfo unchanged = new UpdateInfo();
+
+            unchanged.hashCodeHex = knownHash;
+
+            r.resume(unchanged);
+        });
+
+        resp.setTimeout(TIMEOUT_SECS, TimeUnit.SECONDS);
+
+        cancel.set(await.apply(resp::resume));
+    }
+}
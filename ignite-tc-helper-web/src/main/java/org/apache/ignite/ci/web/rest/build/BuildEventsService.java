@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.web.rest.build;
+
+import com.google.common.base.Strings;
+import com.google.inject.Injector;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import javax.annotation.Nullable;
+import javax.annotation.security.PermitAll;
+import javax.servlet.ServletContext;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.apache.ignite.ci.tcbot.ITcBotBgAuth;
+import org.apache.ignite.ci.tcbot.conf.ITcBotConfig;
+import org.apache.ignite.ci.tcbot.conf.ITcServerConfig;
+import org.apache.ignite.ci.teamcity.ignited.ITeamcityIgnitedProvider;
+import org.apache.ignite.ci.user.ICredentialsProv;
+import org.apache.ignite.ci.web.CtxListener;
+import org.apache.ignite.ci.web.model.BuildEvent;
+import org.apache.ignite.ci.web.model.SimpleResult;
+
+/**
+ * Receives build events (queued, started, finished) pushed by TeamCity webhooks or by scripts. Build is loaded
+ * immediately instead of waiting for the next build references actualization. Builds are loaded using server
+ * authorizer credentials, so sender should provide shared secret configured for the server, see {@link
+ * ITcServerConfig#buildEventsSecret()}.
+ */
+@Path(BuildEventsService.BUILD_EVENTS)
+@Produces(MediaType.APPLICATION_JSON)
+public class BuildEventsService {
+    /** Service path. */
+    public static final String BUILD_EVENTS = "buildEvents";
+
+    /** Header containing shared secret. */
+    public static final String SECRET_HEADER = "X-TcBot-Build-Events-Secret";
+
+    /** HTTP status returned if too many builds are pending. */
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    /** Context. */
+    @Context
+    private ServletContext ctx;
+
+    /**
+     * @param srvIdParam Server id, overrides server from payload. If not specified, primary server is used.
+     * @param secret Shared secret of the server.
+     * @param evt Build event.
+     * @return {@link SimpleResult} with status: 200 if build was accepted, 403 if secret is not valid, 429 if too
+     * many builds are pending and event was dropped.
+     */
+    @POST
+    @Path("push")
+    @PermitAll
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response push(@QueryParam("serverId") String srvIdParam,
+        @HeaderParam(SECRET_HEADER) String secret,
+        BuildEvent evt) {
+        Integer buildId = evt == null ? null : evt.buildId();
+
+        if (buildId == null)
+            return response(Response.Status.BAD_REQUEST.getStatusCode(), "Build ID is not specified");
+
+        Injector injector = CtxListener.getInjector(ctx);
+        ITcBotConfig cfg = injector.getInstance(ITcBotConfig.class);
+
+        String srvId = !Strings.isNullOrEmpty(srvIdParam) ? srvIdParam : evt.serverId;
+
+        if (Strings.isNullOrEmpty(srvId))
+            srvId = cfg.primaryServerCode();
+
+        if (!cfg.getServerIds().contains(srvId))
+            return response(Response.Status.BAD_REQUEST.getStatusCode(), "Unknown server [" + srvId + "]");
+
+        if (!isSecretValid(cfg.getTeamcityConfig(srvId).buildEventsSecret(), secret))
+            return response(Response.Status.FORBIDDEN.getStatusCode(), "Invalid secret for server [" + srvId + "]");
+
+        ICredentialsProv creds = injector.getInstance(ITcBotBgAuth.class).getServerAuthorizerCreds();
+
+        if (creds == null) {
+            return response(Response.Status.SERVICE_UNAVAILABLE.getStatusCode(),
+                "Server authorizer credentials are not set");
+        }
+
+        ITeamcityIgnitedProvider tcIgnitedProv = injector.getInstance(ITeamcityIgnitedProvider.class);
+
+        if (!tcIgnitedProv.server(srvId, creds).buildEventReceived(buildId)) {
+            return response(TOO_MANY_REQUESTS,
+                "Too many builds are pending, event for build [" + buildId + "] is dropped");
+        }
+
+        return response(Response.Status.OK.getStatusCode(), "Build [" + buildId + "] accepted for loading");
+    }
+
+    /**
+     * @param expected Secret configured for the server, events are rejected if it is not configured.
+     * @param actual Secret provided by sender.
+     */
+    public static boolean isSecretValid(@Nullable String expected, @Nullable String actual) {
+        if (Strings.isNullOrEmpty(expected) || actual == null)
+            return false;
+
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+            actual.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param status HTTP Status.
+     * @param msg Message.
+     */
+    private static Response response(int status, String msg) {
+        return Response.status(status).entity(new SimpleResult(msg)).build();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.web.rest.monitoring;
+
+import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistBackfill;
+import org.apache.ignite.ci.util.TimeUtil;
+
+@SuppressWarnings("WeakerAccess")
+public class BackfillUi {
+    public String name;
+    public Integer total;
+    public Integer processed;
+    public Integer saved;
+    public Integer yields;
+    public String rate;
+    public String start;
+    public String eta;
+    public String error;
+
+    public BackfillUi(String name, RunHistBackfill.Progress progress) {
+        this.name = name;
+        total = progress.total();
+        processed = progress.processed();
+        saved = progress.saved();
+        yields = progress.yields();
+        rate = String.format("%.1f builds/s", progress.rate());
+        start = TimeUtil.timestampToDateTimePrintable(progress.startTs());
+
+        long etaMs = progress.etaMs();
+
+        if (progress.finishTs() != 0)
+            eta = "(finished " + TimeUtil.timestampToDateTimePrintable(progress.finishTs()) + ")";
+        else
+            eta = etaMs < 0 ? "(unknown)" : TimeUtil.millisToDurationPrintable(etaMs);
+
+        error = progress.error();
+    }
+}
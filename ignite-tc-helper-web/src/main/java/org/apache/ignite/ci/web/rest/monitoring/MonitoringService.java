@@ -21,8 +21,11 @@ import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.cache.CacheMetrics;
 import org.apache.ignite.cache.affinity.Affinity;
+import org.apache.ignite.ci.db.SyncCheckpointDao;
 import org.apache.ignite.ci.di.AutoProfilingInterceptor;
 import org.apache.ignite.ci.di.MonitoredTaskInterceptor;
+import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistBackfill;
+import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistSync;
 import org.apache.ignite.ci.web.CtxListener;
 
 import javax.annotation.security.PermitAll;
@@ -129,4 +132,37 @@ public class MonitoringService {
         }
         return res;
     }
+
+    @GET
+    @PermitAll
+    @Path("checkpoints")
+    public List<SyncCheckpointUi> getSyncCheckpoints() {
+        SyncCheckpointDao dao = CtxListener.getInjector(ctx).getInstance(SyncCheckpointDao.class).init();
+
+        return dao.getAll().entrySet().stream()
+            .map(e -> new SyncCheckpointUi(e.getKey(), e.getValue()))
+            .collect(Collectors.toList());
+    }
+
+    @GET
+    @PermitAll
+    @Path("writeBuffers")
+    public List<WriteBufferUi> getWriteBuffers() {
+        RunHistSync runHistSync = CtxListener.getInjector(ctx).getInstance(RunHistSync.class);
+
+        return runHistSync.writeBuffers().entrySet().stream()
+            .map(e -> new WriteBufferUi("Run history: " + e.getKey(), e.getValue()))
+            .collect(Collectors.toList());
+    }
+
+    @GET
+    @PermitAll
+    @Path("backfill")
+    public List<BackfillUi> getBackfill() {
+        RunHistBackfill backfill = CtxListener.getInjector(ctx).getInstance(RunHistBackfill.class);
+
+        return backfill.progress().entrySet().stream()
+            .map(e -> new BackfillUi("Run history: " + e.getKey(), e.getValue()))
+            .collect(Collectors.toList());
+    }
 }
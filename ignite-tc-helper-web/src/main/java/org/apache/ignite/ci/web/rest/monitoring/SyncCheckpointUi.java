@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.web.rest.monitoring;
+
+import org.apache.ignite.ci.db.SyncCheckpoint;
+import org.apache.ignite.ci.util.TimeUtil;
+
+@SuppressWarnings("WeakerAccess")
+public class SyncCheckpointUi {
+    public String name;
+    public Integer pages;
+    public Integer checked;
+    public Integer saved;
+    public String start;
+    public String update;
+    public String finish;
+
+    public SyncCheckpointUi(String name, SyncCheckpoint checkpoint) {
+        this.name = name;
+        pages = checkpoint.pages();
+        checked = checkpoint.checked();
+        saved = checkpoint.saved();
+        start = TimeUtil.timestampToDateTimePrintable(checkpoint.startTs());
+        update = TimeUtil.timestampToDateTimePrintable(checkpoint.updateTs());
+        finish = checkpoint.finishTs() == 0 ? "(in progress)" : TimeUtil.timestampToDateTimePrintable(checkpoint.finishTs());
+    }
+}
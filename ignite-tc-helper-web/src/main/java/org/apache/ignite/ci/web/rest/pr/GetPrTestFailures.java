@@ -27,6 +27,8 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import org.apache.ignite.ci.github.PullRequest;
@@ -39,6 +41,7 @@ import org.apache.ignite.ci.user.ICredentialsProv;
 import org.apache.ignite.ci.web.CtxListener;
 import org.apache.ignite.ci.web.model.current.TestFailuresSummary;
 import org.apache.ignite.ci.web.model.current.UpdateInfo;
+import org.apache.ignite.ci.web.rest.UpdatesLongPoll;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -66,7 +69,43 @@ public class GetPrTestFailures {
         @Nullable @QueryParam("baseBranchForTc") String baseBranchForTc,
         @Nullable @QueryParam("checkAllLogs") Boolean checkAllLogs) {
 
-        return new UpdateInfo().copyFrom(getPrFailuresResultsNoSync(srvId, suiteId, branchForTc, act, cnt, baseBranchForTc, checkAllLogs));
+        final ICredentialsProv creds = ICredentialsProv.get(req);
+        final Injector injector = CtxListener.getInjector(ctx);
+
+        return injector.getInstance(PrChainsProcessor.class)
+            .getTestFailuresUpdates(creds, srvId, suiteId, branchForTc, act, cnt, baseBranchForTc, checkAllLogs);
+    }
+
+    /**
+     * Long polling version of {@link #getPrFailuresUpdates}: response is sent when results differ from shown version.
+     *
+     * @param srvId Server id.
+     * @param suiteId Suite id.
+     * @param branchForTc Branch name in TC identification.
+     * @param act Action.
+     * @param cnt Count.
+     * @param baseBranchForTc Base branch name in TC identification.
+     * @param checkAllLogs Check all logs.
+     * @param knownHash Hash code of results shown to user.
+     * @param resp Suspended response.
+     */
+    @GET
+    @Path("updatesWait")
+    public void awaitPrFailuresUpdates(
+        @Nullable @QueryParam("serverId") String srvId,
+        @Nonnull @QueryParam("suiteId") String suiteId,
+        @Nonnull @QueryParam("branchForTc") String branchForTc,
+        @Nonnull @QueryParam("action") String act,
+        @Nullable @QueryParam("count") Integer cnt,
+        @Nullable @QueryParam("baseBranchForTc") String baseBranchForTc,
+        @Nullable @QueryParam("checkAllLogs") Boolean checkAllLogs,
+        @Nullable @QueryParam("hashCodeHex") String knownHash,
+        @Suspended AsyncResponse resp) {
+        final ICredentialsProv creds = ICredentialsProv.get(req);
+        final PrChainsProcessor proc = CtxListener.getInjector(ctx).getInstance(PrChainsProcessor.class);
+
+        UpdatesLongPoll.suspend(resp, knownHash, waiter -> proc.awaitTestFailuresUpdates(creds, srvId, suiteId,
+            branchForTc, act, cnt, baseBranchForTc, checkAllLogs, knownHash, waiter));
     }
 
     @GET
@@ -25,6 +25,8 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import org.apache.ignite.ci.tcbot.chain.TrackedBranchChainsProcessor;
@@ -37,6 +39,7 @@ import org.apache.ignite.ci.user.ICredentialsProv;
 import org.apache.ignite.ci.web.CtxListener;
 import org.apache.ignite.ci.web.model.current.TestFailuresSummary;
 import org.apache.ignite.ci.web.model.current.UpdateInfo;
+import org.apache.ignite.ci.web.rest.UpdatesLongPoll;
 import org.apache.ignite.ci.web.rest.exception.ServiceUnauthorizedException;
 import org.apache.ignite.ci.web.rest.parms.FullQueryParams;
 import org.apache.ignite.internal.util.typedef.F;
@@ -62,7 +65,31 @@ public class GetTrackedBranchTestResults {
     @Path("updates")
     public UpdateInfo getTestFailsUpdates(@Nullable @QueryParam("branch") String branchOrNull,
                                           @Nullable @QueryParam("checkAllLogs") Boolean checkAllLogs) {
-        return new UpdateInfo().copyFrom(getTestFailsResultsNoSync(branchOrNull, checkAllLogs));
+        return trackedBranchUpdates(branchOrNull, checkAllLogs, 1);
+    }
+
+    /**
+     * Long polling version of {@link #getTestFailsUpdates}: response is sent when results differ from shown version.
+     *
+     * @param branch Tracked branch.
+     * @param checkAllLogs Check all logs.
+     * @param cnt Count of builds to merge, 1 for latest results.
+     * @param knownHash Hash code of results shown to user.
+     * @param resp Suspended response.
+     */
+    @GET
+    @Path("updatesWait")
+    public void awaitTestFailsUpdates(@Nullable @QueryParam("branch") String branch,
+        @Nullable @QueryParam("checkAllLogs") Boolean checkAllLogs,
+        @Nullable @QueryParam("count") Integer cnt,
+        @Nullable @QueryParam("hashCodeHex") String knownHash,
+        @Suspended AsyncResponse resp) {
+        ICredentialsProv creds = ICredentialsProv.get(req);
+        Injector injector = CtxListener.getInjector(ctx);
+        TrackedBranchChainsProcessor proc = injector.getInstance(TrackedBranchChainsProcessor.class);
+
+        UpdatesLongPoll.suspend(resp, knownHash, waiter -> proc.awaitTrackedBranchUpdates(branch, checkAllLogs,
+            cnt == null ? 1 : cnt, creds, knownHash, waiter));
     }
 
     @GET
@@ -107,7 +134,7 @@ public class GetTrackedBranchTestResults {
     public UpdateInfo getAllTestFailsUpdates(@Nullable @QueryParam("branch") String branch,
         @Nullable @QueryParam("count") Integer cnt,
         @Nullable @QueryParam("checkAllLogs") Boolean checkAllLogs) {
-        return new UpdateInfo().copyFrom(getAllTestFailsNoSync(branch, cnt, checkAllLogs));
+        return trackedBranchUpdates(branch, checkAllLogs, cnt == null ? FullQueryParams.DEFAULT_COUNT : cnt);
     }
 
     @GET
@@ -140,6 +167,20 @@ public class GetTrackedBranchTestResults {
             .getTrackedBranchTestFailures(branchOpt, checkAllLogs, cntLimit, creds, mode);
     }
 
+    /**
+     * @param branch Tracked branch.
+     * @param checkAllLogs Check all logs.
+     * @param cnt Count of builds to merge.
+     * @return Update info, results are not built if chains of the branch were not modified.
+     */
+    private UpdateInfo trackedBranchUpdates(@Nullable String branch, @Nullable Boolean checkAllLogs, int cnt) {
+        ICredentialsProv creds = ICredentialsProv.get(req);
+        Injector injector = CtxListener.getInjector(ctx);
+
+        return injector.getInstance(TrackedBranchChainsProcessor.class)
+            .getTrackedBranchUpdates(branch, checkAllLogs, cnt, creds);
+    }
+
     /**
      * @param srvCode Server id.
      * @param projectId Project id.
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.ignite.ci.tcmodel.result.problems.ProblemOccurrence;
+import org.apache.ignite.ci.teamcity.ignited.IStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.InMemoryStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
+import org.junit.Test;
+
+import static org.apache.ignite.ci.tcbot.chain.PrChainsProcessorTest.createFatBuild;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks build problems classification of {@link SingleBuildRunCtx} and {@link MultBuildRunCtx}.
+ */
+public class BuildRunCtxProblemsTest {
+    /** Build type ID. */
+    private static final String BT_ID = "Cache1";
+
+    /** Problem type unknown to TC Bot. */
+    private static final String UNKNOWN_TYPE = "SomeExoticProblem";
+
+    /** Compactor. */
+    private final IStringCompactor c = new InMemoryStringCompactor();
+
+    /** */
+    @Test
+    public void testKnownProblemsAreFlagged() {
+        assertFlag(ProblemOccurrence.TC_EXECUTION_TIMEOUT, SingleBuildRunCtx.TIMEOUT);
+        assertFlag(ProblemOccurrence.TC_JVM_CRASH, SingleBuildRunCtx.JVM_CRASH);
+        assertFlag(ProblemOccurrence.TC_OOME, SingleBuildRunCtx.OOME);
+        assertFlag(ProblemOccurrence.TC_EXIT_CODE, SingleBuildRunCtx.EXIT_CODE);
+        assertFlag(ProblemOccurrence.TC_COMPILATION_ERROR, SingleBuildRunCtx.COMPILATION);
+        assertFlag(ProblemOccurrence.BUILD_FAILURE_ON_METRIC, SingleBuildRunCtx.METRIC);
+    }
+
+    /** */
+    @Test
+    public void testTestAndSnapshotProblemsAreNotFlagged() {
+        SingleBuildRunCtx ctx = new SingleBuildRunCtx(build(1,
+            ProblemOccurrence.TC_FAILED_TESTS,
+            ProblemOccurrence.SNAPSHOT_DEPENDENCY_ERROR,
+            ProblemOccurrence.SNAPSHOT_DEPENDENCY_ERROR_BUILD_PROCEEDS_TYPE), c);
+
+        assertEquals(0, ctx.problemFlags());
+        assertNull(ctx.unknownProblem());
+
+        MultBuildRunCtx suite = suite(ctx);
+
+        assertFalse(suite.hasAnyBuildProblemExceptTestOrSnapshot());
+        assertEquals("", suite.getResult());
+    }
+
+    /** */
+    @Test
+    public void testUnknownProblemIsKept() {
+        SingleBuildRunCtx ctx = new SingleBuildRunCtx(build(1,
+            ProblemOccurrence.TC_FAILED_TESTS, UNKNOWN_TYPE, ProblemOccurrence.OTHER), c);
+
+        assertEquals(SingleBuildRunCtx.NOT_TEST_OR_SNAPSHOT, ctx.problemFlags());
+        assertNotNull(ctx.unknownProblem());
+        assertEquals(UNKNOWN_TYPE, ctx.unknownProblem().type(c));
+    }
+
+    /** */
+    @Test
+    public void testSuiteCombinesProblemsOfBuilds() {
+        SingleBuildRunCtx timeout = new SingleBuildRunCtx(build(1, ProblemOccurrence.TC_EXECUTION_TIMEOUT), c);
+        SingleBuildRunCtx crash = new SingleBuildRunCtx(build(2, ProblemOccurrence.TC_JVM_CRASH, UNKNOWN_TYPE), c);
+        SingleBuildRunCtx crash2 = new SingleBuildRunCtx(build(3,
+            ProblemOccurrence.TC_JVM_CRASH, ProblemOccurrence.OTHER), c);
+
+        MultBuildRunCtx suite = suite(timeout, crash, crash2);
+
+        assertTrue(suite.hasAnyBuildProblemExceptTestOrSnapshot());
+        assertTrue(suite.hasTimeoutProblem());
+        assertTrue(suite.hasJvmCrashProblem());
+        assertFalse(suite.hasOomeProblem());
+        assertFalse(suite.hasCompilationProblem());
+        assertEquals(2, suite.getJvmCrashProblemCount());
+
+        String res = suite.getResult();
+
+        assertTrue(res, res.contains("TIMEOUT"));
+        assertTrue(res, res.contains("JVM CRASH [2]"));
+        assertTrue(res, res.contains(UNKNOWN_TYPE));
+        assertFalse(res, res.contains(ProblemOccurrence.OTHER));
+    }
+
+    /**
+     * @param type Problem type.
+     * @param flag Expected flag.
+     */
+    private void assertFlag(String type, int flag) {
+        SingleBuildRunCtx ctx = new SingleBuildRunCtx(build(1, type), c);
+
+        assertEquals(type, flag | SingleBuildRunCtx.NOT_TEST_OR_SNAPSHOT, ctx.problemFlags());
+        assertNull(type, ctx.unknownProblem());
+        assertTrue(type, suite(ctx).hasAnyBuildProblemExceptTestOrSnapshot());
+    }
+
+    /**
+     * @param id Build ID.
+     * @param types Problem types.
+     */
+    private FatBuildCompacted build(int id, String... types) {
+        FatBuildCompacted build = createFatBuild(c, BT_ID, "master", id, 1000, false);
+
+        List<ProblemOccurrence> problems = new ArrayList<>();
+
+        for (String type : types) {
+            ProblemOccurrence problem = new ProblemOccurrence();
+
+            problem.setType(type);
+
+            problems.add(problem);
+        }
+
+        build.addProblems(c, problems);
+
+        return build;
+    }
+
+    /**
+     * @param builds Builds of suite.
+     */
+    private MultBuildRunCtx suite(SingleBuildRunCtx... builds) {
+        MultBuildRunCtx suite = new MultBuildRunCtx(build(0).toBuildRef(c), c);
+
+        for (SingleBuildRunCtx ctx : builds)
+            suite.addBuild(ctx);
+
+        return suite;
+    }
+}
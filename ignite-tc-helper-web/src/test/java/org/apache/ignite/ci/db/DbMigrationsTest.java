@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.db;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.internal.SingletonScope;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.ci.ITeamcity;
+import org.apache.ignite.ci.tcbot.TcBotSystemProperties;
+import org.apache.ignite.ci.tcmodel.hist.BuildRef;
+import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
+import org.apache.ignite.ci.teamcity.ignited.IStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.ITeamcityIgnited;
+import org.apache.ignite.ci.teamcity.ignited.InMemoryStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.buildref.BuildRefDao;
+import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistCompactedDao;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test for DB migrations.
+ */
+public class DbMigrationsTest {
+    /** Test ignite port. */
+    private static final int TEST_IGNITE_PORT = 64127;
+
+    /** Server. */
+    private static final String APACHE = "apache";
+
+    /** Other server. */
+    private static final String PRIVATE = "private";
+
+    /** Ignite. */
+    private static Ignite ignite;
+
+    /** Injector. */
+    private Injector injector;
+
+    /**
+     *
+     */
+    @BeforeClass
+    public static void startIgnite() {
+        IgniteConfiguration cfg = new IgniteConfiguration();
+        TcpDiscoverySpi spi = new TcpDiscoverySpi();
+
+        spi.setLocalPort(TEST_IGNITE_PORT);
+        spi.setLocalPortRange(1);
+        spi.setIpFinder(new TcHelperDb.LocalOnlyTcpDiscoveryIpFinder(TEST_IGNITE_PORT));
+
+        cfg.setDiscoverySpi(spi);
+
+        ignite = Ignition.start(cfg);
+    }
+
+    /**
+     *
+     */
+    @AfterClass
+    public static void stopIgnite() {
+        if (ignite != null)
+            ignite.close();
+    }
+
+    /**
+     *
+     */
+    @Before
+    public void init() {
+        for (String cacheName : ignite.cacheNames())
+            ignite.cache(cacheName).clear();
+
+        injector = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(Ignite.class).toInstance(ignite);
+                bind(IStringCompactor.class).to(InMemoryStringCompactor.class).in(new SingletonScope());
+            }
+        });
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testBuildRefsServerIdIsFilledForServerOnly() {
+        BuildRefDao dao = injector.getInstance(BuildRefDao.class).init();
+        IStringCompactor compactor = injector.getInstance(IStringCompactor.class);
+
+        int apache = ITeamcityIgnited.serverIdToInt(APACHE);
+        int priv = ITeamcityIgnited.serverIdToInt(PRIVATE);
+
+        IgniteCache<Long, BuildRefCompacted> cache = ignite.cache(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME);
+
+        // References saved by previous versions, server ID is not set.
+        cache.put(BuildRefDao.buildIdToCacheKey(apache, 1), legacyRef(compactor, 1, BuildRef.STATE_FINISHED));
+        cache.put(BuildRefDao.buildIdToCacheKey(apache, 2), legacyRef(compactor, 2, BuildRef.STATE_RUNNING));
+        cache.put(BuildRefDao.buildIdToCacheKey(priv, 3), legacyRef(compactor, 3, BuildRef.STATE_FINISHED));
+
+        new DbMigrations(ignite, APACHE).fillBuildRefsSrvId();
+
+        assertEquals(apache, cache.get(BuildRefDao.buildIdToCacheKey(apache, 1)).srvId());
+        assertEquals(apache, cache.get(BuildRefDao.buildIdToCacheKey(apache, 2)).srvId());
+        assertEquals(0, cache.get(BuildRefDao.buildIdToCacheKey(priv, 3)).srvId());
+
+        assertEquals(Arrays.asList(1, 2),
+            dao.getAllBuildsCompacted(apache, "Bt1", Collections.singletonList(ITeamcity.DEFAULT)).stream()
+                .map(BuildRefCompacted::id)
+                .collect(Collectors.toList()));
+        assertEquals(Collections.singletonList(2),
+            dao.getQueuedAndRunning(apache).stream().map(BuildRefCompacted::id).collect(Collectors.toList()));
+        assertEquals(0, dao.getQueuedAndRunning(priv).size());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testMoveToServerCacheKeepsOtherServersAndSwitchesAfterMarker() {
+        String name = RunHistCompactedDao.BUILD_START_TIME_CACHE_NAME;
+        int apache = ITeamcityIgnited.serverIdToInt(APACHE);
+        int priv = ITeamcityIgnited.serverIdToInt(PRIVATE);
+
+        IgniteCache<Long, Long> shared = ignite.getOrCreateCache(TcHelperDb.<Long, Long>getCacheV2Config(name));
+
+        for (int id = 0; id < 2500; id++) {
+            shared.put(BuildRefDao.buildIdToCacheKey(apache, id), (long)id);
+            shared.put(BuildRefDao.buildIdToCacheKey(priv, id), (long)-id);
+        }
+
+        String prevLayout = System.getProperty(TcBotSystemProperties.TEAMCITY_BOT_PER_SERVER_CACHES);
+
+        System.setProperty(TcBotSystemProperties.TEAMCITY_BOT_PER_SERVER_CACHES, "true");
+
+        try {
+            ServerCaches<Long> caches = new ServerCaches<>(ignite, name, TcHelperDb::getCacheV2Config);
+
+            assertEquals(shared.getName(), caches.get(apache).getName());
+
+            new DbMigrations(ignite, APACHE).moveToServerCache(name, TcHelperDb::getCacheV2Config);
+
+            IgniteCache<Long, Long> srvCache = caches.get(apache);
+
+            assertEquals(ServerCaches.cacheName(name, apache), srvCache.getName());
+            assertEquals(shared.getName(), caches.get(priv).getName());
+
+            assertEquals(2500, srvCache.size());
+            assertEquals(2500, shared.size());
+
+            for (int id = 0; id < 2500; id++) {
+                assertEquals(Long.valueOf(id), srvCache.get(BuildRefDao.buildIdToCacheKey(apache, id)));
+                assertNull(shared.get(BuildRefDao.buildIdToCacheKey(apache, id)));
+                assertEquals(Long.valueOf(-id), shared.get(BuildRefDao.buildIdToCacheKey(priv, id)));
+            }
+        }
+        finally {
+            if (prevLayout == null)
+                System.clearProperty(TcBotSystemProperties.TEAMCITY_BOT_PER_SERVER_CACHES);
+            else
+                System.setProperty(TcBotSystemProperties.TEAMCITY_BOT_PER_SERVER_CACHES, prevLayout);
+        }
+    }
+
+    /**
+     * Move is restarted after the mark was set: per server cache is already in use and is not overwritten.
+     */
+    @Test
+    public void testMoveToServerCacheAfterMarkerOnlyRemovesMovedEntries() {
+        String name = "testMoveToServerCache";
+        int apache = ITeamcityIgnited.serverIdToInt(APACHE);
+
+        IgniteCache<Long, Long> shared = ignite.getOrCreateCache(TcHelperDb.<Long, Long>getCacheV2Config(name));
+        IgniteCache<Long, Long> srvCache = ignite.getOrCreateCache(
+            TcHelperDb.<Long, Long>getCacheV2Config(ServerCaches.cacheName(name, apache)));
+
+        long key = BuildRefDao.buildIdToCacheKey(apache, 1);
+
+        shared.put(key, 1L);
+        srvCache.put(key, 2L);
+
+        ServerCaches.markMigrated(ignite, name, apache);
+
+        new DbMigrations(ignite, APACHE).moveToServerCache(name, TcHelperDb::getCacheV2Config);
+
+        assertEquals(Long.valueOf(2), srvCache.get(key));
+        assertNull(shared.get(key));
+    }
+
+    /**
+     * @param compactor Compactor.
+     * @param id Build id.
+     * @param state Build state.
+     * @return Build reference without server ID, as it was saved before server ID was introduced.
+     */
+    private BuildRefCompacted legacyRef(IStringCompactor compactor, int id, String state) {
+        BuildRef ref = new BuildRef();
+
+        ref.setId(id);
+        ref.buildTypeId = "Bt1";
+        ref.setBranchName(ITeamcity.DEFAULT);
+        ref.status = BuildRef.STATUS_SUCCESS;
+        ref.state = state;
+
+        return new BuildRefCompacted(compactor, ref);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.di.scheduler;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks quiet periods selected by {@link SyncFrequencyController}.
+ */
+public class SyncFrequencyControllerTest {
+    /** Task name. */
+    private static final String TASK = "task.apache";
+
+    /** Min period. */
+    private static final long MIN_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Max period. */
+    private static final long MAX_MS = TimeUnit.MINUTES.toMillis(10);
+
+    @Test
+    public void testUnknownTaskUsesMinPeriod() {
+        SyncFrequencyController ctrl = new SyncFrequencyController();
+
+        assertEquals(MIN_MS, ctrl.quietPeriodMs(TASK, "apache", 1, 10, TimeUnit.MINUTES));
+    }
+
+    @Test
+    public void testPeriodBoundsAreUsed() {
+        SyncFrequencyController ctrl = new SyncFrequencyController();
+
+        for (SyncPeriod period : SyncPeriod.values()) {
+            assertTrue(period.name(), period.minMs() < period.maxMs());
+            assertEquals(period.minMs(), ctrl.quietPeriodMs(period.name(), "apache", period));
+        }
+    }
+
+    @Test
+    public void testIdleTaskSlowsDownAndSpeedsUpOnChanges() {
+        SyncFrequencyController ctrl = new SyncFrequencyController();
+
+        for (int i = 0; i < 30; i++)
+            ctrl.changesObserved(TASK, 0);
+
+        long idle = ctrl.quietPeriodMs(TASK, "apache", 1, 10, TimeUnit.MINUTES);
+
+        assertTrue("Idle period " + idle, idle > MAX_MS * 9 / 10 && idle <= MAX_MS);
+
+        for (int i = 0; i < 5; i++)
+            ctrl.changesObserved(TASK, 100);
+
+        long busy = ctrl.quietPeriodMs(TASK, "apache", 1, 10, TimeUnit.MINUTES);
+
+        assertTrue("Busy period " + busy, busy >= MIN_MS && busy < MIN_MS * 2);
+    }
+
+    @Test
+    public void testDemandSpeedsUpIdleTask() {
+        SyncFrequencyController ctrl = new SyncFrequencyController();
+
+        for (int i = 0; i < 30; i++)
+            ctrl.changesObserved(TASK, 0);
+
+        ctrl.demandObserved("private");
+
+        assertTrue(ctrl.quietPeriodMs(TASK, "apache", 1, 10, TimeUnit.MINUTES) > MAX_MS * 9 / 10);
+
+        ctrl.demandObserved("apache");
+
+        assertTrue(ctrl.quietPeriodMs(TASK, "apache", 1, 10, TimeUnit.MINUTES) < MIN_MS * 11 / 10);
+    }
+
+    @Test
+    public void testRequestsWithoutServerDoNotSpeedUpTasks() {
+        SyncFrequencyController ctrl = new SyncFrequencyController();
+
+        for (int i = 0; i < 30; i++)
+            ctrl.changesObserved(TASK, 0);
+
+        ctrl.demandObserved(null);
+        ctrl.demandObserved("");
+
+        assertTrue(ctrl.quietPeriodMs(TASK, "apache", 1, 10, TimeUnit.MINUTES) > MAX_MS * 9 / 10);
+    }
+}
@@ -21,9 +21,12 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.internal.SingletonScope;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.apache.ignite.ci.IAnalyticsEnabledTeamcity;
 import org.apache.ignite.ci.ITeamcity;
@@ -43,11 +46,16 @@ import org.apache.ignite.ci.teamcity.ignited.TeamcityIgnitedMock;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertTrue;
 import static junit.framework.TestCase.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
 
 /**
  * Test for chain processor
@@ -164,6 +172,68 @@ public class BuildChainProcessorTest {
         assertTrue(suiteMultCtx.failedTests() >= 1);
     }
 
+    /**
+     *
+     */
+    @Test
+    public void testFinishedChainGraphIsSavedAndReused() {
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        BuildChainProcessor bcp = injector.getInstance(BuildChainProcessor.class);
+
+        Map<Integer, FatBuildCompacted> builds = new HashMap<>();
+        builds.put(1, testFatBuild(c, 1, "RunAll").snapshotDependencies(new int[] {2, 3}));
+        builds.put(2, testFatBuild(c, 2, PDS_1_BT_ID).snapshotDependencies(new int[] {4}));
+        builds.put(3, testFatBuild(c, 3, "Pds2").snapshotDependencies(new int[] {4}));
+        builds.put(4, testFatBuild(c, 4, "Build"));
+
+        ITeamcityIgnited tcIgnited = tcIgnitedMock(builds);
+
+        bcp.loadAllBuildsInChains(Collections.singleton(1), SyncMode.RELOAD_QUEUED, tcIgnited);
+
+        ArgumentCaptor<int[]> chainIds = ArgumentCaptor.forClass(int[].class);
+        Mockito.verify(tcIgnited).saveFinishedChain(eq(1), chainIds.capture());
+
+        int[] saved = chainIds.getValue();
+        Arrays.sort(saved);
+        assertTrue(Arrays.equals(new int[] {1, 2, 3, 4}, saved));
+
+        when(tcIgnited.getFinishedChain(1)).thenReturn(builds);
+        Mockito.clearInvocations(tcIgnited);
+
+        Map<Integer, Future<FatBuildCompacted>> loaded =
+            bcp.loadAllBuildsInChains(Collections.singleton(1), SyncMode.RELOAD_QUEUED, tcIgnited);
+
+        assertEquals(builds.keySet(), loaded.keySet());
+        Mockito.verify(tcIgnited, Mockito.never()).getFatBuild(anyInt(), any(SyncMode.class));
+        Mockito.verify(tcIgnited, Mockito.never()).saveFinishedChain(anyInt(), any(int[].class));
+    }
+
+    /**
+     * Failure of synchronous load of a dependency completes chain load with error instead of hanging.
+     */
+    @Test(timeout = 10_000)
+    public void testChainLoadFailsIfBuildLoadFails() {
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        BuildChainProcessor bcp = injector.getInstance(BuildChainProcessor.class);
+
+        Map<Integer, FatBuildCompacted> builds = new HashMap<>();
+        builds.put(1, testFatBuild(c, 1, "RunAll").snapshotDependencies(new int[] {2}));
+        builds.put(2, testFatBuild(c, 2, "Build"));
+
+        ITeamcityIgnited tcIgnited = tcIgnitedMock(builds);
+
+        when(tcIgnited.getFatBuild(eq(2), any(SyncMode.class))).thenThrow(new IllegalStateException("Load failed"));
+
+        try {
+            bcp.loadAllBuildsInChains(Collections.singleton(1), SyncMode.NONE, tcIgnited);
+
+            fail("Chain load should fail");
+        }
+        catch (RuntimeException e) {
+            Mockito.verify(tcIgnited, Mockito.never()).saveFinishedChain(anyInt(), any(int[].class));
+        }
+    }
+
     public void addTestBuild(IStringCompactor c, Map<Integer, FatBuildCompacted> builds, List<Integer> entry, int i) {
         FatBuildCompacted root = testFatBuild(c, i, "RunAll");
         entry.add(root.id());
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.tcbot.chain;
+
+import com.google.common.base.Stopwatch;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.internal.SingletonScope;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.ignite.ci.ITeamcity;
+import org.apache.ignite.ci.teamcity.ignited.IStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.ITeamcityIgnited;
+import org.apache.ignite.ci.teamcity.ignited.InMemoryStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.SyncMode;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
+import org.apache.ignite.ci.util.BenchmarkHarness;
+import org.apache.ignite.ci.util.FutureUtil;
+import org.mockito.Mockito;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares previous level by level loading of chain builds with {@link BuildChainProcessor#loadAllBuildsInChains}
+ * for chain recorded in {@link PrChainsProcessorTest} and for RunAll-like chain of 4 levels. Each build request
+ * emulates TC latency from 5 to 80 ms. Not a unit test, should be started manually using {@link #main(String[])}.
+ */
+public class ChainLoadingBenchmark {
+    /** Suites in RunAll-like chain. */
+    private static final int SUITES = 60;
+
+    /** Intermediate builds in RunAll-like chain, e.g. build of distribution. */
+    private static final int INTERMEDIATE = 10;
+
+    /** RunAll build ID. */
+    private static final int RUN_ALL_ID = 1;
+
+    /** Root build ID. */
+    private static final int ROOT_ID = 2;
+
+    /** Threads of previous implementation, as in TC update pool. */
+    private static final int LEGACY_THREADS = 30;
+
+    /**
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(IStringCompactor.class).to(InMemoryStringCompactor.class).in(new SingletonScope());
+            }
+        });
+
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        BuildChainProcessor bcp = injector.getInstance(BuildChainProcessor.class);
+        ExecutorService legacyPool = Executors.newFixedThreadPool(LEGACY_THREADS);
+
+        PrChainsProcessorTest recorded = new PrChainsProcessorTest();
+        recorded.initBuildChain(c, "RunAll", ITeamcity.DEFAULT);
+
+        Map<Integer, FatBuildCompacted> runAll = runAllChain(c);
+
+        BenchmarkHarness.rounds(3, round -> {
+            compare("Recorded chain", bcp, legacyPool, recorded.apacheBuilds(), Collections.singleton(1000));
+            compare("RunAll chain", bcp, legacyPool, runAll, Collections.singleton(RUN_ALL_ID));
+        });
+
+        legacyPool.shutdown();
+
+        System.exit(0);
+    }
+
+    /**
+     * @param name Chain name.
+     * @param bcp Build chain processor.
+     * @param legacyPool Pool of previous implementation.
+     * @param builds Builds.
+     * @param entryPoints Entry points.
+     */
+    private static void compare(String name, BuildChainProcessor bcp, ExecutorService legacyPool,
+        Map<Integer, FatBuildCompacted> builds, Collection<Integer> entryPoints) {
+        ITeamcityIgnited tcIgn = tcIgnitedWithLatency(builds);
+
+        Stopwatch sw = Stopwatch.createStarted();
+        int cnt = loadLevelByLevel(entryPoints, tcIgn, legacyPool).size();
+
+        report(name + " level by level", sw, cnt);
+
+        sw = Stopwatch.createStarted();
+        cnt = bcp.loadAllBuildsInChains(entryPoints, SyncMode.RELOAD_QUEUED, tcIgn).size();
+
+        report(name + " async graph", sw, cnt);
+    }
+
+    /**
+     * Previous implementation: next level is requested after all builds of current level are loaded.
+     *
+     * @param entryPoints Entry points.
+     * @param tcIgn Teamcity ignited.
+     * @param pool Pool.
+     */
+    private static Map<Integer, Future<FatBuildCompacted>> loadLevelByLevel(Collection<Integer> entryPoints,
+        ITeamcityIgnited tcIgn, ExecutorService pool) {
+        Map<Integer, Future<FatBuildCompacted>> builds = new HashMap<>();
+        Set<Integer> level = new HashSet<>(entryPoints);
+
+        for (int depth = 0; depth <= 5 && !level.isEmpty(); depth++) {
+            for (Integer id : level)
+                builds.put(id, pool.submit(() -> tcIgn.getFatBuild(id, SyncMode.RELOAD_QUEUED)));
+
+            Set<Integer> nextLevel = new HashSet<>();
+
+            for (Integer id : level) {
+                for (int dep : FutureUtil.getResult(builds.get(id)).snapshotDependencies()) {
+                    if (!builds.containsKey(dep))
+                        nextLevel.add(dep);
+                }
+            }
+
+            level = nextLevel;
+        }
+
+        return builds;
+    }
+
+    /**
+     * @param c Compactor.
+     * @return RunAll, suites, intermediate builds and root build.
+     */
+    private static Map<Integer, FatBuildCompacted> runAllChain(IStringCompactor c) {
+        Map<Integer, FatBuildCompacted> builds = new HashMap<>();
+        int[] suites = new int[SUITES];
+
+        builds.put(ROOT_ID, build(c, "Build", ROOT_ID));
+
+        for (int i = 0; i < INTERMEDIATE; i++)
+            builds.put(200 + i, build(c, "Intermediate" + i, 200 + i).snapshotDependencies(new int[] {ROOT_ID}));
+
+        for (int i = 0; i < SUITES; i++) {
+            suites[i] = 100 + i;
+
+            int dep = i % 3 == 0 ? ROOT_ID : 200 + i % INTERMEDIATE;
+
+            builds.put(suites[i], build(c, "Suite" + i, suites[i]).snapshotDependencies(new int[] {dep}));
+        }
+
+        builds.put(RUN_ALL_ID, build(c, "RunAll", RUN_ALL_ID).snapshotDependencies(suites));
+
+        return builds;
+    }
+
+    /**
+     * @param c Compactor.
+     * @param btId Build type.
+     * @param id Build ID.
+     */
+    private static FatBuildCompacted build(IStringCompactor c, String btId, int id) {
+        return PrChainsProcessorTest.createFatBuild(c, btId, ITeamcity.DEFAULT, id, 1000, true);
+    }
+
+    /**
+     * @param builds Builds.
+     * @return Teamcity ignited returning builds with latency depending on build ID.
+     */
+    private static ITeamcityIgnited tcIgnitedWithLatency(Map<Integer, FatBuildCompacted> builds) {
+        ITeamcityIgnited tcIgn = Mockito.mock(ITeamcityIgnited.class);
+
+        when(tcIgn.getFatBuild(anyInt(), any(SyncMode.class))).thenAnswer(inv -> {
+            Integer id = inv.getArgument(0);
+
+            Thread.sleep(5 + (id * 31) % 76);
+
+            return builds.get(id);
+        });
+
+        return tcIgn;
+    }
+
+    /**
+     * @param name Measurement name.
+     * @param sw Stopwatch.
+     * @param builds Builds loaded.
+     */
+    private static void report(String name, Stopwatch sw, int builds) {
+        BenchmarkHarness.report(name + " load of " + builds + " build(s)", sw, 1);
+
+        BenchmarkHarness.consume(builds);
+    }
+}
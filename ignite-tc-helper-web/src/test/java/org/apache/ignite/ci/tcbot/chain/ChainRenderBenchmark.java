@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.tcbot.chain;
+
+import com.google.common.base.Stopwatch;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.ignite.ci.ITeamcity;
+import org.apache.ignite.ci.analysis.FullChainRunCtx;
+import org.apache.ignite.ci.analysis.MultBuildRunCtx;
+import org.apache.ignite.ci.analysis.SingleBuildRunCtx;
+import org.apache.ignite.ci.tcmodel.result.Build;
+import org.apache.ignite.ci.tcmodel.result.problems.ProblemOccurrence;
+import org.apache.ignite.ci.tcmodel.result.tests.TestOccurrenceFull;
+import org.apache.ignite.ci.teamcity.ignited.IStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.InMemoryStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
+import org.apache.ignite.ci.util.BenchmarkHarness;
+
+/**
+ * Measures time spent in {@link MultBuildRunCtx} during rendering of Run-All chain results: same suite accessors are
+ * called as by chain and suite UI models. Chain contains 60 suites, each suite has 5 builds (merged results) of 3000
+ * tests. Not a unit test, should be started manually using {@link #main(String[])}.
+ */
+public class ChainRenderBenchmark {
+    /** Suites in Run-All chain. */
+    private static final int SUITES = 60;
+
+    /** Builds of each suite. */
+    private static final int BUILDS = 5;
+
+    /** Tests in each build. */
+    private static final int TESTS = 3000;
+
+    /** Renders measured. */
+    private static final int RENDERS = 100;
+
+    /**
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        IStringCompactor c = new InMemoryStringCompactor();
+
+        Stopwatch sw = Stopwatch.createStarted();
+        FullChainRunCtx chain = runAllChain(c);
+
+        BenchmarkHarness.report("Context creation", sw, 1);
+
+        BenchmarkHarness.rounds(3, round -> {
+            Stopwatch renderSw = Stopwatch.createStarted();
+
+            for (int i = 0; i < RENDERS; i++)
+                BenchmarkHarness.consume(render(chain));
+
+            BenchmarkHarness.report("Render", renderSw, RENDERS);
+        });
+    }
+
+    /**
+     * Calls suite accessors in the same way as chain and suite UI models.
+     *
+     * @param chain Chain.
+     * @return Value depending on results to prevent optimizations.
+     */
+    private static long render(FullChainRunCtx chain) {
+        long res = chain.getLostInTimeoutsPrintable().length();
+
+        for (MultBuildRunCtx suite : (Iterable<MultBuildRunCtx>)chain.failedChildSuites()::iterator) {
+            if (suite.hasAnyBuildProblemExceptTestOrSnapshot() || suite.onlyCancelledBuilds())
+                res++;
+
+            res += suite.getResult().length();
+            res += suite.hasCriticalProblem() ? 1 : 0;
+            res += suite.hasSuiteIncompleteFailure() ? 1 : 0;
+            res += suite.failedTests();
+            res += suite.getFailedTestsNames().count();
+        }
+
+        return res;
+    }
+
+    /**
+     * @param c Compactor.
+     * @return Run-All chain context.
+     */
+    private static FullChainRunCtx runAllChain(IStringCompactor c) {
+        List<MultBuildRunCtx> suites = new ArrayList<>();
+        int id = 100;
+
+        for (int s = 0; s < SUITES; s++) {
+            MultBuildRunCtx suite = null;
+
+            for (int b = 0; b < BUILDS; b++) {
+                FatBuildCompacted build = PrChainsProcessorTest.createFatBuild(c, "Suite" + s, ITeamcity.DEFAULT,
+                    id++, 1000, false);
+
+                List<TestOccurrenceFull> tests = new ArrayList<>();
+
+                for (int t = 0; t < TESTS; t++)
+                    tests.add(PrChainsProcessorTest.createTest(t, "Suite" + s + ".test" + t, t % 150 != s % 150));
+
+                build.addTests(c, tests);
+
+                ProblemOccurrence problem = new ProblemOccurrence();
+                problem.setType(s % 7 == 0
+                    ? ProblemOccurrence.TC_EXECUTION_TIMEOUT
+                    : ProblemOccurrence.TC_FAILED_TESTS);
+                build.addProblems(c, Collections.singletonList(problem));
+
+                if (suite == null)
+                    suite = new MultBuildRunCtx(build.toBuildRef(c), c);
+
+                suite.addBuild(new SingleBuildRunCtx(build, c));
+            }
+
+            suites.add(suite);
+        }
+
+        Build runAll = PrChainsProcessorTest.createJaxbBuild("RunAll", ITeamcity.DEFAULT, 1, 1000, false);
+        FullChainRunCtx chain = new FullChainRunCtx(runAll);
+
+        chain.addAllSuites(suites);
+
+        return chain;
+    }
+}
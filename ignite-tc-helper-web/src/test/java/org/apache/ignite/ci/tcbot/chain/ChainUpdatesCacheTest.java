@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.tcbot.chain;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.ignite.ci.web.model.current.UpdateInfo;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test for update infos reuse.
+ */
+public class ChainUpdatesCacheTest {
+    /**
+     *
+     */
+    @Test
+    public void testSummaryIsBuiltOnlyIfTokenChanged() {
+        ChainUpdatesCache cache = new ChainUpdatesCache();
+        AtomicInteger built = new AtomicInteger();
+
+        assertEquals("1", cache.get("key", "0", () -> info(built, 0)).hashCodeHex);
+        assertEquals("1", cache.get("key", "0", () -> info(built, 0)).hashCodeHex);
+        assertEquals(1, built.get());
+
+        assertEquals("2", cache.get("key", "1", () -> info(built, 1)).hashCodeHex);
+        assertEquals(2, built.get());
+
+        // Results were not complete, so they are rebuilt even for the same token.
+        cache.get("key", "1", () -> info(built, 0));
+        assertEquals(3, built.get());
+
+        cache.get("otherKey", "1", () -> info(built, 0));
+        assertEquals(4, built.get());
+    }
+
+    /**
+     * @param built Counter of built summaries.
+     * @param runningUpdates Running updates.
+     */
+    private static UpdateInfo info(AtomicInteger built, int runningUpdates) {
+        UpdateInfo info = new UpdateInfo();
+
+        info.hashCodeHex = String.valueOf(built.incrementAndGet());
+        info.runningUpdates = runningUpdates;
+
+        return info;
+    }
+}
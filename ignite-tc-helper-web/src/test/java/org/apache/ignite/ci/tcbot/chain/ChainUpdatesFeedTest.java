@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.tcbot.chain;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.ignite.ci.teamcity.ignited.buildref.BranchModifications;
+import org.apache.ignite.ci.web.model.current.UpdateInfo;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for updates notification of several waiters.
+ */
+public class ChainUpdatesFeedTest {
+    /**
+     *
+     */
+    @Test
+    public void testWaitersAreNotifiedOnceAfterModification() throws Exception {
+        BranchModifications modifications = Mockito.mock(BranchModifications.class);
+
+        ChainUpdatesFeed feed = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(BranchModifications.class).toInstance(modifications);
+            }
+        }).getInstance(ChainUpdatesFeed.class);
+
+        AtomicReference<String> tok = new AtomicReference<>("0");
+        AtomicInteger built = new AtomicInteger();
+
+        ChainUpdatesQuery qry = new ChainUpdatesQuery("key", tok::get, () -> {
+            UpdateInfo info = new UpdateInfo();
+
+            info.hashCodeHex = "hash" + tok.get();
+            built.incrementAndGet();
+
+            return info;
+        });
+
+        BlockingQueue<UpdateInfo> received = new ArrayBlockingQueue<>(10);
+
+        // Shown results are outdated, info is returned immediately.
+        feed.await(qry, "outdated", received::add);
+        assertEquals("hash0", received.poll().hashCodeHex);
+
+        feed.await(qry, "hash0", received::add);
+        feed.await(qry, "hash0", received::add);
+        assertNull(received.poll(1500, TimeUnit.MILLISECONDS));
+        assertEquals(1, built.get());
+
+        ArgumentCaptor<Runnable> lsnr = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(modifications).addListener(lsnr.capture());
+
+        tok.set("1");
+        lsnr.getValue().run();
+        lsnr.getValue().run();
+
+        assertEquals("hash1", received.poll(10, TimeUnit.SECONDS).hashCodeHex);
+        assertEquals("hash1", received.poll(10, TimeUnit.SECONDS).hashCodeHex);
+        assertTrue(received.isEmpty());
+        assertEquals(2, built.get());
+
+        feed.stop();
+    }
+
+    /**
+     * Results are modified after waiter read the token, but before it subscribed.
+     */
+    @Test
+    public void testWaiterIsNotifiedIfModifiedBeforeSubscription() throws Exception {
+        ChainUpdatesFeed feed = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(BranchModifications.class).toInstance(Mockito.mock(BranchModifications.class));
+            }
+        }).getInstance(ChainUpdatesFeed.class);
+
+        AtomicInteger tokReads = new AtomicInteger();
+
+        // Token is changed after first read, listener is called with no subscriptions and does not schedule check.
+        ChainUpdatesQuery qry = new ChainUpdatesQuery("key", () -> tokReads.getAndIncrement() == 0 ? "0" : "1", () -> {
+            UpdateInfo info = new UpdateInfo();
+
+            info.hashCodeHex = "hash" + Math.min(tokReads.get() - 1, 1);
+
+            return info;
+        });
+
+        BlockingQueue<UpdateInfo> received = new ArrayBlockingQueue<>(10);
+
+        feed.await(qry, "hash0", received::add);
+
+        assertEquals("hash1", received.poll(10, TimeUnit.SECONDS).hashCodeHex);
+        assertTrue(received.isEmpty());
+
+        feed.stop();
+    }
+}
@@ -84,6 +84,7 @@ public class MockBasedTcBotModule extends AbstractModule {
         mockJira(jiraCfg);
 
         bind(ITeamcityIgnitedProvider.class).to(TeamcityIgnitedProviderMock.class).in(new SingletonScope());
+        bind(TrackedBranchSnapshots.class).in(new SingletonScope());
 
         final ITcServerProvider tcSrvOldProv = Mockito.mock(ITcServerProvider.class);
 
@@ -386,7 +386,7 @@ public class PrChainsProcessorTest {
     }
 
     @NotNull
-    private static Build createJaxbBuild(String btId, String branch, int id, long ageMs, boolean passed) {
+    static Build createJaxbBuild(String btId, String branch, int id, long ageMs, boolean passed) {
         final Build build = new Build();
         build.buildTypeId = btId;
         final BuildType type = new BuildType();
@@ -20,12 +20,15 @@ package org.apache.ignite.ci.tcbot.chain;
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import org.apache.ignite.ci.ITeamcity;
+import org.apache.ignite.ci.di.scheduler.IScheduler;
+import org.apache.ignite.ci.tcbot.ITcBotBgAuth;
 import org.apache.ignite.ci.tcbot.conf.BranchTracked;
 import org.apache.ignite.ci.tcbot.conf.ChainAtServerTracked;
 import org.apache.ignite.ci.tcbot.conf.BranchesTracked;
@@ -48,9 +51,11 @@ import static org.apache.ignite.ci.tcbot.chain.PrChainsProcessorTest.TEST_RARE_F
 import static org.apache.ignite.ci.tcbot.chain.PrChainsProcessorTest.TEST_RARE_FAILED_WITH_CHANGES;
 import static org.apache.ignite.ci.tcbot.chain.PrChainsProcessorTest.createFatBuild;
 import static org.apache.ignite.ci.tcbot.chain.PrChainsProcessorTest.createTest;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -149,6 +154,85 @@ public class TrackedBranchProcessorTest {
         assertNull(tfFlakyOpt.get().problemRef);
     }
 
+    /**
+     * Checks summary is served from snapshot only while chains are not modified.
+     */
+    @Test
+    public void testSnapshotIsServedWhileChainsNotModified() {
+        BranchTracked branch = new BranchTracked();
+        branch.id = BRACH_NAME;
+        branch.chains.add(trackedChain(CACHE_9));
+        branchesTracked.addBranch(branch);
+
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+
+        apacheBuilds.putAll(new PrChainsProcessorTest().initHistory(c));
+
+        TrackedBranchChainsProcessor tbProc = injector.getInstance(TrackedBranchChainsProcessor.class);
+        TrackedBranchSnapshots snapshots = injector.getInstance(TrackedBranchSnapshots.class);
+
+        ICredentialsProv mock = mock(ICredentialsProv.class);
+        when(mock.hasAccess(anyString())).thenReturn(true);
+
+        TestFailuresSummary computed = tbProc.getTrackedBranchTestFailures(BRACH_NAME, false, 1, mock, SyncMode.NONE);
+        assertNull(computed.ageMs);
+
+        ChainUpdatesQuery qry = tbProc.updatesQuery(BRACH_NAME, null, 1, mock);
+        snapshots.put(BRACH_NAME, qry.key(), qry.token(), computed, System.currentTimeMillis());
+
+        TestFailuresSummary served = tbProc.getTrackedBranchTestFailures(BRACH_NAME, false, 1, mock, SyncMode.NONE);
+        assertNotNull(served.ageMs);
+        assertSame(computed.servers, served.servers);
+        assertEquals(computed.hashCodeHex, served.hashCodeHex);
+
+        assertNull(tbProc.getTrackedBranchTestFailures(BRACH_NAME, true, 1, mock, SyncMode.NONE).ageMs);
+
+        snapshots.put(BRACH_NAME, qry.key(), qry.token() + "/modified", computed, System.currentTimeMillis());
+
+        assertNull(tbProc.getTrackedBranchTestFailures(BRACH_NAME, false, 1, mock, SyncMode.NONE).ageMs);
+    }
+
+    /**
+     * Checks background refresh keeps snapshot while chains are not modified, even if snapshot has running updates.
+     */
+    @Test
+    public void testSnapshotIsNotRecomputedWhileChainsNotModified() {
+        BranchTracked branch = new BranchTracked();
+        branch.id = BRACH_NAME;
+        branch.chains.add(trackedChain(CACHE_9));
+        branchesTracked.addBranch(branch);
+
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+
+        apacheBuilds.putAll(new PrChainsProcessorTest().initHistory(c));
+
+        ICredentialsProv creds = mock(ICredentialsProv.class);
+        when(creds.hasAccess(anyString())).thenReturn(true);
+
+        ITcBotBgAuth bgAuth = mock(ITcBotBgAuth.class);
+        when(bgAuth.getServerAuthorizerCreds()).thenReturn(creds);
+
+        Injector updaterInjector = injector.createChildInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(ITcBotBgAuth.class).toInstance(bgAuth);
+                bind(IScheduler.class).toInstance(mock(IScheduler.class));
+            }
+        });
+
+        TrackedBranchSnapshotUpdater updater = updaterInjector.getInstance(TrackedBranchSnapshotUpdater.class);
+        TrackedBranchSnapshots snapshots = injector.getInstance(TrackedBranchSnapshots.class);
+
+        assertEquals("Refreshed 1 tracked branch summaries", updater.refresh());
+
+        TrackedBranchSnapshots.Snapshot snapshot = snapshots.get(BRACH_NAME);
+        assertNotNull(snapshot);
+
+        snapshot.summary.runningUpdates = 1;
+
+        assertEquals("Refreshed 0 tracked branch summaries", updater.refresh());
+        assertSame(snapshot, snapshots.get(BRACH_NAME));
+    }
+
     public Optional<SuiteCurrentStatus> findSuite(ChainAtServerCurrentStatus apacheSrv, String suiteName) {
         return apacheSrv.suites.stream().filter(s -> {
             return s.name.contains(suiteName);
@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import javax.xml.bind.JAXBException;
@@ -43,6 +44,7 @@ import org.apache.ignite.Ignition;
 import org.apache.ignite.ci.ITeamcity;
 import org.apache.ignite.ci.analysis.SuiteInBranch;
 import org.apache.ignite.ci.analysis.TestInBranch;
+import org.apache.ignite.ci.db.SyncBitmapDao;
 import org.apache.ignite.ci.db.TcHelperDb;
 import org.apache.ignite.ci.di.scheduler.DirectExecNoWaitScheduler;
 import org.apache.ignite.ci.di.scheduler.IScheduler;
@@ -70,8 +72,14 @@ import org.apache.ignite.ci.teamcity.ignited.buildtype.BuildTypeRefCompacted;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildDao;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.ProactiveFatBuildSync;
+import org.apache.ignite.ci.teamcity.ignited.runhist.Invocation;
+import org.apache.ignite.ci.teamcity.ignited.runhist.InvocationData;
+import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistBackfill;
+import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistCompacted;
 import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistCompactedDao;
+import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistKey;
 import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistSync;
+import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistWindowStat;
 import org.apache.ignite.ci.teamcity.pure.BuildHistoryEmulator;
 import org.apache.ignite.ci.teamcity.pure.ITeamcityConn;
 import org.apache.ignite.ci.teamcity.pure.ITeamcityHttpConnection;
@@ -146,6 +154,7 @@ public class IgnitedTcInMemoryIntegrationTest {
     public void clearIgniteCaches() {
         clearCache(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME);
         clearCache(FatBuildDao.TEAMCITY_FAT_BUILD_CACHE_NAME);
+        clearCache(SyncBitmapDao.SYNC_BITMAP_CACHE_NAME);
     }
 
     /**
@@ -627,12 +636,120 @@ public class IgnitedTcInMemoryIntegrationTest {
         final RunHistSync histSync = injector.getInstance(RunHistSync.class);
         histSync.invokeLaterFindMissingHistory(srvId);
 
+        assertTrue(injector.getInstance(RunHistBackfill.class).awaitCompletion(srvId, 1, TimeUnit.MINUTES));
+
         final IRunHistory testRunHist = srv.getTestRunHist(new TestInBranch(PrChainsProcessorTest.TEST_FLAKY_IN_MASTER, branch));
 
         assertNotNull(testRunHist);
         assertEquals(0.5, testRunHist.getFailRate(), 0.1);
     }
 
+    @Test
+    public void testAllTestsOfBuildAreSavedToHistory() {
+        Injector injector = Guice.createInjector(new TeamcityIgnitedModule(), new IgniteAndSchedulerTestModule());
+
+        RunHistCompactedDao histDao = injector.getInstance(RunHistCompactedDao.class);
+        histDao.init();
+
+        final IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        final int buildId = 1100043;
+        final int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(APACHE);
+
+        List<String> testNames = new ArrayList<>();
+        FatBuildCompacted build = PrChainsProcessorTest.createFatBuild(c, "ManyTests", ITeamcity.DEFAULT, buildId,
+            1000, false);
+
+        for (int i = 0; i < 50; i++) {
+            String testName = "testAllTestsOfBuildAreSavedToHistory" + i;
+
+            testNames.add(testName);
+            build.addTests(c, Lists.newArrayList(PrChainsProcessorTest.createTest(i, testName, i % 2 == 0)));
+        }
+
+        injector.getInstance(RunHistSync.class).saveToHistoryLater(APACHE, build);
+
+        for (String testName : testNames) {
+            IRunHistory hist = histDao.getTestRunHist(srvIdMaskHigh, testName, ITeamcity.DEFAULT);
+
+            assertNotNull(testName, hist);
+            assertEquals(testName, 1, hist.getRunsCount());
+        }
+
+        assertNotNull(histDao.getSuiteRunHist(srvIdMaskHigh, "ManyTests", ITeamcity.DEFAULT));
+    }
+
+    @Test
+    public void testLateInvocationsAreAggregatedOnce() {
+        Injector injector = Guice.createInjector(new TeamcityIgnitedModule(), new IgniteAndSchedulerTestModule());
+
+        RunHistCompactedDao histDao = injector.getInstance(RunHistCompactedDao.class);
+        histDao.init();
+
+        final IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        final String testName = "testLateInvocationsAreAggregatedOnce";
+        final int buildId = 1100042;
+        final int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(APACHE);
+
+        FatBuildCompacted oldBuild = PrChainsProcessorTest.createFatBuild(c, "LateBuild", ITeamcity.DEFAULT, buildId,
+            TimeUnit.DAYS.toMillis(InvocationData.MAX_DAYS + 5), false)
+            .addTests(c, Lists.newArrayList(PrChainsProcessorTest.createTest(1L, testName, false)));
+
+        final RunHistSync histSync = injector.getInstance(RunHistSync.class);
+
+        histSync.saveToHistoryLater(APACHE, oldBuild);
+        histSync.saveToHistoryLater(APACHE, oldBuild);
+
+        // Build is marked processed once, so saves of the same build via other paths are skipped.
+        assertTrue(histDao.setBuildsProcessed(srvIdMaskHigh,
+            Collections.singletonMap(buildId, oldBuild.getStartDateTs())).isEmpty());
+
+        RunHistCompacted hist = (RunHistCompacted)histDao.getTestRunHist(srvIdMaskHigh, testName, ITeamcity.DEFAULT);
+
+        assertNotNull(hist);
+
+        RunHistWindowStat stat = hist.getStatBetween(0, Long.MAX_VALUE);
+
+        assertEquals(1, stat.getRunsCount());
+        assertEquals(1, stat.getFailuresCount());
+
+        // Invocations registered only in daily aggregates are not counted in all history counters.
+        assertEquals(0, hist.getRunsAllHist());
+        assertEquals(0, hist.getRunsCount());
+    }
+
+    @Test
+    public void testVacuumKeepsHistoryWithRecentAggregates() {
+        Injector injector = Guice.createInjector(new TeamcityIgnitedModule(), new IgniteAndSchedulerTestModule());
+
+        RunHistCompactedDao histDao = injector.getInstance(RunHistCompactedDao.class);
+        histDao.init();
+
+        final IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        final String testName = "testVacuumKeepsHistoryWithRecentAggregates";
+        final int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(APACHE);
+        final long now = System.currentTimeMillis();
+
+        RunHistKey key = new RunHistKey(srvIdMaskHigh, c.getStringId(testName), c.getStringId(ITeamcity.DEFAULT));
+        Invocation aggregated = new Invocation(1100044)
+            .withStatus(InvocationData.OK)
+            .withStartDate(now - TimeUnit.DAYS.toMillis(InvocationData.MAX_DAYS + 5))
+            .withChanges(new int[0]);
+
+        assertEquals(0, histDao.addTestInvocations(
+            Collections.singletonMap(key, Collections.singletonList(aggregated))));
+
+        IgniteCache<RunHistKey, Object> testHistCache = ignite.cache(RunHistCompactedDao.TEST_HIST_CACHE_NAME);
+
+        assertTrue(testHistCache.containsKey(key));
+
+        histDao.vacuumHistory(srvIdMaskHigh, now - TimeUnit.DAYS.toMillis(InvocationData.MAX_DAYS + 10));
+
+        assertTrue(testHistCache.containsKey(key));
+
+        assertTrue(histDao.vacuumHistory(srvIdMaskHigh, now).entries() > 0);
+        assertFalse(testHistCache.containsKey(key));
+    }
+
     @Test
     public void testQueuedBuildsRemoved() {
         TeamcityIgnitedModule module = new TeamcityIgnitedModule();
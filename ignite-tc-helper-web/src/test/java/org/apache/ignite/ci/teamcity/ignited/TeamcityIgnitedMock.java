@@ -18,9 +18,12 @@
 package org.apache.ignite.ci.teamcity.ignited;
 
 import com.google.common.base.Preconditions;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.ignite.ci.analysis.TestInBranch;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
@@ -32,6 +35,7 @@ import org.mockito.Mockito;
 import org.mockito.stubbing.Answer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
@@ -84,36 +88,52 @@ public class TeamcityIgnitedMock {
                     .collect(Collectors.toList());
             });
 
-        when(tcIgnited.getTestRunHist(any(TestInBranch.class)))
-            .thenAnswer((inv) -> {
-                final TestInBranch t = inv.getArgument(0);
-                final String name = t.name;
-                final String branch = t.branch;
-
-                // System.out.println("Search history " + name + " in " + branch + ": " );
-
-                if (histCache.isEmpty()) {
-                    synchronized (histCache) {
-                        if (histCache.isEmpty())
-                            initHistory(c, histCache, builds, srvId);
-                    }
+        Function<TestInBranch, RunHistCompacted> histLookup = t -> {
+            final String name = t.name;
+            final String branch = t.branch;
+
+            // System.out.println("Search history " + name + " in " + branch + ": " );
+
+            if (histCache.isEmpty()) {
+                synchronized (histCache) {
+                    if (histCache.isEmpty())
+                        initHistory(c, histCache, builds, srvId);
                 }
+            }
+
+            final Integer tstName = c.getStringIdIfPresent(name);
+            if (tstName == null)
+                return null;
+
+            final Integer branchId = c.getStringIdIfPresent(branch);
+            if (branchId == null)
+                return null;
+
+            final RunHistKey key = new RunHistKey(srvId, tstName, branchId);
 
-                final Integer tstName = c.getStringIdIfPresent(name);
-                if (tstName == null)
-                    return null;
+            final RunHistCompacted runHistCompacted = histCache.get(key);
 
-                final Integer branchId = c.getStringIdIfPresent(branch);
-                if (branchId == null)
-                    return null;
+            System.out.println("Test history " + name + " in " + branch + " => " + runHistCompacted);
 
-                final RunHistKey key = new RunHistKey(srvId, tstName, branchId);
+            return runHistCompacted;
+        };
+
+        when(tcIgnited.getTestRunHist(any(TestInBranch.class)))
+            .thenAnswer(inv -> histLookup.apply(inv.getArgument(0)));
 
-                final RunHistCompacted runHistCompacted = histCache.get(key);
+        when(tcIgnited.getTestRunHists(anyCollection()))
+            .thenAnswer(inv -> {
+                Collection<TestInBranch> keys = inv.getArgument(0);
+                Map<TestInBranch, IRunHistory> res = new HashMap<>();
+
+                for (TestInBranch key : keys) {
+                    RunHistCompacted hist = histLookup.apply(key);
 
-                System.out.println("Test history " + name + " in " + branch + " => " + runHistCompacted);
+                    if (hist != null)
+                        res.put(key, hist);
+                }
 
-                return runHistCompacted;
+                return res;
             });
 
         // when(tcIgnited.gitBranchPrefix()).thenReturn("ignite-");
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.teamcity.ignited.buildref;
+
+import com.google.common.base.Stopwatch;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.internal.SingletonScope;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.ci.tcmodel.hist.BuildRef;
+import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
+import org.apache.ignite.ci.teamcity.ignited.IStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.ITeamcityIgnited;
+import org.apache.ignite.ci.teamcity.ignited.InMemoryStringCompactor;
+import org.apache.ignite.ci.util.BenchmarkHarness;
+
+/**
+ * Compares index-backed build references queries with full cache scan over 1M build references. Not a unit test,
+ * should be started manually using {@link #main(String[])}.
+ */
+public class BuildRefDaoBenchmark {
+    /** Build references to generate. */
+    private static final int BUILDS = 1_000_000;
+
+    /** Servers. */
+    private static final String[] SERVERS = {"apache", "private"};
+
+    /** Build types per server. */
+    private static final int BUILD_TYPES = 300;
+
+    /** Branches. */
+    private static final int BRANCHES = 200;
+
+    /** Queries to run for each measurement. */
+    private static final int QUERIES = 200;
+
+    /** Ignite port. */
+    private static final int IGNITE_PORT = 64125;
+
+    /**
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        try (Ignite ignite = BenchmarkHarness.startIgnite(IGNITE_PORT)) {
+            Injector injector = Guice.createInjector(new AbstractModule() {
+                @Override protected void configure() {
+                    bind(Ignite.class).toInstance(ignite);
+                    bind(IStringCompactor.class).to(InMemoryStringCompactor.class).in(new SingletonScope());
+                }
+            });
+
+            BuildRefDao dao = injector.getInstance(BuildRefDao.class).init();
+
+            fill(dao);
+
+            run(dao, injector.getInstance(IStringCompactor.class));
+        }
+    }
+
+    /**
+     * @param dao DAO.
+     */
+    private static void fill(BuildRefDao dao) {
+        Random rnd = new Random(42);
+        Stopwatch sw = Stopwatch.createStarted();
+
+        for (String srv : SERVERS) {
+            int srvId = ITeamcityIgnited.serverIdToInt(srv);
+            List<BuildRef> chunk = new ArrayList<>();
+
+            for (int id = 1; id <= BUILDS / SERVERS.length; id++) {
+                BuildRef ref = new BuildRef();
+
+                ref.setId(id);
+                ref.buildTypeId = "BuildType" + rnd.nextInt(BUILD_TYPES);
+                ref.setBranchName(branch(rnd.nextInt(BRANCHES)));
+                ref.status = BuildRef.STATUS_SUCCESS;
+                ref.state = rnd.nextInt(1000) == 0
+                    ? (rnd.nextBoolean() ? BuildRef.STATE_QUEUED : BuildRef.STATE_RUNNING)
+                    : BuildRef.STATE_FINISHED;
+
+                chunk.add(ref);
+
+                if (chunk.size() == 1000) {
+                    dao.saveChunk(srvId, chunk);
+                    chunk.clear();
+                }
+            }
+
+            dao.saveChunk(srvId, chunk);
+        }
+
+        BenchmarkHarness.report("Save build references", sw, BUILDS);
+    }
+
+    /**
+     * @param dao DAO.
+     * @param compactor Compactor.
+     */
+    private static void run(BuildRefDao dao, IStringCompactor compactor) {
+        int srvId = ITeamcityIgnited.serverIdToInt(SERVERS[0]);
+        Random rnd = new Random(7);
+
+        BenchmarkHarness.rounds(3, round -> {
+            long found = 0;
+            Stopwatch sw = Stopwatch.createStarted();
+
+            for (int i = 0; i < QUERIES; i++) {
+                found += dao.getAllBuildsCompacted(srvId, "BuildType" + rnd.nextInt(BUILD_TYPES),
+                    Collections.singletonList(branch(rnd.nextInt(BRANCHES)))).size();
+            }
+
+            report("Index: build type and branch history", sw, QUERIES, found);
+
+            found = 0;
+            sw = Stopwatch.createStarted();
+
+            for (int i = 0; i < QUERIES / 20; i++) {
+                int btId = compactor.getStringId("BuildType" + rnd.nextInt(BUILD_TYPES));
+                int branchId = compactor.getStringId(branch(rnd.nextInt(BRANCHES)));
+
+                try (Stream<BuildRefCompacted> all = scan(dao, srvId)) {
+                    found += all.filter(ref -> ref.buildTypeId() == btId && ref.branchName() == branchId).count();
+                }
+            }
+
+            report("Scan: build type and branch history", sw, QUERIES / 20, found);
+
+            sw = Stopwatch.createStarted();
+            found = dao.getQueuedAndRunning(srvId).size();
+            report("Index: queued and running", sw, 1, found);
+
+            sw = Stopwatch.createStarted();
+            int queuedId = compactor.getStringId(BuildRef.STATE_QUEUED);
+            int runningId = compactor.getStringId(BuildRef.STATE_RUNNING);
+
+            try (Stream<BuildRefCompacted> all = scan(dao, srvId)) {
+                found = all.filter(ref -> ref.state() == queuedId || ref.state() == runningId).count();
+            }
+
+            report("Scan: queued and running", sw, 1, found);
+
+            sw = Stopwatch.createStarted();
+
+            try (Stream<BuildRefCompacted> all = dao.compactedBuildsForServer(srvId)) {
+                found = all.count();
+            }
+
+            report("Index: all builds for server", sw, 1, found);
+
+            sw = Stopwatch.createStarted();
+
+            try (Stream<BuildRefCompacted> all = scan(dao, srvId)) {
+                found = all.count();
+            }
+
+            report("Scan: all builds for server", sw, 1, found);
+        });
+    }
+
+    /**
+     * Full cache scan, as it was done before indexes were introduced.
+     *
+     * @param dao DAO.
+     * @param srvId Server id.
+     */
+    private static Stream<BuildRefCompacted> scan(BuildRefDao dao, int srvId) {
+        return dao.getAllBuildRefs(srvId).map(javax.cache.Cache.Entry::getValue);
+    }
+
+    /**
+     * @param idx Index.
+     */
+    private static String branch(int idx) {
+        return idx == 0 ? "refs/heads/master" : "pull/" + idx + "/head";
+    }
+
+    /**
+     * @param name Measurement name.
+     * @param sw Stopwatch.
+     * @param ops Operations done.
+     * @param found Entries found.
+     */
+    private static void report(String name, Stopwatch sw, int ops, long found) {
+        BenchmarkHarness.report(name + " (found " + found + ")", sw, ops);
+
+        BenchmarkHarness.consume(found);
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.buildref;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.internal.SingletonScope;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.cache.query.SqlFieldsQuery;
+import org.apache.ignite.ci.ITeamcity;
+import org.apache.ignite.ci.db.TcHelperDb;
+import org.apache.ignite.ci.tcmodel.hist.BuildRef;
+import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
+import org.apache.ignite.ci.teamcity.ignited.IStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.ITeamcityIgnited;
+import org.apache.ignite.ci.teamcity.ignited.InMemoryStringCompactor;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for index-backed queries of build references DAO.
+ */
+public class BuildRefDaoTest {
+    /** Test ignite port. */
+    private static final int TEST_IGNITE_PORT = 64126;
+
+    /** Server. */
+    private static final String APACHE = "apache";
+
+    /** Other server. */
+    private static final String PRIVATE = "private";
+
+    /** Branch. */
+    private static final String PR_BRANCH = "pull/1/head";
+
+    /** Ignite. */
+    private static Ignite ignite;
+
+    /** DAO. */
+    private BuildRefDao dao;
+
+    /** Compactor. */
+    private IStringCompactor compactor;
+
+    /**
+     *
+     */
+    @BeforeClass
+    public static void startIgnite() {
+        IgniteConfiguration cfg = new IgniteConfiguration();
+        TcpDiscoverySpi spi = new TcpDiscoverySpi();
+
+        spi.setLocalPort(TEST_IGNITE_PORT);
+        spi.setLocalPortRange(1);
+        spi.setIpFinder(new TcHelperDb.LocalOnlyTcpDiscoveryIpFinder(TEST_IGNITE_PORT));
+
+        cfg.setDiscoverySpi(spi);
+
+        ignite = Ignition.start(cfg);
+    }
+
+    /**
+     *
+     */
+    @AfterClass
+    public static void stopIgnite() {
+        if (ignite != null)
+            ignite.close();
+    }
+
+    /**
+     * Creates new DAO, so in-memory state of DAO is not shared between tests.
+     */
+    @Before
+    public void initDao() {
+        IgniteCache<Long, BuildRefCompacted> cache = ignite.cache(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME);
+
+        if (cache != null)
+            cache.clear();
+
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(Ignite.class).toInstance(ignite);
+                bind(IStringCompactor.class).to(InMemoryStringCompactor.class).in(new SingletonScope());
+            }
+        });
+
+        dao = injector.getInstance(BuildRefDao.class).init();
+        compactor = injector.getInstance(IStringCompactor.class);
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testQueriesFilterByServerBuildTypeBranchAndState() {
+        int apache = ITeamcityIgnited.serverIdToInt(APACHE);
+        int priv = ITeamcityIgnited.serverIdToInt(PRIVATE);
+
+        dao.saveChunk(apache, Arrays.asList(
+            ref(4, "Bt1", PR_BRANCH, BuildRef.STATE_FINISHED),
+            ref(2, "Bt1", ITeamcity.DEFAULT, BuildRef.STATE_RUNNING),
+            ref(1, "Bt1", ITeamcity.DEFAULT, BuildRef.STATE_FINISHED),
+            ref(3, "Bt2", ITeamcity.DEFAULT, BuildRef.STATE_QUEUED)));
+
+        dao.saveChunk(priv, Arrays.asList(
+            ref(1, "Bt1", ITeamcity.DEFAULT, BuildRef.STATE_QUEUED),
+            ref(5, "Bt1", ITeamcity.DEFAULT, BuildRef.STATE_FINISHED)));
+
+        assertEquals(Arrays.asList(1, 2),
+            ids(dao.getAllBuildsCompacted(apache, "Bt1", Collections.singletonList(ITeamcity.DEFAULT))));
+        assertEquals(Arrays.asList(1, 2, 4),
+            ids(dao.getAllBuildsCompacted(apache, "Bt1", Arrays.asList(ITeamcity.DEFAULT, PR_BRANCH))).stream()
+                .sorted().collect(Collectors.toList()));
+        assertEquals(Arrays.asList(1, 5),
+            ids(dao.getAllBuildsCompacted(priv, "Bt1", Collections.singletonList(ITeamcity.DEFAULT))));
+        assertTrue(dao.getAllBuildsCompacted(apache, "Unknown", Collections.singletonList(ITeamcity.DEFAULT))
+            .isEmpty());
+
+        assertEquals(new TreeSet<>(Arrays.asList(2, 3)), new TreeSet<>(ids(dao.getQueuedAndRunning(apache))));
+        assertEquals(Collections.singletonList(1), ids(dao.getQueuedAndRunning(priv)));
+
+        assertEquals(Collections.singletonList(4), ids(dao.getBuildsForBranch(apache,
+            Collections.singletonList(PR_BRANCH))));
+        assertTrue(dao.getBuildsForBranch(priv, Collections.singletonList(PR_BRANCH)).isEmpty());
+
+        try (Stream<BuildRefCompacted> all = dao.compactedBuildsForServer(apache)) {
+            List<BuildRefCompacted> refs = all.collect(Collectors.toList());
+
+            assertEquals(4, refs.size());
+            assertTrue(refs.stream().allMatch(ref -> ref.srvId() == apache));
+        }
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testFinishedBuildIsRemovedFromQueuedAndRunning() {
+        int apache = ITeamcityIgnited.serverIdToInt(APACHE);
+
+        dao.saveChunk(apache, Arrays.asList(
+            ref(1, "Bt1", ITeamcity.DEFAULT, BuildRef.STATE_QUEUED),
+            ref(2, "Bt1", ITeamcity.DEFAULT, BuildRef.STATE_RUNNING)));
+
+        assertEquals(new TreeSet<>(Arrays.asList(1, 2)), new TreeSet<>(ids(dao.getQueuedAndRunning(apache))));
+
+        dao.save(apache, new BuildRefCompacted(compactor, ref(1, "Bt1", ITeamcity.DEFAULT, BuildRef.STATE_FINISHED)));
+
+        assertEquals(Collections.singletonList(2), ids(dao.getQueuedAndRunning(apache)));
+    }
+
+    /**
+     * Concurrent saves of the same builds and the first access to queued and running builds should leave registry of
+     * unfinished builds consistent with the cache.
+     */
+    @Test
+    public void testQueuedAndRunningConsistentWithConcurrentSaves() throws Exception {
+        int apache = ITeamcityIgnited.serverIdToInt(APACHE);
+        int builds = 20;
+        int threads = 4;
+        String[] states = {BuildRef.STATE_QUEUED, BuildRef.STATE_RUNNING, BuildRef.STATE_FINISHED};
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                Random rnd = new Random(t);
+
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+
+                    for (int i = 0; i < 300; i++) {
+                        BuildRef ref = ref(rnd.nextInt(builds), "Bt1", ITeamcity.DEFAULT,
+                            states[rnd.nextInt(states.length)]);
+
+                        if (rnd.nextBoolean())
+                            dao.save(apache, new BuildRefCompacted(compactor, ref));
+                        else
+                            dao.saveChunk(apache, Collections.singletonList(ref));
+                    }
+
+                    return null;
+                }));
+            }
+
+            futures.add(executor.submit(() -> {
+                barrier.await();
+
+                for (int i = 0; i < 100; i++)
+                    dao.getQueuedAndRunning(apache);
+
+                return null;
+            }));
+
+            for (Future<?> fut : futures)
+                fut.get(1, TimeUnit.MINUTES);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        Set<Integer> expected;
+
+        try (Stream<BuildRefCompacted> all = dao.compactedBuildsForServer(apache)) {
+            expected = all.filter(ref -> ref.isQueued(compactor) || ref.isRunning(compactor))
+                .map(BuildRefCompacted::id)
+                .collect(Collectors.toCollection(TreeSet::new));
+        }
+
+        assertEquals(expected, new TreeSet<>(ids(dao.getQueuedAndRunning(apache))));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testQueriesUseServerIndexes() {
+        String tbl = "\"" + BuildRefDao.TEAMCITY_BUILD_CACHE_NAME + "\"." + BuildRefCompacted.class.getSimpleName();
+
+        assertTrue(plan("select * from " + tbl + " where srvId = 1 and buildTypeId = 2 and branchName = 3")
+            .contains(BuildRefCompacted.SRV_BT_BRANCH_IDX.toLowerCase()));
+        assertTrue(plan("select * from " + tbl + " where srvId = 1 and state = 2")
+            .contains(BuildRefCompacted.SRV_STATE_IDX.toLowerCase()));
+    }
+
+    /**
+     * @param sql Sql.
+     * @return Lower cased plan of query.
+     */
+    private String plan(String sql) {
+        IgniteCache<Long, BuildRefCompacted> cache = ignite.cache(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME);
+
+        return cache.query(new SqlFieldsQuery("explain " + sql)).getAll().stream()
+            .map(row -> String.valueOf(row.get(0)))
+            .collect(Collectors.joining("\n"))
+            .toLowerCase();
+    }
+
+    /**
+     * @param id Id.
+     * @param buildTypeId Build type id.
+     * @param branch Branch.
+     * @param state State.
+     */
+    static BuildRef ref(int id, String buildTypeId, String branch, String state) {
+        BuildRef ref = new BuildRef();
+
+        ref.setId(id);
+        ref.buildTypeId = buildTypeId;
+        ref.setBranchName(branch);
+        ref.status = BuildRef.STATUS_SUCCESS;
+        ref.state = state;
+
+        return ref;
+    }
+
+    /**
+     * @param refs References.
+     */
+    static List<Integer> ids(List<BuildRefCompacted> refs) {
+        return refs.stream().map(BuildRefCompacted::id).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.buildref;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.ignite.ci.db.SyncCheckpointDao;
+import org.apache.ignite.ci.tcmodel.hist.BuildRef;
+import org.apache.ignite.ci.teamcity.ignited.ITeamcityIgnited;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.ProactiveFatBuildSync;
+import org.apache.ignite.ci.teamcity.pure.ITeamcityConn;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.apache.ignite.ci.util.MockProviders.instanceProvider;
+import static org.apache.ignite.ci.util.MockProviders.mockProvider;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks incremental sync of {@link BuildRefSync} falls back to builds pages scan.
+ */
+public class BuildRefSyncTest {
+    /** Server id. */
+    private static final String SRV_ID = "apache";
+
+    /** Build reference DAO. */
+    private BuildRefDao buildRefDao = Mockito.mock(BuildRefDao.class);
+
+    /** Connection. */
+    private ITeamcityConn conn = Mockito.mock(ITeamcityConn.class);
+
+    /** Build refs sync. */
+    private BuildRefSync sync;
+
+    /** */
+    @Before
+    public void initSync() {
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(BuildRefDao.class).toProvider(instanceProvider(buildRefDao));
+                bind(ProactiveFatBuildSync.class).toProvider(mockProvider(ProactiveFatBuildSync.class));
+                bind(SyncCheckpointDao.class).toProvider(mockProvider(SyncCheckpointDao.class));
+            }
+        });
+
+        sync = injector.getInstance(BuildRefSync.class);
+
+        when(buildRefDao.saveChunk(anyInt(), anyList())).thenReturn(Collections.emptySet());
+        when(conn.getBuildRefsPage(isNull(), any())).thenReturn(Collections.singletonList(buildRef(100)));
+    }
+
+    /**
+     * Incremental request fails if build used as high-water mark was deleted from TC, pages should be checked instead.
+     */
+    @Test
+    public void testPagesAreCheckedIfSinceBuildIsRejected() {
+        sync.runActualizeBuildRefsSince(SRV_ID, new HashSet<>(), conn, new AtomicInteger());
+
+        when(conn.getBuildRefsPageSince(eq(100), any()))
+            .thenThrow(new RuntimeException(new FileNotFoundException("Build not found")));
+
+        sync.runActualizeBuildRefsSince(SRV_ID, new HashSet<>(), conn, new AtomicInteger());
+
+        verify(conn).getBuildRefsPageSince(eq(100), any());
+        verify(conn, times(2)).getBuildRefsPage(isNull(), any());
+
+        // mark was reset and established again by pages scan
+        sync.runActualizeBuildRefsSince(SRV_ID, new HashSet<>(), conn, new AtomicInteger());
+
+        verify(conn, times(2)).getBuildRefsPageSince(eq(100), any());
+    }
+
+    /**
+     * Temporary error of incremental request is reported, high-water mark is kept and pages are not checked.
+     */
+    @Test
+    public void testMarkIsKeptOnTemporaryError() {
+        sync.runActualizeBuildRefsSince(SRV_ID, new HashSet<>(), conn, new AtomicInteger());
+
+        when(conn.getBuildRefsPageSince(eq(100), any()))
+            .thenThrow(new UncheckedIOException(new IOException("Connection reset")))
+            .thenReturn(Collections.emptyList());
+
+        try {
+            sync.runActualizeBuildRefsSince(SRV_ID, new HashSet<>(), conn, new AtomicInteger());
+
+            fail("Error should be reported");
+        }
+        catch (UncheckedIOException ignored) {
+            // expected
+        }
+
+        sync.runActualizeBuildRefsSince(SRV_ID, new HashSet<>(), conn, new AtomicInteger());
+
+        verify(conn, times(2)).getBuildRefsPageSince(eq(100), any());
+        verify(conn, times(1)).getBuildRefsPage(isNull(), any());
+    }
+
+    /**
+     * Builds having ID less than high-water mark are not returned by incremental request, so pages are checked
+     * periodically.
+     */
+    @Test
+    public void testModifiedBuildsBelowMarkAreFoundByPeriodicPagesScan() {
+        List<BuildRef> since = Collections.singletonList(buildRef(101));
+
+        when(conn.getBuildRefsPageSince(anyInt(), any())).thenReturn(since);
+
+        sync.runActualizeBuildRefsSince(SRV_ID, new HashSet<>(), conn, new AtomicInteger());
+        sync.runActualizeBuildRefsSince(SRV_ID, new HashSet<>(), conn, new AtomicInteger());
+
+        verify(conn, times(1)).getBuildRefsPage(isNull(), any());
+        verify(conn).getBuildRefsPageSince(eq(100), any());
+
+        // Build 50 finished, it is returned only by pages scan.
+        List<BuildRef> newest = Collections.singletonList(buildRef(50));
+        when(conn.getBuildRefsPage(isNull(), any())).thenReturn(newest);
+
+        sync.pagesScanPeriodMs = 0;
+
+        sync.runActualizeBuildRefsSince(SRV_ID, new HashSet<>(), conn, new AtomicInteger());
+
+        verify(conn, times(2)).getBuildRefsPage(isNull(), any());
+        verify(conn, never()).getBuildRefsPageSince(eq(101), any());
+        verify(buildRefDao).saveChunk(ITeamcityIgnited.serverIdToInt(SRV_ID), newest);
+    }
+
+    /**
+     * @param id Build ID.
+     */
+    private static BuildRef buildRef(int id) {
+        BuildRef ref = new BuildRef();
+
+        ref.setId(id);
+
+        return ref;
+    }
+}
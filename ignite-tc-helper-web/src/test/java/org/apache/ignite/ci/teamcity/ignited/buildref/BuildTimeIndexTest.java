@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.teamcity.ignited.buildref;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks build history ordering and incremental updates of {@link BuildTimeIndex}.
+ */
+public class BuildTimeIndexTest {
+    /** Server id. */
+    private static final int SRV_ID = 42;
+
+    @Test
+    public void testStartTimeRangeAndIncrementalUpdates() {
+        BuildTimeIndex idx = new BuildTimeIndex();
+
+        List<BuildRefCompacted> persisted = new ArrayList<>();
+        for (int id = 1; id <= 5; id++)
+            persisted.add(ref(id));
+
+        BuildTimeIndex.History hist = idx.history(SRV_ID, 0, 0, () -> persisted, ref -> true);
+
+        hist.resolveStartTimes(ids -> startTimes(ids, 3));
+
+        // 3 is not resolved, but it is placed between 2 and 4 by ID
+        assertEquals(listOf(2, 3, 4, 5), ids(hist.startedBetween(2000, 5000)));
+
+        idx.referenceSaved(SRV_ID, ref(6), true);
+        idx.startTimeSaved(SRV_ID, 6, 3000);
+
+        assertEquals(listOf(2, 6), ids(hist.startedBetween(2000, 3500)));
+        assertEquals(listOf(6, 5, 4, 3, 2, 1),
+            hist.newestFirst().stream().map(e -> e.ref.id()).collect(Collectors.toList()));
+
+        // already resolved builds are not resolved again
+        hist.resolveStartTimes(id -> {
+            throw new AssertionError("Unexpected resolve: " + id);
+        });
+
+        assertTrue(hist.startedBetween(6000, 5000).isEmpty());
+    }
+
+    @Test
+    public void testUnresolvedBuildsArePlacedByNeighbours() {
+        BuildTimeIndex idx = new BuildTimeIndex();
+
+        List<BuildRefCompacted> persisted = new ArrayList<>();
+        for (int id = 1; id <= 6; id++)
+            persisted.add(ref(id));
+
+        BuildTimeIndex.History hist = idx.history(SRV_ID, 0, 0, () -> persisted, ref -> true);
+
+        // Start time of 1, 4 and 6 is not saved in DB.
+        hist.resolveStartTimes(ids -> startTimes(ids, 1, 4, 6));
+
+        assertEquals(listOf(2, 3, 4, 5), ids(hist.startedBetween(2000, 5000)));
+        assertEquals(listOf(2, 3), ids(hist.startedBetween(2000, 4999)));
+
+        // Oldest and newest builds have only one neighbour, included only for unbounded side of interval.
+        assertEquals(listOf(1, 2), ids(hist.startedBetween(Long.MIN_VALUE, 2000)));
+        assertEquals(listOf(5, 6), ids(hist.startedBetween(5000, Long.MAX_VALUE)));
+        assertEquals(listOf(2, 3, 4, 5), ids(hist.startedBetween(2000, 5001)));
+
+        // Not resolved builds are not resolved again, start time is taken from saves.
+        hist.resolveStartTimes(ids -> {
+            throw new AssertionError("Unexpected resolve: " + ids);
+        });
+
+        idx.startTimeSaved(SRV_ID, 4, 4000);
+
+        assertEquals(listOf(3, 4), ids(hist.startedBetween(3000, 4000)));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedHistoryIsEvicted() {
+        BuildTimeIndex idx = new BuildTimeIndex(5);
+        AtomicInteger loads = new AtomicInteger();
+
+        Function<Integer, BuildTimeIndex.History> access = bt -> idx.history(SRV_ID, bt, 0, () -> {
+            loads.incrementAndGet();
+
+            return Arrays.asList(ref(bt * 10), ref(bt * 10 + 1));
+        }, ref -> true);
+
+        access.apply(1);
+        access.apply(2);
+        access.apply(1);
+
+        assertEquals(4, idx.size());
+        assertEquals(2, loads.get());
+
+        // Limit is exceeded, history of build type 2 is the least recently used.
+        access.apply(3);
+
+        assertEquals(4, idx.size());
+        assertEquals(3, loads.get());
+
+        access.apply(1);
+
+        assertEquals(3, loads.get());
+
+        access.apply(2);
+
+        assertEquals(4, idx.size());
+        assertEquals(4, loads.get());
+
+        // History of build type 3 was evicted by load of 2.
+        access.apply(1);
+        access.apply(3);
+
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    public void testHistoryIsEvictedWhenSavesExceedLimit() {
+        BuildTimeIndex idx = new BuildTimeIndex(5);
+        AtomicInteger loads = new AtomicInteger();
+
+        idx.history(SRV_ID, 1, 0, () -> {
+            loads.incrementAndGet();
+
+            return Arrays.asList(ref(100), ref(101));
+        }, ref -> true);
+
+        idx.history(SRV_ID, 0, 0, () -> Arrays.asList(ref(1), ref(2)), ref -> true);
+
+        idx.referenceSaved(SRV_ID, ref(3), true);
+
+        assertEquals(5, idx.size());
+        assertEquals(1, loads.get());
+
+        // Limit is exceeded by save, history of build type 1 is the least recently used.
+        idx.referenceSaved(SRV_ID, ref(4), true);
+
+        assertEquals(4, idx.size());
+
+        idx.history(SRV_ID, 1, 0, () -> {
+            loads.incrementAndGet();
+
+            return Arrays.asList(ref(100), ref(101));
+        }, ref -> true);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testNotLoadedHistoryIsNotUpdated() {
+        BuildTimeIndex idx = new BuildTimeIndex();
+
+        idx.referenceSaved(SRV_ID, ref(1), true);
+
+        BuildTimeIndex.History hist = idx.history(SRV_ID, 0, 0, ArrayList::new, ref -> true);
+
+        assertTrue(hist.all().isEmpty());
+    }
+
+    /**
+     * @param id Build id.
+     */
+    private static BuildRefCompacted ref(int id) {
+        BuildRefCompacted ref = new BuildRefCompacted();
+
+        ref.setId(id);
+
+        return ref;
+    }
+
+    /**
+     * @param entries Entries.
+     * @return Sorted IDs.
+     */
+    private static List<Integer> ids(Collection<BuildTimeIndex.Entry> entries) {
+        return entries.stream().map(e -> e.ref.id()).sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * @param ids Build IDs.
+     * @param notSaved IDs of builds without start time saved.
+     * @return Start times {@code 1000 * ID} for saved builds.
+     */
+    private static Map<Integer, Long> startTimes(Collection<Integer> ids, Integer... notSaved) {
+        List<Integer> skip = Arrays.asList(notSaved);
+
+        return ids.stream()
+            .filter(id -> !skip.contains(id))
+            .collect(Collectors.toMap(id -> id, id -> 1000L * id));
+    }
+
+    /**
+     * @param ids Ids.
+     */
+    private static List<Integer> listOf(Integer... ids) {
+        return Arrays.asList(ids);
+    }
+}
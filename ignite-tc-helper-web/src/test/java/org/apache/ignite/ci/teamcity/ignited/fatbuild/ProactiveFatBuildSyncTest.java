@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.fatbuild;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import org.apache.ignite.ci.db.SyncBitmapDao;
+import org.apache.ignite.ci.di.scheduler.IScheduler;
+import org.apache.ignite.ci.teamcity.ignited.IStringCompactor;
+import org.apache.ignite.ci.teamcity.ignited.buildref.BuildRefDao;
+import org.apache.ignite.ci.teamcity.ignited.change.ChangeSync;
+import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistSync;
+import org.apache.ignite.ci.teamcity.pure.ITeamcityConn;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.apache.ignite.ci.util.MockProviders.instanceProvider;
+import static org.apache.ignite.ci.util.MockProviders.mockProvider;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks loading of builds pushed by TC build events in {@link ProactiveFatBuildSync}.
+ */
+public class ProactiveFatBuildSyncTest {
+    /**
+     * Events above pending limit should be dropped, not queued to another loader.
+     */
+    @Test
+    public void testPushedBuildsOverLimitAreDropped() {
+        IScheduler scheduler = Mockito.mock(IScheduler.class);
+
+        ProactiveFatBuildSync sync = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(IScheduler.class).toProvider(instanceProvider(scheduler));
+                bind(BuildRefDao.class).toProvider(mockProvider(BuildRefDao.class));
+                bind(FatBuildDao.class).toProvider(mockProvider(FatBuildDao.class));
+                bind(IStringCompactor.class).toProvider(mockProvider(IStringCompactor.class));
+                bind(ChangeSync.class).toProvider(mockProvider(ChangeSync.class));
+                bind(RunHistSync.class).toProvider(mockProvider(RunHistSync.class));
+                bind(SyncBitmapDao.class).toProvider(mockProvider(SyncBitmapDao.class));
+            }
+        }).getInstance(ProactiveFatBuildSync.class);
+
+        ITeamcityConn conn = Mockito.mock(ITeamcityConn.class);
+        when(conn.serverId()).thenReturn("apache");
+
+        for (int i = 0; i < ProactiveFatBuildSync.MAX_PUSHED_BUILDS_PENDING; i++)
+            assertTrue(sync.loadBuildPushed(conn, i));
+
+        // event for pending build is merged
+        assertTrue(sync.loadBuildPushed(conn, 0));
+
+        assertFalse(sync.loadBuildPushed(conn, ProactiveFatBuildSync.MAX_PUSHED_BUILDS_PENDING));
+
+        verify(scheduler, times(1)).invokeLater(any(Runnable.class), anyLong(), any());
+        verifyNoMoreInteractions(scheduler);
+    }
+
+    /**
+     * Pushed builds are not loaded while run history is backpressured, they are kept pending for a delayed load.
+     */
+    @Test
+    public void testPushedBuildsArePostponedByHistoryBackpressure() {
+        IScheduler scheduler = Mockito.mock(IScheduler.class);
+        RunHistSync runHistSync = Mockito.mock(RunHistSync.class);
+        FatBuildDao fatBuildDao = Mockito.mock(FatBuildDao.class);
+
+        ProactiveFatBuildSync sync = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(IScheduler.class).toProvider(instanceProvider(scheduler));
+                bind(BuildRefDao.class).toProvider(mockProvider(BuildRefDao.class));
+                bind(FatBuildDao.class).toProvider(instanceProvider(fatBuildDao));
+                bind(IStringCompactor.class).toProvider(mockProvider(IStringCompactor.class));
+                bind(ChangeSync.class).toProvider(mockProvider(ChangeSync.class));
+                bind(RunHistSync.class).toProvider(instanceProvider(runHistSync));
+                bind(SyncBitmapDao.class).toProvider(mockProvider(SyncBitmapDao.class));
+            }
+        }).getInstance(ProactiveFatBuildSync.class);
+
+        ITeamcityConn conn = Mockito.mock(ITeamcityConn.class);
+        when(conn.serverId()).thenReturn("apache");
+        when(runHistSync.isBackpressured("apache")).thenReturn(true);
+
+        assertTrue(sync.loadBuildPushed(conn, 1));
+        assertTrue(sync.loadBuildPushed(conn, 2));
+
+        sync.loadPushedBuilds("apache", conn);
+
+        verify(scheduler).invokeLater(any(Runnable.class),
+            eq((long)ProactiveFatBuildSync.PUSHED_BACKPRESSURE_DELAY_SEC), eq(TimeUnit.SECONDS));
+        verify(conn, never()).getBuild(anyInt());
+
+        // Loader is still active, new event does not start another one.
+        assertTrue(sync.loadBuildPushed(conn, 3));
+
+        verify(scheduler, times(2)).invokeLater(any(Runnable.class), anyLong(), any());
+    }
+}
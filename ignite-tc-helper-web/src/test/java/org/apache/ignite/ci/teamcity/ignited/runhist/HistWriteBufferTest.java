@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.teamcity.ignited.runhist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks capacity, coalescing and draining of {@link HistWriteBuffer}.
+ */
+public class HistWriteBufferTest {
+    @Test
+    public void testInvocationsCoalescedAndDrained() {
+        HistWriteBuffer buf = new HistWriteBuffer(4, 10);
+
+        RunHistKey test = new RunHistKey(1, 100, 0);
+        RunHistKey suite = new RunHistKey(1, 200, 0);
+
+        assertTrue(buf.offer(Collections.singletonMap(test, Collections.singletonList(new Invocation(1))), 1,
+            suite, new Invocation(1)));
+        // Build 5 is in the same shard as build 1.
+        assertTrue(buf.offer(Collections.singletonMap(test, Collections.singletonList(new Invocation(5))), 1,
+            suite, new Invocation(5)));
+
+        assertEquals(4, buf.pending());
+        assertEquals(2, Arrays.stream(buf.shardsKeys()).sum());
+
+        Map<RunHistKey, List<Invocation>> tests = new HashMap<>();
+        Map<RunHistKey, List<Invocation>> suites = new HashMap<>();
+
+        for (int i = 0; i < buf.shards(); i++)
+            buf.drain(i, tests, suites);
+
+        assertEquals(0, buf.pending());
+        assertEquals(2, tests.get(test).size());
+        assertEquals(2, suites.get(suite).size());
+    }
+
+    @Test
+    public void testInvocationsOfBuildAreInOneShard() {
+        HistWriteBuffer buf = new HistWriteBuffer(4, 100);
+
+        Map<RunHistKey, List<Invocation>> tests = new HashMap<>();
+        for (int i = 0; i < 20; i++)
+            tests.put(new RunHistKey(1, i, 0), Collections.singletonList(new Invocation(7)));
+
+        assertTrue(buf.offer(tests, 20, new RunHistKey(1, 100, 0), new Invocation(7)));
+
+        int[] shardsPending = buf.shardsPending();
+
+        assertEquals(21, shardsPending[3]);
+        assertEquals(21, Arrays.stream(shardsPending).sum());
+
+        Map<RunHistKey, List<Invocation>> drainedTests = new HashMap<>();
+        Map<RunHistKey, List<Invocation>> drainedSuites = new HashMap<>();
+
+        buf.drain(3, drainedTests, drainedSuites);
+
+        assertEquals(tests.keySet(), drainedTests.keySet());
+        assertEquals(1, drainedSuites.size());
+        assertEquals(0, buf.pending());
+    }
+
+    @Test
+    public void testBuildIsDrainedAsWhole() throws Exception {
+        HistWriteBuffer buf = new HistWriteBuffer(1, 1_000_000);
+
+        int builds = 2000;
+        int testsPerBuild = 20;
+
+        Thread producer = new Thread(() -> {
+            for (int buildId = 0; buildId < builds; buildId++) {
+                Map<RunHistKey, List<Invocation>> tests = new HashMap<>();
+                for (int i = 0; i < testsPerBuild; i++)
+                    tests.put(new RunHistKey(1, i, 0), Collections.singletonList(new Invocation(buildId)));
+
+                assertTrue(buf.offer(tests, testsPerBuild, new RunHistKey(1, 100, 0), new Invocation(buildId)));
+            }
+        });
+
+        producer.start();
+
+        int drainedBuilds = 0;
+
+        while (producer.isAlive() || buf.pending() > 0) {
+            Map<RunHistKey, List<Invocation>> tests = new HashMap<>();
+            Map<RunHistKey, List<Invocation>> suites = new HashMap<>();
+
+            buf.drain(0, tests, suites);
+
+            Map<Integer, Integer> testsByBuild = new HashMap<>();
+            tests.values().forEach(list -> list.forEach(inv -> testsByBuild.merge(inv.buildId(), 1, Integer::sum)));
+
+            int suitesCnt = suites.values().stream().mapToInt(List::size).sum();
+
+            assertEquals(suitesCnt, testsByBuild.size());
+            testsByBuild.values().forEach(cnt -> assertEquals(testsPerBuild, (int)cnt));
+
+            drainedBuilds += suitesCnt;
+        }
+
+        producer.join();
+
+        assertEquals(builds, drainedBuilds);
+        assertEquals(0, buf.pending());
+    }
+
+    @Test
+    public void testBuildRejectedIfNoCapacity() {
+        HistWriteBuffer buf = new HistWriteBuffer(2, 10);
+
+        Map<RunHistKey, List<Invocation>> tests = new HashMap<>();
+        for (int i = 0; i < 8; i++)
+            tests.put(new RunHistKey(1, i, 0), new ArrayList<>(Collections.singletonList(new Invocation(1))));
+
+        assertTrue(buf.offer(tests, 8, new RunHistKey(1, 100, 0), new Invocation(1)));
+        assertFalse(buf.offer(tests, 8, new RunHistKey(1, 100, 0), new Invocation(2)));
+
+        assertEquals(9, buf.pending());
+        assertEquals(0.9, buf.fill(), 0.001);
+    }
+}
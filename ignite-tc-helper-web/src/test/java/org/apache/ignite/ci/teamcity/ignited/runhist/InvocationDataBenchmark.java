@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.teamcity.ignited.runhist;
+
+import com.google.common.base.Stopwatch;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import org.apache.ignite.ci.util.BenchmarkHarness;
+import org.apache.ignite.internal.util.typedef.internal.U;
+
+/**
+ * Compares packed {@link InvocationData} with previous implementation based on {@link TreeMap} of {@link Invocation}:
+ * heap used per test history, add and statistics query throughput. Not a unit test, should be started manually using
+ * {@link #main(String[])}, preferably with fixed heap size.
+ */
+public class InvocationDataBenchmark {
+    /** Test histories to keep in memory for footprint measurement. */
+    private static final int HISTORIES = 20_000;
+
+    /** Invocations per history, approximately 3 weeks of runs. */
+    private static final int INVOCATIONS = 100;
+
+    /** Adds for throughput measurement. */
+    private static final int ADDS = 2_000_000;
+
+    /** Statistics queries for throughput measurement. */
+    private static final int QUERIES = 2_000_000;
+
+    /**
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        BenchmarkHarness.rounds(3, round -> {
+            footprint("TreeMap", TreeMapInvocationData::new);
+            footprint("Packed", PackedInvocationData::new);
+
+            throughput("TreeMap", TreeMapInvocationData::new);
+            throughput("Packed", PackedInvocationData::new);
+        });
+    }
+
+    /**
+     * @param name Implementation name.
+     * @param factory Factory.
+     */
+    private static void footprint(String name, Supplier<History> factory) {
+        long before = BenchmarkHarness.usedHeap();
+        History[] hists = new History[HISTORIES];
+        long now = U.currentTimeMillis();
+
+        for (int i = 0; i < HISTORIES; i++) {
+            History hist = factory.get();
+
+            for (int id = 0; id < INVOCATIONS; id++)
+                hist.add(invocation(id, now));
+
+            hists[i] = hist;
+        }
+
+        long used = BenchmarkHarness.usedHeap() - before;
+
+        System.out.println(name + ": " + (used / HISTORIES) + " bytes per test history of " + INVOCATIONS +
+            " invocations (" + hists.length + " histories)");
+    }
+
+    /**
+     * @param name Implementation name.
+     * @param factory Factory.
+     */
+    private static void throughput(String name, Supplier<History> factory) {
+        long now = U.currentTimeMillis();
+        History hist = factory.get();
+        Stopwatch sw = Stopwatch.createStarted();
+
+        for (int id = 0; id < ADDS; id++) {
+            if (id % INVOCATIONS == 0)
+                hist = factory.get();
+
+            BenchmarkHarness.consume(hist.add(invocation(id, now)) ? 1 : 0);
+        }
+
+        BenchmarkHarness.report(name + " add", sw, ADDS);
+
+        sw = Stopwatch.createStarted();
+
+        for (int i = 0; i < QUERIES; i++)
+            BenchmarkHarness.consume(hist.runs() + hist.failures());
+
+        BenchmarkHarness.report(name + " runs and failures count", sw, QUERIES);
+    }
+
+    /**
+     * @param id Build id.
+     * @param now Current timestamp.
+     */
+    private static Invocation invocation(int id, long now) {
+        return new Invocation(id)
+            .withStatus(id % 10 == 0 ? InvocationData.FAILURE : InvocationData.OK)
+            .withStartDate(now - (INVOCATIONS - id % INVOCATIONS) * 1000L)
+            .withChanges(new int[0]);
+    }
+
+    /**
+     * Run history under test.
+     */
+    private interface History {
+        /**
+         * @param inv Invocation.
+         */
+        boolean add(Invocation inv);
+
+        /** */
+        int runs();
+
+        /** */
+        int failures();
+    }
+
+    /**
+     * Packed implementation.
+     */
+    private static class PackedInvocationData implements History {
+        /** Data. */
+        private final InvocationData data = new InvocationData();
+
+        /** {@inheritDoc} */
+        @Override public boolean add(Invocation inv) {
+            return data.addInvocation(inv);
+        }
+
+        /** {@inheritDoc} */
+        @Override public int runs() {
+            return data.notMutedRunsCount();
+        }
+
+        /** {@inheritDoc} */
+        @Override public int failures() {
+            return data.failuresCount();
+        }
+    }
+
+    /**
+     * Previous implementation: boxed invocations in tree map, eviction and counts are calculated using full iteration.
+     */
+    private static class TreeMapInvocationData implements History {
+        /** Invocations map from build ID to invocation data. */
+        private final Map<Integer, Invocation> invocationMap = new TreeMap<>();
+
+        /** {@inheritDoc} */
+        @Override public boolean add(Invocation inv) {
+            try {
+                if (invocationMap.containsKey(inv.buildId()) || InvocationData.isExpired(inv.startDate()))
+                    return false;
+
+                return invocationMap.putIfAbsent(inv.buildId(), inv) == null;
+            }
+            finally {
+                invocationMap.entrySet().removeIf(e -> InvocationData.isExpired(e.getValue().startDate()));
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override public int runs() {
+            return (int)invocationMap.values().stream()
+                .filter(inv -> !InvocationData.isExpired(inv.startDate()))
+                .filter(inv -> inv.status() != InvocationData.MUTED)
+                .count();
+        }
+
+        /** {@inheritDoc} */
+        @Override public int failures() {
+            return (int)invocationMap.values().stream()
+                .filter(inv -> !InvocationData.isExpired(inv.startDate()))
+                .filter(inv -> inv.status() == InvocationData.FAILURE
+                    || inv.status() == InvocationData.CRITICAL_FAILURE)
+                .count();
+        }
+    }
+}
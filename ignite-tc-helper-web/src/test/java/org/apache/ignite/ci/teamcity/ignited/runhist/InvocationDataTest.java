@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.teamcity.ignited.runhist;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.ignite.internal.util.typedef.internal.U;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks ordering, deduplication, eviction and counters of packed {@link InvocationData}.
+ */
+public class InvocationDataTest {
+    @Test
+    public void testInvocationsAreSortedAndCounted() {
+        InvocationData data = new InvocationData();
+        long now = U.currentTimeMillis();
+
+        assertTrue(data.addInvocation(inv(10, InvocationData.OK, now)));
+        assertTrue(data.addInvocation(inv(30, InvocationData.FAILURE, now)));
+        assertTrue(data.addInvocation(inv(20, InvocationData.MUTED, now)));
+        assertTrue(data.addInvocation(inv(5, InvocationData.CRITICAL_FAILURE, now)));
+        assertFalse(data.addInvocation(inv(20, InvocationData.OK, now)));
+        assertFalse(data.addInvocation(inv(-1, InvocationData.OK, now)));
+
+        assertEquals(Arrays.asList(5, 10, 20, 30), ids(data));
+        assertEquals(Arrays.asList(InvocationData.CRITICAL_FAILURE, InvocationData.OK, InvocationData.MUTED,
+            InvocationData.FAILURE), data.getLatestRuns());
+
+        assertEquals(3, data.allHistRuns());
+        assertEquals(2, data.allHistFailures());
+        assertEquals(3, data.notMutedRunsCount());
+        assertEquals(2, data.failuresCount());
+        assertEquals(1, data.criticalFailuresCount());
+    }
+
+    @Test
+    public void testExpiredInvocationsAreEvicted() throws Exception {
+        InvocationData data = new InvocationData();
+        long now = U.currentTimeMillis();
+        long old = now - TimeUnit.DAYS.toMillis(InvocationData.MAX_DAYS + 1);
+
+        assertFalse(data.addInvocation(inv(1, InvocationData.FAILURE, old)));
+        assertTrue(data.addInvocation(inv(2, InvocationData.FAILURE, now)));
+
+        // Invocation becomes expired after some time passed.
+        long almostOld = now - TimeUnit.DAYS.toMillis(InvocationData.MAX_DAYS) + 100;
+        assertTrue(data.addInvocation(inv(3, InvocationData.OK, almostOld)));
+
+        assertEquals(Arrays.asList(2, 3), ids(data));
+        assertEquals(2, data.notMutedRunsCount());
+
+        Thread.sleep(200);
+
+        assertEquals(Arrays.asList(2), ids(data));
+        assertEquals(1, data.notMutedRunsCount());
+        assertEquals(1, data.failuresCount());
+
+        assertTrue(data.addInvocation(inv(4, InvocationData.OK, now)));
+
+        assertEquals(Arrays.asList(2, 4), ids(data));
+        assertEquals(2, data.notMutedRunsCount());
+        assertEquals(3, data.allHistRuns());
+    }
+
+    @Test
+    public void testExpiredInvocationsAreAggregatedByDay() {
+        InvocationData data = new InvocationData();
+        long now = U.currentTimeMillis();
+        long dayMs = TimeUnit.DAYS.toMillis(1);
+        long oldDay = (now / dayMs - InvocationData.MAX_DAYS - 10) * dayMs;
+
+        assertFalse(data.addInvocation(inv(1, InvocationData.OK, oldDay + 1000)));
+        assertFalse(data.addInvocation(inv(2, InvocationData.FAILURE, oldDay + 2000)));
+        assertFalse(data.addInvocation(inv(3, InvocationData.MUTED, oldDay + dayMs + 1000)));
+        assertFalse(data.addInvocation(inv(4, InvocationData.OK,
+            now - TimeUnit.DAYS.toMillis(InvocationData.AGGREGATE_DAYS + 1))));
+        assertTrue(data.addInvocation(inv(5, InvocationData.FAILURE, now)));
+
+        assertEquals(Arrays.asList(5), ids(data));
+        assertEquals(1, data.failuresCount());
+        assertEquals(1, data.allHistRuns());
+        assertEquals(1, data.allHistFailures());
+
+        RunHistWindowStat all = new RunHistWindowStat();
+        data.collectStats(0, Long.MAX_VALUE, all);
+
+        assertEquals(3, all.getRunsCount());
+        assertEquals(2, all.getFailuresCount());
+        assertEquals(1, all.getMutedCount());
+
+        RunHistWindowStat firstDay = new RunHistWindowStat();
+        data.collectStats(oldDay, oldDay + dayMs, firstDay);
+
+        assertEquals(2, firstDay.getRunsCount());
+        assertEquals(1, firstDay.getFailuresCount());
+        assertEquals(0, firstDay.getMutedCount());
+    }
+
+    @Test
+    public void testDailyAggregatesArePacked() {
+        DailyAggregates aggregates = new DailyAggregates();
+        long day = (U.currentTimeMillis() / DailyAggregates.DAY_MS - InvocationData.MAX_DAYS - 30)
+            * DailyAggregates.DAY_MS;
+
+        for (int i = 0; i < 20; i++) {
+            long dayStart = day + i * DailyAggregates.DAY_MS;
+
+            aggregates.add(dayStart + 1000, (byte)InvocationData.OK, (byte)Invocation.CHANGE_PRESENT);
+            aggregates.add(dayStart + 2000, (byte)InvocationData.FAILURE, (byte)0);
+
+            if (i % 5 == 0)
+                aggregates.add(dayStart + 3000, (byte)InvocationData.MUTED, (byte)0);
+        }
+
+        for (int i = 0; i < 300; i++)
+            aggregates.add(day + 1000, (byte)InvocationData.OK, (byte)0);
+
+        byte[] packed = aggregates.pack();
+
+        DailyAggregates unpacked = new DailyAggregates();
+        unpacked.unpack(packed);
+
+        assertEquals(aggregates, unpacked);
+        assertTrue("Packed size: " + packed.length, packed.length < 20 * 5);
+
+        RunHistWindowStat stat = new RunHistWindowStat();
+        unpacked.collect(0, Long.MAX_VALUE, stat);
+
+        // Muted runs are not counted as runs.
+        assertEquals(20 * 2 + 300, stat.getRunsCount());
+        assertEquals(20, stat.getFailuresCount());
+        assertEquals(4, stat.getMutedCount());
+        assertEquals(20, stat.getRunsWithChangesCount());
+    }
+
+    /**
+     * @param data Data.
+     */
+    private static List<Integer> ids(InvocationData data) {
+        return data.invocations().map(Invocation::buildId).collect(Collectors.toList());
+    }
+
+    /**
+     * @param id Build id.
+     * @param status Status.
+     * @param startDate Start date.
+     */
+    private static Invocation inv(int id, int status, long startDate) {
+        return new Invocation(id).withStatus(status).withStartDate(startDate).withChanges(new int[0]);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.runhist;
+
+import com.google.common.base.Stopwatch;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.apache.ignite.ci.analysis.RunStat;
+import org.apache.ignite.ci.issue.EventTemplate;
+import org.apache.ignite.ci.issue.EventTemplates;
+import org.apache.ignite.ci.util.BenchmarkHarness;
+import org.apache.ignite.internal.util.typedef.internal.U;
+
+/**
+ * Compares previous per-test flakiness and template detection based on boxed {@link Invocation} lists with bulk
+ * {@link RunHistAnalyzer} for a batch of test histories, both for fresh and cached analysis. Not a unit test, should
+ * be started manually using {@link #main(String[])}.
+ */
+public class RunHistAnalyzerBenchmark {
+    /** Test histories in batch. */
+    private static final int TESTS = 50_000;
+
+    /** Invocations per history. */
+    private static final int INVOCATIONS = 100;
+
+    /**
+     * @param args Arguments.
+     */
+    public static void main(String[] args) {
+        RunHistCompacted[] hists = histories();
+        List<RunHistCompacted> batch = Arrays.asList(hists);
+
+        BenchmarkHarness.rounds(5, round -> {
+            Stopwatch sw = Stopwatch.createStarted();
+
+            for (RunHistCompacted hist : hists)
+                legacy(hist);
+
+            report("Legacy", sw);
+
+            RunHistAnalyzer analyzer = new RunHistAnalyzer();
+            sw = Stopwatch.createStarted();
+
+            for (RunHistCompacted hist : hists)
+                BenchmarkHarness.consume(analyzer.analyze(hist.data(), hist.getRunsAllHist()).statusChanges());
+
+            report("Bulk", sw);
+
+            sw = Stopwatch.createStarted();
+
+            analyzer.analyzeAll(batch);
+
+            for (RunHistCompacted hist : hists)
+                bulk(hist);
+
+            report("Bulk cached", sw);
+        });
+    }
+
+    /**
+     * @return Histories with random failures and rare changes.
+     */
+    private static RunHistCompacted[] histories() {
+        Random rnd = new Random(42);
+        long now = U.currentTimeMillis();
+        RunHistCompacted[] hists = new RunHistCompacted[TESTS];
+
+        for (int i = 0; i < TESTS; i++) {
+            RunHistCompacted hist = new RunHistCompacted();
+            int failRate = rnd.nextInt(20) + 1;
+
+            for (int id = 0; id < INVOCATIONS; id++) {
+                hist.addInvocation(new Invocation(id)
+                    .withStatus(rnd.nextInt(failRate) == 0 ? InvocationData.FAILURE : InvocationData.OK)
+                    .withStartDate(now - (INVOCATIONS - id) * 1000L)
+                    .withChanges(new int[rnd.nextInt(10) == 0 ? 1 : 0]));
+            }
+
+            hists[i] = hist;
+        }
+
+        return hists;
+    }
+
+    /**
+     * @param hist History.
+     */
+    private static void bulk(RunHistCompacted hist) {
+        String comments = hist.getFlakyComments();
+
+        BenchmarkHarness.consume(comments == null ? 0 : comments.length());
+
+        for (EventTemplate t : EventTemplates.templates) {
+            Integer buildId = hist.detectTemplate(t);
+
+            BenchmarkHarness.consume(buildId == null ? 0 : buildId);
+        }
+    }
+
+    /**
+     * Previous implementation: invocations are collected to list for flakiness check and for each template.
+     *
+     * @param hist History.
+     */
+    private static void legacy(RunHistCompacted hist) {
+        List<Invocation> latestRuns = hist.data().invocations().collect(Collectors.toList());
+        Invocation prev = null;
+        int statusChange = 0;
+
+        for (Invocation cur : latestRuns) {
+            if (prev != null && prev.status() != cur.status()
+                && cur.changesState() == ChangesState.NONE
+                && prev.changesState() != ChangesState.UNKNOWN)
+                statusChange++;
+
+            prev = cur;
+        }
+
+        BenchmarkHarness.consume(statusChange);
+
+        for (EventTemplate t : EventTemplates.templates) {
+            Integer buildId = legacyDetect(hist, t);
+
+            BenchmarkHarness.consume(buildId == null ? 0 : buildId);
+        }
+    }
+
+    /**
+     * @param hist History.
+     * @param t Template.
+     */
+    private static Integer legacyDetect(RunHistCompacted hist, EventTemplate t) {
+        int centralEvtBuild = t.beforeEvent().length;
+        int[] template = new int[t.cntEvents()];
+
+        System.arraycopy(t.beforeEvent(), 0, template, 0, t.beforeEvent().length);
+        System.arraycopy(t.eventAndAfter(), 0, template, t.beforeEvent().length, t.eventAndAfter().length);
+
+        List<Invocation> histAsArr = hist.data().invocations().collect(Collectors.toList());
+
+        if (histAsArr.size() < template.length)
+            return null;
+
+        if (t.shouldBeFirst()) {
+            if (histAsArr.size() < hist.getRunsAllHist())
+                return null;
+
+            return checkAtPos(template, centralEvtBuild, histAsArr, 0);
+        }
+
+        for (int idx = histAsArr.size() - template.length; idx >= 0; idx--) {
+            Integer detectedAt = checkAtPos(template, centralEvtBuild, histAsArr, idx);
+
+            if (detectedAt != null)
+                return detectedAt;
+        }
+
+        return null;
+    }
+
+    /**
+     * @param template Template.
+     * @param centralEvtBuild Central event index.
+     * @param histAsArr History.
+     * @param idx Position.
+     */
+    private static Integer checkAtPos(int[] template, int centralEvtBuild, List<Invocation> histAsArr, int idx) {
+        for (int tIdx = 0; tIdx < template.length; tIdx++) {
+            int status = histAsArr.get(idx + tIdx).status();
+            RunStat.RunStatus tmpl = RunStat.RunStatus.byCode(template[tIdx]);
+
+            if ((tmpl == RunStat.RunStatus.RES_OK_OR_FAILURE
+                && (status == InvocationData.OK || status == InvocationData.FAILURE))
+                || status == tmpl.getCode()) {
+                if (tIdx == template.length - 1)
+                    return histAsArr.get(idx + centralEvtBuild).buildId();
+            }
+            else
+                return null;
+        }
+
+        return null;
+    }
+
+    /**
+     * @param name Measurement name.
+     * @param sw Stopwatch.
+     */
+    private static void report(String name, Stopwatch sw) {
+        BenchmarkHarness.report(name + " analysis of test history", sw, TESTS);
+    }
+}
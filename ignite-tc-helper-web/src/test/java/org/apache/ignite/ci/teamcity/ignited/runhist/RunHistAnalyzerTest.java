@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.teamcity.ignited.runhist;
+
+import java.util.Collections;
+import org.apache.ignite.ci.issue.EventTemplate;
+import org.apache.ignite.ci.issue.EventTemplates;
+import org.apache.ignite.internal.util.typedef.internal.U;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks flakiness and template detection of {@link RunHistAnalyzer} and invalidation of cached analysis.
+ */
+public class RunHistAnalyzerTest {
+    @Test
+    public void testNewFailureIsDetected() {
+        RunHistCompacted hist = hist(InvocationData.OK, InvocationData.OK, InvocationData.OK, InvocationData.OK,
+            InvocationData.OK, InvocationData.FAILURE, InvocationData.FAILURE, InvocationData.FAILURE,
+            InvocationData.FAILURE);
+
+        RunHistAnalyzer.local().analyzeAll(Collections.singletonList(hist));
+
+        assertEquals(Integer.valueOf(6), hist.detectTemplate(EventTemplates.newFailure));
+        assertNull(hist.detectTemplate(EventTemplates.fixOfFailure));
+        assertNull(hist.detectTemplate(EventTemplates.newContributedTestFailure));
+        assertNull(hist.detectTemplate(EventTemplates.newCriticalFailure));
+        assertEquals("Test seems to be flaky: changed its status [1/9] without code modifications",
+            hist.getFlakyComments());
+    }
+
+    @Test
+    public void testAnalysisIsInvalidatedByNewInvocation() {
+        RunHistCompacted hist = hist(InvocationData.FAILURE, InvocationData.FAILURE, InvocationData.FAILURE,
+            InvocationData.FAILURE);
+
+        assertEquals(Integer.valueOf(1), hist.detectTemplate(EventTemplates.newContributedTestFailure));
+        assertNull(hist.getFlakyComments());
+
+        hist.addInvocation(inv(5, InvocationData.OK));
+
+        assertEquals("Test seems to be flaky: changed its status [1/5] without code modifications",
+            hist.getFlakyComments());
+
+        EventTemplate fix = new EventTemplate(new int[] {InvocationData.FAILURE}, new int[] {InvocationData.OK});
+
+        assertEquals(Integer.valueOf(5), hist.detectTemplate(fix));
+    }
+
+    /**
+     * @param statuses Statuses of builds with IDs starting from 1.
+     */
+    private static RunHistCompacted hist(int... statuses) {
+        RunHistCompacted hist = new RunHistCompacted();
+
+        for (int i = 0; i < statuses.length; i++)
+            hist.addInvocation(inv(i + 1, statuses[i]));
+
+        return hist;
+    }
+
+    /**
+     * @param id Build id.
+     * @param status Status.
+     */
+    private static Invocation inv(int id, int status) {
+        return new Invocation(id).withStatus(status).withStartDate(U.currentTimeMillis()).withChanges(new int[0]);
+    }
+}
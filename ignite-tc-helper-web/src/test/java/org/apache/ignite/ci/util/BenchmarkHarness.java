@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.util;
+
+import com.google.common.base.Stopwatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.ci.db.TcHelperDb;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
+
+/**
+ * Common part of manual benchmarks started using main(): measurement rounds, report of timings, heap usage and local
+ * Ignite node. Benchmarks are not unit tests and are not run by build.
+ */
+public class BenchmarkHarness {
+    /** Sink to prevent dead code elimination. */
+    private static long sink;
+
+    /**
+     * Runs measurement rounds, first rounds are warm up of JIT.
+     *
+     * @param rounds Rounds count.
+     * @param round Round body, accepts round index.
+     */
+    public static void rounds(int rounds, IntConsumer round) {
+        for (int i = 0; i < rounds; i++) {
+            System.out.println("Round " + i);
+
+            round.accept(i);
+        }
+
+        System.out.println("Checksum " + sink);
+    }
+
+    /**
+     * @param val Value computed by benchmark, consumed to prevent dead code elimination.
+     */
+    public static void consume(long val) {
+        sink += val;
+    }
+
+    /**
+     * Prints elapsed time in total and per operation.
+     *
+     * @param name Measurement name.
+     * @param sw Stopwatch started before operations.
+     * @param ops Operations done.
+     */
+    public static void report(String name, Stopwatch sw, long ops) {
+        long ns = sw.elapsed(TimeUnit.NANOSECONDS);
+        double nsPerOp = (double)ns / Math.max(ops, 1);
+
+        String perOp = nsPerOp >= TimeUnit.MILLISECONDS.toNanos(1)
+            ? String.format("%.2fms/op", nsPerOp / TimeUnit.MILLISECONDS.toNanos(1))
+            : String.format("%.1fns/op", nsPerOp);
+
+        System.out.println(name + ": " + ops + " op(s) in " + TimeUnit.NANOSECONDS.toMillis(ns) + "ms, " + perOp);
+    }
+
+    /**
+     * @return Heap used after GC.
+     */
+    public static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++)
+            System.gc();
+
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /**
+     * Starts Ignite node discovering only local port, so benchmark doesn't join other nodes.
+     *
+     * @param port Discovery port.
+     */
+    public static Ignite startIgnite(int port) {
+        IgniteConfiguration cfg = new IgniteConfiguration();
+        TcpDiscoverySpi spi = new TcpDiscoverySpi();
+
+        spi.setLocalPort(port);
+        spi.setLocalPortRange(1);
+        spi.setIpFinder(new TcHelperDb.LocalOnlyTcpDiscoveryIpFinder(port));
+
+        cfg.setDiscoverySpi(spi);
+
+        return Ignition.start(cfg);
+    }
+}
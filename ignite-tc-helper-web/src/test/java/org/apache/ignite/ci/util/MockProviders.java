@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.util;
+
+import com.google.inject.Provider;
+import org.mockito.Mockito;
+
+/**
+ * Guice providers of mocks for test modules. Unlike {@code toInstance()} binding, provider binding does not inject
+ * members into mocked classes, so their dependencies need not be bound.
+ */
+public class MockProviders {
+    /**
+     * @param cls Class to mock.
+     * @return Provider returning the same mock on each call.
+     */
+    public static <T> Provider<T> mockProvider(Class<T> cls) {
+        return instanceProvider(Mockito.mock(cls));
+    }
+
+    /**
+     * @param instance Instance, usually a mock configured by test.
+     * @return Provider returning given instance.
+     */
+    public static <T> Provider<T> instanceProvider(T instance) {
+        return () -> instance;
+    }
+}
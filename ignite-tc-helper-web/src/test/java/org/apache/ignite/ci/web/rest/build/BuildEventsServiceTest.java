@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.web.rest.build;
+
+import org.junit.Test;
+
+import static org.apache.ignite.ci.web.rest.build.BuildEventsService.isSecretValid;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks validation of build events sender in {@link BuildEventsService}.
+ */
+public class BuildEventsServiceTest {
+    /** */
+    @Test
+    public void testEventsAreRejectedWithoutConfiguredSecret() {
+        assertFalse(isSecretValid(null, null));
+        assertFalse(isSecretValid(null, "any"));
+        assertFalse(isSecretValid("", ""));
+    }
+
+    /** */
+    @Test
+    public void testSecretShouldMatch() {
+        assertTrue(isSecretValid("s3cret", "s3cret"));
+        assertFalse(isSecretValid("s3cret", null));
+        assertFalse(isSecretValid("s3cret", "s3cre"));
+        assertFalse(isSecretValid("s3cret", "S3CRET"));
+    }
+}